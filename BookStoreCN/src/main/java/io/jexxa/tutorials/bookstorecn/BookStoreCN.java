@@ -5,10 +5,16 @@ import io.jexxa.core.JexxaMain;
 import io.jexxa.drivingadapter.rest.RESTfulRPCAdapter;
 import io.jexxa.esp.drivingadapter.KafkaAdapter;
 import io.jexxa.tutorials.bookstorecn.applicationservice.BookStoreService;
+import io.jexxa.tutorials.bookstorecn.domain.book.BookRestocked;
 import io.jexxa.tutorials.bookstorecn.domain.book.BookSoldOut;
 import io.jexxa.tutorials.bookstorecn.domainservice.IntegrationEventSender;
 import io.jexxa.tutorials.bookstorecn.domainservice.ReferenceLibrary;
+import io.jexxa.tutorials.bookstorecn.infrastructure.drivingadapter.eventstream.BookRestockedListener;
 import io.jexxa.tutorials.bookstorecn.infrastructure.drivingadapter.eventstream.BookSoldOutListener;
+import io.jexxa.tutorials.bookstorecn.infrastructure.drivingadapter.eventstream.CloseOnShutdownAdapter;
+import io.jexxa.tutorials.bookstorecn.infrastructure.drivingadapter.eventstream.ConsumerMetrics;
+import io.jexxa.tutorials.bookstorecn.infrastructure.drivingadapter.eventstream.RetryTopicAdapter;
+import io.jexxa.tutorials.bookstorecn.infrastructure.drivingadapter.eventstream.RetryingEventListener;
 
 import static io.jexxa.tutorials.bookstorecn.domain.DomainEventPublisher.subscribe;
 
@@ -16,16 +22,53 @@ public final class BookStoreCN
 {
     static void main()
     {
-        var jexxaMain = new JexxaMain(BookStoreCN.class);
+        configure(new JexxaMain(BookStoreCN.class))
+                .run(); // Finally, run the application
+    }
+
+    /**
+     * Binds all ports of this application to their driving adapters. This method is separated from {@code main}, so
+     * that the application can also be started in-process, e.g., by performance tests.
+     */
+    public static JexxaMain configure(JexxaMain jexxaMain)
+    {
+        // The listeners are created explicitly because their retry listeners must be bound to the same instance
+        var bookStoreService = jexxaMain.getInstanceOfPort(BookStoreService.class);
+        var bookSoldOutListener = new BookSoldOutListener(bookStoreService, jexxaMain.getProperties());
+        var bookRestockedListener = new BookRestockedListener(bookStoreService, jexxaMain.getProperties());
+        var consumerMetrics = new ConsumerMetrics(jexxaMain.getProperties());
 
         jexxaMain
                 .bootstrap(ReferenceLibrary.class).and()       // Bootstrap the latest books via ReferenceLibrary
-                .bootstrap(IntegrationEventSender.class).with(sender -> subscribe(BookSoldOut.class, sender::publish)) // publish BookSoldOut
+                .bootstrap(IntegrationEventSender.class).with(sender -> {
+                    subscribe(BookSoldOut.class, sender::publish);   // publish BookSoldOut
+                    subscribe(BookRestocked.class, sender::publish); // publish BookRestocked
+                })
 
                 .bind(RESTfulRPCAdapter.class).to(BookStoreService.class)        // Provide REST access to BookStoreService
                 .bind(RESTfulRPCAdapter.class).to(jexxaMain.getBoundedContext()) // Provide REST access to BoundedContext
-                .bind(KafkaAdapter.class).to(BookSoldOutListener.class)
-                .run(); // Finally, run the application
+                .bind(RESTfulRPCAdapter.class).to(consumerMetrics)               // Provide REST access to metrics of our event listeners
+                .bind(CloseOnShutdownAdapter.class).to(consumerMetrics);         // Stop sampling the consumer lag on shutdown
+
+        bind(jexxaMain, bookSoldOutListener);
+        bind(jexxaMain, bookRestockedListener);
+
+        return jexxaMain;
+    }
+
+    private static void bind(JexxaMain jexxaMain, RetryingEventListener<?, ?> eventListener)
+    {
+        jexxaMain.bind(KafkaAdapter.class).to(eventListener);
+
+        // Failed records are retried via separate retry topics so that the partitions of the topic are not blocked
+        eventListener
+                .getRetryListeners()
+                .forEach(retryListener -> jexxaMain.bind(RetryTopicAdapter.class).to(retryListener));
+
+        // Large payloads are stored in S3 and only a claim check is sent to topic <topic>-claimcheck
+        eventListener
+                .getClaimCheckListener()
+                .ifPresent(claimCheckListener -> jexxaMain.bind(KafkaAdapter.class).to(claimCheckListener));
     }
 
 
@@ -5,7 +5,10 @@ import io.jexxa.tutorials.bookstorecn.domain.book.Book;
 import io.jexxa.tutorials.bookstorecn.domain.book.BookNotInStockException;
 import io.jexxa.tutorials.bookstorecn.domain.book.BookRepository;
 import io.jexxa.tutorials.bookstorecn.domain.book.ISBN13;
+import io.jexxa.tutorials.bookstorecn.domain.book.SoldOutState;
+import io.jexxa.tutorials.bookstorecn.domainservice.SoldOutView;
 
+import java.time.Instant;
 import java.util.List;
 
 import static io.jexxa.tutorials.bookstorecn.domain.book.Book.newBook;
@@ -15,10 +18,12 @@ import static io.jexxa.tutorials.bookstorecn.domain.book.Book.newBook;
 public class BookStoreService
 {
     private final BookRepository bookRepository;
+    private final SoldOutView soldOutView;
 
-    public BookStoreService (BookRepository bookRepository)
+    public BookStoreService (BookRepository bookRepository, SoldOutView soldOutView)
     {
         this.bookRepository = bookRepository;
+        this.soldOutView = soldOutView;
     }
 
     public void addToStock(ISBN13 isbn13, int amount)
@@ -76,4 +81,31 @@ public class BookStoreService
                 .map(Book::getISBN13)
                 .toList();
     }
+
+    /**
+     * Returns the sold-out state of all given books from the local view, so that clients can check a large
+     * number of books with a single request.
+     */
+    public List<SoldOutState> getSoldOutStates(List<ISBN13> isbn13s)
+    {
+        return soldOutView.get(isbn13s);
+    }
+
+    /**
+     * Records that a book was reported as sold out via an integration event.
+     *
+     * @param soldOutAt point in time when the book was sold out, or null if it is unknown
+     */
+    public void registerSoldOut(ISBN13 isbn13, Instant soldOutAt)
+    {
+        soldOutView.markSoldOut(isbn13, soldOutAt != null ? soldOutAt : Instant.now());
+    }
+
+    /**
+     * Records that a book was reported as restocked via an integration event.
+     */
+    public void registerRestocked(ISBN13 isbn13, Instant restockedAt)
+    {
+        soldOutView.markInStock(isbn13, restockedAt);
+    }
 }
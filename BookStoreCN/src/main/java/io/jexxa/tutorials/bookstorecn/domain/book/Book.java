@@ -4,8 +4,10 @@ import io.jexxa.addend.applicationcore.Aggregate;
 import io.jexxa.addend.applicationcore.AggregateFactory;
 import io.jexxa.addend.applicationcore.AggregateID;
 
+import java.time.Instant;
 import java.util.UUID;
 
+import static io.jexxa.tutorials.bookstorecn.domain.book.BookRestocked.bookRestocked;
 import static io.jexxa.tutorials.bookstorecn.domain.book.BookSoldOut.bookSoldOut;
 import static io.jexxa.tutorials.bookstorecn.domain.DomainEventPublisher.publish;
 
@@ -38,7 +40,14 @@ public final class Book
 
     public void addToStock( int amount )
     {
+        var wasInStock = inStock();
+
         amountInStock += amount;
+
+        if ( ! wasInStock && inStock() )
+        {
+            publish(bookRestocked( UUID.randomUUID(), isbn13, Instant.now()));
+        }
     }
 
     public void sell() throws BookNotInStockException
@@ -52,7 +61,7 @@ public final class Book
 
         if ( ! inStock() )
         {
-            publish(bookSoldOut( UUID.randomUUID(), isbn13));
+            publish(bookSoldOut( UUID.randomUUID(), isbn13, Instant.now()));
         }
     }
 
@@ -0,0 +1,21 @@
+package io.jexxa.tutorials.bookstorecn.domain.book;
+
+import io.jexxa.addend.applicationcore.DomainEvent;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Published when a book that was not in stock is added to the stock again, so that all instances of the application
+ * can remove it from their view of sold-out books.
+ *
+ * @param restockedAt point in time when the book was added to the stock
+ */
+@DomainEvent
+public record BookRestocked(UUID uuid, ISBN13 isbn13, Instant restockedAt)
+{
+    public static BookRestocked bookRestocked(UUID uuid, ISBN13 isbn13, Instant restockedAt)
+    {
+        return new BookRestocked(uuid, isbn13, restockedAt);
+    }
+}
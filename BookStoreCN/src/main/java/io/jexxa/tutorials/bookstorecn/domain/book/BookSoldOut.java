@@ -2,13 +2,17 @@ package io.jexxa.tutorials.bookstorecn.domain.book;
 
 import io.jexxa.addend.applicationcore.DomainEvent;
 
+import java.time.Instant;
 import java.util.UUID;
 
+/**
+ * @param soldOutAt point in time when the last book was sold. It is null for events published by older versions.
+ */
 @DomainEvent
-public record BookSoldOut(UUID uuid, ISBN13 isbn13)
+public record BookSoldOut(UUID uuid, ISBN13 isbn13, Instant soldOutAt)
 {
-    public static BookSoldOut bookSoldOut(UUID uuid, ISBN13 isbn13)
+    public static BookSoldOut bookSoldOut(UUID uuid, ISBN13 isbn13, Instant soldOutAt)
     {
-        return new BookSoldOut(uuid, isbn13);
+        return new BookSoldOut(uuid, isbn13, soldOutAt);
     }
 }
@@ -0,0 +1,26 @@
+package io.jexxa.tutorials.bookstorecn.domain.book;
+
+import io.jexxa.addend.applicationcore.ValueObject;
+
+import java.time.Instant;
+
+/**
+ * Describes whether a book is sold out and since when.
+ *
+ * @param isbn13 the book
+ * @param soldOut true if the book is sold out
+ * @param soldOutSince point in time when the book was reported as sold out, or null if it is not sold out
+ */
+@ValueObject
+public record SoldOutState(ISBN13 isbn13, boolean soldOut, Instant soldOutSince)
+{
+    public static SoldOutState soldOut(ISBN13 isbn13, Instant soldOutSince)
+    {
+        return new SoldOutState(isbn13, true, soldOutSince);
+    }
+
+    public static SoldOutState inStock(ISBN13 isbn13)
+    {
+        return new SoldOutState(isbn13, false, null);
+    }
+}
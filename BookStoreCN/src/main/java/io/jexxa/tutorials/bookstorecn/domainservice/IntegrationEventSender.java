@@ -1,10 +1,13 @@
 package io.jexxa.tutorials.bookstorecn.domainservice;
 
 import io.jexxa.addend.applicationcore.InfrastructureService;
+import io.jexxa.tutorials.bookstorecn.domain.book.BookRestocked;
 import io.jexxa.tutorials.bookstorecn.domain.book.BookSoldOut;
 
 @InfrastructureService
 public interface IntegrationEventSender
 {
     void publish(BookSoldOut domainEvent);
+
+    void publish(BookRestocked domainEvent);
 }
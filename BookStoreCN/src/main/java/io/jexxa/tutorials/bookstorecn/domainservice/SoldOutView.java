@@ -0,0 +1,27 @@
+package io.jexxa.tutorials.bookstorecn.domainservice;
+
+import io.jexxa.addend.applicationcore.InfrastructureService;
+import io.jexxa.tutorials.bookstorecn.domain.book.ISBN13;
+import io.jexxa.tutorials.bookstorecn.domain.book.SoldOutState;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Local, persistent view of all books that are reported as sold out via integration events.
+ * <p>
+ * Sold-out and restocked events are received on different topics, so that they can arrive out of order. Therefore,
+ * a change only takes effect if it happened after the last change of the same book.
+ */
+@InfrastructureService
+public interface SoldOutView
+{
+    void markSoldOut(ISBN13 isbn13, Instant soldOutSince);
+
+    void markInStock(ISBN13 isbn13, Instant inStockSince);
+
+    /**
+     * @return the state of all given books in the same order. Books that are not known are reported as not sold out.
+     */
+    List<SoldOutState> get(List<ISBN13> isbn13s);
+}
@@ -0,0 +1,18 @@
+package io.jexxa.tutorials.bookstorecn.infrastructure.drivenadapter.messaging;
+
+/**
+ * Reference to the payload of an integration event that is too large to be sent via Kafka. The payload itself is
+ * stored as JSON in S3 and sent to the companion topic {@code <topic>-claimcheck}.
+ *
+ * @param bucket S3 bucket containing the payload
+ * @param key S3 object key of the payload
+ * @param payloadType simple class name of the event stored in S3
+ * @param size size of the payload in bytes
+ */
+public record ClaimCheck(String bucket, String key, String payloadType, long size)
+{
+    public static String claimCheckTopic(String topic)
+    {
+        return topic + "-claimcheck";
+    }
+}
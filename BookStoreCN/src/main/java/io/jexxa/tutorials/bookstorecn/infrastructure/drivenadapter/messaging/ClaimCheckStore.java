@@ -0,0 +1,41 @@
+package io.jexxa.tutorials.bookstorecn.infrastructure.drivenadapter.messaging;
+
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+
+import java.util.Properties;
+import java.util.UUID;
+
+import static io.jexxa.tutorials.bookstorecn.infrastructure.support.S3ClientFactory.S3_BUCKET;
+import static io.jexxa.tutorials.bookstorecn.infrastructure.support.S3ClientFactory.createS3Client;
+
+/**
+ * Stores payloads of integration events in the S3 bucket that is also used by the repositories of this application.
+ */
+final class ClaimCheckStore
+{
+    private final S3Client s3Client;
+    private final String bucket;
+
+    ClaimCheckStore(Properties properties)
+    {
+        this.bucket = properties.getProperty(S3_BUCKET);
+        this.s3Client = createS3Client(properties);
+    }
+
+    ClaimCheck store(String topic, Class<?> payloadType, byte[] payload)
+    {
+        var key = "claimcheck/" + topic + "/" + UUID.randomUUID() + ".json";
+
+        s3Client.putObject(PutObjectRequest.builder()
+                        .bucket(bucket)
+                        .key(key)
+                        .contentType("application/json")
+                        .contentLength((long) payload.length)
+                        .build(),
+                RequestBody.fromBytes(payload));
+
+        return new ClaimCheck(bucket, key, payloadType.getSimpleName(), payload.length);
+    }
+}
@@ -2,34 +2,83 @@ package io.jexxa.tutorials.bookstorecn.infrastructure.drivenadapter.messaging;
 
 import io.jexxa.addend.infrastructure.DrivenAdapter;
 import io.jexxa.esp.drivenadapter.EventSender;
+import io.jexxa.tutorials.bookstorecn.domain.book.BookRestocked;
 import io.jexxa.tutorials.bookstorecn.domain.book.BookSoldOut;
 import io.jexxa.tutorials.bookstorecn.domainservice.IntegrationEventSender;
 
+import java.nio.charset.StandardCharsets;
 import java.util.Properties;
 
+import static io.jexxa.common.facade.json.JSONManager.getJSONConverter;
 import static io.jexxa.esp.drivenadapter.EventSenderFactory.createEventSender;
+import static io.jexxa.tutorials.bookstorecn.infrastructure.drivenadapter.messaging.ClaimCheck.claimCheckTopic;
+import static io.jexxa.tutorials.bookstorecn.infrastructure.support.S3ClientFactory.isS3Configured;
 
 
 @SuppressWarnings("unused")
 @DrivenAdapter
 public class IntegrationEventSenderImpl implements IntegrationEventSender {
+    static final String CLAIM_CHECK_THRESHOLD = "bookstorecn.claimcheck.threshold.bytes";
+
     private final EventSender eventSender;
+    private final ClaimCheckStore claimCheckStore;
+    private final long claimCheckThreshold;
 
     public IntegrationEventSenderImpl(Properties properties)
     {
         // Request an EventSender and configure it to given properties
         eventSender = createEventSender(IntegrationEventSender.class, properties);
+
+        // Large payloads are stored in S3 and only a reference is sent via Kafka (claim-check pattern)
+        claimCheckThreshold = Long.parseLong(properties.getProperty(CLAIM_CHECK_THRESHOLD, "524288"));
+        claimCheckStore = isS3Configured(properties) ? new ClaimCheckStore(properties) : null;
     }
 
     @Override
     public void publish(BookSoldOut domainEvent)
     {
-        // For publishing a DomainEvent, we use a fluent API in Jexxa
+        send(domainEvent.isbn13(), domainEvent, "BookStore");
+    }
+
+    @Override
+    public void publish(BookRestocked domainEvent)
+    {
+        send(domainEvent.isbn13(), domainEvent, "BookStore-restocked");
+    }
+
+    private void send(Object key, Object domainEvent, String topic)
+    {
+        if (claimCheckStore == null)
+        {
+            // For publishing a DomainEvent, we use a fluent API in Jexxa
+            eventSender
+                    // In contrast to messaging, it is highly recommended to use a key, typically the aggregateID
+                    .send(key, domainEvent)
+                    .toTopic(topic)
+                    .addHeader("Type", domainEvent.getClass().getSimpleName())
+                    .asJSON();
+            return;
+        }
+
+        // The event is serialized only once: Its size decides about the claim check, and a small event is sent as
+        // already serialized JSON text, so that the EventSender does not serialize it again. The key is serialized
+        // as JSON as well, so that the record is identical to one sent via asJSON()
+        var json = getJSONConverter().toJson(domainEvent);
+        var payload = json.getBytes(StandardCharsets.UTF_8);
+        if (payload.length > claimCheckThreshold)
+        {
+            eventSender
+                    .send(key, claimCheckStore.store(topic, domainEvent.getClass(), payload))
+                    .toTopic(claimCheckTopic(topic))
+                    .addHeader("Type", domainEvent.getClass().getSimpleName())
+                    .asJSON();
+            return;
+        }
+
         eventSender
-                // In contrast to messaging, it is highly recommended to use a key, typically the aggregateID
-                .send(domainEvent.isbn13(), domainEvent)
-                .toTopic("BookStore")
+                .send(getJSONConverter().toJson(key), json)
+                .toTopic(topic)
                 .addHeader("Type", domainEvent.getClass().getSimpleName())
-                .asJSON();
+                .asText();
     }
 }
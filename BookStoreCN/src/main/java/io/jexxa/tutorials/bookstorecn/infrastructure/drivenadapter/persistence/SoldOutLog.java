@@ -0,0 +1,219 @@
+package io.jexxa.tutorials.bookstorecn.infrastructure.drivenadapter.persistence;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Embedded key-value store that keeps the sold-out timestamp of each ISBN in an append-only file.
+ * <p>
+ * The point in time since when a book is in stock again is kept as well, so that a sold-out event that happened
+ * before is ignored if it arrives late. A change only takes effect if it is not older than the current entry.
+ * <p>
+ * All entries are held in memory for lookups. Each change is appended to the log and forced to disk, so that the
+ * view survives a restart. When the log contains much more records than live entries, it is compacted by writing
+ * all live entries to a new file which atomically replaces the old one.
+ * <p>
+ * Record format: {@code [short length of key][key as UTF-8][long value]}. The value is the epoch millis since when the
+ * book is sold out, {@code -2 - epoch millis} since when it is in stock again, or -1 if the entry was removed.
+ */
+final class SoldOutLog
+{
+    private static final String LOG_FILE = "soldout.log";
+    private static final long REMOVED = -1;
+    private static final int COMPACTION_FACTOR = 4;
+    private static final int MIN_RECORDS_BEFORE_COMPACTION = 1_000;
+
+    private final Path logFile;
+    private final Map<String, Instant> entries = new ConcurrentHashMap<>();
+    private final Map<String, Instant> inStockSince = new ConcurrentHashMap<>();
+    private FileChannel channel;
+    private long recordsInLog;
+
+    SoldOutLog(Path directory)
+    {
+        try
+        {
+            Files.createDirectories(directory);
+            this.logFile = directory.resolve(LOG_FILE);
+            recordsInLog = load();
+            channel = FileChannel.open(logFile, CREATE, WRITE, APPEND);
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    Optional<Instant> get(String key)
+    {
+        return Optional.ofNullable(entries.get(key));
+    }
+
+    synchronized void put(String key, Instant value)
+    {
+        var soldOutSince = entries.get(key);
+        var restocked = inStockSince.get(key);
+        if ((soldOutSince != null && !soldOutSince.isBefore(value)) || (restocked != null && restocked.isAfter(value)))
+        {
+            return;
+        }
+
+        inStockSince.remove(key);
+        entries.put(key, value);
+        append(key, value.toEpochMilli());
+    }
+
+    /**
+     * Removes the entry of given key, unless it was sold out after {@code since}.
+     */
+    synchronized void putInStock(String key, Instant since)
+    {
+        var soldOutSince = entries.get(key);
+        var restocked = inStockSince.get(key);
+        if ((soldOutSince != null && soldOutSince.isAfter(since)) || (restocked != null && !restocked.isBefore(since)))
+        {
+            return;
+        }
+
+        entries.remove(key);
+        inStockSince.put(key, since);
+        append(key, inStock(since));
+    }
+
+    synchronized void remove(String key)
+    {
+        var restocked = inStockSince.remove(key);
+        if (entries.remove(key) != null || restocked != null)
+        {
+            append(key, REMOVED);
+        }
+    }
+
+    private void append(String key, long value)
+    {
+        try
+        {
+            var buffer = encode(key, value);
+            while (buffer.hasRemaining())
+            {
+                channel.write(buffer);
+            }
+            channel.force(false);
+            ++recordsInLog;
+
+            if (recordsInLog > MIN_RECORDS_BEFORE_COMPACTION && recordsInLog > (long) COMPACTION_FACTOR * liveEntries())
+            {
+                compact();
+            }
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void compact() throws IOException
+    {
+        var compactedFile = logFile.resolveSibling(LOG_FILE + ".compacted");
+        try (var compactedChannel = FileChannel.open(compactedFile, CREATE, WRITE, TRUNCATE_EXISTING))
+        {
+            for (var entry : entries.entrySet())
+            {
+                write(compactedChannel, encode(entry.getKey(), entry.getValue().toEpochMilli()));
+            }
+            for (var entry : inStockSince.entrySet())
+            {
+                write(compactedChannel, encode(entry.getKey(), inStock(entry.getValue())));
+            }
+            compactedChannel.force(true);
+        }
+
+        channel.close();
+        Files.move(compactedFile, logFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        channel = FileChannel.open(logFile, CREATE, WRITE, APPEND);
+        recordsInLog = liveEntries();
+    }
+
+    private long liveEntries()
+    {
+        return (long) entries.size() + inStockSince.size();
+    }
+
+    private static void write(FileChannel fileChannel, ByteBuffer buffer) throws IOException
+    {
+        while (buffer.hasRemaining())
+        {
+            fileChannel.write(buffer);
+        }
+    }
+
+    private long load() throws IOException
+    {
+        if (!Files.exists(logFile))
+        {
+            return 0;
+        }
+
+        var records = 0L;
+        try (var readChannel = FileChannel.open(logFile, READ))
+        {
+            var buffer = readChannel.map(FileChannel.MapMode.READ_ONLY, 0, readChannel.size());
+            while (buffer.remaining() >= Short.BYTES)
+            {
+                var keyLength = buffer.getShort();
+                if (buffer.remaining() < keyLength + Long.BYTES)
+                {
+                    break; // Ignore a partially written record at the end of the log
+                }
+                var key = new byte[keyLength];
+                buffer.get(key);
+                var value = buffer.getLong();
+
+                var isbn = new String(key, StandardCharsets.UTF_8);
+                entries.remove(isbn);
+                inStockSince.remove(isbn);
+                if (value < REMOVED)
+                {
+                    inStockSince.put(isbn, Instant.ofEpochMilli(REMOVED - 1 - value));
+                }
+                else if (value != REMOVED)
+                {
+                    entries.put(isbn, Instant.ofEpochMilli(value));
+                }
+                ++records;
+            }
+        }
+        return records;
+    }
+
+    private static long inStock(Instant since)
+    {
+        return REMOVED - 1 - since.toEpochMilli();
+    }
+
+    private static ByteBuffer encode(String key, long value)
+    {
+        var keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        var buffer = ByteBuffer.allocate(Short.BYTES + keyBytes.length + Long.BYTES);
+        buffer.putShort((short) keyBytes.length);
+        buffer.put(keyBytes);
+        buffer.putLong(value);
+        return buffer.flip();
+    }
+}
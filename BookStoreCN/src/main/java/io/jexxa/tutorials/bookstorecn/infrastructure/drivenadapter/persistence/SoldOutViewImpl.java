@@ -0,0 +1,57 @@
+package io.jexxa.tutorials.bookstorecn.infrastructure.drivenadapter.persistence;
+
+import io.jexxa.addend.infrastructure.DrivenAdapter;
+import io.jexxa.tutorials.bookstorecn.domain.book.ISBN13;
+import io.jexxa.tutorials.bookstorecn.domain.book.SoldOutState;
+import io.jexxa.tutorials.bookstorecn.domainservice.SoldOutView;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static io.jexxa.tutorials.bookstorecn.domain.book.SoldOutState.inStock;
+import static io.jexxa.tutorials.bookstorecn.domain.book.SoldOutState.soldOut;
+
+@SuppressWarnings("unused")
+@DrivenAdapter
+public class SoldOutViewImpl implements SoldOutView
+{
+    static final String VIEW_DIRECTORY = "bookstorecn.soldout.view.directory";
+
+    // Jexxa may create several instances of this adapter. They must share the same log, because only one writer per file is allowed
+    private static final Map<Path, SoldOutLog> SOLD_OUT_LOGS = new ConcurrentHashMap<>();
+
+    private final SoldOutLog soldOutLog;
+
+    public SoldOutViewImpl(Properties properties)
+    {
+        var directory = Path.of(properties.getProperty(VIEW_DIRECTORY, "./soldout-view")).toAbsolutePath().normalize();
+        this.soldOutLog = SOLD_OUT_LOGS.computeIfAbsent(directory, SoldOutLog::new);
+    }
+
+    @Override
+    public void markSoldOut(ISBN13 isbn13, Instant soldOutSince)
+    {
+        soldOutLog.put(isbn13.isbn13(), soldOutSince);
+    }
+
+    @Override
+    public void markInStock(ISBN13 isbn13, Instant inStockSince)
+    {
+        soldOutLog.putInStock(isbn13.isbn13(), inStockSince);
+    }
+
+    @Override
+    public List<SoldOutState> get(List<ISBN13> isbn13s)
+    {
+        return isbn13s.stream()
+                .map(isbn13 -> soldOutLog
+                        .get(isbn13.isbn13())
+                        .map(soldOutSince -> soldOut(isbn13, soldOutSince))
+                        .orElseGet(() -> inStock(isbn13)))
+                .toList();
+    }
+}
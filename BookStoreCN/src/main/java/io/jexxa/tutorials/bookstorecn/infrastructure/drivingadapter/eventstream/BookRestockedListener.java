@@ -0,0 +1,33 @@
+package io.jexxa.tutorials.bookstorecn.infrastructure.drivingadapter.eventstream;
+
+import io.jexxa.addend.infrastructure.DrivingAdapter;
+import io.jexxa.tutorials.bookstorecn.applicationservice.BookStoreService;
+import io.jexxa.tutorials.bookstorecn.domain.book.BookRestocked;
+import io.jexxa.tutorials.bookstorecn.domain.book.ISBN13;
+
+import java.util.Properties;
+
+@DrivingAdapter
+public class BookRestockedListener extends RetryingEventListener<ISBN13, BookRestocked> {
+    private final BookStoreService bookStoreService;
+    public BookRestockedListener(BookStoreService bookStoreService, Properties properties)
+    {
+        super(ISBN13.class, BookRestocked.class, properties);
+        this.bookStoreService = bookStoreService;
+    }
+    @Override
+    protected void processEvent(BookRestocked value) {
+        bookStoreService.registerRestocked(value.isbn13(), value.restockedAt());
+    }
+
+    @Override
+    protected ISBN13 keyOf(BookRestocked value) {
+        return value.isbn13();
+    }
+
+    @Override
+    public String topic() {
+        return "BookStore-restocked";
+    }
+
+}
@@ -2,22 +2,29 @@ package io.jexxa.tutorials.bookstorecn.infrastructure.drivingadapter.eventstream
 
 import io.jexxa.addend.infrastructure.DrivingAdapter;
 import io.jexxa.common.facade.logger.SLF4jLogger;
-import io.jexxa.esp.drivingadapter.TypedEventListener;
 import io.jexxa.tutorials.bookstorecn.applicationservice.BookStoreService;
 import io.jexxa.tutorials.bookstorecn.domain.book.BookSoldOut;
 import io.jexxa.tutorials.bookstorecn.domain.book.ISBN13;
 
+import java.util.Properties;
+
 @DrivingAdapter
-public class BookSoldOutListener extends TypedEventListener<ISBN13, BookSoldOut> {
+public class BookSoldOutListener extends RetryingEventListener<ISBN13, BookSoldOut> {
     private final BookStoreService bookStoreService;
-    public BookSoldOutListener(BookStoreService bookStoreService)
+    public BookSoldOutListener(BookStoreService bookStoreService, Properties properties)
     {
-        super(ISBN13.class, BookSoldOut.class);
+        super(ISBN13.class, BookSoldOut.class, properties);
         this.bookStoreService = bookStoreService;
     }
     @Override
-    protected void onEvent(BookSoldOut value) {
+    protected void processEvent(BookSoldOut value) {
         SLF4jLogger.getLogger(BookSoldOutListener.class).warn("Book with ISBN {} is sold out", value.isbn13());
+        bookStoreService.registerSoldOut(value.isbn13(), value.soldOutAt());
+    }
+
+    @Override
+    protected ISBN13 keyOf(BookSoldOut value) {
+        return value.isbn13();
     }
 
     @Override
@@ -0,0 +1,14 @@
+package io.jexxa.tutorials.bookstorecn.infrastructure.drivingadapter.eventstream;
+
+/**
+ * Reference to a payload stored in S3 that is received on topic {@code <topic>-claimcheck}. The format corresponds
+ * to the claim checks sent by {@code IntegrationEventSenderImpl}.
+ *
+ * @param bucket S3 bucket containing the payload
+ * @param key S3 object key of the payload
+ * @param payloadType simple class name of the event stored in S3
+ * @param size size of the payload in bytes
+ */
+public record ClaimCheck(String bucket, String key, String payloadType, long size)
+{
+}
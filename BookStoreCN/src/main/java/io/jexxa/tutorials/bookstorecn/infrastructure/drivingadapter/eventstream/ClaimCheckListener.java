@@ -0,0 +1,65 @@
+package io.jexxa.tutorials.bookstorecn.infrastructure.drivingadapter.eventstream;
+
+import io.jexxa.addend.infrastructure.DrivingAdapter;
+import io.jexxa.esp.drivingadapter.TypedEventListener;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Properties;
+
+import static io.jexxa.common.facade.json.JSONManager.getJSONConverter;
+import static io.jexxa.tutorials.bookstorecn.infrastructure.support.S3ClientFactory.createS3Client;
+
+/**
+ * Consumes the claim checks of a {@link RetryingEventListener}. The referenced payload is streamed from S3 directly
+ * into the JSON parser and then handed to the owning listener, so that it is processed, monitored and retried like a
+ * record received on the original topic.
+ */
+@DrivingAdapter
+public final class ClaimCheckListener<K, V> extends TypedEventListener<K, ClaimCheck>
+{
+    private final RetryingEventListener<K, V> owner;
+    private final Class<V> valueType;
+    private final S3Client s3Client;
+
+    ClaimCheckListener(RetryingEventListener<K, V> owner, Class<K> keyType, Class<V> valueType, Properties properties)
+    {
+        super(keyType, ClaimCheck.class);
+        this.owner = owner;
+        this.valueType = valueType;
+        this.s3Client = createS3Client(properties);
+    }
+
+    @Override
+    protected void onEvent(ClaimCheck claimCheck)
+    {
+        owner.onEvent(resolve(claimCheck));
+    }
+
+    @Override
+    public String topic()
+    {
+        return owner.topic() + "-claimcheck";
+    }
+
+    private V resolve(ClaimCheck claimCheck)
+    {
+        var request = GetObjectRequest.builder()
+                .bucket(claimCheck.bucket())
+                .key(claimCheck.key())
+                .build();
+
+        try (var payload = new InputStreamReader(s3Client.getObject(request), StandardCharsets.UTF_8))
+        {
+            return getJSONConverter().fromJson(payload, valueType);
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException("Could not read payload " + claimCheck.key() + " from bucket " + claimCheck.bucket(), e);
+        }
+    }
+}
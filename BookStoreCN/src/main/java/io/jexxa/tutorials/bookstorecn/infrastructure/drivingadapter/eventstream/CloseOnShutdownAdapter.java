@@ -0,0 +1,59 @@
+package io.jexxa.tutorials.bookstorecn.infrastructure.drivingadapter.eventstream;
+
+import io.jexxa.addend.infrastructure.DrivingAdapter;
+import io.jexxa.adapterapi.drivingadapter.IDrivingAdapter;
+import io.jexxa.common.facade.logger.SLF4jLogger;
+
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Closes all bound ports when Jexxa stops, e.g., to release the threads and clients of the event listeners and their
+ * metrics. Each bound port must implement {@link AutoCloseable}, except {@link ConsumerMetrics} which is also bound to
+ * the RESTfulRPCAdapter and therefore has no public close method.
+ */
+@SuppressWarnings("unused")
+@DrivingAdapter
+public class CloseOnShutdownAdapter implements IDrivingAdapter
+{
+    private final List<AutoCloseable> ports = new CopyOnWriteArrayList<>();
+
+    public CloseOnShutdownAdapter(Properties properties)
+    {
+        // No configuration required
+    }
+
+    @Override
+    public void register(Object port)
+    {
+        switch (port)
+        {
+            case AutoCloseable closeable -> ports.add(closeable);
+            case ConsumerMetrics consumerMetrics -> ports.add(consumerMetrics::close);
+            default -> throw new IllegalArgumentException(port.getClass().getSimpleName() + " must implement AutoCloseable");
+        }
+    }
+
+    @Override
+    public void start()
+    {
+        // Nothing to start
+    }
+
+    @Override
+    public void stop()
+    {
+        for (var port : ports)
+        {
+            try
+            {
+                port.close();
+            }
+            catch (Exception e)
+            {
+                SLF4jLogger.getLogger(CloseOnShutdownAdapter.class).warn("Could not close {}: {}", port.getClass().getSimpleName(), e.getMessage());
+            }
+        }
+    }
+}
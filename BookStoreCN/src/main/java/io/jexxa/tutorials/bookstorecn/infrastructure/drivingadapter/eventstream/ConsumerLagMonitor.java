@@ -0,0 +1,235 @@
+package io.jexxa.tutorials.bookstorecn.infrastructure.drivingadapter.eventstream;
+
+import io.jexxa.common.facade.logger.SLF4jLogger;
+import org.apache.kafka.clients.admin.Admin;
+import org.apache.kafka.clients.admin.AdminClientConfig;
+import org.apache.kafka.clients.admin.ConsumerGroupDescription;
+import org.apache.kafka.clients.admin.ConsumerGroupListing;
+import org.apache.kafka.clients.admin.MemberDescription;
+import org.apache.kafka.clients.admin.ListOffsetsResult;
+import org.apache.kafka.clients.admin.OffsetSpec;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Periodically samples the committed offsets of the consumer groups of this application and the end offsets of the
+ * consumed partitions.
+ * <p>
+ * The consumer groups are those that have a member with the client id of a Kafka consumer running in this JVM. They
+ * are only resolved again if the set of local consumers changes, so that the cluster-wide list of groups is not
+ * requested on each sample.
+ * <p>
+ * The lag of a partition is the difference between its end offset and the committed offset of the group. The number
+ * of records per second is derived from the progress of the committed offset between two samples.
+ */
+final class ConsumerLagMonitor implements AutoCloseable
+{
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(5);
+
+    private final Admin admin;
+    private final ScheduledExecutorService executor;
+    private Map<GroupPartition, Sample> previousSamples = new HashMap<>();
+    private Set<String> resolvedClientIds = Set.of();
+    private List<String> consumerGroups = List.of();
+    private volatile List<ConsumerMetrics.PartitionMetric> partitionMetrics = List.of();
+
+    ConsumerLagMonitor(String bootstrapServers, Duration sampleInterval)
+    {
+        var adminProperties = new Properties();
+        adminProperties.put(AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        adminProperties.put(AdminClientConfig.CLIENT_ID_CONFIG, "consumer-lag-monitor");
+
+        this.admin = Admin.create(adminProperties);
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            var thread = new Thread(runnable, "ConsumerLagMonitor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::sample, 0, sampleInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    List<ConsumerMetrics.PartitionMetric> getPartitionMetrics()
+    {
+        return partitionMetrics;
+    }
+
+    @Override
+    public void close()
+    {
+        executor.shutdownNow();
+        admin.close(REQUEST_TIMEOUT);
+    }
+
+    private void sample()
+    {
+        try
+        {
+            var sampleTime = System.nanoTime();
+            var result = new ArrayList<ConsumerMetrics.PartitionMetric>();
+            var samples = new HashMap<GroupPartition, Sample>();
+
+            for (var group : consumerGroups())
+            {
+                var committedOffsets = committedOffsets(group);
+                var endOffsets = endOffsets(committedOffsets);
+
+                committedOffsets.forEach((topicPartition, committedOffset) -> {
+                    var endOffset = endOffsets.get(topicPartition);
+                    if (endOffset == null)
+                    {
+                        return;
+                    }
+                    var key = new GroupPartition(group, topicPartition);
+                    var recordsPerSecond = recordsPerSecond(previousSamples.get(key), committedOffset, sampleTime);
+                    samples.put(key, new Sample(committedOffset, sampleTime));
+
+                    result.add(new ConsumerMetrics.PartitionMetric(
+                            group,
+                            topicPartition.topic(),
+                            topicPartition.partition(),
+                            committedOffset,
+                            endOffset.offset(),
+                            Math.max(0, endOffset.offset() - committedOffset),
+                            recordsPerSecond));
+                });
+            }
+
+            // Samples of groups and partitions that are no longer consumed are dropped
+            previousSamples = samples;
+            partitionMetrics = List.copyOf(result);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+        catch (ExecutionException | TimeoutException | RuntimeException e)
+        {
+            SLF4jLogger.getLogger(ConsumerLagMonitor.class).warn("Could not sample consumer lag: {}", e.getMessage());
+        }
+    }
+
+    private List<String> consumerGroups() throws ExecutionException, InterruptedException, TimeoutException
+    {
+        var clientIds = localClientIds();
+        if (clientIds.equals(resolvedClientIds))
+        {
+            return consumerGroups;
+        }
+
+        var groupIds = admin.listConsumerGroups()
+                .all()
+                .get(REQUEST_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS)
+                .stream()
+                .map(ConsumerGroupListing::groupId)
+                .toList();
+        var descriptions = admin.describeConsumerGroups(groupIds)
+                .all()
+                .get(REQUEST_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+
+        var groups = new ArrayList<String>();
+        var matchedClientIds = new HashSet<String>();
+        for (ConsumerGroupDescription description : descriptions.values())
+        {
+            var localMembers = description.members().stream()
+                    .map(MemberDescription::clientId)
+                    .filter(clientIds::contains)
+                    .collect(Collectors.toSet());
+            if (!localMembers.isEmpty())
+            {
+                groups.add(description.groupId());
+                matchedClientIds.addAll(localMembers);
+            }
+        }
+
+        consumerGroups = List.copyOf(groups);
+        // A consumer that has not yet joined its group is matched on the next sample
+        resolvedClientIds = matchedClientIds.equals(clientIds) ? clientIds : Set.of();
+        return consumerGroups;
+    }
+
+    private static Set<String> localClientIds()
+    {
+        try
+        {
+            return ManagementFactory.getPlatformMBeanServer()
+                    .queryNames(new ObjectName(ConsumerMetrics.COORDINATOR_METRICS), null)
+                    .stream()
+                    .map(objectName -> objectName.getKeyProperty("client-id"))
+                    .collect(Collectors.toSet());
+        }
+        catch (JMException e)
+        {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private Map<TopicPartition, Long> committedOffsets(String group) throws ExecutionException, InterruptedException, TimeoutException
+    {
+        var result = new HashMap<TopicPartition, Long>();
+        Map<TopicPartition, OffsetAndMetadata> offsets = admin
+                .listConsumerGroupOffsets(group)
+                .partitionsToOffsetAndMetadata()
+                .get(REQUEST_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+
+        // Offsets of internal topics and partitions without committed offset are not of interest
+        offsets.forEach((topicPartition, offset) -> {
+            if (offset != null && !topicPartition.topic().startsWith("_"))
+            {
+                result.put(topicPartition, offset.offset());
+            }
+        });
+        return result;
+    }
+
+    private Map<TopicPartition, ListOffsetsResult.ListOffsetsResultInfo> endOffsets(Map<TopicPartition, Long> committedOffsets)
+            throws ExecutionException, InterruptedException, TimeoutException
+    {
+        if (committedOffsets.isEmpty())
+        {
+            return Map.of();
+        }
+
+        var request = new HashMap<TopicPartition, OffsetSpec>();
+        committedOffsets.keySet().forEach(topicPartition -> request.put(topicPartition, OffsetSpec.latest()));
+
+        return admin.listOffsets(request)
+                .all()
+                .get(REQUEST_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private static double recordsPerSecond(Sample previousSample, long committedOffset, long sampleTime)
+    {
+        if (previousSample == null || sampleTime <= previousSample.sampleTime())
+        {
+            return 0;
+        }
+        var elapsedSeconds = (sampleTime - previousSample.sampleTime()) / 1_000_000_000d;
+        return Math.max(0, committedOffset - previousSample.committedOffset()) / elapsedSeconds;
+    }
+
+    private record GroupPartition(String group, TopicPartition topicPartition)
+    {
+    }
+
+    private record Sample(long committedOffset, long sampleTime)
+    {
+    }
+}
@@ -0,0 +1,161 @@
+package io.jexxa.tutorials.bookstorecn.infrastructure.drivingadapter.eventstream;
+
+import io.jexxa.addend.infrastructure.DrivingAdapter;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Properties;
+import java.util.stream.Stream;
+
+/**
+ * Provides metrics of all event listeners bound to the {@code KafkaAdapter}. This class is bound to the
+ * RESTfulRPCAdapter next to the BoundedContext, so that the metrics can be queried like the state of the application.
+ * <ul>
+ *     <li>Consumer lag and records per second for each partition consumed by this application, sampled via the Kafka
+ *     admin API</li>
+ *     <li>Rebalance count and duration for each consumer, read from the JMX metrics of the Kafka consumer</li>
+ *     <li>Processing time histogram for each topic, recorded by {@link MonitoredEventListener}</li>
+ *     <li>Number of records forwarded to retry and dead-letter topics by {@link RetryingEventListener}</li>
+ * </ul>
+ */
+@DrivingAdapter
+public class ConsumerMetrics
+{
+    static final String BOOTSTRAP_SERVERS = "io.jexxa.bootstrap.servers";
+    static final String SAMPLE_INTERVAL = "bookstorecn.metrics.lag.interval.seconds";
+
+    static final String COORDINATOR_METRICS = "kafka.consumer:type=consumer-coordinator-metrics,client-id=*";
+
+    private final ConsumerLagMonitor consumerLagMonitor;
+
+    public ConsumerMetrics(Properties properties)
+    {
+        if (properties.containsKey(BOOTSTRAP_SERVERS))
+        {
+            var sampleInterval = Duration.ofSeconds(Long.parseLong(properties.getProperty(SAMPLE_INTERVAL, "10")));
+            this.consumerLagMonitor = new ConsumerLagMonitor(properties.getProperty(BOOTSTRAP_SERVERS), sampleInterval);
+        }
+        else
+        {
+            this.consumerLagMonitor = null;
+        }
+    }
+
+    public List<PartitionMetric> getPartitionMetrics()
+    {
+        if (consumerLagMonitor == null)
+        {
+            return List.of();
+        }
+
+        return consumerLagMonitor
+                .getPartitionMetrics()
+                .stream()
+                .sorted(Comparator.comparing(PartitionMetric::topic).thenComparing(PartitionMetric::partition))
+                .toList();
+    }
+
+    /**
+     * Stops sampling the consumer lag. This method is called by the {@link CloseOnShutdownAdapter} when Jexxa stops.
+     * It is not public, because all public methods are exposed by the RESTfulRPCAdapter.
+     */
+    void close()
+    {
+        if (consumerLagMonitor != null)
+        {
+            consumerLagMonitor.close();
+        }
+    }
+
+    public List<RebalanceMetric> getRebalanceMetrics()
+    {
+        MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+        try
+        {
+            return mBeanServer
+                    .queryNames(new ObjectName(COORDINATOR_METRICS), null)
+                    .stream()
+                    .map(objectName -> new RebalanceMetric(
+                            objectName.getKeyProperty("client-id"),
+                            (long) attribute(mBeanServer, objectName, "rebalance-total"),
+                            attribute(mBeanServer, objectName, "rebalance-latency-avg"),
+                            attribute(mBeanServer, objectName, "rebalance-latency-max"),
+                            attribute(mBeanServer, objectName, "rebalance-latency-total")))
+                    .sorted(Comparator.comparing(RebalanceMetric::clientId))
+                    .toList();
+        }
+        catch (JMException e)
+        {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public List<ProcessingTimeMetric> getProcessingTimes()
+    {
+        return ListenerStatistics.instance()
+                .getProcessingTimes()
+                .entrySet()
+                .stream()
+                .map(entry -> new ProcessingTimeMetric(
+                        entry.getKey(),
+                        entry.getValue().count(),
+                        entry.getValue().meanMillis(),
+                        entry.getValue().maxMillis(),
+                        entry.getValue().buckets()))
+                .sorted(Comparator.comparing(ProcessingTimeMetric::topic))
+                .toList();
+    }
+
+    public List<ForwardedRecordsMetric> getRetryMetrics()
+    {
+        var statistics = ListenerStatistics.instance();
+        return Stream.concat(
+                        statistics.getRetriedRecords().entrySet().stream()
+                                .map(entry -> new ForwardedRecordsMetric(entry.getKey(), false, entry.getValue())),
+                        statistics.getDeadLetterRecords().entrySet().stream()
+                                .map(entry -> new ForwardedRecordsMetric(entry.getKey(), true, entry.getValue())))
+                .sorted(Comparator.comparing(ForwardedRecordsMetric::topic))
+                .toList();
+    }
+
+    private static double attribute(MBeanServer mBeanServer, ObjectName objectName, String attribute)
+    {
+        try
+        {
+            var value = mBeanServer.getAttribute(objectName, attribute);
+            if (value instanceof Number number && !Double.isNaN(number.doubleValue()))
+            {
+                return number.doubleValue();
+            }
+            return 0;
+        }
+        catch (JMException e)
+        {
+            return 0;
+        }
+    }
+
+    public record PartitionMetric(String group, String topic, int partition, long committedOffset, long endOffset,
+                                  long lag, double recordsPerSecond)
+    {
+    }
+
+    public record RebalanceMetric(String clientId, long rebalanceCount, double averageRebalanceMillis,
+                                  double maxRebalanceMillis, double totalRebalanceMillis)
+    {
+    }
+
+    public record ProcessingTimeMetric(String topic, long count, double meanMillis, double maxMillis,
+                                       List<ProcessingTimeHistogram.Bucket> histogram)
+    {
+    }
+
+    public record ForwardedRecordsMetric(String topic, boolean deadLetter, long records)
+    {
+    }
+}
@@ -0,0 +1,68 @@
+package io.jexxa.tutorials.bookstorecn.infrastructure.drivingadapter.eventstream;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Collects statistics of all {@link MonitoredEventListener}s within this application. Since Jexxa creates the
+ * listeners, this class is provided as singleton so that all listeners report to the same place.
+ */
+public final class ListenerStatistics
+{
+    private static final ListenerStatistics LISTENER_STATISTICS = new ListenerStatistics();
+
+    private final Map<String, ProcessingTimeHistogram> processingTimes = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> retriedRecords = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> deadLetterRecords = new ConcurrentHashMap<>();
+
+    public static ListenerStatistics instance()
+    {
+        return LISTENER_STATISTICS;
+    }
+
+    public void recordProcessingTime(String topic, long nanos)
+    {
+        processingTimes
+                .computeIfAbsent(topic, key -> new ProcessingTimeHistogram())
+                .record(nanos);
+    }
+
+    public void recordRetry(String retryTopic)
+    {
+        retriedRecords.computeIfAbsent(retryTopic, key -> new LongAdder()).increment();
+    }
+
+    public void recordDeadLetter(String deadLetterTopic)
+    {
+        deadLetterRecords.computeIfAbsent(deadLetterTopic, key -> new LongAdder()).increment();
+    }
+
+    public Map<String, ProcessingTimeHistogram> getProcessingTimes()
+    {
+        return Map.copyOf(processingTimes);
+    }
+
+    public Map<String, Long> getRetriedRecords()
+    {
+        return sumOf(retriedRecords);
+    }
+
+    public Map<String, Long> getDeadLetterRecords()
+    {
+        return sumOf(deadLetterRecords);
+    }
+
+    private static Map<String, Long> sumOf(Map<String, LongAdder> counters)
+    {
+        return counters.entrySet()
+                .stream()
+                .collect(Collectors.toUnmodifiableMap(Map.Entry::getKey, entry -> entry.getValue().sum()));
+    }
+
+    private ListenerStatistics()
+    {
+        //Private constructor
+    }
+}
@@ -0,0 +1,33 @@
+package io.jexxa.tutorials.bookstorecn.infrastructure.drivingadapter.eventstream;
+
+import io.jexxa.esp.drivingadapter.TypedEventListener;
+
+/**
+ * Base class for event listeners that measures the processing time of each received record.
+ * <p>
+ * Subclasses implement {@link #handleEvent(Object)} instead of {@code onEvent}. The measured processing times are
+ * reported to {@link ListenerStatistics} and grouped by the topic of the listener.
+ */
+public abstract class MonitoredEventListener<K, V> extends TypedEventListener<K, V>
+{
+    protected MonitoredEventListener(Class<K> keyType, Class<V> valueType)
+    {
+        super(keyType, valueType);
+    }
+
+    @Override
+    protected final void onEvent(V value)
+    {
+        var startTime = System.nanoTime();
+        try
+        {
+            handleEvent(value);
+        }
+        finally
+        {
+            ListenerStatistics.instance().recordProcessingTime(topic(), System.nanoTime() - startTime);
+        }
+    }
+
+    protected abstract void handleEvent(V value);
+}
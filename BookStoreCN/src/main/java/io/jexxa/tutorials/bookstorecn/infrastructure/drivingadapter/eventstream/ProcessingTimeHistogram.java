@@ -0,0 +1,85 @@
+package io.jexxa.tutorials.bookstorecn.infrastructure.drivingadapter.eventstream;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram of the time a listener needs to process a single record. The upper bounds of the buckets are fixed,
+ * so that recording a value is lock-free and can be done from any consumer thread.
+ */
+public final class ProcessingTimeHistogram
+{
+    private static final long[] UPPER_BOUNDS_MICROS = {
+            250, 500, 1_000, 2_500, 5_000, 10_000, 25_000, 50_000,
+            100_000, 250_000, 500_000, 1_000_000, 2_500_000, 5_000_000, Long.MAX_VALUE
+    };
+
+    private final LongAdder[] buckets = new LongAdder[UPPER_BOUNDS_MICROS.length];
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Long::max, 0);
+
+    public ProcessingTimeHistogram()
+    {
+        for (var i = 0; i < buckets.length; ++i)
+        {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    public void record(long nanos)
+    {
+        var micros = TimeUnit.NANOSECONDS.toMicros(nanos);
+        var index = 0;
+        while (micros > UPPER_BOUNDS_MICROS[index])
+        {
+            ++index;
+        }
+
+        buckets[index].increment();
+        count.increment();
+        totalNanos.add(nanos);
+        maxNanos.accumulate(nanos);
+    }
+
+    public long count()
+    {
+        return count.sum();
+    }
+
+    public double meanMillis()
+    {
+        var currentCount = count.sum();
+        if (currentCount == 0)
+        {
+            return 0;
+        }
+        return totalNanos.sum() / (currentCount * 1_000_000d);
+    }
+
+    public double maxMillis()
+    {
+        return maxNanos.get() / 1_000_000d;
+    }
+
+    public List<Bucket> buckets()
+    {
+        var result = new ArrayList<Bucket>(buckets.length);
+        for (var i = 0; i < buckets.length; ++i)
+        {
+            result.add(new Bucket(UPPER_BOUNDS_MICROS[i], buckets[i].sum()));
+        }
+        return result;
+    }
+
+    /**
+     * A single bucket of the histogram. It counts all records whose processing time is less than or equal to
+     * {@code upperBoundMicros} and greater than the upper bound of the previous bucket.
+     */
+    public record Bucket(long upperBoundMicros, long count)
+    {
+    }
+}
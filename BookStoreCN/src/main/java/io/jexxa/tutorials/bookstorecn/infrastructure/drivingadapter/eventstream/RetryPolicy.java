@@ -0,0 +1,71 @@
+package io.jexxa.tutorials.bookstorecn.infrastructure.drivingadapter.eventstream;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Defines the tiers of retry topics used by a {@link RetryingEventListener}. Each tier has its own topic and delay,
+ * so that a record waiting for a long delay does not block records of a shorter tier. Records that fail in the
+ * last tier are forwarded to the dead-letter topic.
+ *
+ * @param delays the delay of each retry tier in ascending order
+ */
+public record RetryPolicy(List<Duration> delays)
+{
+    static final String RETRY_DELAYS = "bookstorecn.retry.delays";
+
+    private static final String DEFAULT_DELAYS = "PT1S,PT10S,PT1M";
+
+    public RetryPolicy
+    {
+        delays = List.copyOf(delays);
+    }
+
+    /**
+     * Creates a RetryPolicy from a comma separated list of ISO-8601 durations defined in property
+     * {@value RETRY_DELAYS}. If the property is not set, we use retry tiers of 1s, 10s and 1m.
+     */
+    public static RetryPolicy fromProperties(Properties properties)
+    {
+        return new RetryPolicy(Arrays.stream(properties.getProperty(RETRY_DELAYS, DEFAULT_DELAYS).split(","))
+                .map(String::trim)
+                .filter(value -> !value.isEmpty())
+                .map(Duration::parse)
+                .toList());
+    }
+
+    public int tiers()
+    {
+        return delays.size();
+    }
+
+    public Duration delay(int tier)
+    {
+        return delays.get(tier);
+    }
+
+    public String retryTopic(String topic, int tier)
+    {
+        return topic + "-retry-" + label(delays.get(tier));
+    }
+
+    public String deadLetterTopic(String topic)
+    {
+        return topic + "-dlt";
+    }
+
+    private static String label(Duration delay)
+    {
+        if (delay.toMillis() % 60_000 == 0)
+        {
+            return delay.toMinutes() + "m";
+        }
+        if (delay.toMillis() % 1_000 == 0)
+        {
+            return delay.toSeconds() + "s";
+        }
+        return delay.toMillis() + "ms";
+    }
+}
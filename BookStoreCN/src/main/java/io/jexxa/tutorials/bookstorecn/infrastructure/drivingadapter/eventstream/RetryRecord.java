@@ -0,0 +1,14 @@
+package io.jexxa.tutorials.bookstorecn.infrastructure.drivingadapter.eventstream;
+
+/**
+ * Envelope of a record that is forwarded to a retry or dead-letter topic.
+ *
+ * @param originalTopic topic on which the record was received in the first place
+ * @param payload the original record as JSON
+ * @param attempt number of failed processing attempts so far
+ * @param dueAtMillis point in time (epoch milliseconds) at which the record should be processed again
+ * @param error message of the exception that caused the last failure
+ */
+public record RetryRecord(String originalTopic, String payload, int attempt, long dueAtMillis, String error)
+{
+}
@@ -0,0 +1,58 @@
+package io.jexxa.tutorials.bookstorecn.infrastructure.drivingadapter.eventstream;
+
+import io.jexxa.addend.infrastructure.DrivingAdapter;
+import io.jexxa.adapterapi.drivingadapter.IDrivingAdapter;
+import io.jexxa.common.facade.logger.SLF4jLogger;
+
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Starts and stops the {@link RetryTopicListener}s. They are not bound to the KafkaAdapter, because a retry tier must
+ * pause its partitions until the next record is due, which requires access to the Kafka consumer.
+ */
+@SuppressWarnings("unused")
+@DrivingAdapter
+public class RetryTopicAdapter implements IDrivingAdapter
+{
+    private final List<RetryTopicListener<?>> retryListeners = new CopyOnWriteArrayList<>();
+
+    public RetryTopicAdapter(Properties properties)
+    {
+        // The consumers are configured by their RetryingEventListener
+    }
+
+    @Override
+    public void register(Object port)
+    {
+        if (!(port instanceof RetryTopicListener<?> retryListener))
+        {
+            throw new IllegalArgumentException(port.getClass().getSimpleName() + " must be a RetryTopicListener");
+        }
+        retryListeners.add(retryListener);
+    }
+
+    @Override
+    public void start()
+    {
+        retryListeners.forEach(RetryTopicListener::start);
+    }
+
+    @Override
+    public void stop()
+    {
+        for (var retryListener : retryListeners)
+        {
+            try
+            {
+                retryListener.close();
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                SLF4jLogger.getLogger(RetryTopicAdapter.class).warn("Could not stop {}: {}", retryListener.topic(), e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package io.jexxa.tutorials.bookstorecn.infrastructure.drivingadapter.eventstream;
+
+import io.jexxa.common.facade.logger.SLF4jLogger;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRebalanceListener;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.WakeupException;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import static io.jexxa.common.facade.json.JSONManager.getJSONConverter;
+
+/**
+ * Consumes a single retry tier of a {@link RetryingEventListener} with its own Kafka consumer, which is started and
+ * stopped by the {@link RetryTopicAdapter}.
+ * <p>
+ * If the next record of a partition is not yet due, the consumer seeks back to this record and pauses the partition
+ * until the record is due. A paused partition returns no records, but the consumer keeps polling, so that a delay of up
+ * to a minute neither blocks the poll thread nor exceeds {@code max.poll.interval.ms}. Since all records of a tier have
+ * the same delay, the records behind a pending record are not due earlier.
+ * <p>
+ * The offset of a record is committed only after it was processed. So, a record that is not yet due is never held in
+ * memory, and all pending records are still in the retry topic if the application stops.
+ */
+public final class RetryTopicListener<K> implements AutoCloseable
+{
+    private static final Duration POLL_TIMEOUT = Duration.ofMillis(500);
+    private static final byte SCHEMA_REGISTRY_MAGIC_BYTE = 0;
+    private static final int SCHEMA_REGISTRY_HEADER_LENGTH = 5;
+
+    private final RetryingEventListener<K, ?> owner;
+    private final int tier;
+    private final Properties consumerProperties = new Properties();
+    // Point in time (epoch milliseconds) at which each paused partition is resumed. Only used by the poll thread.
+    private final Map<TopicPartition, Long> pausedPartitions = new HashMap<>();
+    private KafkaConsumer<byte[], byte[]> consumer;
+    private Thread pollThread;
+    private volatile boolean running;
+
+    RetryTopicListener(RetryingEventListener<K, ?> owner, int tier, String bootstrapServers)
+    {
+        this.owner = owner;
+        this.tier = tier;
+
+        consumerProperties.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        consumerProperties.put(ConsumerConfig.GROUP_ID_CONFIG, topic());
+        consumerProperties.put(ConsumerConfig.CLIENT_ID_CONFIG, "RetryTopicListener-" + topic());
+        consumerProperties.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, "false");
+        consumerProperties.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        consumerProperties.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, ByteArrayDeserializer.class.getName());
+        consumerProperties.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ByteArrayDeserializer.class.getName());
+    }
+
+    public String topic()
+    {
+        return owner.getRetryPolicy().retryTopic(owner.topic(), tier);
+    }
+
+    synchronized void start()
+    {
+        if (running)
+        {
+            return;
+        }
+
+        running = true;
+        consumer = new KafkaConsumer<>(consumerProperties);
+        pollThread = new Thread(this::pollLoop, "RetryTopicListener-" + tier);
+        pollThread.setDaemon(true);
+        pollThread.start();
+    }
+
+    /**
+     * Stops the consumer. Records that are not processed yet remain in the retry topic, since their offsets are not
+     * committed.
+     */
+    @Override
+    public synchronized void close() throws InterruptedException
+    {
+        if (!running)
+        {
+            return;
+        }
+
+        running = false;
+        consumer.wakeup();
+        pollThread.join(POLL_TIMEOUT.multipliedBy(10).toMillis());
+    }
+
+    private void pollLoop()
+    {
+        try
+        {
+            consumer.subscribe(List.of(topic()), new ConsumerRebalanceListener()
+            {
+                @Override
+                public void onPartitionsRevoked(Collection<TopicPartition> partitions)
+                {
+                    // The next owner of a partition continues at its committed offset
+                    partitions.forEach(pausedPartitions::remove);
+                }
+
+                @Override
+                public void onPartitionsAssigned(Collection<TopicPartition> partitions)
+                {
+                    // Nothing to do
+                }
+            });
+
+            while (running)
+            {
+                resumeDuePartitions();
+                poll();
+            }
+        }
+        catch (WakeupException e)
+        {
+            // close() was called
+        }
+        catch (RuntimeException e)
+        {
+            SLF4jLogger.getLogger(RetryTopicListener.class).error("Stop consuming {}: {}", topic(), e.getMessage());
+        }
+        finally
+        {
+            consumer.close();
+        }
+    }
+
+    private void poll()
+    {
+        var records = consumer.poll(POLL_TIMEOUT);
+        var processedOffsets = new HashMap<TopicPartition, OffsetAndMetadata>();
+
+        for (var partition : records.partitions())
+        {
+            for (var consumerRecord : records.records(partition))
+            {
+                var retryRecord = toRetryRecord(consumerRecord.value());
+                if (retryRecord != null && retryRecord.dueAtMillis() > System.currentTimeMillis())
+                {
+                    // The record is fetched again when the partition is resumed
+                    consumer.seek(partition, consumerRecord.offset());
+                    consumer.pause(List.of(partition));
+                    pausedPartitions.put(partition, retryRecord.dueAtMillis());
+                    break;
+                }
+
+                if (retryRecord != null)
+                {
+                    owner.retry(retryRecord, tier);
+                }
+                processedOffsets.put(partition, new OffsetAndMetadata(consumerRecord.offset() + 1));
+            }
+        }
+
+        if (!processedOffsets.isEmpty())
+        {
+            consumer.commitSync(processedOffsets);
+        }
+    }
+
+    private void resumeDuePartitions()
+    {
+        var now = System.currentTimeMillis();
+        var duePartitions = pausedPartitions.entrySet().stream()
+                .filter(entry -> entry.getValue() <= now)
+                .map(Map.Entry::getKey)
+                .toList();
+
+        if (!duePartitions.isEmpty())
+        {
+            duePartitions.forEach(pausedPartitions::remove);
+            consumer.resume(duePartitions);
+        }
+    }
+
+    /**
+     * @return the received record or null if it cannot be read, so that it is skipped instead of blocking the partition
+     */
+    private RetryRecord toRetryRecord(byte[] value)
+    {
+        if (value == null)
+        {
+            return null;
+        }
+
+        // Records sent via a schema registry start with a magic byte and the id of the schema
+        var json = value.length > SCHEMA_REGISTRY_HEADER_LENGTH && value[0] == SCHEMA_REGISTRY_MAGIC_BYTE
+                ? Arrays.copyOfRange(value, SCHEMA_REGISTRY_HEADER_LENGTH, value.length)
+                : value;
+        try
+        {
+            return getJSONConverter().fromJson(new String(json, StandardCharsets.UTF_8), RetryRecord.class);
+        }
+        catch (RuntimeException e)
+        {
+            SLF4jLogger.getLogger(RetryTopicListener.class).error("Skip unreadable record of {}: {}", topic(), e.getMessage());
+            return null;
+        }
+    }
+}
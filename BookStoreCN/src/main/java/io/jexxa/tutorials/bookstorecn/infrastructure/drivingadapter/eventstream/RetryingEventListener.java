@@ -0,0 +1,159 @@
+package io.jexxa.tutorials.bookstorecn.infrastructure.drivingadapter.eventstream;
+
+import io.jexxa.common.facade.logger.SLF4jLogger;
+import io.jexxa.esp.drivenadapter.EventSender;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.stream.IntStream;
+
+import static io.jexxa.common.facade.json.JSONManager.getJSONConverter;
+import static io.jexxa.esp.drivenadapter.EventSenderFactory.createEventSender;
+import static io.jexxa.tutorials.bookstorecn.infrastructure.support.S3ClientFactory.isS3Configured;
+
+/**
+ * Base class for event listeners that must not block their partition if processing a record fails.
+ * <p>
+ * If {@link #processEvent(Object)} throws, the record is forwarded to the first retry topic of the
+ * {@link RetryPolicy} and the listener continues with the next record. The retry topics are consumed by the
+ * {@link RetryTopicListener}s returned by {@link #getRetryListeners()}, which must be bound to the
+ * {@link RetryTopicAdapter}. If a record still fails in the last tier, it is forwarded to the dead-letter topic.
+ * <p>
+ * If no event streaming platform is configured, a failure is propagated as before.
+ * <p>
+ * Large payloads can be sent as claim check. They are received by the {@link ClaimCheckListener} returned by
+ * {@link #getClaimCheckListener()}, which must be bound to the KafkaAdapter as well.
+ */
+public abstract class RetryingEventListener<K, V> extends MonitoredEventListener<K, V>
+{
+    private final Class<V> valueType;
+    private final RetryPolicy retryPolicy;
+    private final String bootstrapServers;
+    private final EventSender eventSender;
+    private final ClaimCheckListener<K, V> claimCheckListener;
+
+    protected RetryingEventListener(Class<K> keyType, Class<V> valueType, Properties properties)
+    {
+        super(keyType, valueType);
+        this.valueType = valueType;
+        this.retryPolicy = RetryPolicy.fromProperties(properties);
+        this.bootstrapServers = properties.getProperty(ConsumerMetrics.BOOTSTRAP_SERVERS);
+
+        if (properties.containsKey(ConsumerMetrics.BOOTSTRAP_SERVERS))
+        {
+            this.eventSender = createEventSender(getClass(), properties);
+        }
+        else
+        {
+            this.eventSender = null;
+        }
+
+        if (isS3Configured(properties))
+        {
+            this.claimCheckListener = new ClaimCheckListener<>(this, keyType, valueType, properties);
+        }
+        else
+        {
+            this.claimCheckListener = null;
+        }
+    }
+
+    public RetryPolicy getRetryPolicy()
+    {
+        return retryPolicy;
+    }
+
+    public List<RetryTopicListener<K>> getRetryListeners()
+    {
+        if (eventSender == null)
+        {
+            return List.of();
+        }
+
+        return IntStream.range(0, retryPolicy.tiers())
+                .mapToObj(tier -> new RetryTopicListener<>(this, tier, bootstrapServers))
+                .toList();
+    }
+
+    /**
+     * @return the listener resolving the claim checks of large payloads that are sent to {@code <topic>-claimcheck}.
+     * It is only available if an S3 storage is configured.
+     */
+    public Optional<ClaimCheckListener<K, V>> getClaimCheckListener()
+    {
+        return Optional.ofNullable(claimCheckListener);
+    }
+
+    @Override
+    protected final void handleEvent(V value)
+    {
+        try
+        {
+            processEvent(value);
+        }
+        catch (RuntimeException e)
+        {
+            if (eventSender == null)
+            {
+                throw e;
+            }
+            forward(value, getJSONConverter().toJson(value), 1, e);
+        }
+    }
+
+    protected abstract void processEvent(V value);
+
+    /**
+     * @return the key of given value which is used when sending the value to a retry or dead-letter topic
+     */
+    protected abstract K keyOf(V value);
+
+    void retry(RetryRecord retryRecord, int tier)
+    {
+        var value = getJSONConverter().fromJson(retryRecord.payload(), valueType);
+        var startTime = System.nanoTime();
+        try
+        {
+            processEvent(value);
+        }
+        catch (RuntimeException e)
+        {
+            forward(value, retryRecord.payload(), retryRecord.attempt() + 1, e);
+        }
+        finally
+        {
+            ListenerStatistics.instance().recordProcessingTime(retryPolicy.retryTopic(topic(), tier), System.nanoTime() - startTime);
+        }
+    }
+
+    private void forward(V value, String payload, int attempt, RuntimeException cause)
+    {
+        // attempt 1 is the initial processing, so that attempt n is retried in tier n-1
+        var tier = attempt - 1;
+        var destination = tier < retryPolicy.tiers()
+                ? retryPolicy.retryTopic(topic(), tier)
+                : retryPolicy.deadLetterTopic(topic());
+        var dueAtMillis = tier < retryPolicy.tiers()
+                ? System.currentTimeMillis() + retryPolicy.delay(tier).toMillis()
+                : System.currentTimeMillis();
+
+        SLF4jLogger.getLogger(getClass()).warn("Processing of record from topic {} failed (attempt {}). Forward it to {}: {}",
+                topic(), attempt, destination, cause.getMessage());
+
+        eventSender
+                .send(keyOf(value), new RetryRecord(topic(), payload, attempt, dueAtMillis, cause.getMessage()))
+                .toTopic(destination)
+                .addHeader("Type", RetryRecord.class.getSimpleName())
+                .asJSON();
+
+        if (destination.equals(retryPolicy.deadLetterTopic(topic())))
+        {
+            ListenerStatistics.instance().recordDeadLetter(destination);
+        }
+        else
+        {
+            ListenerStatistics.instance().recordRetry(destination);
+        }
+    }
+}
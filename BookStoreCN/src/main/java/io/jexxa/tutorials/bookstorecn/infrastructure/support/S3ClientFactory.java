@@ -0,0 +1,45 @@
+package io.jexxa.tutorials.bookstorecn.infrastructure.support;
+
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+
+import java.net.URI;
+import java.util.Properties;
+
+/**
+ * Creates the S3 client for the bucket that is used by the repositories of this application, so that the driven
+ * adapters storing claim checks and the driving adapters resolving them use the same configuration.
+ */
+public final class S3ClientFactory
+{
+    public static final String S3_ENDPOINT = "io.jexxa.s3.endpoint";
+    public static final String S3_BUCKET = "io.jexxa.s3.bucket";
+    public static final String S3_ACCESS_KEY = "io.jexxa.s3.access-key";
+    public static final String S3_SECRET_KEY = "io.jexxa.s3.secret-key";
+    public static final String S3_REGION = "io.jexxa.s3.region";
+    public static final String S3_PATH_STYLE_ACCESS = "io.jexxa.s3.path-style-access";
+
+    public static boolean isS3Configured(Properties properties)
+    {
+        return properties.containsKey(S3_ENDPOINT) && properties.containsKey(S3_BUCKET);
+    }
+
+    public static S3Client createS3Client(Properties properties)
+    {
+        return S3Client.builder()
+                .endpointOverride(URI.create(properties.getProperty(S3_ENDPOINT)))
+                .region(Region.of(properties.getProperty(S3_REGION, "us-east-1")))
+                .credentialsProvider(StaticCredentialsProvider.create(AwsBasicCredentials.create(
+                        properties.getProperty(S3_ACCESS_KEY),
+                        properties.getProperty(S3_SECRET_KEY))))
+                .forcePathStyle(Boolean.parseBoolean(properties.getProperty(S3_PATH_STYLE_ACCESS, "false")))
+                .build();
+    }
+
+    private S3ClientFactory()
+    {
+        //Private constructor since we only offer static methods
+    }
+}
@@ -0,0 +1,263 @@
+package io.jexxa.tutorials.bookstorecn.performance;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.jexxa.core.JexxaMain;
+import io.jexxa.tutorials.bookstorecn.BookStoreCN;
+import io.jexxa.tutorials.bookstorecn.domain.book.ISBN13;
+import io.jexxa.tutorials.bookstorecn.domain.book.SoldOutState;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.test.EmbeddedKafkaKraftBroker;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.stream.IntStream;
+
+import static io.jexxa.common.facade.json.JSONManager.getJSONConverter;
+import static io.jexxa.tutorials.bookstorecn.domain.book.ISBN13.createISBN;
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Measures the Kafka path of BookStoreCN end-to-end: A REST request {@code sell} of the last book publishes a
+ * {@code BookSoldOut} event, which is received by {@code BookSoldOutListener} and stored in the local sold-out view.
+ * <p>
+ * The application runs in-process together with an embedded Kafka broker and an in-memory S3 stand-in, so that no
+ * external infrastructure is required. The results are written to {@code target/performance/bookstorecn-kafka-path.json}.
+ * <p>
+ * Run with {@code mvn test -PperformanceTests}. The number of events and concurrent clients can be adjusted via
+ * system properties {@code bookstorecn.performance.events} and {@code bookstorecn.performance.concurrency}. Setting
+ * {@code bookstorecn.performance.max.p99.millis} or {@code bookstorecn.performance.min.events.per.second} lets the
+ * test fail on a regression.
+ */
+@Tag("performance")
+class BookStoreCNPerformanceTest
+{
+    private static final String TOPIC = "BookStore";
+    private static final int EVENTS = Integer.getInteger("bookstorecn.performance.events", 2_000);
+    private static final int CONCURRENCY = Integer.getInteger("bookstorecn.performance.concurrency", 8);
+    private static final int WARMUP_EVENTS = 100;
+    private static final Duration MAX_WAIT = Duration.ofMinutes(2);
+
+    private static EmbeddedKafkaKraftBroker kafkaBroker;
+    private static S3StandIn s3StandIn;
+    private static JexxaMain jexxaMain;
+    private static String restEndpoint;
+
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+
+    @BeforeAll
+    static void initBeforeAll() throws IOException
+    {
+        kafkaBroker = new EmbeddedKafkaKraftBroker(1, 1,
+                TOPIC, TOPIC + "-retry-1s", TOPIC + "-retry-10s", TOPIC + "-retry-1m", TOPIC + "-dlt", TOPIC + "-claimcheck");
+        kafkaBroker.afterPropertiesSet();
+        s3StandIn = new S3StandIn();
+
+        var restPort = freePort();
+        restEndpoint = "http://localhost:" + restPort + "/BookStoreService/";
+
+        var properties = new Properties();
+        properties.setProperty("io.jexxa.rest.host", "localhost");
+        properties.setProperty("io.jexxa.rest.port", String.valueOf(restPort));
+        properties.setProperty("io.jexxa.bootstrap.servers", kafkaBroker.getBrokersAsString());
+        properties.setProperty("io.jexxa.s3.endpoint", s3StandIn.endpoint());
+        properties.setProperty("bookstorecn.soldout.view.directory", "./target/performance/soldout-view-" + UUID.randomUUID());
+
+        jexxaMain = BookStoreCN.configure(new JexxaMain(BookStoreCN.class, properties));
+        jexxaMain.start();
+    }
+
+    @Test
+    void measureSellToSoldOutEvent() throws Exception
+    {
+        //Arrange
+        var warmupBooks = books(0, WARMUP_EVENTS);
+        var measuredBooks = books(WARMUP_EVENTS, EVENTS);
+        warmupBooks.forEach(book -> post("addToStock", List.of(book, 1)));
+        measuredBooks.forEach(book -> post("addToStock", List.of(book, 1)));
+
+        sellLastBooks(warmupBooks); // Ensures that the listener is subscribed and the JIT is warmed up
+        awaitSoldOut(warmupBooks);
+
+        //Act
+        var result = sellLastBooks(measuredBooks);
+        var soldOutStates = awaitSoldOut(measuredBooks);
+
+        //Assert
+        var report = createReport(result, soldOutStates);
+        writeReport(report);
+
+        assertEquals(EVENTS, report.events());
+        var maxP99 = Long.getLong("bookstorecn.performance.max.p99.millis");
+        if (maxP99 != null)
+        {
+            assertTrue(report.endToEndLatency().p99Millis() <= maxP99,
+                    "p99 end-to-end latency " + report.endToEndLatency().p99Millis() + " ms exceeds " + maxP99 + " ms");
+        }
+        var minThroughput = System.getProperty("bookstorecn.performance.min.events.per.second");
+        if (minThroughput != null)
+        {
+            assertTrue(report.eventsPerSecond() >= Double.parseDouble(minThroughput),
+                    "throughput " + report.eventsPerSecond() + " events/s is below " + minThroughput + " events/s");
+        }
+    }
+
+    @AfterAll
+    static void shutDown()
+    {
+        if (jexxaMain != null)
+        {
+            jexxaMain.stop();
+        }
+        if (s3StandIn != null)
+        {
+            s3StandIn.close();
+        }
+        if (kafkaBroker != null)
+        {
+            kafkaBroker.destroy();
+        }
+    }
+
+    /**
+     * Sells the last book of each given ISBN with {@link #CONCURRENCY} concurrent clients
+     */
+    private SellResult sellLastBooks(List<ISBN13> books) throws InterruptedException
+    {
+        var sellStartMillis = new ConcurrentHashMap<ISBN13, Long>();
+        var restLatencies = new long[books.size()];
+
+        var startTime = System.nanoTime();
+        try (var executor = Executors.newFixedThreadPool(CONCURRENCY))
+        {
+            IntStream.range(0, books.size()).forEach(i -> executor.submit(() -> {
+                var book = books.get(i);
+                var start = System.currentTimeMillis();
+                sellStartMillis.put(book, start);
+                post("sell", book);
+                restLatencies[i] = System.currentTimeMillis() - start;
+            }));
+        }
+        var elapsedSeconds = (System.nanoTime() - startTime) / 1_000_000_000d;
+
+        return new SellResult(sellStartMillis, restLatencies, books.size() / elapsedSeconds);
+    }
+
+    private List<SoldOutState> awaitSoldOut(List<ISBN13> books)
+    {
+        var result = new SoldOutState[1][];
+        await().atMost(MAX_WAIT)
+                .pollInterval(Duration.ofMillis(100))
+                .until(() -> {
+                    var states = getJSONConverter().fromJson(post("getSoldOutStates", books), SoldOutState[].class);
+                    result[0] = states;
+                    return Arrays.stream(states).allMatch(SoldOutState::soldOut);
+                });
+        return List.of(result[0]);
+    }
+
+    private static PerformanceReport createReport(SellResult sellResult, List<SoldOutState> soldOutStates)
+    {
+        var endToEndLatencies = soldOutStates.stream()
+                .mapToLong(state -> Math.max(0, state.soldOutSince().toEpochMilli() - sellResult.sellStartMillis().get(state.isbn13())))
+                .toArray();
+        var firstSell = sellResult.sellStartMillis().values().stream().mapToLong(Long::longValue).min().orElse(0);
+        var lastSoldOut = soldOutStates.stream().mapToLong(state -> state.soldOutSince().toEpochMilli()).max().orElse(firstSell);
+        var eventsPerSecond = soldOutStates.size() / Math.max(0.001, (lastSoldOut - firstSell) / 1000d);
+
+        return new PerformanceReport(
+                "sell-to-BookSoldOutListener",
+                soldOutStates.size(),
+                CONCURRENCY,
+                sellResult.sellsPerSecond(),
+                eventsPerSecond,
+                PerformanceReport.LatencySummary.of(sellResult.restLatencies()),
+                PerformanceReport.LatencySummary.of(endToEndLatencies));
+    }
+
+    private static void writeReport(PerformanceReport report) throws IOException
+    {
+        var reportFile = Path.of("target", "performance", "bookstorecn-kafka-path.json");
+        Files.createDirectories(reportFile.getParent());
+        new ObjectMapper()
+                .writerWithDefaultPrettyPrinter()
+                .writeValue(reportFile.toFile(), report);
+    }
+
+    private String post(String method, Object parameter)
+    {
+        var request = HttpRequest.newBuilder(URI.create(restEndpoint + method))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(getJSONConverter().toJson(parameter)))
+                .build();
+        try
+        {
+            var response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() >= 300)
+            {
+                throw new IllegalStateException("Request " + method + " failed with status " + response.statusCode() + ": " + response.body());
+            }
+            return response.body();
+        }
+        catch (IOException e)
+        {
+            throw new IllegalStateException("Request " + method + " failed", e);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Request " + method + " was interrupted", e);
+        }
+    }
+
+    /**
+     * Creates valid ISBN13 numbers with prefix 979-0, which are not used by the reference library of the application
+     */
+    private static List<ISBN13> books(int offset, int count)
+    {
+        return IntStream.range(offset, offset + count)
+                .mapToObj(BookStoreCNPerformanceTest::isbn13)
+                .toList();
+    }
+
+    private static ISBN13 isbn13(int number)
+    {
+        var digits = String.format("9790%08d", number);
+        var digitSum = 0;
+        for (var i = 0; i < digits.length(); ++i)
+        {
+            digitSum += (digits.charAt(i) - '0') * (i % 2 == 0 ? 1 : 3);
+        }
+        return createISBN(digits + (10 - digitSum % 10) % 10);
+    }
+
+    private static int freePort() throws IOException
+    {
+        try (var serverSocket = new ServerSocket(0))
+        {
+            return serverSocket.getLocalPort();
+        }
+    }
+
+    private record SellResult(Map<ISBN13, Long> sellStartMillis, long[] restLatencies, double sellsPerSecond)
+    {
+    }
+}
@@ -0,0 +1,46 @@
+package io.jexxa.tutorials.bookstorecn.performance;
+
+import java.util.Arrays;
+
+/**
+ * Machine-readable result of a performance test run, written as JSON to {@code target/performance}.
+ *
+ * @param scenario name of the measured scenario
+ * @param events number of measured events
+ * @param concurrency number of concurrent REST clients
+ * @param sellsPerSecond rate at which the REST requests were completed
+ * @param eventsPerSecond rate at which events were processed, from the first sell to the last processed event
+ * @param restLatency latency of the REST request {@code sell}
+ * @param endToEndLatency latency from sending request {@code sell} until {@code BookSoldOutListener} processed the event
+ */
+record PerformanceReport(String scenario, int events, int concurrency, double sellsPerSecond, double eventsPerSecond,
+                         LatencySummary restLatency, LatencySummary endToEndLatency)
+{
+    /**
+     * Percentiles of measured latencies in milliseconds
+     */
+    record LatencySummary(double meanMillis, long p50Millis, long p95Millis, long p99Millis, long maxMillis)
+    {
+        static LatencySummary of(long[] latenciesMillis)
+        {
+            var sorted = latenciesMillis.clone();
+            Arrays.sort(sorted);
+            return new LatencySummary(
+                    Arrays.stream(sorted).average().orElse(0),
+                    percentile(sorted, 0.50),
+                    percentile(sorted, 0.95),
+                    percentile(sorted, 0.99),
+                    sorted.length == 0 ? 0 : sorted[sorted.length - 1]);
+        }
+
+        private static long percentile(long[] sorted, double percentile)
+        {
+            if (sorted.length == 0)
+            {
+                return 0;
+            }
+            var index = (int) Math.ceil(percentile * sorted.length) - 1;
+            return sorted[Math.clamp(index, 0, sorted.length - 1)];
+        }
+    }
+}
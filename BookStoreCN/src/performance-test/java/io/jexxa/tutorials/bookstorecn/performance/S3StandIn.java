@@ -0,0 +1,248 @@
+package io.jexxa.tutorials.bookstorecn.performance;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.regex.Pattern;
+
+/**
+ * Minimal in-process replacement of an S3 storage for performance tests. It keeps all objects in memory and supports
+ * the operations required by the S3 repository and the claim checks of this application: create and query buckets,
+ * put, get, head and delete objects, list objects (V2) and delete multiple objects.
+ * <p>
+ * Signatures are not validated. Payloads using {@code aws-chunked} encoding are decoded.
+ */
+final class S3StandIn implements AutoCloseable
+{
+    private static final Pattern DELETE_KEY = Pattern.compile("<Key>(.*?)</Key>");
+    private static final String XML_NAMESPACE = "http://s3.amazonaws.com/doc/2006-03-01/";
+
+    private final HttpServer httpServer;
+    private final Map<String, byte[]> objects = new ConcurrentSkipListMap<>();
+
+    S3StandIn() throws IOException
+    {
+        httpServer = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        httpServer.createContext("/", this::handle);
+        httpServer.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        httpServer.start();
+    }
+
+    String endpoint()
+    {
+        return "http://localhost:" + httpServer.getAddress().getPort();
+    }
+
+    @Override
+    public void close()
+    {
+        httpServer.stop(0);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException
+    {
+        try (exchange)
+        {
+            var path = URLDecoder.decode(exchange.getRequestURI().getRawPath(), StandardCharsets.UTF_8).substring(1);
+            var query = queryParameters(exchange.getRequestURI().getRawQuery());
+            var separator = path.indexOf('/');
+
+            if (separator < 0 || separator == path.length() - 1)
+            {
+                var bucket = separator < 0 ? path : path.substring(0, separator);
+                handleBucket(exchange, bucket, query);
+            }
+            else
+            {
+                handleObject(exchange, path);
+            }
+        }
+    }
+
+    private void handleBucket(HttpExchange exchange, String bucket, Map<String, String> query) throws IOException
+    {
+        switch (exchange.getRequestMethod())
+        {
+            case "GET" -> {
+                if (query.containsKey("location"))
+                {
+                    respond(exchange, 200, "<LocationConstraint xmlns=\"" + XML_NAMESPACE + "\">us-east-1</LocationConstraint>");
+                }
+                else
+                {
+                    respond(exchange, 200, listObjects(bucket, query.getOrDefault("prefix", "")));
+                }
+            }
+            case "POST" -> respond(exchange, 200, deleteObjects(bucket, readBody(exchange)));
+            case "DELETE" -> respond(exchange, 204, null);
+            default -> respond(exchange, 200, null); // PUT and HEAD: Buckets are created implicitly
+        }
+    }
+
+    private void handleObject(HttpExchange exchange, String path) throws IOException
+    {
+        switch (exchange.getRequestMethod())
+        {
+            case "PUT" -> {
+                objects.put(path, readBody(exchange));
+                exchange.getResponseHeaders().add("ETag", "\"" + Integer.toHexString(path.hashCode()) + "\"");
+                respond(exchange, 200, null);
+            }
+            case "GET", "HEAD" -> {
+                var content = objects.get(path);
+                if (content == null)
+                {
+                    respond(exchange, 404, "<Error><Code>NoSuchKey</Code><Message>The specified key does not exist.</Message></Error>");
+                    return;
+                }
+                exchange.getResponseHeaders().add("Content-Type", "application/octet-stream");
+                exchange.getResponseHeaders().add("ETag", "\"" + Arrays.hashCode(content) + "\"");
+                if (exchange.getRequestMethod().equals("HEAD"))
+                {
+                    exchange.getResponseHeaders().add("Content-Length", String.valueOf(content.length));
+                    exchange.sendResponseHeaders(200, -1);
+                }
+                else
+                {
+                    exchange.sendResponseHeaders(200, content.length);
+                    exchange.getResponseBody().write(content);
+                }
+            }
+            case "DELETE" -> {
+                objects.remove(path);
+                respond(exchange, 204, null);
+            }
+            default -> respond(exchange, 405, null);
+        }
+    }
+
+    private String listObjects(String bucket, String prefix)
+    {
+        var result = new StringBuilder()
+                .append("<ListBucketResult xmlns=\"").append(XML_NAMESPACE).append("\">")
+                .append("<Name>").append(bucket).append("</Name>")
+                .append("<Prefix>").append(prefix).append("</Prefix>")
+                .append("<IsTruncated>false</IsTruncated>");
+
+        var count = 0;
+        for (var entry : objects.entrySet())
+        {
+            var key = entry.getKey().substring(bucket.length() + 1);
+            if (entry.getKey().startsWith(bucket + "/") && key.startsWith(prefix))
+            {
+                result.append("<Contents>")
+                        .append("<Key>").append(key).append("</Key>")
+                        .append("<LastModified>").append(Instant.now()).append("</LastModified>")
+                        .append("<ETag>\"").append(Arrays.hashCode(entry.getValue())).append("\"</ETag>")
+                        .append("<Size>").append(entry.getValue().length).append("</Size>")
+                        .append("<StorageClass>STANDARD</StorageClass>")
+                        .append("</Contents>");
+                ++count;
+            }
+        }
+        return result.append("<KeyCount>").append(count).append("</KeyCount>")
+                .append("</ListBucketResult>")
+                .toString();
+    }
+
+    private String deleteObjects(String bucket, byte[] request)
+    {
+        var result = new StringBuilder("<DeleteResult xmlns=\"" + XML_NAMESPACE + "\">");
+        var matcher = DELETE_KEY.matcher(new String(request, StandardCharsets.UTF_8));
+        while (matcher.find())
+        {
+            objects.remove(bucket + "/" + matcher.group(1));
+            result.append("<Deleted><Key>").append(matcher.group(1)).append("</Key></Deleted>");
+        }
+        return result.append("</DeleteResult>").toString();
+    }
+
+    private static byte[] readBody(HttpExchange exchange) throws IOException
+    {
+        var body = exchange.getRequestBody().readAllBytes();
+        var contentSha256 = exchange.getRequestHeaders().getFirst("x-amz-content-sha256");
+        var contentEncoding = exchange.getRequestHeaders().getFirst("Content-Encoding");
+
+        if ((contentSha256 != null && contentSha256.startsWith("STREAMING-"))
+                || (contentEncoding != null && contentEncoding.contains("aws-chunked")))
+        {
+            return decodeChunked(new ByteArrayInputStream(body));
+        }
+        return body;
+    }
+
+    /**
+     * Decodes {@code aws-chunked} encoding: {@code <hex size>[;chunk-signature=...]\r\n<data>\r\n ... 0\r\n[trailer]}
+     */
+    private static byte[] decodeChunked(InputStream inputStream) throws IOException
+    {
+        var result = new ByteArrayOutputStream();
+        while (true)
+        {
+            var header = readLine(inputStream);
+            var size = Integer.parseInt(header.split(";", 2)[0].trim(), 16);
+            if (size == 0)
+            {
+                return result.toByteArray();
+            }
+            result.write(inputStream.readNBytes(size));
+            readLine(inputStream); // CRLF after chunk data
+        }
+    }
+
+    private static String readLine(InputStream inputStream) throws IOException
+    {
+        var line = new ByteArrayOutputStream();
+        int current;
+        while ((current = inputStream.read()) != -1 && current != '\n')
+        {
+            if (current != '\r')
+            {
+                line.write(current);
+            }
+        }
+        return line.toString(StandardCharsets.US_ASCII);
+    }
+
+    private static Map<String, String> queryParameters(String rawQuery)
+    {
+        var result = new HashMap<String, String>();
+        if (rawQuery == null)
+        {
+            return result;
+        }
+        for (var parameter : rawQuery.split("&"))
+        {
+            var keyValue = parameter.split("=", 2);
+            result.put(URLDecoder.decode(keyValue[0], StandardCharsets.UTF_8),
+                    keyValue.length > 1 ? URLDecoder.decode(keyValue[1], StandardCharsets.UTF_8) : "");
+        }
+        return result;
+    }
+
+    private static void respond(HttpExchange exchange, int statusCode, String xml) throws IOException
+    {
+        if (xml == null)
+        {
+            exchange.sendResponseHeaders(statusCode, -1);
+            return;
+        }
+        var content = xml.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/xml");
+        exchange.sendResponseHeaders(statusCode, content.length);
+        exchange.getResponseBody().write(content);
+    }
+}
@@ -73,6 +73,26 @@ class BookTest {
         assertEquals(1, domainEventRecorder.getDomainEvents().size() );
     }
 
+    @Test
+    void restockSoldOutBook() {
+        // Arrange
+        var restockedBooks = new ArrayList<BookRestocked>();
+        subscribe(BookRestocked.class, restockedBooks::add);
+
+        var objectUnderTest = newBook(ANY_BOOK);
+        objectUnderTest.addToStock(1);
+        assertDoesNotThrow(objectUnderTest::sell);
+        restockedBooks.clear();
+
+        // Act
+        objectUnderTest.addToStock(2);
+        objectUnderTest.addToStock(3);
+
+        // Assert - only the change from sold out to in stock is published
+        assertEquals(1, restockedBooks.size());
+        assertEquals(ANY_BOOK, restockedBooks.getFirst().isbn13());
+    }
+
     private static class DomainEventRecorder {
         private final List<BookSoldOut> domainEvents = new ArrayList<>();
 
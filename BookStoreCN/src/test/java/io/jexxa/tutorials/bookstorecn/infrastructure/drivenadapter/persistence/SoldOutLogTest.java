@@ -0,0 +1,102 @@
+package io.jexxa.tutorials.bookstorecn.infrastructure.drivenadapter.persistence;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SoldOutLogTest
+{
+    @TempDir
+    Path directory;
+
+    @Test
+    void reloadEntriesAfterRestart()
+    {
+        // Arrange
+        var soldOutSince = Instant.ofEpochMilli(1_700_000_000_000L);
+        var objectUnderTest = new SoldOutLog(directory);
+        objectUnderTest.put("978-1-891830-85-3", soldOutSince);
+        objectUnderTest.put("978-1-60309-322-4", soldOutSince);
+        objectUnderTest.remove("978-1-60309-322-4");
+
+        // Act
+        var result = new SoldOutLog(directory);
+
+        // Assert
+        assertEquals(Optional.of(soldOutSince), result.get("978-1-891830-85-3"));
+        assertTrue(result.get("978-1-60309-322-4").isEmpty());
+    }
+
+    @Test
+    void ignoreSoldOutBeforeRestocked()
+    {
+        // Arrange
+        var soldOutSince = Instant.ofEpochMilli(1_700_000_000_000L);
+        var restockedSince = soldOutSince.plusSeconds(60);
+        var objectUnderTest = new SoldOutLog(directory);
+
+        // Act - the restocked event is received before the older sold-out event
+        objectUnderTest.putInStock("978-1-891830-85-3", restockedSince);
+        objectUnderTest.put("978-1-891830-85-3", soldOutSince);
+
+        // Assert
+        assertTrue(objectUnderTest.get("978-1-891830-85-3").isEmpty());
+        assertTrue(new SoldOutLog(directory).get("978-1-891830-85-3").isEmpty());
+    }
+
+    @Test
+    void ignoreRestockedBeforeSoldOut()
+    {
+        // Arrange
+        var restockedSince = Instant.ofEpochMilli(1_700_000_000_000L);
+        var soldOutSince = restockedSince.plusSeconds(60);
+        var objectUnderTest = new SoldOutLog(directory);
+
+        // Act - the sold-out event is received before the older restocked event
+        objectUnderTest.put("978-1-891830-85-3", soldOutSince);
+        objectUnderTest.putInStock("978-1-891830-85-3", restockedSince);
+
+        // Assert
+        assertEquals(Optional.of(soldOutSince), objectUnderTest.get("978-1-891830-85-3"));
+        assertEquals(Optional.of(soldOutSince), new SoldOutLog(directory).get("978-1-891830-85-3"));
+    }
+
+    @Test
+    void ignoreOlderSoldOut()
+    {
+        // Arrange
+        var olderSoldOutSince = Instant.ofEpochMilli(1_700_000_000_000L);
+        var soldOutSince = olderSoldOutSince.plusSeconds(60);
+        var objectUnderTest = new SoldOutLog(directory);
+
+        // Act - the newer sold-out event is received before the older one
+        objectUnderTest.put("978-1-891830-85-3", soldOutSince);
+        objectUnderTest.put("978-1-891830-85-3", olderSoldOutSince);
+
+        // Assert
+        assertEquals(Optional.of(soldOutSince), objectUnderTest.get("978-1-891830-85-3"));
+        assertEquals(Optional.of(soldOutSince), new SoldOutLog(directory).get("978-1-891830-85-3"));
+    }
+
+    @Test
+    void compactLog()
+    {
+        // Arrange
+        var objectUnderTest = new SoldOutLog(directory);
+
+        // Act
+        for (var i = 0; i < 5_000; ++i)
+        {
+            objectUnderTest.put("978-1-891830-85-3", Instant.ofEpochMilli(i));
+        }
+
+        // Assert
+        assertEquals(Optional.of(Instant.ofEpochMilli(4_999)), new SoldOutLog(directory).get("978-1-891830-85-3"));
+    }
+}
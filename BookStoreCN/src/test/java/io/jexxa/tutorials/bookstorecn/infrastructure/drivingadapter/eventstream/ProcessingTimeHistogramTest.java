@@ -0,0 +1,44 @@
+package io.jexxa.tutorials.bookstorecn.infrastructure.drivingadapter.eventstream;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ProcessingTimeHistogramTest
+{
+    @Test
+    void recordProcessingTimes()
+    {
+        // Arrange
+        var objectUnderTest = new ProcessingTimeHistogram();
+
+        // Act
+        objectUnderTest.record(TimeUnit.MICROSECONDS.toNanos(100));
+        objectUnderTest.record(TimeUnit.MILLISECONDS.toNanos(1));
+        objectUnderTest.record(TimeUnit.MILLISECONDS.toNanos(3));
+
+        // Assert
+        assertEquals(3, objectUnderTest.count());
+        assertEquals(3, objectUnderTest.maxMillis(), 0.001);
+        assertEquals(1.0333, objectUnderTest.meanMillis(), 0.001);
+        assertEquals(1, objectUnderTest.buckets().get(0).count());  // <= 250 µs
+        assertEquals(1, objectUnderTest.buckets().get(2).count());  // <= 1 ms
+        assertEquals(1, objectUnderTest.buckets().get(4).count());  // <= 5 ms
+    }
+
+    @Test
+    void recordVeryLongProcessingTime()
+    {
+        // Arrange
+        var objectUnderTest = new ProcessingTimeHistogram();
+
+        // Act
+        objectUnderTest.record(TimeUnit.MINUTES.toNanos(1));
+
+        // Assert
+        assertEquals(1, objectUnderTest.buckets().getLast().count());
+        assertEquals(Long.MAX_VALUE, objectUnderTest.buckets().getLast().upperBoundMicros());
+    }
+}
@@ -0,0 +1,42 @@
+package io.jexxa.tutorials.bookstorecn.infrastructure.drivingadapter.eventstream;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RetryPolicyTest
+{
+    @Test
+    void defaultRetryTiers()
+    {
+        // Arrange
+        var objectUnderTest = RetryPolicy.fromProperties(new Properties());
+
+        // Act / Assert
+        assertEquals(3, objectUnderTest.tiers());
+        assertEquals(Duration.ofSeconds(10), objectUnderTest.delay(1));
+        assertEquals("BookStore-retry-1s", objectUnderTest.retryTopic("BookStore", 0));
+        assertEquals("BookStore-retry-10s", objectUnderTest.retryTopic("BookStore", 1));
+        assertEquals("BookStore-retry-1m", objectUnderTest.retryTopic("BookStore", 2));
+        assertEquals("BookStore-dlt", objectUnderTest.deadLetterTopic("BookStore"));
+    }
+
+    @Test
+    void configuredRetryTiers()
+    {
+        // Arrange
+        var properties = new Properties();
+        properties.put(RetryPolicy.RETRY_DELAYS, "PT0.5S, PT5M");
+
+        // Act
+        var objectUnderTest = RetryPolicy.fromProperties(properties);
+
+        // Assert
+        assertEquals(2, objectUnderTest.tiers());
+        assertEquals("BookStore-retry-500ms", objectUnderTest.retryTopic("BookStore", 0));
+        assertEquals("BookStore-retry-5m", objectUnderTest.retryTopic("BookStore", 1));
+    }
+}
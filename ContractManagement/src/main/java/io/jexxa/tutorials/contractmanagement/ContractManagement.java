@@ -2,8 +2,14 @@ package io.jexxa.tutorials.contractmanagement;
 
 import io.jexxa.core.JexxaMain;
 import io.jexxa.drivingadapter.rest.RESTfulRPCAdapter;
+import io.jexxa.tutorials.contractmanagement.applicationservice.AuditEventRebuildService;
 import io.jexxa.tutorials.contractmanagement.applicationservice.ContractService;
+import io.jexxa.tutorials.contractmanagement.applicationservice.ContractStreamService;
+import io.jexxa.tutorials.contractmanagement.applicationservice.ContractTransferService;
+import io.jexxa.tutorials.contractmanagement.applicationservice.PersistenceMetricsService;
 import io.jexxa.tutorials.contractmanagement.domainservice.ContractAuditService;
+import io.jexxa.tutorials.contractmanagement.domainservice.ContractProjectionService;
+import io.jexxa.tutorials.contractmanagement.infrastructure.drivingadapter.stream.NDJSONStreamAdapter;
 
 public class ContractManagement
 {
@@ -13,9 +19,14 @@ public class ContractManagement
 
         jexxaMain
                 .bootstrap(ContractAuditService.class).and()      // Bootstrap audit service first so that we capture all DomainEvents
+                .bootstrap(ContractProjectionService.class).and() // Bootstrap read model before its queries are exposed
 
                 .bind(RESTfulRPCAdapter.class).to(ContractService.class)
+                .bind(RESTfulRPCAdapter.class).to(ContractTransferService.class)
+                .bind(RESTfulRPCAdapter.class).to(AuditEventRebuildService.class)
                 .bind(RESTfulRPCAdapter.class).to(jexxaMain.getBoundedContext())
+                .bind(RESTfulRPCAdapter.class).to(PersistenceMetricsService.class)
+                .bind(NDJSONStreamAdapter.class).to(ContractStreamService.class)
 
                 .run();
     }
@@ -0,0 +1,223 @@
+package io.jexxa.tutorials.contractmanagement.applicationservice;
+
+import io.jexxa.addend.applicationcore.ApplicationService;
+import io.jexxa.tutorials.contractmanagement.domain.contract.Contract;
+import io.jexxa.tutorials.contractmanagement.domain.contract.ContractNumber;
+import io.jexxa.tutorials.contractmanagement.domain.contract.ContractRepository;
+import io.jexxa.tutorials.contractmanagement.domain.contract.ContractSigned;
+import io.jexxa.tutorials.contractmanagement.domain.contract.RebuildProgress;
+import io.jexxa.tutorials.contractmanagement.domainservice.DomainEventStore;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Rebuilds the {@code ContractSigned} events of the {@link DomainEventStore} from the state of the signed contracts,
+ * e.g., if the event store was lost or is moved to another storage strategy.
+ * <p>
+ * The contract numbers are split into ranges, which are processed by a pool of worker threads. Each worker streams
+ * the signed contracts of its range and writes their events in batches of {@value #BATCH_SIZE}, each within a single
+ * transaction. There are several ranges per thread, so that a thread that finished its range early takes the next one.
+ * <p>
+ * Events that are already stored are skipped, so that a rebuild can be run again, e.g., after it failed. Existing
+ * events are not replaced, and they are counted as written as well. Only the last signature of a contract is known,
+ * and contracts signed before the signature date was stored cannot be rebuilt. Events written by a rebuild are not
+ * counted by {@code SignatureRollupStore} and {@code AdvisorLeaderboard}, so call
+ * {@code ContractService.rebuildSignatureRollups} afterward.
+ */
+@SuppressWarnings("unused")
+@ApplicationService
+public class AuditEventRebuildService
+{
+    private static final int BATCH_SIZE = 1000;
+    private static final int RANGES_PER_THREAD = 8;
+
+    private final ContractRepository contractRepository;
+    private final DomainEventStore domainEventStore;
+    private final AtomicReference<Rebuild> currentRebuild = new AtomicReference<>();
+
+    public AuditEventRebuildService(ContractRepository contractRepository, DomainEventStore domainEventStore)
+    {
+        this.contractRepository = contractRepository;
+        this.domainEventStore = domainEventStore;
+    }
+
+    /**
+     * Rebuilds all audit events using given number of threads and returns when all of them are written. Meanwhile,
+     * {@link #getRebuildProgress()} reports the progress.
+     */
+    public RebuildProgress rebuildAuditEvents(int threads)
+    {
+        if (threads <= 0)
+        {
+            throw new IllegalArgumentException("Number of threads must be positive");
+        }
+
+        var highestContractNumber = contractRepository.getHighestContractNumber()
+                .map(contract -> contract.getContractNumber().value())
+                .orElse(0);
+        var ranges = split(highestContractNumber, threads * RANGES_PER_THREAD);
+
+        var rebuild = new Rebuild(ranges.size());
+        var previousRebuild = currentRebuild.get();
+        if ((previousRebuild != null && previousRebuild.isRunning()) || !currentRebuild.compareAndSet(previousRebuild, rebuild))
+        {
+            throw new IllegalStateException("Audit events are already being rebuilt");
+        }
+
+        var executor = Executors.newFixedThreadPool(threads);
+        try
+        {
+            var futures = new ArrayList<Future<?>>();
+            ranges.forEach(range -> futures.add(executor.submit(() -> rebuildRange(range, rebuild))));
+            for (var future : futures)
+            {
+                future.get();
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while rebuilding audit events", e);
+        }
+        catch (ExecutionException e)
+        {
+            throw new IllegalStateException("Could not rebuild audit events: " + e.getCause().getMessage(), e.getCause());
+        }
+        finally
+        {
+            // Remaining ranges are cancelled if a range failed
+            executor.shutdownNow();
+            rebuild.finish();
+        }
+
+        return rebuild.getProgress();
+    }
+
+    /**
+     * @return the progress of the running or last rebuild, or {@code null} if no rebuild was started yet
+     */
+    public RebuildProgress getRebuildProgress()
+    {
+        var rebuild = currentRebuild.get();
+        return rebuild == null ? null : rebuild.getProgress();
+    }
+
+    private void rebuildRange(ContractNumberRange range, Rebuild rebuild)
+    {
+        var batch = new ArrayList<ContractSigned>(BATCH_SIZE);
+        try (var contracts = contractRepository.streamSignedContracts(range.first(), range.last()))
+        {
+            for (var iterator = contracts.iterator(); iterator.hasNext() && !Thread.currentThread().isInterrupted(); )
+            {
+                var contract = iterator.next();
+                rebuild.signedContracts.increment();
+                if (contract.getSignatureDate() == null)
+                {
+                    rebuild.skippedContracts.increment();
+                    continue;
+                }
+
+                batch.add(toContractSigned(contract));
+                if (batch.size() == BATCH_SIZE)
+                {
+                    write(batch, rebuild);
+                }
+            }
+        }
+
+        // A cancelled range is not completed, so that its remaining events are not written either
+        if (Thread.currentThread().isInterrupted())
+        {
+            return;
+        }
+        write(batch, rebuild);
+        rebuild.completedRanges.incrementAndGet();
+    }
+
+    private void write(List<ContractSigned> batch, Rebuild rebuild)
+    {
+        if (batch.isEmpty())
+        {
+            return;
+        }
+        domainEventStore.addAllIfAbsent(List.copyOf(batch));
+        rebuild.writtenEvents.add(batch.size());
+        batch.clear();
+    }
+
+    private static ContractSigned toContractSigned(Contract contract)
+    {
+        return new ContractSigned(contract.getContractNumber(), contract.getSignatureDate(), contract.getAdvisor());
+    }
+
+    /**
+     * Splits the contract numbers from 0 to given highest one into at most {@code count} ranges of equal size
+     */
+    private static List<ContractNumberRange> split(int highestContractNumber, int count)
+    {
+        var rangeSize = Math.max(1, ((long) highestContractNumber + count) / count);
+        var ranges = new ArrayList<ContractNumberRange>();
+        for (long first = 0; first <= highestContractNumber; first += rangeSize)
+        {
+            var last = Math.min(first + rangeSize - 1, highestContractNumber);
+            ranges.add(new ContractNumberRange(new ContractNumber((int) first), new ContractNumber((int) last)));
+        }
+        return ranges;
+    }
+
+    private record ContractNumberRange(ContractNumber first, ContractNumber last)
+    {
+    }
+
+    private static final class Rebuild
+    {
+        private final int totalRanges;
+        private final long start = System.nanoTime();
+        private final AtomicInteger completedRanges = new AtomicInteger();
+        private final LongAdder signedContracts = new LongAdder();
+        private final LongAdder writtenEvents = new LongAdder();
+        private final LongAdder skippedContracts = new LongAdder();
+        private volatile boolean running = true;
+        private volatile long end;
+
+        Rebuild(int totalRanges)
+        {
+            this.totalRanges = totalRanges;
+        }
+
+        boolean isRunning()
+        {
+            return running;
+        }
+
+        void finish()
+        {
+            end = System.nanoTime();
+            running = false;
+        }
+
+        RebuildProgress getProgress()
+        {
+            var running = isRunning();
+            var durationMillis = TimeUnit.NANOSECONDS.toMillis((running ? System.nanoTime() : end) - start);
+            var events = writtenEvents.sum();
+            return new RebuildProgress(
+                    running,
+                    completedRanges.get(),
+                    totalRanges,
+                    signedContracts.sum(),
+                    events,
+                    skippedContracts.sum(),
+                    durationMillis,
+                    durationMillis == 0 ? 0 : events * 1000.0 / durationMillis);
+        }
+    }
+}
@@ -1,85 +1,292 @@
 package io.jexxa.tutorials.contractmanagement.applicationservice;
 
 import io.jexxa.addend.applicationcore.ApplicationService;
+import io.jexxa.tutorials.contractmanagement.domain.contract.AdvisorRanking;
 import io.jexxa.tutorials.contractmanagement.domain.contract.Contract;
+import io.jexxa.tutorials.contractmanagement.domain.contract.ContractCreated;
 import io.jexxa.tutorials.contractmanagement.domain.contract.ContractSigned;
 import io.jexxa.tutorials.contractmanagement.domain.contract.ContractNumber;
 import io.jexxa.tutorials.contractmanagement.domain.contract.ContractRepository;
+import io.jexxa.tutorials.contractmanagement.domain.contract.ContractSummary;
+import io.jexxa.tutorials.contractmanagement.domain.contract.ReadModelLag;
+import io.jexxa.tutorials.contractmanagement.domain.contract.SignatureCount;
+import io.jexxa.tutorials.contractmanagement.domainservice.AdvisorLeaderboard;
+import io.jexxa.tutorials.contractmanagement.domainservice.ContractNumberAllocator;
+import io.jexxa.tutorials.contractmanagement.domainservice.ContractReadModel;
 import io.jexxa.tutorials.contractmanagement.domainservice.DomainEventStore;
+import io.jexxa.tutorials.contractmanagement.domainservice.SignatureRollupStore;
 
+import java.time.Instant;
 import java.time.LocalDate;
 import java.time.LocalTime;
 import java.time.ZoneOffset;
 import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
+import static io.jexxa.tutorials.contractmanagement.domain.DomainEventPublisher.publish;
+import static io.jexxa.tutorials.contractmanagement.domain.DomainEventPublisher.publishAll;
 import static io.jexxa.tutorials.contractmanagement.domain.contract.Contract.newContract;
+import static io.jexxa.tutorials.contractmanagement.domain.contract.Contract.newContracts;
 
+/**
+ * The list queries of contracts are answered by the {@link ContractReadModel}, which is updated asynchronously. So, a
+ * contract that was just created or signed might not be included yet, see {@link #getReadModelLag()}.
+ * {@link #getContracts(List)} reads the contracts from the {@link ContractRepository} and always includes them.
+ */
 @SuppressWarnings("unused")
 @ApplicationService
 public class ContractService
 {
     private final ContractRepository contractRepository;
     private final DomainEventStore domainEventStore;
+    private final ContractNumberAllocator contractNumberAllocator;
+    private final SignatureRollupStore signatureRollupStore;
+    private final AdvisorLeaderboard advisorLeaderboard;
+    private final ContractReadModel contractReadModel;
 
-    public ContractService(ContractRepository contractRepository, DomainEventStore domainEventStore)
+    public ContractService(ContractRepository contractRepository,
+                           DomainEventStore domainEventStore,
+                           ContractNumberAllocator contractNumberAllocator,
+                           SignatureRollupStore signatureRollupStore,
+                           AdvisorLeaderboard advisorLeaderboard,
+                           ContractReadModel contractReadModel)
     {
         this.contractRepository = contractRepository;
         this.domainEventStore = domainEventStore;
+        this.contractNumberAllocator = contractNumberAllocator;
+        this.signatureRollupStore = signatureRollupStore;
+        this.advisorLeaderboard = advisorLeaderboard;
+        this.contractReadModel = contractReadModel;
     }
 
     public ContractNumber createNewContract(String advisor)
     {
-        var newContract = newContract(getNextContractNumber(), advisor);
+        var newContract = newContract(contractNumberAllocator.next(), advisor);
         contractRepository.add(newContract);
+        publish(newContract.created());
         return newContract.getContractNumber();
     }
 
+    /**
+     * Creates {@code count} new contracts for given advisor within a single transaction
+     */
+    public List<ContractNumber> createNewContracts(String advisor, int count)
+    {
+        var contractNumbers = IntStream.range(0, count)
+                .mapToObj(i -> contractNumberAllocator.next())
+                .toList();
+        var newContracts = newContracts(contractNumbers, advisor);
+
+        contractRepository.addAll(newContracts);
+        publishAll(ContractCreated.class, newContracts.stream()
+                .map(Contract::created)
+                .toList());
+
+        return newContracts.stream()
+                .map(Contract::getContractNumber)
+                .toList();
+    }
+
     public void signContract( ContractNumber contractNumber )
     {
         var contract = contractRepository.get(contractNumber);
-        contract.sign();
+        var contractSigned = contract.sign();
         contractRepository.update(contract);
+        publish(contractSigned);
     }
 
-    public List<ContractNumber> getUnsignedContracts()
+    /**
+     * Signs all given contracts. The contracts and the resulting audit events are each stored within a single transaction.
+     */
+    public void signContracts(List<ContractNumber> contractNumbers)
     {
-        return contractRepository
-                .getUnsignedContracts()
+        var contracts = contractNumbers.stream()
+                .map(contractRepository::get)
+                .toList();
+
+        var contractsSigned = Contract.signAll(contracts);
+        contractRepository.updateAll(contracts);
+        publishAll(ContractSigned.class, contractsSigned);
+    }
+
+    /**
+     * Returns the contracts with given numbers in the same order using a single query, e.g., to show a page of a list
+     * view. Unknown contract numbers are skipped.
+     */
+    public List<ContractSummary> getContracts(List<ContractNumber> contractNumbers)
+    {
+        return contractRepository.get(contractNumbers)
                 .stream()
-                .map(Contract::getContractNumber)
+                .map(ContractSummary::of)
                 .toList();
     }
 
+    public List<ContractNumber> getUnsignedContracts()
+    {
+        return contractReadModel.getUnsignedContracts();
+    }
+
+    /**
+     * Returns each signed contract once with its latest signature date. See {@link DomainEventStore} for all audit events.
+     */
     public List<ContractSigned> getAllSignedContracts()
     {
-        return domainEventStore.get();
+        return contractReadModel.getSignedContracts();
     }
 
+    /**
+     * Returns each contract whose latest signature date is within given month once. See {@link DomainEventStore} for all
+     * audit events.
+     */
     public List<ContractSigned> getSignedContracts(int month, int year)
     {
-        var startDate = LocalDate.of(year, month, 1);
-        var endDate = startDate.with(TemporalAdjusters.lastDayOfMonth());
+        return contractReadModel.getSignedContracts(startOfMonth(month, year), endOfMonth(month, year));
+    }
+
+    public SignatureCount getNumberOfSignedContracts(int month, int year)
+    {
+        return signatureRollupStore.get(year, month);
+    }
 
-        return domainEventStore.get(
-                startDate.atStartOfDay().toInstant(ZoneOffset.UTC),
-                endDate.atTime(LocalTime.MAX).toInstant(ZoneOffset.UTC));
+    public SignatureCount getNumberOfSignedContractsByAdvisor(String advisor, int month, int year)
+    {
+        return signatureRollupStore.get(year, month, advisor);
+    }
+
+    public List<SignatureCount> getNumberOfSignedContractsPerAdvisor(int month, int year)
+    {
+        return signatureRollupStore.getPerAdvisor(year, month);
+    }
+
+    /**
+     * @param days length of the sliding window, which must be one of the configured windows such as 7, 30 or 365
+     * @return up to {@code limit} advisors with the most signed contracts within the last {@code days} days
+     */
+    public List<AdvisorRanking> getTopAdvisors(int days, int limit)
+    {
+        return advisorLeaderboard.getTopAdvisors(days, limit);
+    }
+
+    /**
+     * Rebuilds the number of signed contracts of all months within given years from the stored domain events. The
+     * months are processed in parallel. Contracts signed during the rebuild might not be counted correctly.
+     */
+    public void rebuildSignatureRollups(int fromYear, int toYear)
+    {
+        IntStream.rangeClosed(fromYear * 12, toYear * 12 + 11)
+                .parallel()
+                .forEach(month -> rebuildSignatureRollup(month % 12 + 1, month / 12));
     }
 
     public List<ContractNumber> getContractsByAdvisor(String advisor)
     {
-        return contractRepository
-                .getByAdvisor(advisor)
-                .stream()
-                .map(Contract::getContractNumber)
+        return contractReadModel.getContractsByAdvisor(advisor);
+    }
+
+    public List<ContractNumber> getUnsignedContractsByAdvisor(String advisor)
+    {
+        return contractReadModel.getContractsByAdvisor(advisor, false);
+    }
+
+    public List<ContractNumber> getSignedContractsByAdvisor(String advisor)
+    {
+        return contractReadModel.getContractsByAdvisor(advisor, true);
+    }
+
+    /**
+     * @return up to {@code limit} advisors starting with given prefix in alphabetical order, e.g., to autocomplete the
+     * name of an advisor
+     */
+    public List<String> getAdvisorsByPrefix(String prefix, int limit)
+    {
+        return contractRepository.getAdvisorsByPrefix(prefix, limit);
+    }
+
+    /**
+     * @return the contracts of all advisors starting with given prefix ordered by contract number
+     */
+    public List<ContractNumber> getContractsByAdvisorPrefix(String prefix)
+    {
+        return contractReadModel.getContractsByAdvisorPrefix(prefix);
+    }
+
+    public long getNumberOfContractsByAdvisor(String advisor, boolean signed)
+    {
+        return contractReadModel.countByAdvisor(advisor, signed);
+    }
+
+    /**
+     * @return how far the queries of this service lag behind created and signed contracts
+     */
+    public ReadModelLag getReadModelLag()
+    {
+        return contractReadModel.getLag();
+    }
+
+    private void rebuildSignatureRollup(int month, int year)
+    {
+        // The rollups are rebuilt from the stored domain events, which are the source of truth
+        var domainEvents = domainEventStore.get(startOfMonth(month, year), endOfMonth(month, year));
+
+        var signatureCounts = new ArrayList<SignatureCount>();
+        signatureCounts.add(new SignatureCount(year, month, null, domainEvents.size()));
+
+        var advisors = loadAdvisors(domainEvents);
+        domainEvents.stream()
+                .collect(Collectors.groupingBy(domainEvent -> advisorOf(domainEvent, advisors), Collectors.counting()))
+                .forEach((advisor, count) -> signatureCounts.add(new SignatureCount(year, month, advisor, count)));
+
+        signatureRollupStore.replace(year, month, signatureCounts);
+    }
+
+    /**
+     * Domain events stored before the advisor was added to ContractSigned are resolved via their contracts, which are
+     * loaded with a single query per month instead of one query per domain event
+     */
+    private Map<ContractNumber, String> loadAdvisors(List<ContractSigned> domainEvents)
+    {
+        var contractNumbers = domainEvents.stream()
+                .filter(domainEvent -> domainEvent.advisor() == null)
+                .map(ContractSigned::contractNumber)
                 .toList();
+        if (contractNumbers.isEmpty())
+        {
+            return Map.of();
+        }
+
+        var advisors = new HashMap<ContractNumber, String>();
+        contractRepository.get(contractNumbers).forEach(contract -> advisors.put(contract.getContractNumber(), contract.getAdvisor()));
+        return advisors;
+    }
+
+    private static String advisorOf(ContractSigned contractSigned, Map<ContractNumber, String> advisors)
+    {
+        if (contractSigned.advisor() != null)
+        {
+            return contractSigned.advisor();
+        }
+        if (!advisors.containsKey(contractSigned.contractNumber()))
+        {
+            throw new IllegalArgumentException("Unknown contract " + contractSigned.contractNumber().value());
+        }
+        return advisors.get(contractSigned.contractNumber());
+    }
+
+    private static Instant startOfMonth(int month, int year)
+    {
+        return LocalDate.of(year, month, 1).atStartOfDay().toInstant(ZoneOffset.UTC);
     }
 
-    private ContractNumber getNextContractNumber()
+    private static Instant endOfMonth(int month, int year)
     {
-        return contractRepository
-                .getHighestContractNumber()
-                .map(contract -> new ContractNumber(contract.getContractNumber().value() + 1))
-                .orElseGet(() -> new ContractNumber(1));
+        return LocalDate.of(year, month, 1)
+                .with(TemporalAdjusters.lastDayOfMonth())
+                .atTime(LocalTime.MAX)
+                .toInstant(ZoneOffset.UTC);
     }
 }
@@ -0,0 +1,62 @@
+package io.jexxa.tutorials.contractmanagement.applicationservice;
+
+import io.jexxa.addend.applicationcore.ApplicationService;
+import io.jexxa.tutorials.contractmanagement.domain.contract.ContractRepository;
+import io.jexxa.tutorials.contractmanagement.domain.contract.ContractSigned;
+import io.jexxa.tutorials.contractmanagement.domain.contract.ContractSummary;
+import io.jexxa.tutorials.contractmanagement.domainservice.DomainEventStore;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.time.temporal.TemporalAdjusters;
+import java.util.stream.Stream;
+
+/**
+ * Provides the same queries as {@link ContractService} for exports of the complete history. All results are streamed
+ * from the database, so that the required memory does not depend on the number of returned elements.
+ * <p>
+ * The caller must close the returned streams to release the underlying database connection.
+ */
+@SuppressWarnings("unused")
+@ApplicationService
+public class ContractStreamService
+{
+    private final ContractRepository contractRepository;
+    private final DomainEventStore domainEventStore;
+
+    public ContractStreamService(ContractRepository contractRepository, DomainEventStore domainEventStore)
+    {
+        this.contractRepository = contractRepository;
+        this.domainEventStore = domainEventStore;
+    }
+
+    public Stream<ContractSummary> streamAllContracts()
+    {
+        return contractRepository
+                .streamAll()
+                .map(ContractSummary::of);
+    }
+
+    public Stream<ContractSigned> streamAllSignedContracts()
+    {
+        return domainEventStore.stream();
+    }
+
+    public Stream<ContractSigned> streamSignedContracts(int month, int year)
+    {
+        var startDate = LocalDate.of(year, month, 1);
+        var endDate = startDate.with(TemporalAdjusters.lastDayOfMonth());
+
+        return domainEventStore.stream(
+                startDate.atStartOfDay().toInstant(ZoneOffset.UTC),
+                endDate.atTime(LocalTime.MAX).toInstant(ZoneOffset.UTC));
+    }
+
+    public Stream<ContractSigned> streamSignedContractsOfYear(int year)
+    {
+        return domainEventStore.stream(
+                LocalDate.of(year, 1, 1).atStartOfDay().toInstant(ZoneOffset.UTC),
+                LocalDate.of(year, 12, 31).atTime(LocalTime.MAX).toInstant(ZoneOffset.UTC));
+    }
+}
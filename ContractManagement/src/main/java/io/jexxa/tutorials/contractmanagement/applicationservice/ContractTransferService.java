@@ -0,0 +1,99 @@
+package io.jexxa.tutorials.contractmanagement.applicationservice;
+
+import io.jexxa.addend.applicationcore.ApplicationService;
+import io.jexxa.tutorials.contractmanagement.domain.contract.Contract;
+import io.jexxa.tutorials.contractmanagement.domain.contract.ContractNumber;
+import io.jexxa.tutorials.contractmanagement.domain.contract.ContractRepository;
+import io.jexxa.tutorials.contractmanagement.domain.contract.TransferReport;
+import io.jexxa.tutorials.contractmanagement.domainservice.ContractFileStore;
+import io.jexxa.tutorials.contractmanagement.domainservice.ContractNumberAllocator;
+import io.jexxa.tutorials.contractmanagement.domainservice.ContractReadModel;
+import io.jexxa.tutorials.contractmanagement.domainservice.DomainEventStore;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Exports all contracts and their {@code ContractSigned} events to files for reporting, and imports them for
+ * migrations. Contracts and domain events are streamed from and to the database, so that the required memory does
+ * not depend on the number of contracts.
+ * <p>
+ * Imports are intended for an empty database. Imported domain events are not counted by {@code SignatureRollupStore}
+ * and {@code AdvisorLeaderboard}, so call {@code ContractService.rebuildSignatureRollups} afterward. After importing
+ * contracts, the {@link ContractNumberAllocator} allocates new contract numbers after the highest imported one. Other
+ * running instances of the application might still use contract numbers they reserved before, so that contracts
+ * should be imported before other instances create contracts. The {@code ContractReadModel} is rebuilt after each import, so that queries include the imported contracts once the
+ * rebuild is applied.
+ */
+@SuppressWarnings("unused")
+@ApplicationService
+public class ContractTransferService
+{
+    private static final int IMPORT_BATCH_SIZE = 1000;
+
+    private final ContractRepository contractRepository;
+    private final DomainEventStore domainEventStore;
+    private final ContractFileStore contractFileStore;
+    private final ContractReadModel contractReadModel;
+    private final ContractNumberAllocator contractNumberAllocator;
+
+    public ContractTransferService(ContractRepository contractRepository,
+                                   DomainEventStore domainEventStore,
+                                   ContractFileStore contractFileStore,
+                                   ContractReadModel contractReadModel,
+                                   ContractNumberAllocator contractNumberAllocator)
+    {
+        this.contractRepository = contractRepository;
+        this.domainEventStore = domainEventStore;
+        this.contractFileStore = contractFileStore;
+        this.contractReadModel = contractReadModel;
+        this.contractNumberAllocator = contractNumberAllocator;
+    }
+
+    public TransferReport exportContracts(String fileName)
+    {
+        return contractFileStore.writeContracts(fileName, contractRepository.streamAll());
+    }
+
+    public TransferReport exportSignedContracts(String fileName)
+    {
+        return contractFileStore.writeSignedContracts(fileName, domainEventStore.stream());
+    }
+
+    /**
+     * Adds all contracts of given file. Each batch of contracts is added within a single transaction. Afterward, new
+     * contract numbers are allocated after the highest imported one.
+     */
+    public TransferReport importContracts(String fileName)
+    {
+        var highestContractNumber = new AtomicInteger();
+        var transferReport = contractFileStore.readContracts(fileName, IMPORT_BATCH_SIZE, contracts -> {
+            contractRepository.addAll(contracts);
+            contracts.stream()
+                    .map(Contract::getContractNumber)
+                    .forEach(contractNumber -> highestContractNumber.accumulateAndGet(contractNumber.value(), Math::max));
+        });
+
+        if (highestContractNumber.get() > 0)
+        {
+            contractNumberAllocator.allocateAfter(new ContractNumber(highestContractNumber.get()));
+        }
+        rebuildReadModel();
+        return transferReport;
+    }
+
+    /**
+     * Adds all domain events of given file. Each batch of domain events is added within a single transaction.
+     */
+    public TransferReport importSignedContracts(String fileName)
+    {
+        var transferReport = contractFileStore.readSignedContracts(fileName, IMPORT_BATCH_SIZE, domainEventStore::addAll);
+        rebuildReadModel();
+        return transferReport;
+    }
+
+    private void rebuildReadModel()
+    {
+        // Imported contracts and domain events are not published, so that the read model cannot apply them one by one
+        contractReadModel.rebuild(contractRepository::streamAll, domainEventStore::stream);
+    }
+}
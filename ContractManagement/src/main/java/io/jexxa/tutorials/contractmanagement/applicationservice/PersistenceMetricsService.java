@@ -0,0 +1,39 @@
+package io.jexxa.tutorials.contractmanagement.applicationservice;
+
+import io.jexxa.addend.applicationcore.ApplicationService;
+import io.jexxa.tutorials.contractmanagement.domain.monitoring.CacheMetric;
+import io.jexxa.tutorials.contractmanagement.domain.monitoring.ConnectionPoolMetric;
+import io.jexxa.tutorials.contractmanagement.domain.monitoring.WriteBehindMetric;
+import io.jexxa.tutorials.contractmanagement.domainservice.PersistenceMonitor;
+
+import java.util.List;
+
+/**
+ * Exposes the metrics of the persistence, so that they can be queried like the state of the application
+ */
+@SuppressWarnings("unused")
+@ApplicationService
+public class PersistenceMetricsService
+{
+    private final PersistenceMonitor persistenceMonitor;
+
+    public PersistenceMetricsService(PersistenceMonitor persistenceMonitor)
+    {
+        this.persistenceMonitor = persistenceMonitor;
+    }
+
+    public WriteBehindMetric getWriteBehindMetrics()
+    {
+        return persistenceMonitor.getWriteBehindMetrics();
+    }
+
+    public List<ConnectionPoolMetric> getConnectionPoolMetrics()
+    {
+        return persistenceMonitor.getConnectionPoolMetrics();
+    }
+
+    public List<CacheMetric> getCacheMetrics()
+    {
+        return persistenceMonitor.getCacheMetrics();
+    }
+}
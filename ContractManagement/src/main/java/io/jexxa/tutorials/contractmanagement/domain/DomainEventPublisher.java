@@ -2,15 +2,21 @@ package io.jexxa.tutorials.contractmanagement.domain;
 
 import io.jexxa.addend.applicationcore.Observer;
 
-import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Consumer;
 
+/**
+ * Calls the subscribers of a domain event in the publishing thread. Publishing does not hold a lock, so that
+ * concurrent publishers, such as concurrent requests signing contracts, are not serialized by this class. Subscribers
+ * must therefore be thread-safe.
+ */
 @Observer
 public final class DomainEventPublisher {
     private final Map<Class<?>, Set<Consumer<?>>> subscribers = new ConcurrentHashMap<>();
+    private final Map<Class<?>, Set<Consumer<?>>> batchSubscribers = new ConcurrentHashMap<>();
     private static final DomainEventPublisher DOMAIN_EVENT_PUBLISHER = new DomainEventPublisher();
 
     public static DomainEventPublisher instance()
@@ -19,7 +25,7 @@ public final class DomainEventPublisher {
     }
 
     @SuppressWarnings("unchecked") // We check if the given domainEvent is assignable to a listener. Therefore, the unchecked cast is safe
-    public static synchronized <T> void publish(final T domainEvent)
+    public static <T> void publish(final T domainEvent)
     {
         instance()
                 .subscribers
@@ -28,12 +34,49 @@ public final class DomainEventPublisher {
                 .filter(element -> element.getKey().isAssignableFrom(domainEvent.getClass()))
                 .flatMap(element -> element.getValue().stream())
                 .forEach(element -> ((Consumer<T>) element).accept(domainEvent));
+
+        instance()
+                .batchSubscribers
+                .entrySet()
+                .stream()
+                .filter(element -> element.getKey().isAssignableFrom(domainEvent.getClass()))
+                .flatMap(element -> element.getValue().stream())
+                .forEach(element -> ((Consumer<List<T>>) element).accept(List.of(domainEvent)));
+    }
+
+    /**
+     * Publishes a list of domain events of the same type. Subscribers registered via {@link #subscribeBatch} receive
+     * the list at once, so that they can process it efficiently, e.g., within a single transaction. All other
+     * subscribers receive the domain events one by one.
+     */
+    @SuppressWarnings("unchecked") // We check if the given domainEvents are assignable to a listener. Therefore, the unchecked cast is safe
+    public static <T> void publishAll(final Class<T> domainEventType, final List<T> domainEvents)
+    {
+        if (domainEvents.isEmpty())
+        {
+            return;
+        }
+
+        instance()
+                .subscribers
+                .entrySet()
+                .stream()
+                .filter(element -> element.getKey().isAssignableFrom(domainEventType))
+                .flatMap(element -> element.getValue().stream())
+                .forEach(element -> domainEvents.forEach(domainEvent -> ((Consumer<T>) element).accept(domainEvent)));
+
+        instance()
+                .batchSubscribers
+                .entrySet()
+                .stream()
+                .filter(element -> element.getKey().isAssignableFrom(domainEventType))
+                .flatMap(element -> element.getValue().stream())
+                .forEach(element -> ((Consumer<List<T>>) element).accept(domainEvents));
     }
 
     public static synchronized <T> void subscribe(Class<T> domainEvent, Consumer<T> subscriber)
     {
-        instance().subscribers.putIfAbsent(domainEvent, new HashSet<>());
-        instance().subscribers.get(domainEvent).add(subscriber);
+        instance().subscribers.computeIfAbsent(domainEvent, element -> ConcurrentHashMap.newKeySet()).add(subscriber);
     }
 
     public static synchronized void subscribe(Consumer<Object> subscriber)
@@ -41,6 +84,14 @@ public final class DomainEventPublisher {
         subscribe(Object.class, subscriber);
     }
 
+    /**
+     * Subscribes for lists of domain events. A single published domain event is passed as list with one element.
+     */
+    public static synchronized <T> void subscribeBatch(Class<T> domainEvent, Consumer<List<T>> subscriber)
+    {
+        instance().batchSubscribers.computeIfAbsent(domainEvent, element -> ConcurrentHashMap.newKeySet()).add(subscriber);
+    }
+
     private DomainEventPublisher()
     {
         //Private constructor
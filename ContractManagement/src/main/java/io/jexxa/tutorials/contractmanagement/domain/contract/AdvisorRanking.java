@@ -0,0 +1,11 @@
+package io.jexxa.tutorials.contractmanagement.domain.contract;
+
+import io.jexxa.addend.applicationcore.ValueObject;
+
+/**
+ * Number of contracts signed by an advisor within a sliding window of days
+ */
+@ValueObject
+public record AdvisorRanking(String advisor, long signedContracts)
+{
+}
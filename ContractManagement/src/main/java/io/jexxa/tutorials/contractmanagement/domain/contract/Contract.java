@@ -5,16 +5,16 @@ import io.jexxa.addend.applicationcore.AggregateFactory;
 import io.jexxa.addend.applicationcore.AggregateID;
 
 import java.time.Instant;
+import java.util.List;
 import java.util.Objects;
 
-import static io.jexxa.tutorials.contractmanagement.domain.DomainEventPublisher.publish;
-
 @Aggregate
 public class Contract
 {
     private final ContractNumber contractNumber;
     private String advisor;
     private boolean isSigned;
+    private Instant signatureDate;
 
     private Contract(ContractNumber contractNumber, String advisor)
     {
@@ -40,10 +40,26 @@ public class Contract
         this.advisor = advisor;
     }
 
-    public void sign()
+    /**
+     * @return the resulting {@link ContractSigned} event, which must be published once the contract is stored, so that
+     * no subscriber sees a signature that was not persisted
+     */
+    public ContractSigned sign()
     {
         isSigned = true;
-        publish(new ContractSigned(contractNumber, Instant.now()));
+        signatureDate = Instant.now();
+        return new ContractSigned(contractNumber, signatureDate, advisor);
+    }
+
+    /**
+     * Signs all given contracts. Like {@link #sign()}, the resulting {@link ContractSigned} events must be published
+     * once the contracts are stored.
+     */
+    public static List<ContractSigned> signAll(List<Contract> contracts)
+    {
+        return contracts.stream()
+                .map(Contract::sign)
+                .toList();
     }
 
     public boolean isSigned()
@@ -51,9 +67,52 @@ public class Contract
         return isSigned;
     }
 
+    /**
+     * @return the time of the last signature, or {@code null} if the contract is not signed or was signed before this
+     * attribute was introduced
+     */
+    public Instant getSignatureDate()
+    {
+        return signatureDate;
+    }
+
+    /**
+     * @return the {@link ContractCreated} event of this contract, which must be published once the contract is stored
+     */
+    public ContractCreated created()
+    {
+        return new ContractCreated(contractNumber, advisor);
+    }
+
     @AggregateFactory(Contract.class)
     public static Contract newContract(ContractNumber contractNumber, String advisor)
     {
         return new Contract(contractNumber, advisor);
     }
+
+    /**
+     * Creates a new contract for each given contract number
+     */
+    @AggregateFactory(Contract.class)
+    public static List<Contract> newContracts(List<ContractNumber> contractNumbers, String advisor)
+    {
+        return contractNumbers.stream()
+                .map(contractNumber -> new Contract(contractNumber, advisor))
+                .toList();
+    }
+
+    /**
+     * Recreates a contract with given state, e.g., when it is imported from a file. In contrast to
+     * {@link #newContract} and {@link #sign()}, no domain event is created, because they already happened.
+     *
+     * @param signatureDate time of the last signature, or {@code null} if it is not known
+     */
+    @AggregateFactory(Contract.class)
+    public static Contract restoreContract(ContractNumber contractNumber, String advisor, boolean isSigned, Instant signatureDate)
+    {
+        var contract = new Contract(contractNumber, advisor);
+        contract.isSigned = isSigned;
+        contract.signatureDate = signatureDate;
+        return contract;
+    }
 }
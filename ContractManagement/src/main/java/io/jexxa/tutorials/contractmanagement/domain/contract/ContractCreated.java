@@ -0,0 +1,8 @@
+package io.jexxa.tutorials.contractmanagement.domain.contract;
+
+import io.jexxa.addend.applicationcore.DomainEvent;
+
+@DomainEvent
+public record ContractCreated(ContractNumber contractNumber, String advisor)
+{
+}
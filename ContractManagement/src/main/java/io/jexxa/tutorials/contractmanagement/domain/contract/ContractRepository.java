@@ -4,22 +4,86 @@ import io.jexxa.addend.applicationcore.Repository;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface ContractRepository
 {
     void add(Contract contract);
 
+    /**
+     * Adds all given contracts within a single transaction
+     */
+    void addAll(List<Contract> contracts);
+
     void update(Contract contract);
 
+    /**
+     * Updates all given contracts within a single transaction
+     */
+    void updateAll(List<Contract> contracts);
+
     void remove(ContractNumber contractNumber);
 
     List<Contract> getByAdvisor(String advisor);
 
+    List<Contract> getUnsignedContractsByAdvisor(String advisor);
+
+    List<Contract> getSignedContractsByAdvisor(String advisor);
+
+    /**
+     * Returns the contract numbers of all unsigned contracts without loading the contracts themselves
+     */
+    List<ContractNumber> getUnsignedContractNumbers();
+
+    /**
+     * Returns the contract numbers of all contracts of given advisor without loading the contracts themselves
+     */
+    List<ContractNumber> getContractNumbersByAdvisor(String advisor);
+
+    /**
+     * Returns the contract numbers of all signed or unsigned contracts of given advisor without loading the
+     * contracts themselves
+     */
+    List<ContractNumber> getContractNumbersByAdvisor(String advisor, boolean signed);
+
+    /**
+     * Returns the number of signed or unsigned contracts of given advisor
+     */
+    long countByAdvisor(String advisor, boolean signed);
+
+    /**
+     * Returns the number of signed or unsigned contracts
+     */
+    long count(boolean signed);
+
+    /**
+     * Returns up to {@code limit} distinct advisors of contracts that start with given prefix in alphabetical order,
+     * e.g., to autocomplete the name of an advisor
+     */
+    List<String> getAdvisorsByPrefix(String prefix, int limit);
+
     Contract get(ContractNumber contractNumber);
 
+    /**
+     * Returns the contracts with given numbers using a single query. The contracts are returned in the order of given
+     * contract numbers. Unknown contract numbers are skipped.
+     */
+    List<Contract> get(List<ContractNumber> contractNumbers);
+
     List<Contract> getAll();
 
+    /**
+     * Streams all contracts without loading them into memory at once. The returned stream must be closed.
+     */
+    Stream<Contract> streamAll();
+
+    /**
+     * Streams all signed contracts whose number is within given range (inclusive) without loading them into memory
+     * at once. The returned stream must be closed.
+     */
+    Stream<Contract> streamSignedContracts(ContractNumber first, ContractNumber last);
+
     List<Contract> getSignedContracts();
 
     List<Contract> getUnsignedContracts();
@@ -4,7 +4,11 @@ import io.jexxa.addend.applicationcore.DomainEvent;
 
 import java.time.Instant;
 
+/**
+ * @param advisor advisor of the contract at the time of signing. It is {@code null} for events stored before this
+ *                attribute was introduced.
+ */
 @DomainEvent
-public record ContractSigned(ContractNumber contractNumber, Instant signatureDate)
+public record ContractSigned(ContractNumber contractNumber, Instant signatureDate, String advisor)
 {
 }
@@ -0,0 +1,15 @@
+package io.jexxa.tutorials.contractmanagement.domain.contract;
+
+import io.jexxa.addend.applicationcore.ValueObject;
+
+/**
+ * Read-only view of a {@link Contract} that can be handed out by application services
+ */
+@ValueObject
+public record ContractSummary(ContractNumber contractNumber, String advisor, boolean signed)
+{
+    public static ContractSummary of(Contract contract)
+    {
+        return new ContractSummary(contract.getContractNumber(), contract.getAdvisor(), contract.isSigned());
+    }
+}
@@ -0,0 +1,20 @@
+package io.jexxa.tutorials.contractmanagement.domain.contract;
+
+import io.jexxa.addend.applicationcore.ValueObject;
+
+import java.time.Instant;
+
+/**
+ * Describes how far the read model of contracts lags behind the contracts
+ *
+ * @param pendingChanges domain events that are published but not yet applied to the read model
+ * @param lagMillis age of the oldest pending domain event, or 0 if all domain events are applied
+ * @param lastUpdate time the read model was updated the last time, or {@code null} if it was not updated yet
+ * @param failedChanges changes that were skipped because they still failed after all retries. The read model misses
+ *                      them until it is rebuilt.
+ * @param lastFailure error of the last skipped change, or {@code null} if no change was skipped
+ */
+@ValueObject
+public record ReadModelLag(long pendingChanges, long lagMillis, Instant lastUpdate, long failedChanges, String lastFailure)
+{
+}
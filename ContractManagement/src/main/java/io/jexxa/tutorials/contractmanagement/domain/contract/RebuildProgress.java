@@ -0,0 +1,23 @@
+package io.jexxa.tutorials.contractmanagement.domain.contract;
+
+import io.jexxa.addend.applicationcore.ValueObject;
+
+/**
+ * Progress of rebuilding the audit events from the signed contracts
+ *
+ * @param completedRanges number of contract number ranges that are completely processed
+ * @param signedContracts number of signed contracts read so far
+ * @param writtenEvents number of {@link ContractSigned} events written so far
+ * @param skippedContracts number of signed contracts without a signature date, for which no event can be written
+ */
+@ValueObject
+public record RebuildProgress(boolean running,
+                              int completedRanges,
+                              int totalRanges,
+                              long signedContracts,
+                              long writtenEvents,
+                              long skippedContracts,
+                              long durationMillis,
+                              double eventsPerSecond)
+{
+}
@@ -0,0 +1,13 @@
+package io.jexxa.tutorials.contractmanagement.domain.contract;
+
+import io.jexxa.addend.applicationcore.ValueObject;
+
+/**
+ * Number of contracts signed within a month
+ *
+ * @param advisor advisor of the signed contracts, or {@code null} if the count includes all advisors
+ */
+@ValueObject
+public record SignatureCount(int year, int month, String advisor, long signedContracts)
+{
+}
@@ -0,0 +1,14 @@
+package io.jexxa.tutorials.contractmanagement.domain.contract;
+
+import io.jexxa.addend.applicationcore.ValueObject;
+
+/**
+ * Result of exporting or importing contracts or domain events
+ *
+ * @param records number of exported or imported contracts or domain events
+ * @param bytes size of the file
+ */
+@ValueObject
+public record TransferReport(String fileName, long records, long bytes, long durationMillis)
+{
+}
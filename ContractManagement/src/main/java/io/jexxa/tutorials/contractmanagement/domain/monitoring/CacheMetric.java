@@ -0,0 +1,16 @@
+package io.jexxa.tutorials.contractmanagement.domain.monitoring;
+
+import io.jexxa.addend.applicationcore.ValueObject;
+
+/**
+ * Metrics of an off-heap cache, see {@code contractmanagement.contract.cache.entries}
+ *
+ * @param entries values that are currently cached
+ * @param rejectedValues values that were not cached because they exceed the configured size of an entry
+ * @param offHeapBytes memory allocated outside the Java heap for values and hash table
+ */
+@ValueObject
+public record CacheMetric(String name, int entries, int capacity, long hits, long misses, double hitRatio,
+                          long evictions, long rejectedValues, long offHeapBytes)
+{
+}
@@ -0,0 +1,20 @@
+package io.jexxa.tutorials.contractmanagement.domain.monitoring;
+
+import io.jexxa.addend.applicationcore.ValueObject;
+
+/**
+ * Metrics of a pool of JDBC connections, see {@code contractmanagement.jdbc.pool.enabled}
+ *
+ * @param activeConnections connections that are currently handed out
+ * @param idleConnections connections that are currently available in the pool
+ * @param meanWaitMillis mean time a request waited for a connection
+ * @param timeouts requests that did not get a connection within the configured timeout
+ * @param discardedConnections connections that were closed because they failed the validation or reset
+ */
+@ValueObject
+public record ConnectionPoolMetric(String name, int size, int activeConnections, int idleConnections,
+                                   double meanWaitMillis, double maxWaitMillis, long timeouts,
+                                   long createdConnections, long discardedConnections,
+                                   long statementCacheHits, long statementCacheMisses)
+{
+}
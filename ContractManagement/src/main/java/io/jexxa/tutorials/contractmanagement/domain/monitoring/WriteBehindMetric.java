@@ -0,0 +1,16 @@
+package io.jexxa.tutorials.contractmanagement.domain.monitoring;
+
+import io.jexxa.addend.applicationcore.ValueObject;
+
+/**
+ * Metrics of the write-behind mode of the {@code DomainEventStore}
+ *
+ * @param pendingEvents domain events in the journal that are not yet stored in the event store
+ */
+@ValueObject
+public record WriteBehindMetric(long pendingEvents, long journaledEvents, long flushedEvents, long flushedBatches,
+                                double meanBatchSize, long maxBatchSize,
+                                double meanJournalAppendMillis, double maxJournalAppendMillis,
+                                double meanFlushMillis, double maxFlushMillis, long failedFlushes)
+{
+}
@@ -0,0 +1,38 @@
+package io.jexxa.tutorials.contractmanagement.domainservice;
+
+import io.jexxa.addend.applicationcore.InfrastructureService;
+import io.jexxa.tutorials.contractmanagement.domain.contract.AdvisorRanking;
+import io.jexxa.tutorials.contractmanagement.domain.contract.ContractSigned;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Ranks advisors by the number of contracts they signed within sliding windows of days, such as the last 7, 30 or 365
+ * days. The counts are maintained incrementally, so that querying the top advisors does not access the event store.
+ */
+@InfrastructureService
+public interface AdvisorLeaderboard
+{
+    /**
+     * Increments the counts of the advisors of given domain events. The increments may be applied asynchronously, so
+     * that the counts can lag behind for a short time.
+     */
+    void add(List<ContractSigned> domainEvents);
+
+    /**
+     * Replaces all counts by the counts of given domain events
+     */
+    void rebuild(Stream<ContractSigned> domainEvents);
+
+    /**
+     * @return the number of days of the longest window. Older domain events are not required to rebuild the counts
+     */
+    int getLongestWindow();
+
+    /**
+     * @return up to {@code limit} advisors with the most signed contracts within the last {@code days} days, ordered
+     * by the number of signed contracts
+     */
+    List<AdvisorRanking> getTopAdvisors(int days, int limit);
+}
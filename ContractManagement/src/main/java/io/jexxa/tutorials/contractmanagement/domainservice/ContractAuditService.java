@@ -4,23 +4,67 @@ import io.jexxa.addend.applicationcore.DomainEventHandler;
 import io.jexxa.addend.applicationcore.DomainService;
 import io.jexxa.tutorials.contractmanagement.domain.contract.ContractSigned;
 
-import static io.jexxa.tutorials.contractmanagement.domain.DomainEventPublisher.subscribe;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static io.jexxa.tutorials.contractmanagement.domain.DomainEventPublisher.subscribeBatch;
 
 @DomainService
 @SuppressWarnings("unused")
 public class ContractAuditService
 {
     private final DomainEventStore domainEventStore;
+    private final SignatureRollupStore signatureRollupStore;
+    private final AdvisorLeaderboard advisorLeaderboard;
 
-    public ContractAuditService(DomainEventStore domainEventStore)
+    public ContractAuditService(DomainEventStore domainEventStore,
+                                SignatureRollupStore signatureRollupStore,
+                                AdvisorLeaderboard advisorLeaderboard)
     {
         this.domainEventStore = domainEventStore;
-        subscribe(ContractSigned.class, this::storeAuditEvent);
+        this.signatureRollupStore = signatureRollupStore;
+        this.advisorLeaderboard = advisorLeaderboard;
+        rebuildAdvisorLeaderboard();
+        subscribeBatch(ContractSigned.class, this::storeAuditEvents);
     }
 
     @DomainEventHandler
     public void storeAuditEvent(ContractSigned contractSigned)
     {
+        // Only storing the audit event is part of signing. The rollups and the leaderboard apply their increments later.
         domainEventStore.add(contractSigned);
+        signatureRollupStore.add(List.of(contractSigned));
+        advisorLeaderboard.add(List.of(contractSigned));
+    }
+
+    /**
+     * Stores the domain events of a single contract or of a bulk operation such as {@code ContractService.signContracts}
+     */
+    @DomainEventHandler
+    public void storeAuditEvents(List<ContractSigned> contractsSigned)
+    {
+        if (contractsSigned.size() == 1)
+        {
+            storeAuditEvent(contractsSigned.getFirst());
+        }
+        else
+        {
+            domainEventStore.addAll(contractsSigned);
+            signatureRollupStore.add(contractsSigned);
+            advisorLeaderboard.add(contractsSigned);
+        }
+    }
+
+    /**
+     * The leaderboard is not persisted, so that it is rebuilt from the domain events of its longest window on startup
+     */
+    private void rebuildAdvisorLeaderboard()
+    {
+        var now = Instant.now();
+        try (var domainEvents = domainEventStore.stream(now.minus(Duration.ofDays(advisorLeaderboard.getLongestWindow())), now))
+        {
+            advisorLeaderboard.rebuild(domainEvents);
+        }
     }
 }
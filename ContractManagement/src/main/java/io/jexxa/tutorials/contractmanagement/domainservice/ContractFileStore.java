@@ -0,0 +1,32 @@
+package io.jexxa.tutorials.contractmanagement.domainservice;
+
+import io.jexxa.addend.applicationcore.InfrastructureService;
+import io.jexxa.tutorials.contractmanagement.domain.contract.Contract;
+import io.jexxa.tutorials.contractmanagement.domain.contract.ContractSigned;
+import io.jexxa.tutorials.contractmanagement.domain.contract.TransferReport;
+
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Writes and reads contracts and domain events as flat files for reporting and migrations. Elements are processed
+ * one chunk at a time, so that the required memory does not depend on the size of a file.
+ */
+@InfrastructureService
+public interface ContractFileStore
+{
+    TransferReport writeContracts(String fileName, Stream<Contract> contracts);
+
+    TransferReport writeSignedContracts(String fileName, Stream<ContractSigned> domainEvents);
+
+    /**
+     * Reads all contracts of given file and passes them to given consumer in batches of {@code batchSize}
+     */
+    TransferReport readContracts(String fileName, int batchSize, Consumer<List<Contract>> consumer);
+
+    /**
+     * Reads all domain events of given file and passes them to given consumer in batches of {@code batchSize}
+     */
+    TransferReport readSignedContracts(String fileName, int batchSize, Consumer<List<ContractSigned>> consumer);
+}
@@ -0,0 +1,20 @@
+package io.jexxa.tutorials.contractmanagement.domainservice;
+
+import io.jexxa.addend.applicationcore.InfrastructureService;
+import io.jexxa.tutorials.contractmanagement.domain.contract.ContractNumber;
+
+/**
+ * Provides unique contract numbers, even if several instances of this application create contracts concurrently.
+ * Contract numbers are increasing within a single instance, but can have gaps.
+ */
+@InfrastructureService
+public interface ContractNumberAllocator
+{
+    ContractNumber next();
+
+    /**
+     * Ensures that all contract numbers allocated afterward are greater than given one, e.g., after contracts with
+     * given number were imported
+     */
+    void allocateAfter(ContractNumber contractNumber);
+}
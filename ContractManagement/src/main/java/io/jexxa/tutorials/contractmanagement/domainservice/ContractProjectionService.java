@@ -0,0 +1,46 @@
+package io.jexxa.tutorials.contractmanagement.domainservice;
+
+import io.jexxa.addend.applicationcore.DomainEventHandler;
+import io.jexxa.addend.applicationcore.DomainService;
+import io.jexxa.tutorials.contractmanagement.domain.contract.ContractCreated;
+import io.jexxa.tutorials.contractmanagement.domain.contract.ContractRepository;
+import io.jexxa.tutorials.contractmanagement.domain.contract.ContractSigned;
+
+import java.util.List;
+
+import static io.jexxa.tutorials.contractmanagement.domain.DomainEventPublisher.subscribeBatch;
+
+/**
+ * Keeps the {@link ContractReadModel} up to date with the contracts
+ */
+@DomainService
+@SuppressWarnings("unused")
+public class ContractProjectionService
+{
+    private final ContractReadModel contractReadModel;
+
+    public ContractProjectionService(ContractRepository contractRepository,
+                                     DomainEventStore domainEventStore,
+                                     ContractReadModel contractReadModel)
+    {
+        this.contractReadModel = contractReadModel;
+
+        // Domain events that were published but not applied before a shutdown are lost, so that the read model is
+        // checked on each startup and rebuilt if it is stale. This is applied before all domain events published afterward.
+        contractReadModel.rebuildIfStale(contractRepository::streamAll, domainEventStore::stream, contractRepository::count);
+        subscribeBatch(ContractCreated.class, this::projectCreatedContracts);
+        subscribeBatch(ContractSigned.class, this::projectSignedContracts);
+    }
+
+    @DomainEventHandler
+    public void projectCreatedContracts(List<ContractCreated> contractsCreated)
+    {
+        contractReadModel.applyCreated(contractsCreated);
+    }
+
+    @DomainEventHandler
+    public void projectSignedContracts(List<ContractSigned> contractsSigned)
+    {
+        contractReadModel.applySigned(contractsSigned);
+    }
+}
@@ -0,0 +1,77 @@
+package io.jexxa.tutorials.contractmanagement.domainservice;
+
+import io.jexxa.addend.applicationcore.InfrastructureService;
+import io.jexxa.tutorials.contractmanagement.domain.contract.Contract;
+import io.jexxa.tutorials.contractmanagement.domain.contract.ContractCreated;
+import io.jexxa.tutorials.contractmanagement.domain.contract.ContractNumber;
+import io.jexxa.tutorials.contractmanagement.domain.contract.ContractSigned;
+import io.jexxa.tutorials.contractmanagement.domain.contract.ReadModelLag;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+import java.util.stream.Stream;
+
+/**
+ * Denormalized view of all contracts that answers the queries of {@code ContractService}, so that reporting queries
+ * do not access the {@link io.jexxa.tutorials.contractmanagement.domain.contract.ContractRepository}. Each contract
+ * is represented by its number, advisor, signed flag and signature date.
+ * <p>
+ * Changes are applied asynchronously in the order they are passed. So, a query may not yet include the latest
+ * changes, see {@link #getLag()}.
+ */
+@InfrastructureService
+public interface ContractReadModel
+{
+    /**
+     * Adds the contracts of given domain events
+     */
+    void applyCreated(List<ContractCreated> domainEvents);
+
+    /**
+     * Marks the contracts of given domain events as signed
+     */
+    void applySigned(List<ContractSigned> domainEvents);
+
+    /**
+     * Replaces the read model by given contracts and the signature dates of given domain events. The streams are
+     * opened and closed when the rebuild is applied.
+     */
+    void rebuild(Supplier<Stream<Contract>> contracts, Supplier<Stream<ContractSigned>> domainEvents);
+
+    /**
+     * Rebuilds the read model like {@link #rebuild} unless it is up to date. It is stale if it was never built, was
+     * built by another version of the read model, or if its number of signed or unsigned contracts differs from the
+     * one returned by {@code contractCount}, e.g., because changes were lost on shutdown.
+     *
+     * @param contractCount returns the number of signed ({@code true}) or unsigned ({@code false}) contracts
+     */
+    void rebuildIfStale(Supplier<Stream<Contract>> contracts, Supplier<Stream<ContractSigned>> domainEvents,
+                        ToLongFunction<Boolean> contractCount);
+
+    ReadModelLag getLag();
+
+    List<ContractNumber> getUnsignedContracts();
+
+    List<ContractNumber> getContractsByAdvisor(String advisor);
+
+    List<ContractNumber> getContractsByAdvisor(String advisor, boolean signed);
+
+    /**
+     * @return the contracts of all advisors starting with given prefix ordered by contract number
+     */
+    List<ContractNumber> getContractsByAdvisorPrefix(String prefix);
+
+    long countByAdvisor(String advisor, boolean signed);
+
+    /**
+     * @return all signed contracts ordered by their signature date
+     */
+    List<ContractSigned> getSignedContracts();
+
+    /**
+     * @return the contracts signed within given period ordered by their signature date
+     */
+    List<ContractSigned> getSignedContracts(Instant startTime, Instant endTime);
+}
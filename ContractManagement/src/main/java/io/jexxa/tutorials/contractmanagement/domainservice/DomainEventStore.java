@@ -5,13 +5,36 @@ import io.jexxa.tutorials.contractmanagement.domain.contract.ContractSigned;
 
 import java.time.Instant;
 import java.util.List;
+import java.util.stream.Stream;
 
 @InfrastructureService
 public interface DomainEventStore
 {
     void add(ContractSigned domainEvent);
 
+    /**
+     * Adds all given domain events within a single transaction
+     */
+    void addAll(List<ContractSigned> domainEvents);
+
+    /**
+     * Adds all given domain events that are not stored yet within a single transaction, so that the same domain events
+     * can be added several times, e.g., when they are rebuilt from the contracts
+     */
+    void addAllIfAbsent(List<ContractSigned> domainEvents);
+
     List<ContractSigned> get(Instant startTime, Instant endTime);
 
     List<ContractSigned> get();
+
+    /**
+     * Streams all domain events within given time range without loading them into memory at once.
+     * The returned stream must be closed.
+     */
+    Stream<ContractSigned> stream(Instant startTime, Instant endTime);
+
+    /**
+     * Streams all domain events without loading them into memory at once. The returned stream must be closed.
+     */
+    Stream<ContractSigned> stream();
 }
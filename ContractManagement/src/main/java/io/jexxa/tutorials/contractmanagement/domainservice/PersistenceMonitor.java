@@ -0,0 +1,21 @@
+package io.jexxa.tutorials.contractmanagement.domainservice;
+
+import io.jexxa.addend.applicationcore.InfrastructureService;
+import io.jexxa.tutorials.contractmanagement.domain.monitoring.CacheMetric;
+import io.jexxa.tutorials.contractmanagement.domain.monitoring.ConnectionPoolMetric;
+import io.jexxa.tutorials.contractmanagement.domain.monitoring.WriteBehindMetric;
+
+import java.util.List;
+
+/**
+ * Provides the metrics collected by the driven adapters that store the data of this application
+ */
+@InfrastructureService
+public interface PersistenceMonitor
+{
+    WriteBehindMetric getWriteBehindMetrics();
+
+    List<ConnectionPoolMetric> getConnectionPoolMetrics();
+
+    List<CacheMetric> getCacheMetrics();
+}
@@ -0,0 +1,35 @@
+package io.jexxa.tutorials.contractmanagement.domainservice;
+
+import io.jexxa.addend.applicationcore.InfrastructureService;
+import io.jexxa.tutorials.contractmanagement.domain.contract.ContractSigned;
+import io.jexxa.tutorials.contractmanagement.domain.contract.SignatureCount;
+
+import java.util.List;
+
+/**
+ * Stores the number of signed contracts per month and per advisor. The counts are maintained incrementally, so that
+ * querying them does not depend on the number of stored domain events.
+ */
+@InfrastructureService
+public interface SignatureRollupStore
+{
+    /**
+     * Increments the counts of the months and advisors of given domain events. The increments may be applied
+     * asynchronously, so that the counts can lag behind for a short time.
+     */
+    void add(List<ContractSigned> domainEvents);
+
+    /**
+     * Replaces all counts of given month by given counts
+     */
+    void replace(int year, int month, List<SignatureCount> signatureCounts);
+
+    SignatureCount get(int year, int month);
+
+    SignatureCount get(int year, int month, String advisor);
+
+    /**
+     * @return the counts of all advisors who signed contracts within given month
+     */
+    List<SignatureCount> getPerAdvisor(int year, int month);
+}
@@ -0,0 +1,388 @@
+package io.jexxa.tutorials.contractmanagement.infrastructure.drivenadapter.file;
+
+import io.jexxa.addend.infrastructure.DrivenAdapter;
+import io.jexxa.tutorials.contractmanagement.domain.contract.Contract;
+import io.jexxa.tutorials.contractmanagement.domain.contract.ContractNumber;
+import io.jexxa.tutorials.contractmanagement.domain.contract.ContractSigned;
+import io.jexxa.tutorials.contractmanagement.domain.contract.TransferReport;
+import io.jexxa.tutorials.contractmanagement.domainservice.ContractFileStore;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static io.jexxa.tutorials.contractmanagement.domain.contract.Contract.restoreContract;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Stores contracts and domain events as gzip compressed CSV files (RFC 4180) in directory {@value #DIRECTORY}.
+ * <p>
+ * <b>Export:</b> Elements are collected into chunks of {@value #CHUNK_SIZE} records. Each chunk is encoded and
+ * compressed as a separate gzip member by a pool of threads, and the members are written to a {@link FileChannel} in
+ * the order of the chunks. Since gzip allows concatenated members, the result is a regular gzip file. At most two
+ * chunks per thread are in progress, so that the required memory is constant. The file is written to a temporary file
+ * first and moved to its final name when complete.
+ * <p>
+ * <b>Import:</b> The file is decompressed and parsed as a stream and passed to the consumer in batches.
+ * <p>
+ * An empty unquoted field represents {@code null}, a quoted empty field an empty string.
+ */
+@SuppressWarnings("unused")
+@DrivenAdapter
+public class CSVContractFileStore implements ContractFileStore
+{
+    static final String DIRECTORY = "contractmanagement.transfer.directory";
+    static final String CHUNK_SIZE = "contractmanagement.transfer.chunk.records";
+
+    private static final String CONTRACT_HEADER = "contract_number,advisor,signed,signature_date";
+    private static final String DOMAIN_EVENT_HEADER = "contract_number,signature_date,advisor";
+
+    private final Path directory;
+    private final int chunkSize;
+    private final int threads;
+
+    public CSVContractFileStore(Properties properties)
+    {
+        this.directory = Path.of(properties.getProperty(DIRECTORY, "./transfer")).toAbsolutePath().normalize();
+        this.chunkSize = Integer.parseInt(properties.getProperty(CHUNK_SIZE, "10000"));
+        this.threads = Runtime.getRuntime().availableProcessors();
+    }
+
+    @Override
+    public TransferReport writeContracts(String fileName, Stream<Contract> contracts)
+    {
+        return write(fileName, CONTRACT_HEADER, contracts, (contract, line) -> line
+                .append(contract.getContractNumber().value()).append(',')
+                .append(quote(contract.getAdvisor())).append(',')
+                .append(contract.isSigned()).append(',')
+                .append(contract.getSignatureDate() != null ? contract.getSignatureDate().toString() : ""));
+    }
+
+    @Override
+    public TransferReport writeSignedContracts(String fileName, Stream<ContractSigned> domainEvents)
+    {
+        return write(fileName, DOMAIN_EVENT_HEADER, domainEvents, (domainEvent, line) -> line
+                .append(domainEvent.contractNumber().value()).append(',')
+                .append(domainEvent.signatureDate()).append(',')
+                .append(quote(domainEvent.advisor())));
+    }
+
+    @Override
+    public TransferReport readContracts(String fileName, int batchSize, Consumer<List<Contract>> consumer)
+    {
+        return read(fileName, CONTRACT_HEADER, batchSize, consumer, fields -> restoreContract(
+                new ContractNumber(Integer.parseInt(fields.get(0))),
+                fields.get(1),
+                Boolean.parseBoolean(fields.get(2)),
+                fields.get(3) != null ? Instant.parse(fields.get(3)) : null));
+    }
+
+    @Override
+    public TransferReport readSignedContracts(String fileName, int batchSize, Consumer<List<ContractSigned>> consumer)
+    {
+        return read(fileName, DOMAIN_EVENT_HEADER, batchSize, consumer, fields -> new ContractSigned(
+                new ContractNumber(Integer.parseInt(fields.get(0))),
+                Instant.parse(fields.get(1)),
+                fields.get(2)));
+    }
+
+    private <T> TransferReport write(String fileName, String header, Stream<T> elements, BiConsumer<T, StringBuilder> encoder)
+    {
+        var start = System.nanoTime();
+        var file = resolve(fileName);
+        var temporaryFile = file.resolveSibling(file.getFileName() + ".tmp");
+        var records = 0L;
+
+        try (elements;
+             var executor = Executors.newFixedThreadPool(threads);
+             var channel = FileChannel.open(temporaryFile, CREATE, TRUNCATE_EXISTING, WRITE))
+        {
+            var pendingChunks = new ArrayDeque<Future<ByteBuffer>>();
+            var chunk = new ArrayList<T>(chunkSize);
+            var isFirstChunk = true;
+
+            var iterator = elements.iterator();
+            while (iterator.hasNext())
+            {
+                chunk.add(iterator.next());
+                ++records;
+                if (chunk.size() == chunkSize || !iterator.hasNext())
+                {
+                    var chunkHeader = isFirstChunk ? header : null;
+                    var completeChunk = chunk;
+                    pendingChunks.add(executor.submit(() -> encode(chunkHeader, completeChunk, encoder)));
+                    chunk = new ArrayList<>(chunkSize);
+                    isFirstChunk = false;
+                }
+
+                // Limits the number of chunks in memory, and writes the chunks in the order they were read
+                while (pendingChunks.size() >= 2 * threads || (!iterator.hasNext() && !pendingChunks.isEmpty()))
+                {
+                    writeFully(channel, pendingChunks.poll().get());
+                }
+            }
+
+            if (isFirstChunk)
+            {
+                writeFully(channel, encode(header, List.of(), encoder));
+            }
+            channel.force(true);
+        }
+        catch (IOException | RuntimeException | ExecutionException e)
+        {
+            deleteQuietly(temporaryFile);
+            var cause = e instanceof ExecutionException ? e.getCause() : e;
+            throw cause instanceof IOException ioException
+                    ? new UncheckedIOException("Could not write " + file, ioException)
+                    : new IllegalStateException("Could not write " + file, cause);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            deleteQuietly(temporaryFile);
+            throw new IllegalStateException("Interrupted while writing " + file, e);
+        }
+
+        try
+        {
+            Files.move(temporaryFile, file, ATOMIC_MOVE, REPLACE_EXISTING);
+            return new TransferReport(fileName, records, Files.size(file), (System.nanoTime() - start) / 1_000_000);
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException("Could not write " + file, e);
+        }
+    }
+
+    private <T> TransferReport read(String fileName, String header, int batchSize, Consumer<List<T>> consumer, Function<List<String>, T> decoder)
+    {
+        var start = System.nanoTime();
+        var file = resolve(fileName);
+        var records = 0L;
+
+        try (var channel = FileChannel.open(file, READ);
+             var reader = new BufferedReader(new InputStreamReader(new GZIPInputStream(Channels.newInputStream(channel), 1 << 16), StandardCharsets.UTF_8), 1 << 16))
+        {
+            var fileHeader = readRecord(reader);
+            if (fileHeader == null || !String.join(",", fileHeader).equals(header))
+            {
+                throw new IllegalArgumentException("File " + fileName + " does not start with header " + header);
+            }
+
+            var batch = new ArrayList<T>(batchSize);
+            List<String> fields;
+            while ((fields = readRecord(reader)) != null)
+            {
+                batch.add(decode(decoder, fields, records + 1, fileName));
+                ++records;
+                if (batch.size() == batchSize)
+                {
+                    consumer.accept(batch);
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+            if (!batch.isEmpty())
+            {
+                consumer.accept(batch);
+            }
+
+            return new TransferReport(fileName, records, channel.size(), (System.nanoTime() - start) / 1_000_000);
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException("Could not read " + file + " after " + records + " records", e);
+        }
+    }
+
+    private static <T> T decode(Function<List<String>, T> decoder, List<String> fields, long record, String fileName)
+    {
+        try
+        {
+            return decoder.apply(fields);
+        }
+        catch (RuntimeException e)
+        {
+            throw new IllegalArgumentException("Invalid record " + record + " in " + fileName + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Encodes given elements as CSV and compresses them as a complete gzip member
+     */
+    private static <T> ByteBuffer encode(String header, List<T> elements, BiConsumer<T, StringBuilder> encoder) throws IOException
+    {
+        var text = new StringBuilder(elements.size() * 48 + 64);
+        if (header != null)
+        {
+            text.append(header).append("\r\n");
+        }
+        for (var element : elements)
+        {
+            encoder.accept(element, text);
+            text.append("\r\n");
+        }
+
+        var compressed = new ByteArrayOutputStream(text.length() / 4 + 64);
+        try (var gzip = new GZIPOutputStream(compressed, 1 << 16))
+        {
+            gzip.write(text.toString().getBytes(StandardCharsets.UTF_8));
+        }
+        return ByteBuffer.wrap(compressed.toByteArray());
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException
+    {
+        while (buffer.hasRemaining())
+        {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * @return the fields of the next record or {@code null} at the end of the file
+     */
+    private static List<String> readRecord(Reader reader) throws IOException
+    {
+        var character = reader.read();
+        if (character < 0)
+        {
+            return null;
+        }
+
+        var fields = new ArrayList<String>();
+        var field = new StringBuilder();
+        var isQuoted = false;
+        while (true)
+        {
+            if (character == '"' && field.isEmpty() && !isQuoted)
+            {
+                isQuoted = true;
+                readQuoted(reader, field);
+                character = reader.read();
+                continue;
+            }
+
+            if (character < 0 || character == ',' || character == '\n' || character == '\r')
+            {
+                fields.add(field.isEmpty() && !isQuoted ? null : field.toString());
+                field.setLength(0);
+                isQuoted = false;
+
+                if (character == ',')
+                {
+                    character = reader.read();
+                    continue;
+                }
+                if (character == '\r')
+                {
+                    reader.mark(1);
+                    if (reader.read() != '\n')
+                    {
+                        reader.reset();
+                    }
+                }
+                return fields;
+            }
+
+            field.append((char) character);
+            character = reader.read();
+        }
+    }
+
+    private static void readQuoted(Reader reader, StringBuilder field) throws IOException
+    {
+        while (true)
+        {
+            var character = reader.read();
+            if (character < 0)
+            {
+                throw new IOException("Unterminated quoted field");
+            }
+            if (character == '"')
+            {
+                reader.mark(1);
+                if (reader.read() != '"')
+                {
+                    reader.reset();
+                    return;
+                }
+            }
+            field.append((char) character);
+        }
+    }
+
+    private static String quote(String value)
+    {
+        if (value == null)
+        {
+            return "";
+        }
+        if (value.isEmpty() || value.chars().anyMatch(character -> character == ',' || character == '"' || character == '\n' || character == '\r'))
+        {
+            return '"' + value.replace("\"", "\"\"") + '"';
+        }
+        return value;
+    }
+
+    /**
+     * Only plain file names are accepted, so that a caller cannot access files outside the configured directory
+     */
+    private Path resolve(String fileName)
+    {
+        var file = directory.resolve(fileName).normalize();
+        if (!file.getParent().equals(directory))
+        {
+            throw new IllegalArgumentException("Invalid file name " + fileName);
+        }
+
+        try
+        {
+            Files.createDirectories(directory);
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException("Could not create directory " + directory, e);
+        }
+        return file;
+    }
+
+    private static void deleteQuietly(Path file)
+    {
+        try
+        {
+            Files.deleteIfExists(file);
+        }
+        catch (IOException e)
+        {
+            // The temporary file is replaced by the next export anyway
+        }
+    }
+}
@@ -0,0 +1,323 @@
+package io.jexxa.tutorials.contractmanagement.infrastructure.drivenadapter.persistence;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Maps each distinct advisor to a small integer, so that the metadata column {@code ADVISOR} of contracts stores an
+ * integer instead of the full name. This shrinks the column and its index, and a query by advisor compares integers.
+ * <p>
+ * <b>Storage:</b> With a JDBC strategy, the mapping is stored in table {@code AdvisorDictionary}, so that all
+ * instances of the application use the same integers. The repository registers the advisors of all contracts via
+ * {@link #register(Collection)} before it writes them. Unknown advisors are inserted with a single upsert, which is safe
+ * if several instances add the same advisor concurrently. The upsert is not part of the transaction of the contracts,
+ * so that an advisor remains in the dictionary if writing its contracts fails. Otherwise, the mapping is kept in memory.
+ * <p>
+ * <b>Prefix search:</b> All advisors are also kept in a trie that returns the advisors starting with a prefix in
+ * alphabetical order, e.g., for autocompletion. Since entries are never removed, the trie is reloaded from the table
+ * if the table contains more advisors than the trie, e.g., because another instance added one. For prefix searches,
+ * this is checked at most once per {@value #PREFIX_REFRESH_INTERVAL_MILLIS} ms. {@link #getIdsByPrefix(String)} returns
+ * the integers of all matching advisors, so that tables storing these integers can be queried without the names.
+ * <p>
+ * The metadata schema of {@code ContractRepositoryImpl} is static, so that there is a single instance of this class
+ * that is bound to the database of the application via {@link #configure(Properties)}.
+ */
+final class AdvisorDictionary
+{
+    private static final String TABLE_NAME = "AdvisorDictionary";
+    private static final long PREFIX_REFRESH_INTERVAL_MILLIS = 1000;
+    private static final AdvisorDictionary INSTANCE = new AdvisorDictionary();
+
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+    private Node trie = new Node();
+    private volatile Properties properties;
+    private String database;
+    private long lastPrefixRefresh;
+
+    static AdvisorDictionary instance()
+    {
+        return INSTANCE;
+    }
+
+    private AdvisorDictionary()
+    {
+        // Singleton
+    }
+
+    /**
+     * Binds this dictionary to the database of given properties and loads all stored advisors. Calling it again
+     * for the same database has no effect.
+     */
+    synchronized void configure(Properties properties)
+    {
+        var newDatabase = JDBCConnections.isJDBC(properties) ? properties.getProperty(JDBCConnections.JDBC_URL) : "";
+        if (newDatabase.equals(database))
+        {
+            return;
+        }
+
+        this.properties = properties;
+        this.database = newDatabase;
+        ids.clear();
+        trie = new Node();
+
+        if (isJDBC())
+        {
+            createTable();
+            reload();
+        }
+    }
+
+    /**
+     * Adds all given advisors that are not known yet, so that {@link #idOf(String)} can resolve them
+     */
+    synchronized void register(Collection<String> advisors)
+    {
+        var unknownAdvisors = advisors.stream()
+                .filter(Objects::nonNull)
+                .filter(advisor -> !ids.containsKey(advisor))
+                .distinct()
+                .toList();
+
+        if (unknownAdvisors.isEmpty())
+        {
+            return;
+        }
+
+        if (isJDBC())
+        {
+            insert(unknownAdvisors);
+        }
+        else
+        {
+            unknownAdvisors.forEach(advisor -> put(advisor, ids.size() + 1));
+        }
+    }
+
+    /**
+     * @return the integer of given advisor, which must be registered via {@link #register(Collection)} before
+     */
+    Integer idOf(String advisor)
+    {
+        if (advisor == null)
+        {
+            return null;
+        }
+
+        return find(advisor).orElseThrow(() -> new IllegalStateException("Advisor " + advisor + " is not registered in " + TABLE_NAME));
+    }
+
+    /**
+     * @return the integer of given advisor or an empty optional if no contract ever had this advisor
+     */
+    Optional<Integer> find(String advisor)
+    {
+        var id = ids.get(advisor);
+        if (id == null && isJDBC() && refreshIfChanged())
+        {
+            id = ids.get(advisor);
+        }
+        return Optional.ofNullable(id);
+    }
+
+    /**
+     * @return up to {@code limit} advisors starting with given prefix in alphabetical order
+     */
+    synchronized List<String> getAdvisorsByPrefix(String prefix, int limit)
+    {
+        var result = new ArrayList<String>();
+        var node = findNode(prefix);
+        if (node != null)
+        {
+            node.collect(result, limit);
+        }
+        return result;
+    }
+
+    /**
+     * @return the integers of all advisors starting with given prefix in alphabetical order of the advisors
+     */
+    synchronized List<Integer> getIdsByPrefix(String prefix)
+    {
+        var result = new ArrayList<Integer>();
+        var node = findNode(prefix);
+        if (node != null)
+        {
+            node.collectIds(result);
+        }
+        return result;
+    }
+
+    private Node findNode(String prefix)
+    {
+        if (isJDBC() && System.nanoTime() - lastPrefixRefresh > TimeUnit.MILLISECONDS.toNanos(PREFIX_REFRESH_INTERVAL_MILLIS))
+        {
+            refreshIfChanged();
+            lastPrefixRefresh = System.nanoTime();
+        }
+
+        var node = trie;
+        for (var i = 0; i < prefix.length() && node != null; ++i)
+        {
+            node = node.children.get(prefix.charAt(i));
+        }
+        return node;
+    }
+
+    private void put(String advisor, int id)
+    {
+        ids.put(advisor, id);
+
+        var node = trie;
+        for (var i = 0; i < advisor.length(); ++i)
+        {
+            node = node.children.computeIfAbsent(advisor.charAt(i), key -> new Node());
+        }
+        node.advisor = advisor;
+        node.id = id;
+    }
+
+    private boolean isJDBC()
+    {
+        return properties != null && JDBCConnections.isJDBC(properties);
+    }
+
+    private void insert(List<String> advisors)
+    {
+        try (var connection = JDBCConnections.getConnection(properties, TABLE_NAME);
+             var insert = connection.prepareStatement("INSERT INTO " + TABLE_NAME + " (ADVISOR) SELECT UNNEST(?) ON CONFLICT (ADVISOR) DO NOTHING");
+             var select = connection.prepareStatement("SELECT ID, ADVISOR FROM " + TABLE_NAME + " WHERE ADVISOR = ANY(?)"))
+        {
+            var advisorArray = connection.createArrayOf("TEXT", advisors.toArray());
+            insert.setArray(1, advisorArray);
+            insert.executeUpdate();
+
+            // If another instance inserted an advisor concurrently, its integer is used
+            select.setArray(1, advisorArray);
+            try (var resultSet = select.executeQuery())
+            {
+                while (resultSet.next())
+                {
+                    put(resultSet.getString(2), resultSet.getInt(1));
+                }
+            }
+        }
+        catch (SQLException e)
+        {
+            throw new IllegalStateException("Could not update " + TABLE_NAME, e);
+        }
+
+        advisors.stream()
+                .filter(advisor -> !ids.containsKey(advisor))
+                .findFirst()
+                .ifPresent(advisor -> {
+                    throw new IllegalStateException("Could not add advisor " + advisor + " to " + TABLE_NAME);
+                });
+    }
+
+    /**
+     * @return true if advisors added by other instances of the application were loaded
+     */
+    private synchronized boolean refreshIfChanged()
+    {
+        long storedAdvisors;
+        try (var connection = JDBCConnections.getConnection(properties, TABLE_NAME);
+             var statement = connection.createStatement();
+             var resultSet = statement.executeQuery("SELECT COUNT(*) FROM " + TABLE_NAME))
+        {
+            storedAdvisors = resultSet.next() ? resultSet.getLong(1) : 0;
+        }
+        catch (SQLException e)
+        {
+            throw new IllegalStateException("Could not query " + TABLE_NAME, e);
+        }
+
+        if (storedAdvisors == ids.size())
+        {
+            return false;
+        }
+        reload();
+        return true;
+    }
+
+    synchronized void reload()
+    {
+        try (var connection = JDBCConnections.getConnection(properties, TABLE_NAME);
+             var statement = connection.createStatement();
+             var resultSet = statement.executeQuery("SELECT ID, ADVISOR FROM " + TABLE_NAME))
+        {
+            while (resultSet.next())
+            {
+                put(resultSet.getString(2), resultSet.getInt(1));
+            }
+        }
+        catch (SQLException e)
+        {
+            throw new IllegalStateException("Could not query " + TABLE_NAME, e);
+        }
+    }
+
+    private void createTable()
+    {
+        try (var connection = JDBCConnections.getConnection(properties, TABLE_NAME);
+             var statement = connection.createStatement())
+        {
+            statement.execute("CREATE TABLE IF NOT EXISTS " + TABLE_NAME + " ("
+                    + "ID SERIAL PRIMARY KEY, "
+                    + "ADVISOR TEXT NOT NULL UNIQUE)");
+        }
+        catch (SQLException e)
+        {
+            throw new IllegalStateException("Could not create table " + TABLE_NAME, e);
+        }
+    }
+
+    /**
+     * Node of the trie. Children are sorted by character, so that a depth-first traversal returns the advisors in
+     * alphabetical order.
+     */
+    private static final class Node
+    {
+        private final TreeMap<Character, Node> children = new TreeMap<>();
+        private String advisor;
+        private int id;
+
+        void collect(List<String> result, int limit)
+        {
+            if (result.size() >= limit)
+            {
+                return;
+            }
+            if (advisor != null)
+            {
+                result.add(advisor);
+            }
+            for (var child : children.values())
+            {
+                if (result.size() >= limit)
+                {
+                    return;
+                }
+                child.collect(result, limit);
+            }
+        }
+
+        void collectIds(List<Integer> result)
+        {
+            if (advisor != null)
+            {
+                result.add(id);
+            }
+            children.values().forEach(child -> child.collectIds(result));
+        }
+    }
+}
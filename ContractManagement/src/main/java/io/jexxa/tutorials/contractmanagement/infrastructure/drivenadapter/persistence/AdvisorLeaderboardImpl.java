@@ -0,0 +1,78 @@
+package io.jexxa.tutorials.contractmanagement.infrastructure.drivenadapter.persistence;
+
+import io.jexxa.addend.infrastructure.DrivenAdapter;
+import io.jexxa.tutorials.contractmanagement.domain.contract.AdvisorRanking;
+import io.jexxa.tutorials.contractmanagement.domain.contract.ContractSigned;
+import io.jexxa.tutorials.contractmanagement.domainservice.AdvisorLeaderboard;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Keeps the leaderboard in memory, see {@link SlidingWindowLeaderboard}. The supported windows are configured via
+ * property {@value #WINDOWS} as comma separated number of days.
+ * <p>
+ * The counts only include contracts signed by this instance of the application since the last rebuild. So, the
+ * leaderboard is only exact if a single instance of the application signs contracts.
+ * <p>
+ * Domain events are added by an {@link AsyncProjector}, so that signing a contract does not wait for the lock of the
+ * leaderboard. Its queue holds at most {@value ContractReadModelImpl#QUEUE_CAPACITY} changes like the one of the read
+ * model.
+ */
+@SuppressWarnings("unused")
+@DrivenAdapter
+public class AdvisorLeaderboardImpl implements AdvisorLeaderboard
+{
+    static final String WINDOWS = "contractmanagement.leaderboard.windows.days";
+
+    // All instances of this adapter with the same windows must use the same counts
+    private static final Map<List<Integer>, SlidingWindowLeaderboard> LEADERBOARDS = new ConcurrentHashMap<>();
+    private static final Map<List<Integer>, AsyncProjector> PROJECTORS = new ConcurrentHashMap<>();
+
+    private final SlidingWindowLeaderboard leaderboard;
+    private final AsyncProjector projector;
+
+    public AdvisorLeaderboardImpl(Properties properties)
+    {
+        var windowDays = Arrays.stream(properties.getProperty(WINDOWS, "7,30,365").split(","))
+                .map(String::trim)
+                .map(Integer::valueOf)
+                .toList();
+
+        this.leaderboard = LEADERBOARDS.computeIfAbsent(windowDays, element -> new SlidingWindowLeaderboard(element, Instant::now));
+
+        var capacity = Integer.parseInt(properties.getProperty(ContractReadModelImpl.QUEUE_CAPACITY, "10000"));
+        this.projector = PROJECTORS.computeIfAbsent(windowDays, element -> new AsyncProjector("AdvisorLeaderboard", capacity));
+    }
+
+    @Override
+    public void add(List<ContractSigned> domainEvents)
+    {
+        projector.enqueue(domainEvents.size(), () -> domainEvents.forEach(leaderboard::add));
+    }
+
+    @Override
+    public void rebuild(Stream<ContractSigned> domainEvents)
+    {
+        // Domain events signed during the rebuild might be counted twice
+        leaderboard.clear();
+        domainEvents.forEach(leaderboard::add);
+    }
+
+    @Override
+    public int getLongestWindow()
+    {
+        return leaderboard.getLongestWindow();
+    }
+
+    @Override
+    public List<AdvisorRanking> getTopAdvisors(int days, int limit)
+    {
+        return leaderboard.getTopAdvisors(days, limit);
+    }
+}
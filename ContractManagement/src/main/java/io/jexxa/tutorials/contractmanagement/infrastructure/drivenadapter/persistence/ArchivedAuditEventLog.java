@@ -0,0 +1,348 @@
+package io.jexxa.tutorials.contractmanagement.infrastructure.drivenadapter.persistence;
+
+import io.jexxa.common.facade.logger.SLF4jLogger;
+import io.jexxa.tutorials.contractmanagement.domain.contract.ContractSigned;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static io.jexxa.tutorials.contractmanagement.infrastructure.drivenadapter.persistence.AuditEventArchiveFile.epochNanos;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Moves domain events older than {@value #ARCHIVE_AGE} days from the {@link ObjectStoreAuditEventLog} (hot store) into
+ * one compressed archive file per month, see {@link AuditEventArchiveFile}. Queries merge the hot store with the
+ * archive files whose footer overlaps the requested range.
+ * <p>
+ * <b>Archiving:</b> Once a day, all domain events in the hot store signed before the cutoff are merged into the archive
+ * file of their month. Afterward, the cutoff is persisted as watermark and the domain events are removed from the hot
+ * store. Queries return archived domain events only before the watermark and domain events of the hot store only from
+ * the watermark onward. So, a domain event is returned exactly once, even if the application crashes in between.
+ * Domain events left in the hot store by such a crash are removed by the next run, which is started on each startup.
+ * <p>
+ * <b>Old domain events:</b> Domain events signed before the watermark, e.g., from an import or a rebuild, would be
+ * hidden in the hot store. Therefore, adding such domain events starts an archive run right away, which moves them
+ * into the archive files before the method returns. If this run fails, they become visible with the next run.
+ * <p>
+ * Only one instance of this class exists per directory. The directory must not be shared between several instances
+ * of the application.
+ */
+final class ArchivedAuditEventLog implements AuditEventLog
+{
+    static final String ARCHIVE_AGE = "contractmanagement.eventstore.archive.age.days";
+    static final String DIRECTORY = "contractmanagement.eventstore.archive.directory";
+
+    private static final String WATERMARK_FILE = "archive.watermark";
+    private static final Map<Path, ArchivedAuditEventLog> OPEN_ARCHIVES = new ConcurrentHashMap<>();
+
+    private final AuditEventLog hotLog;
+    private final ObjectStoreAuditEventLog hotStore;
+    private final Path directory;
+    private final Duration archiveAge;
+    private final NavigableMap<YearMonth, AuditEventArchiveFile.Footer> footers = new ConcurrentSkipListMap<>();
+    private volatile Instant watermark = Instant.EPOCH;
+
+    /**
+     * @param hotLog is used to add and query domain events. This is either the hot store itself or a decorator such as
+     *               {@link WriteBehindAuditEventLog}
+     * @param hotStore is used to remove archived domain events
+     */
+    static ArchivedAuditEventLog open(Properties properties, AuditEventLog hotLog, ObjectStoreAuditEventLog hotStore)
+    {
+        var directory = Path.of(properties.getProperty(DIRECTORY, "./archive")).toAbsolutePath().normalize();
+        var archiveAge = Duration.ofDays(Long.parseLong(properties.getProperty(ARCHIVE_AGE, "0")));
+
+        return OPEN_ARCHIVES.computeIfAbsent(directory, element -> new ArchivedAuditEventLog(hotLog, hotStore, element, archiveAge));
+    }
+
+    private ArchivedAuditEventLog(AuditEventLog hotLog, ObjectStoreAuditEventLog hotStore, Path directory, Duration archiveAge)
+    {
+        this.hotLog = hotLog;
+        this.hotStore = hotStore;
+        this.directory = directory;
+        this.archiveAge = archiveAge;
+
+        try
+        {
+            Files.createDirectories(directory);
+            loadFooters();
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException("Could not open archive in " + directory, e);
+        }
+
+        var executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            var thread = new Thread(runnable, "ArchivedAuditEventLog-archive");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::archive, 0, 1, TimeUnit.DAYS);
+    }
+
+    @Override
+    public void add(ContractSigned domainEvent)
+    {
+        addAll(List.of(domainEvent));
+    }
+
+    @Override
+    public void addAll(List<ContractSigned> domainEvents)
+    {
+        hotLog.addAll(domainEvents);
+        archiveIfBeforeWatermark(domainEvents);
+    }
+
+    /**
+     * Domain events signed before the watermark are skipped if the archive file of their month contains their
+     * contract number. All others are added to the hot log if absent.
+     */
+    @Override
+    public void addAllIfAbsent(List<ContractSigned> domainEvents)
+    {
+        var currentWatermark = watermark;
+        var archivedContracts = domainEvents.stream()
+                .filter(domainEvent -> domainEvent.signatureDate().isBefore(currentWatermark))
+                .map(domainEvent -> yearMonthOf(domainEvent.signatureDate()))
+                .distinct()
+                .filter(footers::containsKey)
+                .flatMap(month -> readArchive(month).stream())
+                .map(ContractSigned::contractNumber)
+                .collect(Collectors.toSet());
+
+        var absentEvents = domainEvents.stream()
+                .filter(domainEvent -> !domainEvent.signatureDate().isBefore(currentWatermark)
+                        || !archivedContracts.contains(domainEvent.contractNumber()))
+                .toList();
+        hotLog.addAllIfAbsent(absentEvents);
+        archiveIfBeforeWatermark(absentEvents);
+    }
+
+    @Override
+    public List<ContractSigned> get(Instant startTime, Instant endTime)
+    {
+        try (var domainEvents = stream(startTime, endTime))
+        {
+            return domainEvents.toList();
+        }
+    }
+
+    @Override
+    public List<ContractSigned> get()
+    {
+        try (var domainEvents = stream())
+        {
+            return domainEvents.toList();
+        }
+    }
+
+    @Override
+    public Stream<ContractSigned> stream(Instant startTime, Instant endTime)
+    {
+        var currentWatermark = watermark;
+        var start = epochNanos(startTime);
+        var end = epochNanos(endTime);
+
+        var archived = footers.entrySet().stream()
+                .filter(entry -> entry.getValue().overlaps(start, end))
+                .flatMap(entry -> readArchive(entry.getKey()).stream())
+                .filter(domainEvent -> isInRange(domainEvent, start, end))
+                .filter(domainEvent -> domainEvent.signatureDate().isBefore(currentWatermark));
+
+        if (endTime.isBefore(currentWatermark))
+        {
+            return archived; // Hot store does not contain any domain event of the requested range
+        }
+
+        var hot = hotLog.stream(startTime.isBefore(currentWatermark) ? currentWatermark : startTime, endTime)
+                .filter(domainEvent -> !domainEvent.signatureDate().isBefore(currentWatermark));
+        return Stream.concat(archived, hot); // Closing the concatenated stream also closes the stream of the hot store
+    }
+
+    @Override
+    public Stream<ContractSigned> stream()
+    {
+        var currentWatermark = watermark;
+
+        var archived = footers.keySet().stream()
+                .flatMap(yearMonth -> readArchive(yearMonth).stream())
+                .filter(domainEvent -> domainEvent.signatureDate().isBefore(currentWatermark));
+        var hot = hotLog.stream()
+                .filter(domainEvent -> !domainEvent.signatureDate().isBefore(currentWatermark));
+        return Stream.concat(archived, hot);
+    }
+
+    /**
+     * Moves all domain events older than the configured age from the hot store into the archive files
+     */
+    synchronized void archive()
+    {
+        if (archiveAge.isZero())
+        {
+            return;
+        }
+
+        try
+        {
+            var cutoff = Instant.now().minus(archiveAge);
+            Instant oldest;
+            try (var domainEvents = hotLog.stream(Instant.EPOCH, cutoff.minusNanos(1)))
+            {
+                oldest = domainEvents.map(ContractSigned::signatureDate).min(Comparator.naturalOrder()).orElse(null);
+            }
+
+            // Months are processed one by one, so that only the domain events of a single month are held in memory
+            var archivedEvents = 0L;
+            if (oldest != null)
+            {
+                var cutoffMonth = yearMonthOf(cutoff);
+                for (var month = yearMonthOf(oldest); !month.isAfter(cutoffMonth); month = month.plusMonths(1))
+                {
+                    var start = month.atDay(1).atStartOfDay().toInstant(ZoneOffset.UTC);
+                    var end = month.plusMonths(1).atDay(1).atStartOfDay().toInstant(ZoneOffset.UTC);
+                    var monthCutoff = end.isBefore(cutoff) ? end : cutoff;
+                    var domainEvents = hotLog.get(start, monthCutoff.minusNanos(1));
+                    if (!domainEvents.isEmpty())
+                    {
+                        appendToArchive(month, domainEvents);
+                    }
+
+                    // All domain events before the end of this month are archived now
+                    if (monthCutoff.isAfter(watermark))
+                    {
+                        writeWatermark(monthCutoff);
+                    }
+                    hotStore.removeAll(domainEvents);
+                    archivedEvents += domainEvents.size();
+                }
+            }
+
+            if (cutoff.isAfter(watermark))
+            {
+                writeWatermark(cutoff);
+            }
+            SLF4jLogger.getLogger(ArchivedAuditEventLog.class).info("Archived {} domain events signed before {}", archivedEvents, cutoff);
+        }
+        catch (IOException | RuntimeException e)
+        {
+            SLF4jLogger.getLogger(ArchivedAuditEventLog.class).error("Could not archive domain events in {}: {}", directory, e.getMessage());
+        }
+    }
+
+    private void archiveIfBeforeWatermark(List<ContractSigned> domainEvents)
+    {
+        var currentWatermark = watermark;
+        if (domainEvents.stream().anyMatch(domainEvent -> domainEvent.signatureDate().isBefore(currentWatermark)))
+        {
+            archive();
+        }
+    }
+
+    private void appendToArchive(YearMonth month, List<ContractSigned> domainEvents) throws IOException
+    {
+        // Domain events archived by a previous run that crashed before removing them from the hot store are replaced
+        var merged = new LinkedHashMap<Integer, ContractSigned>();
+        if (footers.containsKey(month))
+        {
+            AuditEventArchiveFile.read(archiveFile(month)).forEach(domainEvent -> merged.put(domainEvent.contractNumber().value(), domainEvent));
+        }
+        domainEvents.forEach(domainEvent -> merged.put(domainEvent.contractNumber().value(), domainEvent));
+
+        var file = archiveFile(month);
+        AuditEventArchiveFile.write(file, List.copyOf(merged.values()));
+        footers.put(month, AuditEventArchiveFile.readFooter(file));
+    }
+
+    private List<ContractSigned> readArchive(YearMonth month)
+    {
+        try
+        {
+            return AuditEventArchiveFile.read(archiveFile(month));
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException("Could not read archive of " + month, e);
+        }
+    }
+
+    private void loadFooters() throws IOException
+    {
+        try (var files = Files.list(directory))
+        {
+            for (var file : files.filter(element -> element.getFileName().toString().matches("archive-\\d{4}-\\d{2}\\.bin")).toList())
+            {
+                var name = file.getFileName().toString();
+                footers.put(YearMonth.parse(name.substring("archive-".length(), name.length() - ".bin".length())), AuditEventArchiveFile.readFooter(file));
+            }
+        }
+
+        var watermarkFile = directory.resolve(WATERMARK_FILE);
+        if (Files.exists(watermarkFile))
+        {
+            var buffer = ByteBuffer.wrap(Files.readAllBytes(watermarkFile));
+            watermark = Instant.ofEpochSecond(buffer.getLong(), buffer.getInt());
+        }
+    }
+
+    private void writeWatermark(Instant cutoff) throws IOException
+    {
+        var buffer = ByteBuffer.allocate(Long.BYTES + Integer.BYTES)
+                .putLong(cutoff.getEpochSecond())
+                .putInt(cutoff.getNano());
+
+        // The watermark must be durable before archived domain events are removed from the hot store
+        var temporaryFile = directory.resolve(WATERMARK_FILE + ".tmp");
+        try (var channel = FileChannel.open(temporaryFile, CREATE, TRUNCATE_EXISTING, WRITE))
+        {
+            buffer.flip();
+            while (buffer.hasRemaining())
+            {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        Files.move(temporaryFile, directory.resolve(WATERMARK_FILE), ATOMIC_MOVE, REPLACE_EXISTING);
+        AuditEventArchiveFile.forceDirectory(directory);
+        watermark = cutoff;
+    }
+
+    private Path archiveFile(YearMonth month)
+    {
+        return directory.resolve("archive-" + month + ".bin");
+    }
+
+    private static boolean isInRange(ContractSigned domainEvent, long start, long end)
+    {
+        var signatureDate = epochNanos(domainEvent.signatureDate());
+        return signatureDate >= start && signatureDate <= end;
+    }
+
+    private static YearMonth yearMonthOf(Instant instant)
+    {
+        return YearMonth.from(instant.atZone(ZoneOffset.UTC));
+    }
+}
@@ -0,0 +1,133 @@
+package io.jexxa.tutorials.contractmanagement.infrastructure.drivenadapter.persistence;
+
+import io.jexxa.common.facade.logger.SLF4jLogger;
+import io.jexxa.tutorials.contractmanagement.domain.contract.ReadModelLag;
+
+import java.time.Instant;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Applies changes to a read model in a single background thread in the order they were enqueued, so that writers are
+ * not slowed down by updating the read model.
+ * <p>
+ * <b>Backpressure:</b> At most {@code capacity} changes are pending. Further changes block the writer until the
+ * background thread catches up.
+ * <p>
+ * <b>Failures:</b> A change that fails is retried every {@value #RETRY_DELAY_MILLIS} ms. Meanwhile, subsequent changes
+ * wait and the lag grows. After {@value #MAX_ATTEMPTS} attempts, the change is skipped so that a permanent failure does
+ * not block the read model forever. Skipped changes are reported via {@link #getLag()}, and the read model misses them
+ * until it is rebuilt.
+ */
+final class AsyncProjector
+{
+    private static final long RETRY_DELAY_MILLIS = 1000;
+    private static final int MAX_ATTEMPTS = 10;
+
+    private final String name;
+    private final BlockingQueue<Change> pendingChanges;
+    private final AtomicLong pendingEvents = new AtomicLong();
+    private final AtomicLong failedChanges = new AtomicLong();
+    private volatile Change currentChange;
+    private volatile Instant lastUpdate;
+    private volatile String lastFailure;
+
+    AsyncProjector(String name, int capacity)
+    {
+        this.name = name;
+        this.pendingChanges = new LinkedBlockingQueue<>(capacity);
+
+        var thread = new Thread(this::run, name + "-projector");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Enqueues a change that covers given number of domain events
+     */
+    void enqueue(int domainEvents, Runnable change)
+    {
+        pendingEvents.addAndGet(domainEvents);
+        try
+        {
+            pendingChanges.put(new Change(domainEvents, change, System.nanoTime()));
+        }
+        catch (InterruptedException e)
+        {
+            pendingEvents.addAndGet(-domainEvents);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for read model " + name, e);
+        }
+    }
+
+    ReadModelLag getLag()
+    {
+        var oldestChange = currentChange;
+        if (oldestChange == null)
+        {
+            oldestChange = pendingChanges.peek();
+        }
+
+        var lagNanos = oldestChange == null ? 0 : System.nanoTime() - oldestChange.enqueuedNanos();
+        return new ReadModelLag(pendingEvents.get(), TimeUnit.NANOSECONDS.toMillis(lagNanos), lastUpdate,
+                failedChanges.get(), lastFailure);
+    }
+
+    private void run()
+    {
+        while (true)
+        {
+            try
+            {
+                currentChange = pendingChanges.take();
+                if (applyWithRetry(currentChange))
+                {
+                    lastUpdate = Instant.now();
+                }
+                pendingEvents.addAndGet(-currentChange.domainEvents());
+                currentChange = null;
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return true if the change was applied, or false if it was skipped after {@value #MAX_ATTEMPTS} attempts
+     */
+    private boolean applyWithRetry(Change change) throws InterruptedException
+    {
+        for (var attempt = 1; ; ++attempt)
+        {
+            try
+            {
+                change.operation().run();
+                return true;
+            }
+            catch (RuntimeException e)
+            {
+                if (attempt >= MAX_ATTEMPTS)
+                {
+                    SLF4jLogger.getLogger(AsyncProjector.class).error("Skip change of read model {} with {} domain events after {} attempts",
+                            name, change.domainEvents(), attempt, e);
+                    failedChanges.incrementAndGet();
+                    lastFailure = Instant.now() + ": " + e.getMessage();
+                    return false;
+                }
+
+                SLF4jLogger.getLogger(AsyncProjector.class).warn("Could not update read model {}, retry in {} ms: {}",
+                        name, RETRY_DELAY_MILLIS, e.getMessage());
+                Thread.sleep(RETRY_DELAY_MILLIS);
+            }
+        }
+    }
+
+    private record Change(int domainEvents, Runnable operation, long enqueuedNanos)
+    {
+    }
+}
@@ -0,0 +1,336 @@
+package io.jexxa.tutorials.contractmanagement.infrastructure.drivenadapter.persistence;
+
+import io.jexxa.tutorials.contractmanagement.domain.contract.ContractNumber;
+import io.jexxa.tutorials.contractmanagement.domain.contract.ContractSigned;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.READ;
+
+/**
+ * Reads and writes an archive file of domain events in a compressed, columnar format.
+ * <p>
+ * <b>Format:</b> The domain events are sorted by signature date. Each column is encoded separately and compressed with
+ * Deflate, so that similar values are stored next to each other:
+ * <ol>
+ *     <li>Signature dates as epoch nanos, delta encoded as varint</li>
+ *     <li>Contract numbers, delta encoded as zigzag varint</li>
+ *     <li>Advisor dictionary as number of entries followed by UTF-8 strings with varint length</li>
+ *     <li>Advisor of each domain event as varint index into the dictionary + 1, or 0 for no advisor</li>
+ * </ol>
+ * A fixed size footer {@code [long min date][long max date][int count][int compressed size of each column][int magic]}
+ * closes the file. So, it can be decided from the last {@value #FOOTER_SIZE} bytes whether a file overlaps a queried
+ * range without reading the columns.
+ */
+final class AuditEventArchiveFile
+{
+    static final int FOOTER_SIZE = 2 * Long.BYTES + 6 * Integer.BYTES;
+
+    private static final int COLUMNS = 4;
+    private static final int MAGIC = 0x41455631; // "AEV1"
+
+    record Footer(long minEpochNanos, long maxEpochNanos, int count)
+    {
+        boolean overlaps(long startEpochNanos, long endEpochNanos)
+        {
+            return count > 0 && maxEpochNanos >= startEpochNanos && minEpochNanos <= endEpochNanos;
+        }
+    }
+
+    /**
+     * Writes given domain events to a temporary file that atomically replaces the given file
+     */
+    static void write(Path file, List<ContractSigned> domainEvents) throws IOException
+    {
+        var sorted = domainEvents.stream()
+                .sorted(Comparator.comparing(ContractSigned::signatureDate).thenComparing(domainEvent -> domainEvent.contractNumber().value()))
+                .toList();
+
+        var signatureDates = new VarintWriter();
+        var contractNumbers = new VarintWriter();
+        var dictionary = new VarintWriter();
+        var advisors = new VarintWriter();
+        var advisorIds = new HashMap<String, Integer>();
+
+        var previousDate = 0L;
+        var previousContractNumber = 0;
+        for (var domainEvent : sorted)
+        {
+            var signatureDate = epochNanos(domainEvent.signatureDate());
+            signatureDates.writeLong(signatureDate - previousDate);
+            previousDate = signatureDate;
+
+            contractNumbers.writeLong(zigzag(domainEvent.contractNumber().value() - (long) previousContractNumber));
+            previousContractNumber = domainEvent.contractNumber().value();
+
+            if (domainEvent.advisor() == null)
+            {
+                advisors.writeLong(0);
+            }
+            else
+            {
+                var advisorId = advisorIds.computeIfAbsent(domainEvent.advisor(), advisor -> {
+                    var bytes = advisor.getBytes(StandardCharsets.UTF_8);
+                    dictionary.writeLong(bytes.length);
+                    dictionary.writeBytes(bytes);
+                    return advisorIds.size();
+                });
+                advisors.writeLong(advisorId + 1L);
+            }
+        }
+
+        var dictionaryColumn = new VarintWriter();
+        dictionaryColumn.writeLong(advisorIds.size());
+        dictionaryColumn.writeBytes(dictionary.toByteArray());
+
+        var columns = List.of(
+                deflate(signatureDates.toByteArray()),
+                deflate(contractNumbers.toByteArray()),
+                deflate(dictionaryColumn.toByteArray()),
+                deflate(advisors.toByteArray()));
+
+        var footer = ByteBuffer.allocate(FOOTER_SIZE)
+                .putLong(sorted.isEmpty() ? 0 : epochNanos(sorted.getFirst().signatureDate()))
+                .putLong(sorted.isEmpty() ? 0 : epochNanos(sorted.getLast().signatureDate()))
+                .putInt(sorted.size());
+        columns.forEach(column -> footer.putInt(column.length));
+        footer.putInt(MAGIC);
+
+        var temporaryFile = file.resolveSibling(file.getFileName() + ".tmp");
+        try (var output = Files.newOutputStream(temporaryFile))
+        {
+            for (var column : columns)
+            {
+                output.write(column);
+            }
+            output.write(footer.array());
+        }
+        try (var channel = FileChannel.open(temporaryFile, READ))
+        {
+            channel.force(true);
+        }
+        Files.move(temporaryFile, file, ATOMIC_MOVE, REPLACE_EXISTING);
+        forceDirectory(file.getParent());
+    }
+
+    /**
+     * Forces the entries of given directory to disk, so that a file moved into it survives a crash. Some platforms,
+     * such as Windows, do not allow opening a directory. There, the move is durable without it.
+     */
+    static void forceDirectory(Path directory) throws IOException
+    {
+        try (var channel = FileChannel.open(directory, READ))
+        {
+            channel.force(true);
+        }
+        catch (AccessDeniedException e)
+        {
+            // Directory cannot be opened on this platform
+        }
+    }
+
+    static Footer readFooter(Path file) throws IOException
+    {
+        try (var channel = FileChannel.open(file, READ))
+        {
+            return footer(readFooterBuffer(channel));
+        }
+    }
+
+    static List<ContractSigned> read(Path file) throws IOException
+    {
+        var content = Files.readAllBytes(file);
+        var footerBuffer = ByteBuffer.wrap(content, content.length - FOOTER_SIZE, FOOTER_SIZE).slice();
+        var footer = footer(footerBuffer);
+
+        var columns = new byte[COLUMNS][];
+        var offset = 0;
+        for (var i = 0; i < COLUMNS; ++i)
+        {
+            var length = footerBuffer.getInt(2 * Long.BYTES + Integer.BYTES + i * Integer.BYTES);
+            columns[i] = inflate(content, offset, length);
+            offset += length;
+        }
+
+        var signatureDates = ByteBuffer.wrap(columns[0]);
+        var contractNumbers = ByteBuffer.wrap(columns[1]);
+        var dictionaryColumn = ByteBuffer.wrap(columns[2]);
+        var advisors = ByteBuffer.wrap(columns[3]);
+
+        var dictionary = new String[(int) readVarint(dictionaryColumn)];
+        for (var i = 0; i < dictionary.length; ++i)
+        {
+            var bytes = new byte[(int) readVarint(dictionaryColumn)];
+            dictionaryColumn.get(bytes);
+            dictionary[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        var result = new ArrayList<ContractSigned>(footer.count());
+        var signatureDate = 0L;
+        var contractNumber = 0L;
+        for (var i = 0; i < footer.count(); ++i)
+        {
+            signatureDate += readVarint(signatureDates);
+            contractNumber += unzigzag(readVarint(contractNumbers));
+            var advisorId = (int) readVarint(advisors);
+
+            result.add(new ContractSigned(
+                    new ContractNumber((int) contractNumber),
+                    Instant.ofEpochSecond(Math.floorDiv(signatureDate, 1_000_000_000L), Math.floorMod(signatureDate, 1_000_000_000L)),
+                    advisorId == 0 ? null : dictionary[advisorId - 1]));
+        }
+        return result;
+    }
+
+    static long epochNanos(Instant instant)
+    {
+        try
+        {
+            return Math.addExact(Math.multiplyExact(instant.getEpochSecond(), 1_000_000_000L), instant.getNano());
+        }
+        catch (ArithmeticException e)
+        {
+            // Range queries may use Instant.MIN or Instant.MAX as open bounds
+            return instant.getEpochSecond() < 0 ? Long.MIN_VALUE : Long.MAX_VALUE;
+        }
+    }
+
+    private static ByteBuffer readFooterBuffer(FileChannel channel) throws IOException
+    {
+        var buffer = ByteBuffer.allocate(FOOTER_SIZE);
+        var position = channel.size() - FOOTER_SIZE;
+        if (position < 0)
+        {
+            throw new IOException("Archive file is too small");
+        }
+        while (buffer.hasRemaining())
+        {
+            if (channel.read(buffer, position + buffer.position()) < 0)
+            {
+                throw new IOException("Unexpected end of archive file");
+            }
+        }
+        return buffer.flip();
+    }
+
+    private static Footer footer(ByteBuffer buffer) throws IOException
+    {
+        if (buffer.getInt(FOOTER_SIZE - Integer.BYTES) != MAGIC)
+        {
+            throw new IOException("Invalid footer of archive file");
+        }
+        return new Footer(buffer.getLong(0), buffer.getLong(Long.BYTES), buffer.getInt(2 * Long.BYTES));
+    }
+
+    private static byte[] deflate(byte[] data)
+    {
+        var deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try
+        {
+            deflater.setInput(data);
+            deflater.finish();
+            var output = new ByteArrayOutputStream(Math.max(64, data.length / 4));
+            var buffer = new byte[8192];
+            while (!deflater.finished())
+            {
+                output.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return output.toByteArray();
+        }
+        finally
+        {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] data, int offset, int length) throws IOException
+    {
+        var inflater = new Inflater();
+        try
+        {
+            inflater.setInput(data, offset, length);
+            var output = new ByteArrayOutputStream(length * 4);
+            var buffer = new byte[8192];
+            while (!inflater.finished())
+            {
+                var inflated = inflater.inflate(buffer);
+                if (inflated == 0 && !inflater.finished() && inflater.needsInput())
+                {
+                    throw new IOException("Truncated column in archive file");
+                }
+                output.write(buffer, 0, inflated);
+            }
+            return output.toByteArray();
+        }
+        catch (DataFormatException e)
+        {
+            throw new IOException("Invalid column in archive file", e);
+        }
+        finally
+        {
+            inflater.end();
+        }
+    }
+
+    private static long zigzag(long value)
+    {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value)
+    {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static long readVarint(ByteBuffer buffer)
+    {
+        long result = 0;
+        for (var shift = 0; ; shift += 7)
+        {
+            var value = buffer.get();
+            result |= (long) (value & 0x7F) << shift;
+            if (value >= 0)
+            {
+                return result;
+            }
+        }
+    }
+
+    /**
+     * Collects unsigned varints, i.e., 7 bits per byte with the highest bit set if further bytes follow
+     */
+    private static final class VarintWriter extends ByteArrayOutputStream
+    {
+        void writeLong(long value)
+        {
+            while ((value & ~0x7FL) != 0)
+            {
+                write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            write((int) value);
+        }
+    }
+
+    private AuditEventArchiveFile()
+    {
+        //Private constructor since we only offer static methods
+    }
+}
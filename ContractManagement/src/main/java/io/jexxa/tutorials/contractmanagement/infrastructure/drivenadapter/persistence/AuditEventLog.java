@@ -0,0 +1,28 @@
+package io.jexxa.tutorials.contractmanagement.infrastructure.drivenadapter.persistence;
+
+import io.jexxa.tutorials.contractmanagement.domain.contract.ContractSigned;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Storage strategy of {@link DomainEventStoreImpl}. It is selected via property
+ * {@value DomainEventStoreImpl#EVENT_STORE_STRATEGY}.
+ */
+interface AuditEventLog
+{
+    void add(ContractSigned domainEvent);
+
+    void addAll(List<ContractSigned> domainEvents);
+
+    void addAllIfAbsent(List<ContractSigned> domainEvents);
+
+    List<ContractSigned> get(Instant startTime, Instant endTime);
+
+    List<ContractSigned> get();
+
+    Stream<ContractSigned> stream(Instant startTime, Instant endTime);
+
+    Stream<ContractSigned> stream();
+}
@@ -0,0 +1,560 @@
+package io.jexxa.tutorials.contractmanagement.infrastructure.drivenadapter.persistence;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Compressed bitmap of non-negative int values following the idea of Roaring bitmaps.
+ * <p>
+ * Values are partitioned by their upper 16 bits. Each partition is stored in a container that holds the lower 16 bits
+ * either as sorted array, if the partition contains at most {@value #ARRAY_LIMIT} values, or as plain bitmap of
+ * 2^16 bits otherwise. So, sparse and dense ranges of contract numbers both require little memory, and set operations
+ * work on whole containers instead of single values.
+ * <p>
+ * This class is not thread-safe.
+ */
+final class CompressedBitmap
+{
+    private static final int ARRAY_LIMIT = 4096;
+    private static final int BITMAP_WORDS = 1024;
+
+    private char[] keys;
+    private Container[] containers;
+    private int size;
+
+    CompressedBitmap()
+    {
+        this(4);
+    }
+
+    private CompressedBitmap(int capacity)
+    {
+        this.keys = new char[capacity];
+        this.containers = new Container[capacity];
+    }
+
+    void add(int value)
+    {
+        var high = highBits(value);
+        var index = indexOf(high);
+        if (index >= 0)
+        {
+            containers[index] = containers[index].add(lowBits(value));
+        }
+        else
+        {
+            insert(-index - 1, high, new ArrayContainer().add(lowBits(value)));
+        }
+    }
+
+    void remove(int value)
+    {
+        var index = indexOf(highBits(value));
+        if (index < 0)
+        {
+            return;
+        }
+
+        var container = containers[index].remove(lowBits(value));
+        if (container.cardinality() == 0)
+        {
+            System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+            System.arraycopy(containers, index + 1, containers, index, size - index - 1);
+            containers[--size] = null;
+        }
+        else
+        {
+            containers[index] = container;
+        }
+    }
+
+    boolean contains(int value)
+    {
+        var index = indexOf(highBits(value));
+        return index >= 0 && containers[index].contains(lowBits(value));
+    }
+
+    long cardinality()
+    {
+        long result = 0;
+        for (var i = 0; i < size; ++i)
+        {
+            result += containers[i].cardinality();
+        }
+        return result;
+    }
+
+    boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    CompressedBitmap and(CompressedBitmap other)
+    {
+        var result = new CompressedBitmap(Math.max(1, Math.min(size, other.size)));
+        int i = 0;
+        int j = 0;
+        while (i < size && j < other.size)
+        {
+            if (keys[i] == other.keys[j])
+            {
+                result.appendIfNotEmpty(keys[i], containers[i].and(other.containers[j]));
+                ++i;
+                ++j;
+            }
+            else if (keys[i] < other.keys[j])
+            {
+                ++i;
+            }
+            else
+            {
+                ++j;
+            }
+        }
+        return result;
+    }
+
+    CompressedBitmap andNot(CompressedBitmap other)
+    {
+        var result = new CompressedBitmap(Math.max(1, size));
+        int j = 0;
+        for (var i = 0; i < size; ++i)
+        {
+            while (j < other.size && other.keys[j] < keys[i])
+            {
+                ++j;
+            }
+
+            if (j < other.size && other.keys[j] == keys[i])
+            {
+                result.appendIfNotEmpty(keys[i], containers[i].andNot(other.containers[j]));
+            }
+            else
+            {
+                result.appendIfNotEmpty(keys[i], containers[i].copy());
+            }
+        }
+        return result;
+    }
+
+    CompressedBitmap or(CompressedBitmap other)
+    {
+        var result = new CompressedBitmap(Math.max(1, size + other.size));
+        int i = 0;
+        int j = 0;
+        while (i < size || j < other.size)
+        {
+            if (j >= other.size || (i < size && keys[i] < other.keys[j]))
+            {
+                result.appendIfNotEmpty(keys[i], containers[i].copy());
+                ++i;
+            }
+            else if (i >= size || other.keys[j] < keys[i])
+            {
+                result.appendIfNotEmpty(other.keys[j], other.containers[j].copy());
+                ++j;
+            }
+            else
+            {
+                result.appendIfNotEmpty(keys[i], containers[i].or(other.containers[j]));
+                ++i;
+                ++j;
+            }
+        }
+        return result;
+    }
+
+    CompressedBitmap copy()
+    {
+        var result = new CompressedBitmap(Math.max(1, size));
+        for (var i = 0; i < size; ++i)
+        {
+            result.appendIfNotEmpty(keys[i], containers[i].copy());
+        }
+        return result;
+    }
+
+    /**
+     * Calls given consumer for all values in ascending order
+     */
+    void forEach(IntConsumer consumer)
+    {
+        for (var i = 0; i < size; ++i)
+        {
+            containers[i].forEach(keys[i] << 16, consumer);
+        }
+    }
+
+    int[] toArray()
+    {
+        var result = new int[Math.toIntExact(cardinality())];
+        var position = new int[1];
+        forEach(value -> result[position[0]++] = value);
+        return result;
+    }
+
+    private int indexOf(char high)
+    {
+        return Arrays.binarySearch(keys, 0, size, high);
+    }
+
+    private void insert(int index, char high, Container container)
+    {
+        ensureCapacity();
+        System.arraycopy(keys, index, keys, index + 1, size - index);
+        System.arraycopy(containers, index, containers, index + 1, size - index);
+        keys[index] = high;
+        containers[index] = container;
+        ++size;
+    }
+
+    private void appendIfNotEmpty(char high, Container container)
+    {
+        if (container.cardinality() > 0)
+        {
+            insert(size, high, container);
+        }
+    }
+
+    private void ensureCapacity()
+    {
+        if (size == keys.length)
+        {
+            keys = Arrays.copyOf(keys, size * 2);
+            containers = Arrays.copyOf(containers, size * 2);
+        }
+    }
+
+    private static char highBits(int value)
+    {
+        if (value < 0)
+        {
+            throw new IllegalArgumentException("Only non-negative values are supported: " + value);
+        }
+        return (char) (value >>> 16);
+    }
+
+    private static char lowBits(int value)
+    {
+        return (char) value;
+    }
+
+    /**
+     * Stores the lower 16 bits of the values of a partition. Operations that change the cardinality return the
+     * container to be used afterward, because the representation might change.
+     */
+    private sealed interface Container permits ArrayContainer, BitmapContainer
+    {
+        Container add(char value);
+
+        Container remove(char value);
+
+        boolean contains(char value);
+
+        int cardinality();
+
+        Container and(Container other);
+
+        Container andNot(Container other);
+
+        Container or(Container other);
+
+        Container copy();
+
+        void forEach(int highBits, IntConsumer consumer);
+    }
+
+    private static final class ArrayContainer implements Container
+    {
+        private char[] values;
+        private int cardinality;
+
+        ArrayContainer()
+        {
+            this(new char[4], 0);
+        }
+
+        ArrayContainer(char[] values, int cardinality)
+        {
+            this.values = values;
+            this.cardinality = cardinality;
+        }
+
+        @Override
+        public Container add(char value)
+        {
+            var index = Arrays.binarySearch(values, 0, cardinality, value);
+            if (index >= 0)
+            {
+                return this;
+            }
+            if (cardinality == ARRAY_LIMIT)
+            {
+                return toBitmap().add(value);
+            }
+
+            index = -index - 1;
+            if (cardinality == values.length)
+            {
+                values = Arrays.copyOf(values, Math.min(ARRAY_LIMIT, Math.max(4, cardinality * 2)));
+            }
+            System.arraycopy(values, index, values, index + 1, cardinality - index);
+            values[index] = value;
+            ++cardinality;
+            return this;
+        }
+
+        @Override
+        public Container remove(char value)
+        {
+            var index = Arrays.binarySearch(values, 0, cardinality, value);
+            if (index >= 0)
+            {
+                System.arraycopy(values, index + 1, values, index, cardinality - index - 1);
+                --cardinality;
+            }
+            return this;
+        }
+
+        @Override
+        public boolean contains(char value)
+        {
+            return Arrays.binarySearch(values, 0, cardinality, value) >= 0;
+        }
+
+        @Override
+        public int cardinality()
+        {
+            return cardinality;
+        }
+
+        @Override
+        public Container and(Container other)
+        {
+            var result = new char[cardinality];
+            var resultSize = 0;
+            if (other instanceof ArrayContainer otherArray)
+            {
+                // Both arrays are sorted, so a single merge step finds all common values
+                int i = 0;
+                int j = 0;
+                while (i < cardinality && j < otherArray.cardinality)
+                {
+                    if (values[i] == otherArray.values[j])
+                    {
+                        result[resultSize++] = values[i];
+                        ++i;
+                        ++j;
+                    }
+                    else if (values[i] < otherArray.values[j])
+                    {
+                        ++i;
+                    }
+                    else
+                    {
+                        ++j;
+                    }
+                }
+            }
+            else
+            {
+                for (var i = 0; i < cardinality; ++i)
+                {
+                    if (other.contains(values[i]))
+                    {
+                        result[resultSize++] = values[i];
+                    }
+                }
+            }
+            return new ArrayContainer(result, resultSize);
+        }
+
+        @Override
+        public Container andNot(Container other)
+        {
+            var result = new char[cardinality];
+            var resultSize = 0;
+            for (var i = 0; i < cardinality; ++i)
+            {
+                if (!other.contains(values[i]))
+                {
+                    result[resultSize++] = values[i];
+                }
+            }
+            return new ArrayContainer(result, resultSize);
+        }
+
+        @Override
+        public Container or(Container other)
+        {
+            return toBitmap().or(other);
+        }
+
+        @Override
+        public Container copy()
+        {
+            return new ArrayContainer(Arrays.copyOf(values, Math.max(1, cardinality)), cardinality);
+        }
+
+        @Override
+        public void forEach(int highBits, IntConsumer consumer)
+        {
+            for (var i = 0; i < cardinality; ++i)
+            {
+                consumer.accept(highBits | values[i]);
+            }
+        }
+
+        private BitmapContainer toBitmap()
+        {
+            var words = new long[BITMAP_WORDS];
+            for (var i = 0; i < cardinality; ++i)
+            {
+                words[values[i] >>> 6] |= 1L << values[i];
+            }
+            return new BitmapContainer(words, cardinality);
+        }
+    }
+
+    private static final class BitmapContainer implements Container
+    {
+        private final long[] words;
+        private int cardinality;
+
+        BitmapContainer(long[] words, int cardinality)
+        {
+            this.words = words;
+            this.cardinality = cardinality;
+        }
+
+        @Override
+        public Container add(char value)
+        {
+            var mask = 1L << value;
+            if ((words[value >>> 6] & mask) == 0)
+            {
+                words[value >>> 6] |= mask;
+                ++cardinality;
+            }
+            return this;
+        }
+
+        @Override
+        public Container remove(char value)
+        {
+            var mask = 1L << value;
+            if ((words[value >>> 6] & mask) != 0)
+            {
+                words[value >>> 6] &= ~mask;
+                --cardinality;
+            }
+            // Convert only below the limit, so that alternating add and remove does not convert each time
+            return cardinality < ARRAY_LIMIT / 2 ? toArray() : this;
+        }
+
+        @Override
+        public boolean contains(char value)
+        {
+            return (words[value >>> 6] & (1L << value)) != 0;
+        }
+
+        @Override
+        public int cardinality()
+        {
+            return cardinality;
+        }
+
+        @Override
+        public Container and(Container other)
+        {
+            if (other instanceof ArrayContainer)
+            {
+                return other.and(this);
+            }
+
+            var otherWords = ((BitmapContainer) other).words;
+            var result = new long[BITMAP_WORDS];
+            for (var i = 0; i < BITMAP_WORDS; ++i)
+            {
+                result[i] = words[i] & otherWords[i];
+            }
+            return normalize(result);
+        }
+
+        @Override
+        public Container andNot(Container other)
+        {
+            var result = words.clone();
+            if (other instanceof BitmapContainer otherBitmap)
+            {
+                for (var i = 0; i < BITMAP_WORDS; ++i)
+                {
+                    result[i] &= ~otherBitmap.words[i];
+                }
+            }
+            else
+            {
+                other.forEach(0, value -> result[value >>> 6] &= ~(1L << value));
+            }
+            return normalize(result);
+        }
+
+        @Override
+        public Container or(Container other)
+        {
+            var result = words.clone();
+            if (other instanceof BitmapContainer otherBitmap)
+            {
+                for (var i = 0; i < BITMAP_WORDS; ++i)
+                {
+                    result[i] |= otherBitmap.words[i];
+                }
+            }
+            else
+            {
+                other.forEach(0, value -> result[value >>> 6] |= 1L << value);
+            }
+            return normalize(result);
+        }
+
+        @Override
+        public Container copy()
+        {
+            return new BitmapContainer(words.clone(), cardinality);
+        }
+
+        @Override
+        public void forEach(int highBits, IntConsumer consumer)
+        {
+            for (var i = 0; i < BITMAP_WORDS; ++i)
+            {
+                var word = words[i];
+                while (word != 0)
+                {
+                    consumer.accept(highBits | (i << 6) | Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+        }
+
+        private ArrayContainer toArray()
+        {
+            var values = new char[Math.max(1, cardinality)];
+            var position = new int[1];
+            forEach(0, value -> values[position[0]++] = (char) value);
+            return new ArrayContainer(values, cardinality);
+        }
+
+        private static Container normalize(long[] words)
+        {
+            var cardinality = 0;
+            for (var word : words)
+            {
+                cardinality += Long.bitCount(word);
+            }
+
+            var result = new BitmapContainer(words, cardinality);
+            return cardinality <= ARRAY_LIMIT ? result.toArray() : result;
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package io.jexxa.tutorials.contractmanagement.infrastructure.drivenadapter.persistence;
+
+import io.jexxa.tutorials.contractmanagement.domain.contract.Contract;
+import io.jexxa.tutorials.contractmanagement.domain.contract.ContractNumber;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * In-process secondary index over the signed state and the advisor of all contracts. It keeps a
+ * {@link CompressedBitmap} of contract numbers for signed and unsigned contracts and for each advisor. Advisors are
+ * dictionary encoded, i.e., each advisor is mapped to a small int that identifies its bitmap.
+ * <p>
+ * Queries return a copy of the matching bitmap, so that combinations of criteria are bitmap operations and the
+ * database is only accessed to load the matching contracts.
+ * <p>
+ * The index is only consistent with the database if all changes are made via this application instance.
+ */
+final class ContractBitmapIndex
+{
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final CompressedBitmap signedContracts = new CompressedBitmap();
+    private final CompressedBitmap unsignedContracts = new CompressedBitmap();
+    private final Map<String, Integer> advisorIds = new HashMap<>();
+    private final List<CompressedBitmap> advisorContracts = new ArrayList<>();
+
+    // Advisor ID + 1 for each contract number, so that the previous advisor can be removed on update. 0 means no entry.
+    private int[] advisorOfContract = new int[1024];
+
+    /**
+     * Creates an index of all given contracts
+     */
+    static ContractBitmapIndex of(Supplier<Stream<Contract>> contracts)
+    {
+        var index = new ContractBitmapIndex();
+        try (var stream = contracts.get())
+        {
+            stream.forEach(index::add);
+        }
+        return index;
+    }
+
+    void add(Contract contract)
+    {
+        lock.writeLock().lock();
+        try
+        {
+            addUnlocked(contract);
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void addAll(List<Contract> contracts)
+    {
+        lock.writeLock().lock();
+        try
+        {
+            contracts.forEach(this::addUnlocked);
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void remove(ContractNumber contractNumber)
+    {
+        lock.writeLock().lock();
+        try
+        {
+            removeUnlocked(contractNumber.value());
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+    CompressedBitmap getSignedContracts()
+    {
+        return read(signedContracts::copy);
+    }
+
+    CompressedBitmap getUnsignedContracts()
+    {
+        return read(unsignedContracts::copy);
+    }
+
+    CompressedBitmap getByAdvisor(String advisor)
+    {
+        return read(() -> advisorBitmap(advisor).copy());
+    }
+
+    CompressedBitmap getByAdvisor(String advisor, boolean signed)
+    {
+        return read(() -> advisorBitmap(advisor).and(signed ? signedContracts : unsignedContracts));
+    }
+
+    /**
+     * Adds or replaces the entry of given contract
+     */
+    private void addUnlocked(Contract contract)
+    {
+        var contractNumber = contract.getContractNumber().value();
+        removeUnlocked(contractNumber);
+
+        if (contract.isSigned())
+        {
+            signedContracts.add(contractNumber);
+        }
+        else
+        {
+            unsignedContracts.add(contractNumber);
+        }
+
+        var advisorId = advisorIds.computeIfAbsent(contract.getAdvisor(), advisor -> {
+            advisorContracts.add(new CompressedBitmap());
+            return advisorContracts.size() - 1;
+        });
+        advisorContracts.get(advisorId).add(contractNumber);
+
+        if (contractNumber >= advisorOfContract.length)
+        {
+            advisorOfContract = Arrays.copyOf(advisorOfContract, Math.max(contractNumber + 1, advisorOfContract.length * 2));
+        }
+        advisorOfContract[contractNumber] = advisorId + 1;
+    }
+
+    private void removeUnlocked(int contractNumber)
+    {
+        signedContracts.remove(contractNumber);
+        unsignedContracts.remove(contractNumber);
+
+        if (contractNumber < advisorOfContract.length && advisorOfContract[contractNumber] != 0)
+        {
+            advisorContracts.get(advisorOfContract[contractNumber] - 1).remove(contractNumber);
+            advisorOfContract[contractNumber] = 0;
+        }
+    }
+
+    private CompressedBitmap advisorBitmap(String advisor)
+    {
+        var advisorId = advisorIds.get(advisor);
+        return advisorId == null ? new CompressedBitmap() : advisorContracts.get(advisorId);
+    }
+
+    private CompressedBitmap read(Supplier<CompressedBitmap> query)
+    {
+        lock.readLock().lock();
+        try
+        {
+            return query.get();
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+}
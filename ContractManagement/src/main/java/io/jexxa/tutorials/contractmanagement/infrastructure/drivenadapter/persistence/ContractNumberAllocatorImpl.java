@@ -0,0 +1,255 @@
+package io.jexxa.tutorials.contractmanagement.infrastructure.drivenadapter.persistence;
+
+import io.jexxa.addend.infrastructure.DrivenAdapter;
+import io.jexxa.common.drivenadapter.persistence.objectstore.IObjectStore;
+import io.jexxa.common.facade.logger.SLF4jLogger;
+import io.jexxa.tutorials.contractmanagement.domain.contract.Contract;
+import io.jexxa.tutorials.contractmanagement.domain.contract.ContractNumber;
+import io.jexxa.tutorials.contractmanagement.domainservice.ContractNumberAllocator;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static io.jexxa.common.drivenadapter.persistence.ObjectStoreFactory.createObjectStore;
+import static io.jexxa.tutorials.contractmanagement.infrastructure.drivenadapter.persistence.ContractRepositoryImpl.ContractSchema.CONTRACT_NUMBER;
+
+/**
+ * Allocates contract numbers using the hi/lo algorithm: A block of contract numbers is reserved from a database
+ * sequence whose increment is the block size. The numbers of a block are then handed out from memory, so that creating
+ * a contract does not require a read from the database.
+ * <p>
+ * Since each instance of this application reserves its own blocks, contract numbers are unique across all instances.
+ * If no JDBC strategy is used, blocks are reserved from an in-memory counter which is only unique within this process.
+ * <p>
+ * {@link #allocateAfter(ContractNumber)} advances the sequence or the in-memory counter beyond imported contract
+ * numbers and discards the numbers of blocks reserved before within this process. Blocks reserved by other running
+ * instances of the application are not affected, so that contracts should be imported before they create contracts.
+ */
+@SuppressWarnings("unused")
+@DrivenAdapter
+public class ContractNumberAllocatorImpl implements ContractNumberAllocator
+{
+    static final String BLOCK_SIZE = "contractmanagement.allocator.block.size";
+    static final String SEQUENCE_NAME = "contract_number_sequence";
+
+    private static final String DUPLICATE_TABLE = "42P07";
+    private static final String UNIQUE_VIOLATION = "23505";
+
+    // Without a database, all instances of this adapter must use the same counter
+    private static final AtomicInteger IN_MEMORY_SEQUENCE = new AtomicInteger(-1);
+
+    // Highest contract number passed to allocateAfter per database. Numbers of reserved blocks up to it are discarded
+    private static final Map<String, AtomicInteger> ALLOCATED_AFTER = new ConcurrentHashMap<>();
+
+    private final Properties properties;
+    private final IObjectStore<Contract, ContractNumber, ContractRepositoryImpl.ContractSchema> objectStore;
+    private final JDBCObjectStoreTable<Contract, ContractNumber, ContractRepositoryImpl.ContractSchema> jdbcTable;
+    private final boolean isJDBC;
+    private int blockSize;
+    private boolean sequenceInitialized;
+    private final AtomicInteger allocatedAfter;
+    private volatile Block currentBlock = new Block(0, 0);
+
+    public ContractNumberAllocatorImpl(Properties properties)
+    {
+        this.properties = properties;
+        this.objectStore = createObjectStore(Contract.class, Contract::getContractNumber, ContractRepositoryImpl.ContractSchema.class, properties);
+        this.isJDBC = JDBCConnections.isJDBC(properties);
+        this.jdbcTable = isJDBC
+                ? new JDBCObjectStoreTable<>(Contract.class, Contract::getContractNumber, ContractRepositoryImpl.ContractSchema.class, properties)
+                : null;
+        this.blockSize = Integer.parseInt(properties.getProperty(BLOCK_SIZE, "50"));
+        this.allocatedAfter = ALLOCATED_AFTER.computeIfAbsent(isJDBC ? properties.getProperty(JDBCConnections.JDBC_URL) : "",
+                element -> new AtomicInteger());
+
+        if (blockSize < 1)
+        {
+            throw new IllegalArgumentException(BLOCK_SIZE + " must be greater than 0");
+        }
+    }
+
+    @Override
+    public ContractNumber next()
+    {
+        while (true)
+        {
+            var block = currentBlock;
+            var value = block.next.getAndIncrement();
+            if (value < block.end && value > allocatedAfter.get())
+            {
+                return new ContractNumber(value);
+            }
+
+            synchronized (this)
+            {
+                if (block == currentBlock) // Only one thread reserves a new block
+                {
+                    currentBlock = reserveBlock();
+                }
+            }
+        }
+    }
+
+    @Override
+    public void allocateAfter(ContractNumber contractNumber)
+    {
+        if (isJDBC)
+        {
+            advanceSequence(contractNumber.value() + 1);
+        }
+        else
+        {
+            initializeInMemorySequence();
+            IN_MEMORY_SEQUENCE.accumulateAndGet(contractNumber.value() + 1, Math::max);
+        }
+
+        // Set last, so that a block reserved in the meantime is reserved from the advanced sequence
+        allocatedAfter.accumulateAndGet(contractNumber.value(), Math::max);
+    }
+
+    private Block reserveBlock()
+    {
+        if (isJDBC)
+        {
+            var start = nextSequenceValue();
+            return new Block(start, start + blockSize);
+        }
+
+        initializeInMemorySequence();
+        var start = IN_MEMORY_SEQUENCE.getAndAdd(blockSize);
+        return new Block(start, start + blockSize);
+    }
+
+    private void initializeInMemorySequence()
+    {
+        if (IN_MEMORY_SEQUENCE.get() < 0)
+        {
+            IN_MEMORY_SEQUENCE.compareAndSet(-1, highestContractNumber() + 1);
+        }
+    }
+
+    private int nextSequenceValue()
+    {
+        try (var connection = JDBCConnections.getConnection(properties, SEQUENCE_NAME);
+             var statement = connection.createStatement())
+        {
+            initializeSequence(statement);
+
+            try (var resultSet = statement.executeQuery("SELECT nextval('" + SEQUENCE_NAME + "')"))
+            {
+                resultSet.next();
+                // The sequence is a bigint, but contract numbers are ints. The whole block must fit into an int.
+                var start = resultSet.getLong(1);
+                if (start < 0 || start > Integer.MAX_VALUE - (long) blockSize)
+                {
+                    throw new IllegalStateException("Sequence " + SEQUENCE_NAME + " returned " + start
+                            + ", so that no further block of " + blockSize + " contract numbers fits into the range of contract numbers");
+                }
+                return (int) start;
+            }
+        }
+        catch (SQLException e)
+        {
+            throw new IllegalStateException("Could not reserve contract numbers from sequence " + SEQUENCE_NAME, e);
+        }
+    }
+
+    /**
+     * Advances the sequence so that {@code nextval} returns at least given value. The sequence is never moved back.
+     */
+    private void advanceSequence(long nextValue)
+    {
+        try (var connection = JDBCConnections.getConnection(properties, SEQUENCE_NAME))
+        {
+            try (var statement = connection.createStatement())
+            {
+                initializeSequence(statement);
+            }
+
+            // The next value of a sequence is its last value plus the increment, unless setval was called with false
+            try (var statement = connection.prepareStatement("SELECT setval('" + SEQUENCE_NAME + "', ?, false) FROM " + SEQUENCE_NAME
+                    + " WHERE (CASE WHEN is_called THEN last_value + ? ELSE last_value END) < ?"))
+            {
+                statement.setLong(1, nextValue);
+                statement.setLong(2, blockSize);
+                statement.setLong(3, nextValue);
+                statement.executeQuery().close();
+            }
+        }
+        catch (SQLException e)
+        {
+            throw new IllegalStateException("Could not advance sequence " + SEQUENCE_NAME + " to " + nextValue, e);
+        }
+    }
+
+    private synchronized void initializeSequence(Statement statement) throws SQLException
+    {
+        if (sequenceInitialized)
+        {
+            return;
+        }
+
+        createSequence(statement);
+
+        // Blocks must not overlap, so the increment of an existing sequence defines the block size
+        try (var resultSet = statement.executeQuery("SELECT increment_by FROM pg_sequences WHERE sequencename = '" + SEQUENCE_NAME + "'"))
+        {
+            if (resultSet.next() && resultSet.getInt(1) != blockSize)
+            {
+                SLF4jLogger.getLogger(ContractNumberAllocatorImpl.class).warn(
+                        "Sequence {} uses block size {} instead of configured {}", SEQUENCE_NAME, resultSet.getInt(1), blockSize);
+                blockSize = resultSet.getInt(1);
+            }
+        }
+        sequenceInitialized = true;
+    }
+
+    private void createSequence(Statement statement) throws SQLException
+    {
+        try
+        {
+            // The sequence starts after the highest contract number created before this allocator was introduced
+            statement.execute("CREATE SEQUENCE IF NOT EXISTS " + SEQUENCE_NAME
+                    + " START WITH " + (highestContractNumber() + 1)
+                    + " INCREMENT BY " + blockSize);
+        }
+        catch (SQLException e)
+        {
+            // Another instance of the application might have created the sequence concurrently. Depending on timing,
+            // this fails on the sequence itself or with a unique violation on the row type of the sequence in pg_type.
+            if (!DUPLICATE_TABLE.equals(e.getSQLState()) && !UNIQUE_VIOLATION.equals(e.getSQLState()))
+            {
+                throw e;
+            }
+        }
+    }
+
+    private int highestContractNumber()
+    {
+        var highestContract = jdbcTable != null
+                ? jdbcTable.getHighest(CONTRACT_NUMBER)
+                : objectStore.getNumericQuery(CONTRACT_NUMBER, Integer.class).getDescending(1).stream().findFirst();
+        return highestContract
+                .map(contract -> contract.getContractNumber().value())
+                .orElse(0);
+    }
+
+    /**
+     * Contract numbers from {@code next} (inclusive) to {@code end} (exclusive) reserved by this instance
+     */
+    private static final class Block
+    {
+        private final AtomicInteger next;
+        private final int end;
+
+        Block(int start, int end)
+        {
+            this.next = new AtomicInteger(start);
+            this.end = end;
+        }
+    }
+}
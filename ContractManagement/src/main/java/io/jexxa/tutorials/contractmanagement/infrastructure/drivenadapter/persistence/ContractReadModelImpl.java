@@ -0,0 +1,565 @@
+package io.jexxa.tutorials.contractmanagement.infrastructure.drivenadapter.persistence;
+
+import io.jexxa.addend.infrastructure.DrivenAdapter;
+import io.jexxa.tutorials.contractmanagement.domain.contract.Contract;
+import io.jexxa.tutorials.contractmanagement.domain.contract.ContractCreated;
+import io.jexxa.tutorials.contractmanagement.domain.contract.ContractNumber;
+import io.jexxa.tutorials.contractmanagement.domain.contract.ContractSigned;
+import io.jexxa.tutorials.contractmanagement.domain.contract.ReadModelLag;
+import io.jexxa.tutorials.contractmanagement.domainservice.ContractReadModel;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+import java.util.stream.Stream;
+
+/**
+ * Stores the read model in the flat table {@code ContractReadModel} with one row per contract. The table is indexed
+ * by advisor and signed flag as well as by signature date, so that all queries of {@code ContractService} are index
+ * scans that do not touch the tables of the write side.
+ * <p>
+ * In contrast to the contract table, the read model stores the name of the advisor, so that its rows can be returned
+ * without a lookup. It also stores the integer of the advisor in {@link AdvisorDictionary}, so that a query by advisor
+ * prefix resolves the prefix to integers via the dictionary and compares integers instead of names.
+ * <p>
+ * Changes are applied by an {@link AsyncProjector} that is shared by all instances of this adapter with the same
+ * database. Its queue holds at most {@value #QUEUE_CAPACITY} changes, which defaults to 10000.
+ * <p>
+ * <b>Rebuilds:</b> Table {@code ContractReadModelState} stores the version of the last rebuild. On startup, the read
+ * model is only rebuilt if this row is missing, its version differs from {@value #VERSION}, or the number of signed or
+ * unsigned contracts differs from the write side. A rebuild replaces all rows within a single transaction. It holds an
+ * advisory lock, so that instances starting at the same time rebuild one after another. Each of them checks the
+ * state again after acquiring the lock, so that the others skip the rebuild. Without a database, a rebuild fills a new
+ * map, which then replaces the current one at once.
+ * <p>
+ * If property {@value ReplicaRouter#REPLICA_URL} is set, queries are answered by the replica as far as the staleness
+ * policy of {@link ReplicaRouter} allows it. Changes of the read model itself are not recorded as writes, since the
+ * read model lags behind the write side anyway. So, only writes of contracts and audit events route the queries to the
+ * primary for a while.
+ * <p>
+ * If no JDBC strategy is used, the read model is kept in memory.
+ */
+@SuppressWarnings("unused")
+@DrivenAdapter
+public class ContractReadModelImpl implements ContractReadModel
+{
+    static final String QUEUE_CAPACITY = "contractmanagement.readmodel.queue.capacity";
+
+    private static final String TABLE_NAME = "ContractReadModel";
+    private static final String STATE_TABLE_NAME = "ContractReadModelState";
+    private static final int BATCH_SIZE = 1000;
+
+    // Increment if the layout or the content of the read model changes, so that existing read models are rebuilt
+    private static final int VERSION = 2;
+
+    // All instances of this adapter with the same database must apply their changes in the same order
+    private static final Map<String, AsyncProjector> PROJECTORS = new ConcurrentHashMap<>();
+
+    // Without a database, all instances of this adapter must use the same read model. A rebuild replaces the map.
+    private static final AtomicReference<ConcurrentSkipListMap<Integer, ReadModelRow>> IN_MEMORY_READ_MODEL =
+            new AtomicReference<>(new ConcurrentSkipListMap<>());
+
+    private final Properties properties;
+    private final boolean isJDBC;
+    private final AsyncProjector projector;
+    private final ReplicaRouter replicaRouter;
+
+    public ContractReadModelImpl(Properties properties)
+    {
+        this.properties = properties;
+        this.isJDBC = JDBCConnections.isJDBC(properties);
+        this.replicaRouter = ReplicaRouter.isEnabled(properties) ? ReplicaRouter.of(properties) : null;
+        AdvisorDictionary.instance().configure(properties);
+
+        if (isJDBC)
+        {
+            createTable();
+        }
+
+        var capacity = Integer.parseInt(properties.getProperty(QUEUE_CAPACITY, "10000"));
+        var database = isJDBC ? properties.getProperty(JDBCConnections.JDBC_URL) : "";
+        this.projector = PROJECTORS.computeIfAbsent(database, element -> new AsyncProjector(TABLE_NAME, capacity));
+    }
+
+    @Override
+    public void applyCreated(List<ContractCreated> domainEvents)
+    {
+        var rows = domainEvents.stream()
+                .map(domainEvent -> ReadModelRow.of(domainEvent.contractNumber(), domainEvent.advisor(), false, null))
+                .toList();
+
+        projector.enqueue(rows.size(), () -> upsertCreated(rows));
+    }
+
+    @Override
+    public void applySigned(List<ContractSigned> domainEvents)
+    {
+        var rows = domainEvents.stream()
+                .map(domainEvent -> ReadModelRow.of(domainEvent.contractNumber(), domainEvent.advisor(), true, domainEvent.signatureDate()))
+                .toList();
+
+        projector.enqueue(rows.size(), () -> upsertSigned(rows));
+    }
+
+    @Override
+    public void rebuild(Supplier<Stream<Contract>> contracts, Supplier<Stream<ContractSigned>> domainEvents)
+    {
+        projector.enqueue(1, () -> replaceAll(contracts, domainEvents, null));
+    }
+
+    @Override
+    public void rebuildIfStale(Supplier<Stream<Contract>> contracts, Supplier<Stream<ContractSigned>> domainEvents,
+                               ToLongFunction<Boolean> contractCount)
+    {
+        projector.enqueue(1, () -> replaceAll(contracts, domainEvents, contractCount));
+    }
+
+    @Override
+    public ReadModelLag getLag()
+    {
+        return projector.getLag();
+    }
+
+    @Override
+    public List<ContractNumber> getUnsignedContracts()
+    {
+        if (!isJDBC)
+        {
+            return inMemoryContractNumbers(row -> !row.signed());
+        }
+
+        return query("SELECT CONTRACT_NUMBER FROM " + TABLE_NAME + " WHERE NOT SIGNED ORDER BY CONTRACT_NUMBER",
+                statement -> { },
+                resultSet -> new ContractNumber(resultSet.getInt(1)));
+    }
+
+    @Override
+    public List<ContractNumber> getContractsByAdvisor(String advisor)
+    {
+        if (!isJDBC)
+        {
+            return inMemoryContractNumbers(row -> advisor.equals(row.advisor()));
+        }
+
+        return query("SELECT CONTRACT_NUMBER FROM " + TABLE_NAME + " WHERE ADVISOR = ? ORDER BY CONTRACT_NUMBER",
+                statement -> statement.setString(1, advisor),
+                resultSet -> new ContractNumber(resultSet.getInt(1)));
+    }
+
+    @Override
+    public List<ContractNumber> getContractsByAdvisor(String advisor, boolean signed)
+    {
+        if (!isJDBC)
+        {
+            return inMemoryContractNumbers(row -> advisor.equals(row.advisor()) && row.signed() == signed);
+        }
+
+        return query("SELECT CONTRACT_NUMBER FROM " + TABLE_NAME + " WHERE ADVISOR = ? AND SIGNED = ? ORDER BY CONTRACT_NUMBER",
+                statement -> {
+                    statement.setString(1, advisor);
+                    statement.setBoolean(2, signed);
+                },
+                resultSet -> new ContractNumber(resultSet.getInt(1)));
+    }
+
+    @Override
+    public List<ContractNumber> getContractsByAdvisorPrefix(String prefix)
+    {
+        var advisorIds = AdvisorDictionary.instance().getIdsByPrefix(prefix);
+        if (advisorIds.isEmpty())
+        {
+            return List.of();
+        }
+        if (!isJDBC)
+        {
+            var advisorIdSet = Set.copyOf(advisorIds);
+            return inMemoryContractNumbers(row -> row.advisorId() != null && advisorIdSet.contains(row.advisorId()));
+        }
+
+        return query("SELECT CONTRACT_NUMBER FROM " + TABLE_NAME + " WHERE ADVISOR_ID = ANY(?) ORDER BY CONTRACT_NUMBER",
+                statement -> statement.setArray(1, statement.getConnection().createArrayOf("INTEGER", advisorIds.toArray())),
+                resultSet -> new ContractNumber(resultSet.getInt(1)));
+    }
+
+    @Override
+    public long countByAdvisor(String advisor, boolean signed)
+    {
+        if (!isJDBC)
+        {
+            return IN_MEMORY_READ_MODEL.get().values().stream()
+                    .filter(row -> advisor.equals(row.advisor()) && row.signed() == signed)
+                    .count();
+        }
+
+        return query("SELECT COUNT(*) FROM " + TABLE_NAME + " WHERE ADVISOR = ? AND SIGNED = ?",
+                statement -> {
+                    statement.setString(1, advisor);
+                    statement.setBoolean(2, signed);
+                },
+                resultSet -> resultSet.getLong(1))
+                .getFirst();
+    }
+
+    @Override
+    public List<ContractSigned> getSignedContracts()
+    {
+        return getSignedContracts(Instant.MIN, Instant.MAX);
+    }
+
+    @Override
+    public List<ContractSigned> getSignedContracts(Instant startTime, Instant endTime)
+    {
+        if (!isJDBC)
+        {
+            return IN_MEMORY_READ_MODEL.get().values().stream()
+                    .filter(row -> row.signatureDate() != null
+                            && !row.signatureDate().isBefore(startTime)
+                            && !row.signatureDate().isAfter(endTime))
+                    .sorted(Comparator.comparing(ReadModelRow::signatureDate))
+                    .map(ReadModelRow::toContractSigned)
+                    .toList();
+        }
+
+        // Instant.MIN and Instant.MAX are outside the range of a TIMESTAMPTZ, so that they are not passed as parameter
+        var bounded = !startTime.equals(Instant.MIN) || !endTime.equals(Instant.MAX);
+        return query("SELECT CONTRACT_NUMBER, ADVISOR, ADVISOR_ID, SIGNED, SIGNATURE_DATE FROM " + TABLE_NAME
+                        + (bounded ? " WHERE SIGNATURE_DATE BETWEEN ? AND ?" : " WHERE SIGNATURE_DATE IS NOT NULL")
+                        + " ORDER BY SIGNATURE_DATE",
+                statement -> {
+                    if (bounded)
+                    {
+                        statement.setTimestamp(1, Timestamp.from(startTime));
+                        statement.setTimestamp(2, Timestamp.from(endTime));
+                    }
+                },
+                resultSet -> toRow(resultSet).toContractSigned());
+    }
+
+    private void upsertCreated(List<ReadModelRow> rows)
+    {
+        if (!isJDBC)
+        {
+            rows.forEach(row -> IN_MEMORY_READ_MODEL.get().merge(row.contractNumber(), row,
+                    (existing, created) -> new ReadModelRow(existing.contractNumber(), created.advisor(), created.advisorId(),
+                            existing.signed(), existing.signatureDate())));
+            return;
+        }
+
+        inTransaction(connection -> {
+            try (var statement = connection.prepareStatement("INSERT INTO " + TABLE_NAME + " (CONTRACT_NUMBER, ADVISOR, ADVISOR_ID, SIGNED, SIGNATURE_DATE)"
+                    + " VALUES (?, ?, ?, FALSE, NULL) ON CONFLICT (CONTRACT_NUMBER) DO UPDATE SET ADVISOR = EXCLUDED.ADVISOR, ADVISOR_ID = EXCLUDED.ADVISOR_ID"))
+            {
+                for (var row : rows)
+                {
+                    statement.setInt(1, row.contractNumber());
+                    statement.setString(2, row.advisor());
+                    statement.setObject(3, row.advisorId(), Types.INTEGER);
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+            }
+        });
+    }
+
+    private void upsertSigned(List<ReadModelRow> rows)
+    {
+        if (!isJDBC)
+        {
+            rows.forEach(row -> IN_MEMORY_READ_MODEL.get().merge(row.contractNumber(), row,
+                    (existing, signed) -> signed.advisor() != null
+                            ? new ReadModelRow(existing.contractNumber(), signed.advisor(), signed.advisorId(), true, signed.signatureDate())
+                            : new ReadModelRow(existing.contractNumber(), existing.advisor(), existing.advisorId(), true, signed.signatureDate())));
+            return;
+        }
+
+        inTransaction(connection -> {
+            // Domain events stored before the advisor was added to ContractSigned keep the advisor of the contract
+            try (var statement = connection.prepareStatement("INSERT INTO " + TABLE_NAME + " (CONTRACT_NUMBER, ADVISOR, ADVISOR_ID, SIGNED, SIGNATURE_DATE)"
+                    + " VALUES (?, ?, ?, TRUE, ?) ON CONFLICT (CONTRACT_NUMBER) DO UPDATE SET SIGNED = TRUE, SIGNATURE_DATE = EXCLUDED.SIGNATURE_DATE,"
+                    + " ADVISOR = COALESCE(EXCLUDED.ADVISOR, " + TABLE_NAME + ".ADVISOR),"
+                    + " ADVISOR_ID = COALESCE(EXCLUDED.ADVISOR_ID, " + TABLE_NAME + ".ADVISOR_ID)"))
+            {
+                for (var row : rows)
+                {
+                    statement.setInt(1, row.contractNumber());
+                    statement.setString(2, row.advisor());
+                    statement.setObject(3, row.advisorId(), Types.INTEGER);
+                    statement.setTimestamp(4, Timestamp.from(row.signatureDate()));
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+            }
+        });
+    }
+
+    /**
+     * @param contractCount if not null, the read model is only replaced if it is stale compared to these counts
+     */
+    private void replaceAll(Supplier<Stream<Contract>> contracts, Supplier<Stream<ContractSigned>> domainEvents,
+                            ToLongFunction<Boolean> contractCount)
+    {
+        if (!isJDBC)
+        {
+            // Only the projector thread changes the in-memory read model, so that it cannot change during the check
+            if (contractCount != null && !isStale(IN_MEMORY_READ_MODEL.get(), contractCount))
+            {
+                return;
+            }
+
+            var rows = new ConcurrentSkipListMap<Integer, ReadModelRow>();
+            try (var stream = contracts.get())
+            {
+                stream.forEach(contract -> rows.put(contract.getContractNumber().value(), ReadModelRow.of(contract)));
+            }
+            try (var stream = domainEvents.get())
+            {
+                stream.forEach(domainEvent -> rows.computeIfPresent(domainEvent.contractNumber().value(),
+                        (key, row) -> new ReadModelRow(key, row.advisor(), row.advisorId(), row.signed(), domainEvent.signatureDate())));
+            }
+
+            IN_MEMORY_READ_MODEL.set(rows);
+            return;
+        }
+
+        // A single transaction ensures that queries see the old read model until the rebuild is committed
+        inTransaction(connection -> {
+            // Instances starting at the same time rebuild one after another. The lock is released on commit.
+            try (var lock = connection.prepareStatement("SELECT pg_advisory_xact_lock(hashtext(?))"))
+            {
+                lock.setString(1, TABLE_NAME);
+                lock.executeQuery().close();
+            }
+
+            if (contractCount != null && !isStale(connection, contractCount))
+            {
+                return;
+            }
+
+            try (var delete = connection.createStatement())
+            {
+                delete.executeUpdate("DELETE FROM " + TABLE_NAME);
+            }
+
+            // Other instances might insert created contracts concurrently, which the rebuild then overwrites
+            try (var insert = connection.prepareStatement("INSERT INTO " + TABLE_NAME + " (CONTRACT_NUMBER, ADVISOR, ADVISOR_ID, SIGNED, SIGNATURE_DATE) VALUES (?, ?, ?, ?, ?)"
+                    + " ON CONFLICT (CONTRACT_NUMBER) DO UPDATE SET ADVISOR = EXCLUDED.ADVISOR, ADVISOR_ID = EXCLUDED.ADVISOR_ID,"
+                    + " SIGNED = EXCLUDED.SIGNED, SIGNATURE_DATE = EXCLUDED.SIGNATURE_DATE");
+                 var stream = contracts.get())
+            {
+                var batch = 0;
+                for (var iterator = stream.iterator(); iterator.hasNext(); )
+                {
+                    var row = ReadModelRow.of(iterator.next());
+                    insert.setInt(1, row.contractNumber());
+                    insert.setString(2, row.advisor());
+                    insert.setObject(3, row.advisorId(), Types.INTEGER);
+                    insert.setBoolean(4, row.signed());
+                    insert.setTimestamp(5, row.signatureDate() == null ? null : Timestamp.from(row.signatureDate()));
+                    insert.addBatch();
+                    batch = executeBatchIfFull(insert, batch + 1);
+                }
+                insert.executeBatch();
+            }
+
+            try (var update = connection.prepareStatement("UPDATE " + TABLE_NAME + " SET SIGNATURE_DATE = ? WHERE CONTRACT_NUMBER = ?");
+                 var stream = domainEvents.get())
+            {
+                var batch = 0;
+                for (var iterator = stream.iterator(); iterator.hasNext(); )
+                {
+                    var domainEvent = iterator.next();
+                    update.setTimestamp(1, Timestamp.from(domainEvent.signatureDate()));
+                    update.setInt(2, domainEvent.contractNumber().value());
+                    update.addBatch();
+                    batch = executeBatchIfFull(update, batch + 1);
+                }
+                update.executeBatch();
+            }
+
+            try (var state = connection.prepareStatement("INSERT INTO " + STATE_TABLE_NAME + " (ID, VERSION, REBUILT_AT) VALUES (1, ?, now())"
+                    + " ON CONFLICT (ID) DO UPDATE SET VERSION = EXCLUDED.VERSION, REBUILT_AT = EXCLUDED.REBUILT_AT"))
+            {
+                state.setInt(1, VERSION);
+                state.executeUpdate();
+            }
+        });
+    }
+
+    private static boolean isStale(Map<Integer, ReadModelRow> readModel, ToLongFunction<Boolean> contractCount)
+    {
+        var signedContracts = readModel.values().stream().filter(ReadModelRow::signed).count();
+        return signedContracts != contractCount.applyAsLong(true)
+                || readModel.size() - signedContracts != contractCount.applyAsLong(false);
+    }
+
+    private static boolean isStale(Connection connection, ToLongFunction<Boolean> contractCount) throws SQLException
+    {
+        try (var statement = connection.createStatement())
+        {
+            try (var resultSet = statement.executeQuery("SELECT VERSION FROM " + STATE_TABLE_NAME + " WHERE ID = 1"))
+            {
+                if (!resultSet.next() || resultSet.getInt(1) != VERSION)
+                {
+                    return true;
+                }
+            }
+
+            try (var resultSet = statement.executeQuery("SELECT COUNT(*) FILTER (WHERE SIGNED), COUNT(*) FILTER (WHERE NOT SIGNED) FROM " + TABLE_NAME))
+            {
+                resultSet.next();
+                return resultSet.getLong(1) != contractCount.applyAsLong(true)
+                        || resultSet.getLong(2) != contractCount.applyAsLong(false);
+            }
+        }
+    }
+
+    private static int executeBatchIfFull(PreparedStatement statement, int batch) throws SQLException
+    {
+        if (batch < BATCH_SIZE)
+        {
+            return batch;
+        }
+        statement.executeBatch();
+        return 0;
+    }
+
+    private List<ContractNumber> inMemoryContractNumbers(Predicate<ReadModelRow> filter)
+    {
+        // The in-memory read model is sorted by contract number
+        return IN_MEMORY_READ_MODEL.get().values().stream()
+                .filter(filter)
+                .map(row -> new ContractNumber(row.contractNumber()))
+                .toList();
+    }
+
+    private <T> List<T> query(String sql, SQLConsumer<PreparedStatement> parameters, SQLFunction<ResultSet, T> mapper)
+    {
+        var queryProperties = replicaRouter != null ? replicaRouter.select(properties) : properties;
+        try (var connection = JDBCConnections.getConnection(queryProperties, TABLE_NAME);
+             var statement = connection.prepareStatement(sql))
+        {
+            parameters.accept(statement);
+            var result = new ArrayList<T>();
+            try (var resultSet = statement.executeQuery())
+            {
+                while (resultSet.next())
+                {
+                    result.add(mapper.apply(resultSet));
+                }
+            }
+            return result;
+        }
+        catch (SQLException e)
+        {
+            throw new IllegalStateException("Could not query " + TABLE_NAME, e);
+        }
+    }
+
+    private void createTable()
+    {
+        try (var connection = JDBCConnections.getConnection(properties, TABLE_NAME);
+             var statement = connection.createStatement())
+        {
+            statement.execute("CREATE TABLE IF NOT EXISTS " + TABLE_NAME + " ("
+                    + "CONTRACT_NUMBER INTEGER PRIMARY KEY, "
+                    + "ADVISOR TEXT, "
+                    + "ADVISOR_ID INTEGER, "
+                    + "SIGNED BOOLEAN NOT NULL, "
+                    + "SIGNATURE_DATE TIMESTAMPTZ)");
+            // Tables created by version 1 are rebuilt, which fills the new column
+            statement.execute("ALTER TABLE " + TABLE_NAME + " ADD COLUMN IF NOT EXISTS ADVISOR_ID INTEGER");
+            statement.execute("CREATE INDEX IF NOT EXISTS " + TABLE_NAME + "_ADVISOR ON " + TABLE_NAME + " (ADVISOR, SIGNED, CONTRACT_NUMBER)");
+            statement.execute("CREATE INDEX IF NOT EXISTS " + TABLE_NAME + "_ADVISOR_ID ON " + TABLE_NAME + " (ADVISOR_ID, CONTRACT_NUMBER)");
+            statement.execute("CREATE INDEX IF NOT EXISTS " + TABLE_NAME + "_UNSIGNED ON " + TABLE_NAME + " (CONTRACT_NUMBER) WHERE NOT SIGNED");
+            statement.execute("CREATE INDEX IF NOT EXISTS " + TABLE_NAME + "_SIGNATURE_DATE ON " + TABLE_NAME + " (SIGNATURE_DATE)");
+            statement.execute("CREATE TABLE IF NOT EXISTS " + STATE_TABLE_NAME + " ("
+                    + "ID INTEGER PRIMARY KEY CHECK (ID = 1), "
+                    + "VERSION INTEGER NOT NULL, "
+                    + "REBUILT_AT TIMESTAMPTZ NOT NULL)");
+        }
+        catch (SQLException e)
+        {
+            throw new IllegalStateException("Could not create table " + TABLE_NAME, e);
+        }
+    }
+
+    private void inTransaction(SQLConsumer<Connection> operation)
+    {
+        try (var connection = JDBCConnections.getConnection(properties, TABLE_NAME))
+        {
+            connection.setAutoCommit(false);
+            try
+            {
+                operation.accept(connection);
+                connection.commit();
+            }
+            catch (SQLException | RuntimeException e)
+            {
+                connection.rollback();
+                throw e;
+            }
+        }
+        catch (SQLException e)
+        {
+            throw new IllegalStateException("Could not update " + TABLE_NAME, e);
+        }
+    }
+
+    private static ReadModelRow toRow(ResultSet resultSet) throws SQLException
+    {
+        var signatureDate = resultSet.getTimestamp(5);
+        return new ReadModelRow(
+                resultSet.getInt(1),
+                resultSet.getString(2),
+                resultSet.getObject(3, Integer.class),
+                resultSet.getBoolean(4),
+                signatureDate == null ? null : signatureDate.toInstant());
+    }
+
+    private record ReadModelRow(int contractNumber, String advisor, Integer advisorId, boolean signed, Instant signatureDate)
+    {
+        static ReadModelRow of(ContractNumber contractNumber, String advisor, boolean signed, Instant signatureDate)
+        {
+            // The repository registers the advisors of all contracts before it stores them
+            return new ReadModelRow(contractNumber.value(), advisor, AdvisorDictionary.instance().idOf(advisor), signed, signatureDate);
+        }
+
+        static ReadModelRow of(Contract contract)
+        {
+            return of(contract.getContractNumber(), contract.getAdvisor(), contract.isSigned(), contract.getSignatureDate());
+        }
+
+        ContractSigned toContractSigned()
+        {
+            return new ContractSigned(new ContractNumber(contractNumber), signatureDate, advisor);
+        }
+    }
+
+    @FunctionalInterface
+    private interface SQLConsumer<T>
+    {
+        void accept(T value) throws SQLException;
+    }
+
+    @FunctionalInterface
+    private interface SQLFunction<T, R>
+    {
+        R apply(T value) throws SQLException;
+    }
+}
@@ -4,18 +4,32 @@ import io.jexxa.addend.infrastructure.DrivenAdapter;
 import io.jexxa.common.drivenadapter.persistence.objectstore.IObjectStore;
 import io.jexxa.common.drivenadapter.persistence.objectstore.metadata.MetaTag;
 import io.jexxa.common.drivenadapter.persistence.objectstore.metadata.MetadataSchema;
+import io.jexxa.common.facade.logger.SLF4jLogger;
 import io.jexxa.tutorials.contractmanagement.domain.contract.Contract;
 import io.jexxa.tutorials.contractmanagement.domain.contract.ContractNumber;
 import io.jexxa.tutorials.contractmanagement.domain.contract.ContractRepository;
 
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static io.jexxa.common.drivenadapter.persistence.ObjectStoreFactory.createObjectStore;
 import static io.jexxa.common.drivenadapter.persistence.objectstore.metadata.MetaTags.booleanTag;
 import static io.jexxa.common.drivenadapter.persistence.objectstore.metadata.MetaTags.numericTag;
-import static io.jexxa.common.drivenadapter.persistence.objectstore.metadata.MetaTags.stringTag;
+import static io.jexxa.common.facade.json.JSONManager.getJSONConverter;
 import static io.jexxa.tutorials.contractmanagement.infrastructure.drivenadapter.persistence.ContractRepositoryImpl.ContractSchema.ADVISOR;
 import static io.jexxa.tutorials.contractmanagement.infrastructure.drivenadapter.persistence.ContractRepositoryImpl.ContractSchema.CONTRACT_NUMBER;
 import static io.jexxa.tutorials.contractmanagement.infrastructure.drivenadapter.persistence.ContractRepositoryImpl.ContractSchema.CONTRACT_SIGNED;
@@ -47,10 +61,11 @@ public class ContractRepositoryImpl implements ContractRepository
         CONTRACT_SIGNED(booleanTag(Contract::isSigned)),
 
         /**
-         * This MetaTag allows for searching for the advisor of the contract. Here, we use stringTag together with the corresponding
-         * accessor function.
+         * This MetaTag allows for searching for the advisor of the contract. Instead of the name, we store the integer of the
+         * advisor in {@link AdvisorDictionary}, so that we use a numericTag. The advisor must be registered in the
+         * dictionary before the contract is written, see {@code registerAdvisors}.
          */
-        ADVISOR(stringTag(Contract::getAdvisor));
+        ADVISOR(numericTag(element -> AdvisorDictionary.instance().idOf(element.getAdvisor())));
 
         // The remaining code is always the same for all metadata specifications
         private final MetaTag<Contract, ?, ? > metaTag;
@@ -69,57 +84,389 @@ public class ContractRepositoryImpl implements ContractRepository
     }
 
 
+    static final String BITMAP_INDEX = "contractmanagement.bitmap.index.enabled";
+    static final String CACHE_ENTRIES = "contractmanagement.contract.cache.entries";
+    static final String CACHE_ENTRY_SIZE = "contractmanagement.contract.cache.entry.bytes";
+
+    private static final int MAX_CACHED_ADVISOR_LENGTH = 64;
+
+    // All instances of this adapter must update the same index and cache
+    private static final Map<String, ContractBitmapIndex> BITMAP_INDEXES = new ConcurrentHashMap<>();
+    private static final Map<String, OffHeapCache> CONTRACT_CACHES = new ConcurrentHashMap<>();
+    // Connections holding the lock that ensures a single instance of the application with a cache per database
+    private static final Map<String, Connection> CACHE_LOCKS = new ConcurrentHashMap<>();
+
     private final IObjectStore<Contract, ContractNumber, ContractSchema> objectStore;
+    private final JDBCObjectStoreTable<Contract, ContractNumber, ContractSchema> jdbcTable;
+    private final ContractBitmapIndex bitmapIndex;
+    private final OffHeapCache cache;
+    private final ReplicaRouter replicaRouter;
+    private final JDBCObjectStoreTable<Contract, ContractNumber, ContractSchema> replicaTable;
 
+    /**
+     * If property {@value ReplicaRouter#REPLICA_URL} is set, queries for lists of contracts are answered by the replica
+     * as far as the staleness policy of {@link ReplicaRouter} allows it. Method {@link #get(ContractNumber)} always reads
+     * from the primary, because its result is typically modified and written back.
+     * <p>
+     * If property {@value #CACHE_ENTRIES} is set, method {@link #get(ContractNumber)} is answered from an
+     * {@link OffHeapCache} of serialized contracts. The cache only sees the writes of this instance of the application.
+     * With JDBC, it is therefore only enabled if no other instance of the application uses a cache for the same
+     * database, which is ensured by an advisory lock. Unless {@value #CACHE_ENTRY_SIZE} is set, the entries are
+     * sized for the JSON of a signed contract whose advisor has up to {@value #MAX_CACHED_ADVISOR_LENGTH} characters.
+     */
     public ContractRepositoryImpl(Properties properties)
     {
+        AdvisorDictionary.instance().configure(properties);
         this.objectStore = createObjectStore(Contract.class, Contract::getContractNumber, ContractSchema.class, properties);
+
+        // Batch operations are not provided by IObjectStore, so we access the table of the JDBC strategy directly. All
+        // other operations use this table as well, so that they take their connections from JDBCConnections.
+        this.jdbcTable = JDBCConnections.isJDBC(properties)
+                ? new JDBCObjectStoreTable<>(Contract.class, Contract::getContractNumber, ContractSchema.class, properties)
+                : null;
+
+        // Composite index for queries by advisor and signed state. ADVISOR comes first, so that the index can
+        // also be used for queries by advisor only
+        if (jdbcTable != null)
+        {
+            migrateAdvisorColumn();
+            jdbcTable.createIndex(List.of(ADVISOR, CONTRACT_SIGNED));
+        }
+
+        // The index is updated with each write, so it must be initialized from the primary
+        this.bitmapIndex = Boolean.parseBoolean(properties.getProperty(BITMAP_INDEX, "false"))
+                ? BITMAP_INDEXES.computeIfAbsent(properties.getProperty(JDBCConnections.JDBC_URL, ""),
+                        key -> ContractBitmapIndex.of(() -> jdbcTable != null ? jdbcTable.stream() : objectStore.get().stream()))
+                : null;
+
+        var cacheEntries = Integer.parseInt(properties.getProperty(CACHE_ENTRIES, "0"));
+        this.cache = cacheEntries > 0
+                ? CONTRACT_CACHES.computeIfAbsent(properties.getProperty(JDBCConnections.JDBC_URL, ""), key -> createCache(cacheEntries, properties))
+                : null;
+
+        if (ReplicaRouter.isEnabled(properties))
+        {
+            this.replicaRouter = ReplicaRouter.of(properties);
+            this.replicaTable = new JDBCObjectStoreTable<>(Contract.class, Contract::getContractNumber, ContractSchema.class,
+                    replicaRouter.getReplicaProperties());
+        }
+        else
+        {
+            this.replicaRouter = null;
+            this.replicaTable = null;
+        }
     }
 
     @Override
     public void add(Contract contract)
     {
-        objectStore.add(contract);
+        registerAdvisors(List.of(contract));
+        if (jdbcTable != null)
+        {
+            jdbcTable.addAll(List.of(contract));
+        }
+        else
+        {
+            objectStore.add(contract);
+        }
+        recordWrite();
+        if (bitmapIndex != null)
+        {
+            bitmapIndex.add(contract);
+        }
+    }
+
+    @Override
+    public void addAll(List<Contract> contracts)
+    {
+        registerAdvisors(contracts);
+        if (jdbcTable != null)
+        {
+            jdbcTable.addAll(contracts);
+        }
+        else
+        {
+            contracts.forEach(objectStore::add);
+        }
+        recordWrite();
+
+        if (bitmapIndex != null)
+        {
+            bitmapIndex.addAll(contracts);
+        }
     }
 
     @Override
     public void update(Contract contract)
     {
-        objectStore.update(contract);
+        registerAdvisors(List.of(contract));
+        if (jdbcTable != null)
+        {
+            jdbcTable.updateAll(List.of(contract));
+        }
+        else
+        {
+            objectStore.update(contract);
+        }
+        recordWrite();
+        invalidate(contract.getContractNumber());
+        if (bitmapIndex != null)
+        {
+            bitmapIndex.add(contract);
+        }
+    }
+
+    @Override
+    public void updateAll(List<Contract> contracts)
+    {
+        registerAdvisors(contracts);
+        if (jdbcTable != null)
+        {
+            jdbcTable.updateAll(contracts);
+        }
+        else
+        {
+            contracts.forEach(objectStore::update);
+        }
+        recordWrite();
+        contracts.forEach(contract -> invalidate(contract.getContractNumber()));
+
+        if (bitmapIndex != null)
+        {
+            bitmapIndex.addAll(contracts);
+        }
     }
 
     @Override
     public void remove(ContractNumber contractNumber)
     {
-        objectStore.remove(contractNumber);
+        if (jdbcTable != null)
+        {
+            jdbcTable.removeAll(List.of(contractNumber));
+        }
+        else
+        {
+            objectStore.remove(contractNumber);
+        }
+        recordWrite();
+        invalidate(contractNumber);
+        if (bitmapIndex != null)
+        {
+            bitmapIndex.remove(contractNumber);
+        }
     }
 
 
     @Override
     public List<Contract> getByAdvisor(String advisor)
     {
-        return objectStore
-                .getStringQuery(ADVISOR, String.class)
-                .isEqualTo(advisor);
+        if (bitmapIndex != null)
+        {
+            return load(bitmapIndex.getByAdvisor(advisor));
+        }
+
+        if (jdbcTable != null)
+        {
+            return AdvisorDictionary.instance().find(advisor)
+                    .map(advisorId -> queryTable().getEqualTo(Map.of(ADVISOR, advisorId)))
+                    .orElse(List.of());
+        }
+
+        return AdvisorDictionary.instance().find(advisor)
+                .map(advisorId -> objectStore
+                        .getNumericQuery(ADVISOR, Integer.class)
+                        .isEqualTo(advisorId))
+                .orElse(List.of());
+    }
+
+    @Override
+    public List<Contract> getUnsignedContractsByAdvisor(String advisor)
+    {
+        return getByAdvisor(advisor, false);
+    }
+
+    @Override
+    public List<Contract> getSignedContractsByAdvisor(String advisor)
+    {
+        return getByAdvisor(advisor, true);
+    }
+
+    @Override
+    public List<ContractNumber> getUnsignedContractNumbers()
+    {
+        if (bitmapIndex != null)
+        {
+            return contractNumbersOf(bitmapIndex.getUnsignedContracts());
+        }
+        if (jdbcTable != null)
+        {
+            return selectContractNumbers(Map.of(CONTRACT_SIGNED, false));
+        }
+        return contractNumbersOf(getUnsignedContracts());
+    }
+
+    @Override
+    public List<ContractNumber> getContractNumbersByAdvisor(String advisor)
+    {
+        if (bitmapIndex != null)
+        {
+            return contractNumbersOf(bitmapIndex.getByAdvisor(advisor));
+        }
+        if (jdbcTable != null)
+        {
+            return AdvisorDictionary.instance().find(advisor)
+                    .map(advisorId -> selectContractNumbers(Map.of(ADVISOR, advisorId)))
+                    .orElse(List.of());
+        }
+        return contractNumbersOf(getByAdvisor(advisor));
+    }
+
+    @Override
+    public List<ContractNumber> getContractNumbersByAdvisor(String advisor, boolean signed)
+    {
+        if (bitmapIndex != null)
+        {
+            return contractNumbersOf(bitmapIndex.getByAdvisor(advisor, signed));
+        }
+        if (jdbcTable != null)
+        {
+            return AdvisorDictionary.instance().find(advisor)
+                    .map(advisorId -> selectContractNumbers(byAdvisor(advisorId, signed)))
+                    .orElse(List.of());
+        }
+        return contractNumbersOf(getByAdvisor(advisor, signed));
+    }
+
+    @Override
+    public long countByAdvisor(String advisor, boolean signed)
+    {
+        if (bitmapIndex != null)
+        {
+            return bitmapIndex.getByAdvisor(advisor, signed).cardinality();
+        }
+        if (jdbcTable != null)
+        {
+            return AdvisorDictionary.instance().find(advisor)
+                    .map(advisorId -> queryTable().countEqualTo(byAdvisor(advisorId, signed)))
+                    .orElse(0L);
+        }
+        return getByAdvisor(advisor, signed).size();
+    }
+
+    @Override
+    public long count(boolean signed)
+    {
+        if (bitmapIndex != null)
+        {
+            return (signed ? bitmapIndex.getSignedContracts() : bitmapIndex.getUnsignedContracts()).cardinality();
+        }
+        if (jdbcTable != null)
+        {
+            // Always counted on the primary, so that the result can be compared with the state of other tables
+            return jdbcTable.countEqualTo(Map.of(CONTRACT_SIGNED, signed));
+        }
+        return signed ? getSignedContracts().size() : getUnsignedContracts().size();
+    }
+
+    @Override
+    public List<String> getAdvisorsByPrefix(String prefix, int limit)
+    {
+        return AdvisorDictionary.instance().getAdvisorsByPrefix(prefix, limit);
     }
 
     @Override
     public Contract get(ContractNumber contractNumber)
     {
-        return objectStore
-                .get(contractNumber)
-                .orElseThrow(IllegalArgumentException::new);
+        if (cache == null)
+        {
+            return find(contractNumber).orElseThrow(IllegalArgumentException::new);
+        }
+
+        var cachedContract = cache.get(contractNumber.value());
+        if (cachedContract != null)
+        {
+            return getJSONConverter().fromJson(new String(cachedContract, StandardCharsets.UTF_8), Contract.class);
+        }
+
+        var stamp = cache.stamp();
+        var contract = find(contractNumber).orElseThrow(IllegalArgumentException::new);
+        cache.put(contractNumber.value(), getJSONConverter().toJson(contract).getBytes(StandardCharsets.UTF_8), stamp);
+        return contract;
+    }
+
+    /**
+     * Loads all contracts with a single {@code = ANY(?)} query. Since the database returns them in arbitrary order,
+     * they are sorted by the order of the request afterward. As a query for a list view, it may be answered by the
+     * replica.
+     */
+    @Override
+    public List<Contract> get(List<ContractNumber> contractNumbers)
+    {
+        var distinctNumbers = contractNumbers.stream().distinct().toList();
+
+        var contracts = jdbcTable != null
+                ? queryTable().getAnyOf(CONTRACT_NUMBER, distinctNumbers.stream().map(ContractNumber::value).toList())
+                : distinctNumbers.stream().map(objectStore::get).flatMap(Optional::stream).toList();
+
+        var contractsByNumber = contracts.stream()
+                .collect(Collectors.toMap(Contract::getContractNumber, Function.identity()));
+
+        return contractNumbers.stream()
+                .map(contractsByNumber::get)
+                .filter(Objects::nonNull)
+                .toList();
     }
 
     @Override
     public List<Contract> getAll()
     {
+        if (jdbcTable != null)
+        {
+            return queryTable().getEqualTo(Map.of());
+        }
         return objectStore.get();
     }
 
+    @Override
+    public Stream<Contract> streamAll()
+    {
+        if (jdbcTable != null)
+        {
+            return queryTable().stream();
+        }
+        return objectStore.get().stream();
+    }
+
+    /**
+     * Uses a single cursor over the composite range of contract number and signed state, so that several ranges can
+     * be streamed in parallel
+     */
+    @Override
+    public Stream<Contract> streamSignedContracts(ContractNumber first, ContractNumber last)
+    {
+        if (jdbcTable != null)
+        {
+            return queryTable().streamRangeClosed(CONTRACT_NUMBER, first.value(), last.value(), Map.of(CONTRACT_SIGNED, true));
+        }
+
+        return getSignedContracts()
+                .stream()
+                .filter(contract -> contract.getContractNumber().value() >= first.value()
+                        && contract.getContractNumber().value() <= last.value());
+    }
+
     @Override
     public List<Contract> getSignedContracts()
     {
+        if (bitmapIndex != null)
+        {
+            return load(bitmapIndex.getSignedContracts());
+        }
+
+        if (jdbcTable != null)
+        {
+            return queryTable().getEqualTo(Map.of(CONTRACT_SIGNED, true));
+        }
         return objectStore
                 .getNumericQuery(CONTRACT_SIGNED, Boolean.class)
                 .isEqualTo(true);
@@ -128,14 +475,267 @@ public class ContractRepositoryImpl implements ContractRepository
     @Override
     public List<Contract> getUnsignedContracts()
     {
+        if (bitmapIndex != null)
+        {
+            return load(bitmapIndex.getUnsignedContracts());
+        }
+
+        if (jdbcTable != null)
+        {
+            return queryTable().getEqualTo(Map.of(CONTRACT_SIGNED, false));
+        }
         return objectStore
                 .getNumericQuery(CONTRACT_SIGNED, Boolean.class)
                 .isEqualTo(false);
     }
 
+    private List<Contract> getByAdvisor(String advisor, boolean signed)
+    {
+        if (bitmapIndex != null)
+        {
+            return load(bitmapIndex.getByAdvisor(advisor, signed));
+        }
+        if (jdbcTable != null)
+        {
+            return AdvisorDictionary.instance().find(advisor)
+                    .map(advisorId -> queryTable().getEqualTo(byAdvisor(advisorId, signed)))
+                    .orElse(List.of());
+        }
+
+        // IObjectStore supports only queries for a single metadata, which is fine for an in-memory store
+        return getByAdvisor(advisor)
+                .stream()
+                .filter(contract -> contract.isSigned() == signed)
+                .toList();
+    }
+
+    /**
+     * Reads only column CONTRACT_NUMBER, so that no contract must be deserialized
+     */
+    private List<ContractNumber> selectContractNumbers(Map<ContractSchema, ?> values)
+    {
+        return queryTable()
+                .selectEqualTo(CONTRACT_NUMBER, values)
+                .stream()
+                .map(value -> new ContractNumber(((Number) value).intValue()))
+                .toList();
+    }
+
+    /**
+     * Reads given contract from the primary
+     */
+    private Optional<Contract> find(ContractNumber contractNumber)
+    {
+        if (jdbcTable != null)
+        {
+            return jdbcTable.getAnyOf(CONTRACT_NUMBER, List.of(contractNumber.value())).stream().findFirst();
+        }
+        return objectStore.get(contractNumber);
+    }
+
+    /**
+     * Loads all contracts whose number is included in given bitmap
+     */
+    private List<Contract> load(CompressedBitmap contractNumbers)
+    {
+        if (jdbcTable != null)
+        {
+            return jdbcTable.getAnyOf(CONTRACT_NUMBER, Arrays.stream(contractNumbers.toArray()).boxed().toList());
+        }
+
+        return Arrays.stream(contractNumbers.toArray())
+                .mapToObj(contractNumber -> objectStore.get(new ContractNumber(contractNumber)))
+                .flatMap(Optional::stream)
+                .toList();
+    }
+
+    /**
+     * Resolves the integers of all advisors of given contracts before they are written, so that the metadata of the
+     * contracts can be computed without accessing the database
+     */
+    private static void registerAdvisors(List<Contract> contracts)
+    {
+        AdvisorDictionary.instance().register(contracts.stream()
+                .map(Contract::getAdvisor)
+                .toList());
+    }
+
+    /**
+     * Must be called after the write, so that a concurrent {@link #get(ContractNumber)} that loaded the previous
+     * state does not cache it
+     */
+    private void invalidate(ContractNumber contractNumber)
+    {
+        if (cache != null)
+        {
+            cache.invalidate(contractNumber.value());
+        }
+    }
+
+    private void recordWrite()
+    {
+        if (replicaRouter != null)
+        {
+            replicaRouter.recordWrite();
+        }
+    }
+
+    /**
+     * @return the table of the replica if the staleness policy allows it, otherwise the one of the primary
+     */
+    private JDBCObjectStoreTable<Contract, ContractNumber, ContractSchema> queryTable()
+    {
+        return replicaRouter != null && replicaRouter.useReplica() ? replicaTable : jdbcTable;
+    }
+
+    /**
+     * Tables created before {@link AdvisorDictionary} was introduced store the name of the advisor in column ADVISOR.
+     * They are migrated once by adding all advisors to the dictionary and replacing the column by their integers. The
+     * table is locked and checked again, so that concurrently starting instances of the application migrate it only once.
+     */
+    private void migrateAdvisorColumn()
+    {
+        var tableName = Contract.class.getSimpleName();
+        try (var connection = jdbcTable.getConnection())
+        {
+            connection.setAutoCommit(false);
+            try (var statement = connection.createStatement())
+            {
+                if (!isTextColumn(statement, tableName, ADVISOR))
+                {
+                    connection.rollback();
+                    return;
+                }
+                statement.execute("LOCK TABLE " + tableName + " IN ACCESS EXCLUSIVE MODE");
+                if (!isTextColumn(statement, tableName, ADVISOR))
+                {
+                    connection.rollback();
+                    return;
+                }
+
+                statement.execute("INSERT INTO AdvisorDictionary (ADVISOR) SELECT DISTINCT ADVISOR FROM " + tableName
+                        + " WHERE ADVISOR IS NOT NULL ON CONFLICT (ADVISOR) DO NOTHING");
+                statement.execute("ALTER TABLE " + tableName + " ADD COLUMN ADVISOR_ID NUMERIC");
+                statement.execute("UPDATE " + tableName + " SET ADVISOR_ID = AdvisorDictionary.ID FROM AdvisorDictionary"
+                        + " WHERE AdvisorDictionary.ADVISOR = " + tableName + ".ADVISOR");
+                // Dropping the column also drops the composite index, which is recreated afterward
+                statement.execute("ALTER TABLE " + tableName + " DROP COLUMN ADVISOR");
+                statement.execute("ALTER TABLE " + tableName + " RENAME COLUMN ADVISOR_ID TO ADVISOR");
+                connection.commit();
+            }
+            catch (SQLException | RuntimeException e)
+            {
+                connection.rollback();
+                throw e;
+            }
+        }
+        catch (SQLException e)
+        {
+            throw new IllegalStateException("Could not migrate column ADVISOR of " + tableName, e);
+        }
+
+        // The dictionary must know the advisors added by the migration
+        AdvisorDictionary.instance().reload();
+    }
+
+    private static boolean isTextColumn(Statement statement, String tableName, ContractSchema column) throws SQLException
+    {
+        // The table is created by Jexxa without quotes, so that its name is stored in lower case
+        try (var resultSet = statement.executeQuery("SELECT data_type FROM information_schema.columns"
+                + " WHERE table_name = '" + tableName.toLowerCase() + "' AND column_name = '" + column.name().toLowerCase() + "'"))
+        {
+            return resultSet.next() && resultSet.getString(1).equals("text");
+        }
+    }
+
+    private static OffHeapCache createCache(int entries, Properties properties)
+    {
+        if (JDBCConnections.isJDBC(properties) && !acquireCacheLock(properties))
+        {
+            SLF4jLogger.getLogger(ContractRepositoryImpl.class).warn("Cache of contracts is disabled because another "
+                    + "instance of the application uses a cache for {}", properties.getProperty(JDBCConnections.JDBC_URL));
+            return null;
+        }
+
+        var entrySize = properties.getProperty(CACHE_ENTRY_SIZE, "").isBlank()
+                ? defaultEntrySize()
+                : Integer.parseInt(properties.getProperty(CACHE_ENTRY_SIZE));
+
+        var cache = new OffHeapCache(Contract.class.getSimpleName(), entries, entrySize);
+        PersistenceMetrics.instance().registerCache(Contract.class.getSimpleName(), cache);
+        return cache;
+    }
+
+    /**
+     * Tries to take a session-level advisory lock on a dedicated connection that is kept open as long as the
+     * application runs. If the connection is lost, Postgres releases the lock, so that this check only protects
+     * against instances that are started while this one is running.
+     *
+     * @return true if this instance holds the lock
+     */
+    private static boolean acquireCacheLock(Properties properties)
+    {
+        var connection = JDBCConnections.getUnpooledConnection(properties);
+        try (var statement = connection.prepareStatement("SELECT pg_try_advisory_lock(hashtext(?))"))
+        {
+            statement.setString(1, Contract.class.getSimpleName() + ".cache");
+            try (var resultSet = statement.executeQuery())
+            {
+                if (resultSet.next() && resultSet.getBoolean(1))
+                {
+                    CACHE_LOCKS.put(properties.getProperty(JDBCConnections.JDBC_URL), connection);
+                    return true;
+                }
+            }
+            connection.close();
+            return false;
+        }
+        catch (SQLException e)
+        {
+            throw new IllegalStateException("Could not lock cache of " + Contract.class.getSimpleName(), e);
+        }
+    }
+
+    /**
+     * @return the size of the JSON of a signed contract with the highest contract number, the longest signature date
+     * and an advisor of {@value #MAX_CACHED_ADVISOR_LENGTH} characters
+     */
+    private static int defaultEntrySize()
+    {
+        var contract = Contract.restoreContract(new ContractNumber(Integer.MAX_VALUE), "A".repeat(MAX_CACHED_ADVISOR_LENGTH),
+                true, Instant.ofEpochSecond(253402300799L, 999_999_999)); // 9999-12-31T23:59:59.999999999Z
+        return getJSONConverter().toJson(contract).getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    private static List<ContractNumber> contractNumbersOf(CompressedBitmap contractNumbers)
+    {
+        return Arrays.stream(contractNumbers.toArray())
+                .mapToObj(ContractNumber::new)
+                .toList();
+    }
+
+    private static List<ContractNumber> contractNumbersOf(List<Contract> contracts)
+    {
+        return contracts.stream()
+                .map(Contract::getContractNumber)
+                .toList();
+    }
+
+    private static Map<ContractSchema, Object> byAdvisor(int advisorId, boolean signed)
+    {
+        var values = new EnumMap<ContractSchema, Object>(ContractSchema.class);
+        values.put(ADVISOR, advisorId);
+        values.put(CONTRACT_SIGNED, signed);
+        return values;
+    }
+
     @Override
     public Optional<Contract> getHighestContractNumber()
     {
+        if (jdbcTable != null)
+        {
+            return jdbcTable.getHighest(CONTRACT_NUMBER);
+        }
         return objectStore
                 .getNumericQuery(CONTRACT_NUMBER, Integer.class)
                 .getDescending(1)
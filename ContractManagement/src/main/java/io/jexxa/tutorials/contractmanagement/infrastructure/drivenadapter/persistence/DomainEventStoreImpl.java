@@ -1,18 +1,16 @@
 package io.jexxa.tutorials.contractmanagement.infrastructure.drivenadapter.persistence;
 
 import io.jexxa.addend.infrastructure.DrivenAdapter;
-import io.jexxa.common.drivenadapter.persistence.objectstore.IObjectStore;
 import io.jexxa.common.drivenadapter.persistence.objectstore.metadata.MetaTag;
 import io.jexxa.common.drivenadapter.persistence.objectstore.metadata.MetadataSchema;
-import io.jexxa.tutorials.contractmanagement.domain.contract.ContractNumber;
 import io.jexxa.tutorials.contractmanagement.domain.contract.ContractSigned;
 import io.jexxa.tutorials.contractmanagement.domainservice.DomainEventStore;
 
 import java.time.Instant;
 import java.util.List;
 import java.util.Properties;
+import java.util.stream.Stream;
 
-import static io.jexxa.common.drivenadapter.persistence.ObjectStoreFactory.createObjectStore;
 import static io.jexxa.common.drivenadapter.persistence.objectstore.metadata.MetaTags.instantTag;
 import static io.jexxa.common.drivenadapter.persistence.objectstore.metadata.MetaTags.numericTag;
 
@@ -50,31 +48,86 @@ public class DomainEventStoreImpl implements DomainEventStore
         }
     }
 
-    private final IObjectStore<ContractSigned, ContractNumber, DomainEventSchema> objectStore;
+    static final String EVENT_STORE_STRATEGY = "contractmanagement.eventstore.strategy";
+    static final String SEGMENT_STRATEGY = "segment";
+    static final String PARTITIONED_STRATEGY = "partitioned";
 
+    private final AuditEventLog auditEventLog;
 
+
+    /**
+     * The domain events are stored in an {@code IObjectStore} by default. If property {@value #EVENT_STORE_STRATEGY}
+     * is set to {@value #SEGMENT_STRATEGY}, they are appended to local segment files instead, see {@link SegmentAuditEventLog}.
+     * If it is set to {@value #PARTITIONED_STRATEGY}, they are stored in a table partitioned by month, see
+     * {@link PartitionedAuditEventLog}.
+     * If property {@value WriteBehindAuditEventLog#WRITE_BEHIND} is set, the {@code IObjectStore} is written in the
+     * background from a local journal, see {@link WriteBehindAuditEventLog}. If property
+     * {@value ArchivedAuditEventLog#ARCHIVE_AGE} is set, old domain events are moved from the {@code IObjectStore} into
+     * compressed archive files, see {@link ArchivedAuditEventLog}. If property {@value ReplicaRouter#REPLICA_URL} is
+     * set, the {@code IObjectStore} answers queries from a read-only replica, see {@link ReplicaRouter}.
+     */
     public DomainEventStoreImpl(Properties properties)
     {
-        this.objectStore = createObjectStore(ContractSigned.class, ContractSigned::contractNumber, DomainEventSchema.class, properties);
+        if (SEGMENT_STRATEGY.equals(properties.getProperty(EVENT_STORE_STRATEGY)))
+        {
+            this.auditEventLog = SegmentAuditEventLog.open(properties);
+        }
+        else if (PARTITIONED_STRATEGY.equals(properties.getProperty(EVENT_STORE_STRATEGY)))
+        {
+            this.auditEventLog = PartitionedAuditEventLog.open(properties);
+        }
+        else
+        {
+            var hotStore = new ObjectStoreAuditEventLog(properties);
+            AuditEventLog hotLog = Boolean.parseBoolean(properties.getProperty(WriteBehindAuditEventLog.WRITE_BEHIND, "false"))
+                    ? WriteBehindAuditEventLog.open(properties, hotStore)
+                    : hotStore;
+
+            this.auditEventLog = Long.parseLong(properties.getProperty(ArchivedAuditEventLog.ARCHIVE_AGE, "0")) > 0
+                    ? ArchivedAuditEventLog.open(properties, hotLog, hotStore)
+                    : hotLog;
+        }
     }
 
     @Override
     public void add(ContractSigned domainEvent)
     {
-        objectStore.add(domainEvent);
+        auditEventLog.add(domainEvent);
+    }
+
+    @Override
+    public void addAll(List<ContractSigned> domainEvents)
+    {
+        auditEventLog.addAll(domainEvents);
+    }
+
+    @Override
+    public void addAllIfAbsent(List<ContractSigned> domainEvents)
+    {
+        auditEventLog.addAllIfAbsent(domainEvents);
     }
 
     @Override
     public List<ContractSigned> get(Instant startTime, Instant endTime)
     {
-        return objectStore
-                .getNumericQuery(DomainEventSchema.SIGNATURE_DATE, Instant.class)
-                .getRangeClosed(startTime, endTime);
+        return auditEventLog.get(startTime, endTime);
     }
 
     @Override
     public List<ContractSigned> get()
     {
-        return objectStore.get();
+        return auditEventLog.get();
+    }
+
+    @Override
+    public Stream<ContractSigned> stream(Instant startTime, Instant endTime)
+    {
+        return auditEventLog.stream(startTime, endTime);
+    }
+
+    @Override
+    public Stream<ContractSigned> stream()
+    {
+        return auditEventLog.stream();
     }
 }
@@ -0,0 +1,411 @@
+package io.jexxa.tutorials.contractmanagement.infrastructure.drivenadapter.persistence;
+
+import io.jexxa.common.facade.logger.SLF4jLogger;
+import io.jexxa.tutorials.contractmanagement.domain.monitoring.ConnectionPoolMetric;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded pool of JDBC connections with a cache of prepared statements per connection.
+ * <p>
+ * <b>Pool:</b> At most {@code size} connections are handed out at the same time. Further requests wait up to
+ * {@code timeout} for a returned connection and fail with an {@link IllegalStateException} afterward. Connections are
+ * created on demand and reused in LIFO order, so that rarely used connections are the ones that become stale. A
+ * connection that was idle for more than {@value #VALIDATION_INTERVAL_MILLIS} ms is validated before it is handed out.
+ * <p>
+ * <b>Returning:</b> The handed out connection is a proxy whose {@code close()} returns the physical connection to the
+ * pool. An open transaction is rolled back and auto commit is enabled again, so that the next user gets a connection
+ * in its default state. A connection that fails on this reset is discarded.
+ * <p>
+ * <b>Statement cache:</b> {@code prepareStatement(String)} returns a cached statement of the physical connection if
+ * available. Closing such a statement only clears its parameters and batch. The least recently used statements are
+ * closed if more than {@code statementCacheSize} statements are cached.
+ */
+final class JDBCConnectionPool
+{
+    private static final long VALIDATION_INTERVAL_MILLIS = 1000;
+    private static final int VALIDATION_TIMEOUT_SECONDS = 5;
+
+    private final String name;
+    private final Properties properties;
+    private final int size;
+    private final int statementCacheSize;
+    private final long timeoutMillis;
+    private final Semaphore permits;
+    private final ConcurrentLinkedDeque<PooledConnection> idleConnections = new ConcurrentLinkedDeque<>();
+
+    private final LongAdder acquisitions = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder createdConnections = new LongAdder();
+    private final LongAdder discardedConnections = new LongAdder();
+    private final LongAdder statementCacheHits = new LongAdder();
+    private final LongAdder statementCacheMisses = new LongAdder();
+
+    JDBCConnectionPool(String name, Properties properties, int size, int statementCacheSize, long timeoutMillis)
+    {
+        if (size <= 0)
+        {
+            throw new IllegalArgumentException("Size of connection pool " + name + " must be positive");
+        }
+
+        this.name = name;
+        this.properties = properties;
+        this.size = size;
+        this.statementCacheSize = statementCacheSize;
+        this.timeoutMillis = timeoutMillis;
+        this.permits = new Semaphore(size, true);
+    }
+
+    Connection getConnection()
+    {
+        var start = System.nanoTime();
+        try
+        {
+            if (!permits.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS))
+            {
+                timeouts.increment();
+                throw new IllegalStateException("Timeout after " + timeoutMillis + " ms while waiting for a connection of pool " + name
+                        + " with " + size + " connections");
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a connection of pool " + name, e);
+        }
+
+        var waited = System.nanoTime() - start;
+        acquisitions.increment();
+        waitNanos.add(waited);
+        maxWaitNanos.accumulateAndGet(waited, Math::max);
+
+        try
+        {
+            return borrow().newProxy();
+        }
+        catch (RuntimeException e)
+        {
+            permits.release();
+            throw e;
+        }
+    }
+
+    ConnectionPoolMetric getMetric()
+    {
+        var idle = idleConnections.size();
+        var count = acquisitions.sum();
+        return new ConnectionPoolMetric(
+                name,
+                size,
+                size - permits.availablePermits(),
+                idle,
+                count == 0 ? 0 : (double) waitNanos.sum() / count / TimeUnit.MILLISECONDS.toNanos(1),
+                (double) maxWaitNanos.get() / TimeUnit.MILLISECONDS.toNanos(1),
+                timeouts.sum(),
+                createdConnections.sum(),
+                discardedConnections.sum(),
+                statementCacheHits.sum(),
+                statementCacheMisses.sum());
+    }
+
+    private PooledConnection borrow()
+    {
+        PooledConnection pooledConnection;
+        while ((pooledConnection = idleConnections.pollFirst()) != null)
+        {
+            if (pooledConnection.isValid())
+            {
+                return pooledConnection;
+            }
+            pooledConnection.discard();
+        }
+
+        try
+        {
+            var connection = DriverManager.getConnection(
+                    properties.getProperty(JDBCConnections.JDBC_URL),
+                    properties.getProperty(JDBCConnections.JDBC_USERNAME),
+                    properties.getProperty(JDBCConnections.JDBC_PASSWORD));
+            createdConnections.increment();
+            return new PooledConnection(connection);
+        }
+        catch (SQLException e)
+        {
+            throw new IllegalStateException("Could not connect to " + properties.getProperty(JDBCConnections.JDBC_URL), e);
+        }
+    }
+
+    private void giveBack(PooledConnection pooledConnection)
+    {
+        try
+        {
+            pooledConnection.reset();
+            idleConnections.offerFirst(pooledConnection);
+        }
+        catch (SQLException e)
+        {
+            SLF4jLogger.getLogger(JDBCConnectionPool.class).warn("Discard connection of pool {}: {}", name, e.getMessage());
+            pooledConnection.discard();
+        }
+        finally
+        {
+            permits.release();
+        }
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable
+    {
+        try
+        {
+            return method.invoke(target, args);
+        }
+        catch (InvocationTargetException e)
+        {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * A physical connection together with its cached statements. It is used by a single thread at a time.
+     */
+    private final class PooledConnection
+    {
+        private final Connection connection;
+        private final Map<String, PreparedStatement> statementCache = new LinkedHashMap<>(16, 0.75f, true);
+        private final Set<PreparedStatement> statementsInUse = Collections.newSetFromMap(new IdentityHashMap<>());
+        private long lastUsed = System.nanoTime();
+
+        PooledConnection(Connection connection)
+        {
+            this.connection = connection;
+        }
+
+        Connection newProxy()
+        {
+            return (Connection) Proxy.newProxyInstance(
+                    JDBCConnectionPool.class.getClassLoader(),
+                    new Class<?>[]{Connection.class},
+                    new ConnectionHandler(this));
+        }
+
+        boolean isValid()
+        {
+            if (System.nanoTime() - lastUsed < TimeUnit.MILLISECONDS.toNanos(VALIDATION_INTERVAL_MILLIS))
+            {
+                return true;
+            }
+
+            try
+            {
+                return connection.isValid(VALIDATION_TIMEOUT_SECONDS);
+            }
+            catch (SQLException e)
+            {
+                return false;
+            }
+        }
+
+        PreparedStatement prepareStatement(String sql, Connection proxy) throws SQLException
+        {
+            var statement = statementCache.get(sql);
+            if (statement != null && statementsInUse.add(statement))
+            {
+                statementCacheHits.increment();
+                return statementProxy(statement, proxy);
+            }
+
+            statementCacheMisses.increment();
+            if (statement != null || statementCacheSize <= 0)
+            {
+                // The cached statement is used by an open statement of the same connection
+                return connection.prepareStatement(sql);
+            }
+
+            statement = connection.prepareStatement(sql);
+            statementCache.put(sql, statement);
+            statementsInUse.add(statement);
+            evictStatements();
+            return statementProxy(statement, proxy);
+        }
+
+        void reset() throws SQLException
+        {
+            // Statements that were not closed by their user must not keep parameters or a batch for the next user
+            for (var statement : statementsInUse)
+            {
+                statement.clearParameters();
+                statement.clearBatch();
+            }
+            statementsInUse.clear();
+            if (!connection.getAutoCommit())
+            {
+                connection.rollback();
+                connection.setAutoCommit(true);
+            }
+            if (connection.isReadOnly())
+            {
+                connection.setReadOnly(false);
+            }
+            lastUsed = System.nanoTime();
+        }
+
+        void discard()
+        {
+            discardedConnections.increment();
+            try
+            {
+                connection.close();
+            }
+            catch (SQLException e)
+            {
+                SLF4jLogger.getLogger(JDBCConnectionPool.class).warn("Could not close connection of pool {}: {}", name, e.getMessage());
+            }
+        }
+
+        private void evictStatements() throws SQLException
+        {
+            var iterator = statementCache.values().iterator();
+            while (statementCache.size() > statementCacheSize && iterator.hasNext())
+            {
+                var statement = iterator.next();
+                if (!statementsInUse.contains(statement))
+                {
+                    iterator.remove();
+                    statement.close();
+                }
+            }
+        }
+
+        private PreparedStatement statementProxy(PreparedStatement statement, Connection proxy)
+        {
+            return (PreparedStatement) Proxy.newProxyInstance(
+                    JDBCConnectionPool.class.getClassLoader(),
+                    new Class<?>[]{PreparedStatement.class},
+                    new StatementHandler(this, statement, proxy));
+        }
+    }
+
+    private final class ConnectionHandler implements InvocationHandler
+    {
+        private final PooledConnection pooledConnection;
+        private boolean closed;
+
+        ConnectionHandler(PooledConnection pooledConnection)
+        {
+            this.pooledConnection = pooledConnection;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+        {
+            switch (method.getName())
+            {
+                case "close" -> {
+                    if (!closed)
+                    {
+                        closed = true;
+                        giveBack(pooledConnection);
+                    }
+                    return null;
+                }
+                case "isClosed" -> {
+                    return closed || pooledConnection.connection.isClosed();
+                }
+                case "equals" -> {
+                    return proxy == args[0];
+                }
+                case "hashCode" -> {
+                    return System.identityHashCode(proxy);
+                }
+                case "toString" -> {
+                    return "Pooled connection of " + name;
+                }
+                default -> {
+                    // Handled below
+                }
+            }
+
+            if (closed)
+            {
+                throw new SQLException("Connection was returned to pool " + name);
+            }
+            if (method.getName().equals("prepareStatement") && args.length == 1)
+            {
+                return pooledConnection.prepareStatement((String) args[0], (Connection) proxy);
+            }
+            return JDBCConnectionPool.invoke(pooledConnection.connection, method, args);
+        }
+    }
+
+    private static final class StatementHandler implements InvocationHandler
+    {
+        private final PooledConnection pooledConnection;
+        private final PreparedStatement statement;
+        private final Connection connection;
+        private boolean closed;
+
+        StatementHandler(PooledConnection pooledConnection, PreparedStatement statement, Connection connection)
+        {
+            this.pooledConnection = pooledConnection;
+            this.statement = statement;
+            this.connection = connection;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+        {
+            switch (method.getName())
+            {
+                case "close" -> {
+                    if (!closed)
+                    {
+                        closed = true;
+                        statement.clearParameters();
+                        statement.clearBatch();
+                        pooledConnection.statementsInUse.remove(statement);
+                    }
+                    return null;
+                }
+                case "isClosed" -> {
+                    return closed || statement.isClosed();
+                }
+                case "getConnection" -> {
+                    return connection;
+                }
+                case "equals" -> {
+                    return proxy == args[0];
+                }
+                case "hashCode" -> {
+                    return System.identityHashCode(proxy);
+                }
+                default -> {
+                    if (closed)
+                    {
+                        throw new SQLException("Statement is closed");
+                    }
+                    return JDBCConnectionPool.invoke(statement, method, args);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package io.jexxa.tutorials.contractmanagement.infrastructure.drivenadapter.persistence;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Provides JDBC connections for driven adapters that require SQL features not available via {@code IObjectStore},
+ * such as sequences. The connection settings are the same as used by Jexxa's JDBC strategies.
+ * <p>
+ * If property {@value #POOL_ENABLED} is set, connections are taken from one {@link JDBCConnectionPool} per pool name.
+ * Each driven adapter uses the name of its table or sequence as pool name. The settings {@value #POOL_SIZE},
+ * {@value #POOL_STATEMENT_CACHE_SIZE} and {@value #POOL_TIMEOUT} apply to all pools and can be overridden per pool by
+ * inserting the pool name, e.g., {@code contractmanagement.jdbc.pool.Contract.size}.
+ */
+final class JDBCConnections
+{
+    static final String JDBC_DRIVER = "io.jexxa.jdbc.driver";
+    static final String JDBC_URL = "io.jexxa.jdbc.url";
+    static final String JDBC_USERNAME = "io.jexxa.jdbc.username";
+    static final String JDBC_PASSWORD = "io.jexxa.jdbc.password";
+    static final String OBJECTSTORE_STRATEGY = "io.jexxa.objectstore.strategy";
+
+    static final String POOL_ENABLED = "contractmanagement.jdbc.pool.enabled";
+    static final String POOL_SIZE = "contractmanagement.jdbc.pool.size";
+    static final String POOL_STATEMENT_CACHE_SIZE = "contractmanagement.jdbc.pool.statement.cache.size";
+    static final String POOL_TIMEOUT = "contractmanagement.jdbc.pool.timeout.millis";
+
+    private static final String POOL_PREFIX = "contractmanagement.jdbc.pool.";
+    private static final Map<List<String>, JDBCConnectionPool> CONNECTION_POOLS = new ConcurrentHashMap<>();
+
+    /**
+     * @return true if Jexxa uses a JDBC strategy for the object stores of this application. This is the case if a JDBC
+     * driver is configured and no other strategy, such as the in-memory strategy, is explicitly selected.
+     */
+    static boolean isJDBC(Properties properties)
+    {
+        var strategy = properties.getProperty(OBJECTSTORE_STRATEGY, "");
+        return properties.containsKey(JDBC_DRIVER)
+                && properties.containsKey(JDBC_URL)
+                && (strategy.isEmpty() || strategy.contains(".jdbc."));
+    }
+
+    /**
+     * @param poolName name of the connection pool if property {@value #POOL_ENABLED} is set
+     */
+    static Connection getConnection(Properties properties, String poolName)
+    {
+        if (Boolean.parseBoolean(properties.getProperty(POOL_ENABLED, "false")))
+        {
+            return CONNECTION_POOLS
+                    .computeIfAbsent(List.of(properties.getProperty(JDBC_URL), poolName), element -> createPool(properties, poolName))
+                    .getConnection();
+        }
+
+        return getUnpooledConnection(properties);
+    }
+
+    /**
+     * @return a new connection that is never taken from a pool, e.g., to hold a session-level lock as long as the
+     * application runs
+     */
+    static Connection getUnpooledConnection(Properties properties)
+    {
+        try
+        {
+            return DriverManager.getConnection(
+                    properties.getProperty(JDBC_URL),
+                    properties.getProperty(JDBC_USERNAME),
+                    properties.getProperty(JDBC_PASSWORD));
+        }
+        catch (SQLException e)
+        {
+            throw new IllegalStateException("Could not connect to " + properties.getProperty(JDBC_URL), e);
+        }
+    }
+
+    private static JDBCConnectionPool createPool(Properties properties, String poolName)
+    {
+        var connectionPool = new JDBCConnectionPool(poolName, properties,
+                Integer.parseInt(poolProperty(properties, poolName, POOL_SIZE, "10")),
+                Integer.parseInt(poolProperty(properties, poolName, POOL_STATEMENT_CACHE_SIZE, "50")),
+                Long.parseLong(poolProperty(properties, poolName, POOL_TIMEOUT, "5000")));
+        PersistenceMetrics.instance().registerConnectionPool(poolName, connectionPool);
+        return connectionPool;
+    }
+
+    /**
+     * @return the setting of given pool if available, otherwise the setting of all pools
+     */
+    private static String poolProperty(Properties properties, String poolName, String key, String defaultValue)
+    {
+        var poolKey = POOL_PREFIX + poolName + "." + key.substring(POOL_PREFIX.length());
+        return properties.getProperty(poolKey, properties.getProperty(key, defaultValue));
+    }
+
+    private JDBCConnections()
+    {
+        //Private constructor since we only offer static methods
+    }
+}
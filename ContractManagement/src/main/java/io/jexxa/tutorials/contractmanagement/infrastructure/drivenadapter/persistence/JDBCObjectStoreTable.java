@@ -0,0 +1,499 @@
+package io.jexxa.tutorials.contractmanagement.infrastructure.drivenadapter.persistence;
+
+import io.jexxa.common.drivenadapter.persistence.objectstore.metadata.MetaTag;
+import io.jexxa.common.drivenadapter.persistence.objectstore.metadata.MetadataSchema;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import static io.jexxa.common.facade.json.JSONManager.getJSONConverter;
+
+/**
+ * Provides direct SQL access to the table of a JDBC-based {@code IObjectStore}. This allows operations that are not
+ * offered by {@code IObjectStore}, such as batching several inserts and updates in a single transaction. With a JDBC
+ * strategy, the driven adapters use this class for all reads and writes, so that they use the connections of
+ * {@link JDBCConnections} and its pools. Their {@code IObjectStore} then only creates the table.
+ * <p>
+ * The table layout corresponds to the one created by Jexxa: The table is named after the managed object and contains
+ * columns {@code REPOSITORY_KEY} and {@code REPOSITORY_VALUE} as JSON and one column for each element of the metadata
+ * schema. Therefore, objects written via this class can be read via {@code IObjectStore} and vice versa.
+ * <p>
+ * <b>Coupling:</b> This layout is an implementation detail of Jexxa's JDBC object store and not part of its API. So,
+ * it can change with a new version of Jexxa. To fail fast instead of corrupting data, the constructor checks via
+ * {@code information_schema} that the table exists and contains all expected columns. Therefore, an instance must
+ * be created after the {@code IObjectStore} of the same type, which creates the table.
+ */
+final class JDBCObjectStoreTable<T, K, M extends Enum<M> & MetadataSchema>
+{
+    static final String FETCH_SIZE = "contractmanagement.jdbc.fetch.size";
+
+    private final Properties properties;
+    private final Class<T> aggregateClazz;
+    private final String tableName;
+    private final int fetchSize;
+    private final Function<T, K> keyFunction;
+    private final M[] schema;
+    private final String insertStatement;
+    private final String updateStatement;
+
+    JDBCObjectStoreTable(Class<T> aggregateClazz, Function<T, K> keyFunction, Class<M> metadataSchema, Properties properties)
+    {
+        this.properties = properties;
+        this.aggregateClazz = aggregateClazz;
+        this.keyFunction = keyFunction;
+        this.schema = metadataSchema.getEnumConstants();
+        this.tableName = aggregateClazz.getSimpleName();
+        this.fetchSize = Integer.parseInt(properties.getProperty(FETCH_SIZE, "1000"));
+        var metadataColumns = Arrays.stream(schema).map(Enum::name).toList();
+
+        this.insertStatement = "INSERT INTO " + tableName
+                + " (REPOSITORY_KEY, REPOSITORY_VALUE" + metadataColumns.stream().map(column -> ", " + column).collect(Collectors.joining()) + ")"
+                + " VALUES (?, ?" + ", ?".repeat(metadataColumns.size()) + ")";
+
+        this.updateStatement = "UPDATE " + tableName
+                + " SET REPOSITORY_VALUE = ?" + metadataColumns.stream().map(column -> ", " + column + " = ?").collect(Collectors.joining())
+                + " WHERE REPOSITORY_KEY = ?";
+
+        var expectedColumns = new ArrayList<>(List.of("REPOSITORY_KEY", "REPOSITORY_VALUE"));
+        expectedColumns.addAll(metadataColumns);
+        verifyLayout(expectedColumns);
+    }
+
+    Connection getConnection()
+    {
+        return JDBCConnections.getConnection(properties, tableName);
+    }
+
+    /**
+     * Inserts all given objects using a single batch within a single transaction
+     */
+    void addAll(List<T> aggregates)
+    {
+        executeBatch(insertStatement, aggregates, (statement, aggregate) -> {
+            statement.setObject(1, getJSONConverter().toJson(keyFunction.apply(aggregate)), Types.OTHER);
+            statement.setObject(2, getJSONConverter().toJson(aggregate), Types.OTHER);
+            setMetadata(statement, 3, aggregate);
+        });
+    }
+
+    /**
+     * Inserts all given objects that are not stored yet using a single batch within a single transaction. Objects whose
+     * key already exists are skipped, so that the same objects can be added several times.
+     */
+    void addAllIfAbsent(List<T> aggregates)
+    {
+        executeBatch(insertStatement + " ON CONFLICT (REPOSITORY_KEY) DO NOTHING", aggregates, (statement, aggregate) -> {
+            statement.setObject(1, getJSONConverter().toJson(keyFunction.apply(aggregate)), Types.OTHER);
+            statement.setObject(2, getJSONConverter().toJson(aggregate), Types.OTHER);
+            setMetadata(statement, 3, aggregate);
+        });
+    }
+
+    /**
+     * Removes the objects with given keys using a single batch within a single transaction
+     */
+    void removeAll(List<K> keys)
+    {
+        executeBatch("DELETE FROM " + tableName + " WHERE REPOSITORY_KEY = ?", keys,
+                (statement, key) -> statement.setObject(1, getJSONConverter().toJson(key), Types.OTHER));
+    }
+
+    /**
+     * Updates all given objects using a single batch within a single transaction
+     */
+    void updateAll(List<T> aggregates)
+    {
+        executeBatch(updateStatement, aggregates, (statement, aggregate) -> {
+            statement.setObject(1, getJSONConverter().toJson(aggregate), Types.OTHER);
+            setMetadata(statement, 2, aggregate);
+            statement.setObject(schema.length + 2, getJSONConverter().toJson(keyFunction.apply(aggregate)), Types.OTHER);
+        });
+    }
+
+    /**
+     * Ensures that the table provides all given columns, so that a changed layout of Jexxa's object store is detected
+     * on startup
+     */
+    private void verifyLayout(List<String> expectedColumns)
+    {
+        var existingColumns = new HashSet<String>();
+        // Unquoted identifiers are stored in lower case by Postgres
+        try (var connection = getConnection();
+             var statement = connection.prepareStatement("SELECT column_name FROM information_schema.columns"
+                     + " WHERE table_schema = current_schema() AND table_name = ?"))
+        {
+            statement.setString(1, tableName.toLowerCase());
+            try (var resultSet = statement.executeQuery())
+            {
+                while (resultSet.next())
+                {
+                    existingColumns.add(resultSet.getString(1).toUpperCase());
+                }
+            }
+        }
+        catch (SQLException e)
+        {
+            throw new IllegalStateException("Could not query the layout of table " + tableName, e);
+        }
+
+        var missingColumns = expectedColumns.stream()
+                .filter(column -> !existingColumns.contains(column))
+                .toList();
+
+        if (!missingColumns.isEmpty())
+        {
+            throw new IllegalStateException("Table " + tableName + " does not match the layout of Jexxa's JDBC object store."
+                    + " Missing columns: " + missingColumns
+                    + ". The table must be created by IObjectStore first, and the layout might have changed with the version of Jexxa.");
+        }
+    }
+
+    /**
+     * Creates an index over given metadata columns if it does not exist yet. The index is named after the table and
+     * its columns.
+     */
+    void createIndex(List<M> columns)
+    {
+        var columnNames = columns.stream().map(Enum::name).toList();
+        var indexName = tableName + "_" + String.join("_", columnNames);
+
+        try (var connection = getConnection();
+             var statement = connection.createStatement())
+        {
+            statement.execute("CREATE INDEX IF NOT EXISTS " + indexName
+                    + " ON " + tableName + " (" + String.join(", ", columnNames) + ")");
+        }
+        catch (SQLException e)
+        {
+            throw new IllegalStateException("Could not create index " + indexName, e);
+        }
+    }
+
+    /**
+     * Returns all objects whose metadata is equal to all given values. The values are given as in the managed object,
+     * e.g., a {@code Boolean} for a booleanTag.
+     */
+    List<T> getEqualTo(Map<M, ?> values)
+    {
+        var condition = equalTo(values);
+        return query("SELECT REPOSITORY_VALUE FROM " + tableName + condition.sql(), condition.parameters(), resultSet -> {
+            var result = new ArrayList<T>();
+            while (resultSet.next())
+            {
+                result.add(getJSONConverter().fromJson(resultSet.getString(1), aggregateClazz));
+            }
+            return result;
+        });
+    }
+
+    /**
+     * Returns only the given metadata column of all objects whose metadata is equal to all given values. Since the
+     * objects are not deserialized, this is much cheaper than {@link #getEqualTo(Map)} if only the metadata is of
+     * interest. The values are returned as read by the JDBC driver.
+     */
+    List<Object> selectEqualTo(M column, Map<M, ?> values)
+    {
+        var condition = equalTo(values);
+        return query("SELECT " + column.name() + " FROM " + tableName + condition.sql(), condition.parameters(), resultSet -> {
+            var result = new ArrayList<>();
+            while (resultSet.next())
+            {
+                result.add(resultSet.getObject(1));
+            }
+            return result;
+        });
+    }
+
+    /**
+     * Returns all objects whose given metadata is equal to any of the given values using a single query
+     */
+    List<T> getAnyOf(M column, List<?> values)
+    {
+        if (values.isEmpty())
+        {
+            return List.of();
+        }
+
+        @SuppressWarnings("unchecked")
+        var metaTag = (MetaTag<T, Object, ?>) column.getTag();
+        var parameters = values.stream().map(metaTag::getFromValue).toArray();
+        var sqlType = parameters[0] instanceof Number ? "numeric" : "text";
+
+        try (var connection = getConnection();
+             var statement = connection.prepareStatement("SELECT REPOSITORY_VALUE FROM " + tableName + " WHERE " + column.name() + " = ANY(?)"))
+        {
+            statement.setArray(1, connection.createArrayOf(sqlType, parameters));
+            try (var resultSet = statement.executeQuery())
+            {
+                var result = new ArrayList<T>(values.size());
+                while (resultSet.next())
+                {
+                    result.add(getJSONConverter().fromJson(resultSet.getString(1), aggregateClazz));
+                }
+                return result;
+            }
+        }
+        catch (SQLException e)
+        {
+            throw new IllegalStateException("Could not query table " + tableName, e);
+        }
+    }
+
+    /**
+     * Returns the object with the highest value of given metadata, e.g., the last number of a sequence
+     */
+    Optional<T> getHighest(M column)
+    {
+        return query("SELECT REPOSITORY_VALUE FROM " + tableName + " WHERE " + column.name() + " IS NOT NULL ORDER BY " + column.name() + " DESC LIMIT 1",
+                List.of(),
+                resultSet -> resultSet.next()
+                        ? Optional.of(getJSONConverter().fromJson(resultSet.getString(1), aggregateClazz))
+                        : Optional.empty());
+    }
+
+    /**
+     * Returns the number of objects whose metadata is equal to all given values
+     */
+    long countEqualTo(Map<M, ?> values)
+    {
+        var condition = equalTo(values);
+        return query("SELECT COUNT(*) FROM " + tableName + condition.sql(), condition.parameters(), resultSet -> {
+            resultSet.next();
+            return resultSet.getLong(1);
+        });
+    }
+
+    /**
+     * Streams all objects using a database cursor, so that only the number of rows configured by
+     * {@value #FETCH_SIZE} is held in memory at once. The returned stream must be closed to release the database
+     * connection.
+     */
+    Stream<T> stream()
+    {
+        return stream("", List.of());
+    }
+
+    /**
+     * Streams all objects whose metadata is within given range (inclusive) using a database cursor.
+     * The returned stream must be closed to release the database connection.
+     */
+    <V> Stream<T> streamRangeClosed(M metadata, V startValue, V endValue)
+    {
+        return streamRangeClosed(metadata, startValue, endValue, Map.of());
+    }
+
+    /**
+     * Streams all objects whose metadata is within given range (inclusive) and whose other metadata is equal to all
+     * given values using a database cursor. The returned stream must be closed to release the database connection.
+     */
+    @SuppressWarnings("unchecked")
+    <V> Stream<T> streamRangeClosed(M metadata, V startValue, V endValue, Map<M, ?> values)
+    {
+        var metaTag = (MetaTag<T, V, ?>) metadata.getTag();
+        var condition = equalTo(values);
+        var parameters = new ArrayList<>(condition.parameters());
+        parameters.add(metaTag.getFromValue(startValue));
+        parameters.add(metaTag.getFromValue(endValue));
+
+        return stream((condition.sql().isEmpty() ? " WHERE " : condition.sql() + " AND ") + metadata.name() + " BETWEEN ? AND ?",
+                parameters);
+    }
+
+    private Stream<T> stream(String condition, List<Object> parameters)
+    {
+        var connection = getConnection();
+        try
+        {
+            // PostgreSQL only uses a cursor if auto commit is disabled
+            connection.setAutoCommit(false);
+            var statement = connection.prepareStatement("SELECT REPOSITORY_VALUE FROM " + tableName + condition,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(fetchSize);
+            for (var i = 0; i < parameters.size(); ++i)
+            {
+                setValue(statement, i + 1, parameters.get(i));
+            }
+            var resultSet = statement.executeQuery();
+
+            return StreamSupport
+                    .stream(new ResultSetSpliterator(resultSet), false)
+                    .onClose(() -> close(connection));
+        }
+        catch (SQLException | RuntimeException e)
+        {
+            close(connection);
+            throw new IllegalStateException("Could not query table " + tableName, e);
+        }
+    }
+
+    private <R> R query(String sql, List<Object> parameters, ResultSetReader<R> reader)
+    {
+        try (var connection = getConnection();
+             var statement = connection.prepareStatement(sql))
+        {
+            for (var i = 0; i < parameters.size(); ++i)
+            {
+                setValue(statement, i + 1, parameters.get(i));
+            }
+            try (var resultSet = statement.executeQuery())
+            {
+                return reader.read(resultSet);
+            }
+        }
+        catch (SQLException e)
+        {
+            throw new IllegalStateException("Could not query table " + tableName, e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Condition equalTo(Map<M, ?> values)
+    {
+        if (values.isEmpty())
+        {
+            return new Condition("", List.of());
+        }
+
+        var columns = new ArrayList<String>();
+        var parameters = new ArrayList<Object>();
+        values.forEach((metadata, value) -> {
+            var metaTag = (MetaTag<T, Object, ?>) metadata.getTag();
+            columns.add(metadata.name() + " = ?");
+            parameters.add(metaTag.getFromValue(value));
+        });
+        return new Condition(" WHERE " + String.join(" AND ", columns), parameters);
+    }
+
+    private static void close(Connection connection)
+    {
+        try
+        {
+            connection.rollback(); // Only reads were executed, so rollback just ends the transaction of the cursor
+            connection.close();    // Closing a connection also closes its statements and result sets
+        }
+        catch (SQLException e)
+        {
+            throw new IllegalStateException("Could not close connection", e);
+        }
+    }
+
+    private <E> void executeBatch(String sql, List<E> elements, StatementBinder<E> binder)
+    {
+        if (elements.isEmpty())
+        {
+            return;
+        }
+
+        try (var connection = getConnection())
+        {
+            connection.setAutoCommit(false);
+            try (var statement = connection.prepareStatement(sql))
+            {
+                for (var element : elements)
+                {
+                    binder.bind(statement, element);
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+                connection.commit();
+            }
+            catch (SQLException | RuntimeException e)
+            {
+                connection.rollback();
+                throw e;
+            }
+        }
+        catch (SQLException e)
+        {
+            throw new IllegalStateException("Could not execute batch: " + sql, e);
+        }
+    }
+
+    private void setMetadata(PreparedStatement statement, int firstIndex, T aggregate) throws SQLException
+    {
+        for (var i = 0; i < schema.length; ++i)
+        {
+            @SuppressWarnings("unchecked")
+            var metaTag = (MetaTag<T, ?, ?>) schema[i].getTag();
+            setValue(statement, firstIndex + i, metaTag.getFromAggregate(aggregate));
+        }
+    }
+
+    static void setValue(PreparedStatement statement, int index, Object value) throws SQLException
+    {
+        switch (value)
+        {
+            case null -> statement.setNull(index, Types.NULL);
+            case Boolean booleanValue -> statement.setInt(index, booleanValue ? 1 : 0);
+            case Instant instant -> statement.setTimestamp(index, Timestamp.from(instant));
+            default -> statement.setObject(index, value);
+        }
+    }
+
+    /**
+     * Reads the next object from the result set only when the stream requests it
+     */
+    private final class ResultSetSpliterator extends Spliterators.AbstractSpliterator<T>
+    {
+        private final ResultSet resultSet;
+
+        ResultSetSpliterator(ResultSet resultSet)
+        {
+            super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+            this.resultSet = resultSet;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action)
+        {
+            try
+            {
+                if (!resultSet.next())
+                {
+                    return false;
+                }
+                action.accept(getJSONConverter().fromJson(resultSet.getString(1), aggregateClazz));
+                return true;
+            }
+            catch (SQLException e)
+            {
+                throw new IllegalStateException("Could not read from table " + tableName, e);
+            }
+        }
+    }
+
+    private record Condition(String sql, List<Object> parameters)
+    {
+    }
+
+    @FunctionalInterface
+    private interface ResultSetReader<R>
+    {
+        R read(ResultSet resultSet) throws SQLException;
+    }
+
+    @FunctionalInterface
+    private interface StatementBinder<E>
+    {
+        void bind(PreparedStatement statement, E element) throws SQLException;
+    }
+}
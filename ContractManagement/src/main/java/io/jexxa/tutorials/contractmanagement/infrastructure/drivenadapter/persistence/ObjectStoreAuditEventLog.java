@@ -0,0 +1,165 @@
+package io.jexxa.tutorials.contractmanagement.infrastructure.drivenadapter.persistence;
+
+import io.jexxa.common.drivenadapter.persistence.objectstore.IObjectStore;
+import io.jexxa.tutorials.contractmanagement.domain.contract.ContractNumber;
+import io.jexxa.tutorials.contractmanagement.domain.contract.ContractSigned;
+import io.jexxa.tutorials.contractmanagement.infrastructure.drivenadapter.persistence.DomainEventStoreImpl.DomainEventSchema;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.stream.Stream;
+
+import static io.jexxa.common.drivenadapter.persistence.ObjectStoreFactory.createObjectStore;
+
+/**
+ * Stores the domain events in an {@code IObjectStore}, using the strategy configured for Jexxa. If property
+ * {@value ReplicaRouter#REPLICA_URL} is set, queries are answered by the replica as far as the staleness policy of
+ * {@link ReplicaRouter} allows it.
+ * <p>
+ * With a JDBC strategy, all reads and writes use {@link JDBCObjectStoreTable}, so that they take their connections from
+ * {@link JDBCConnections}.
+ */
+final class ObjectStoreAuditEventLog implements AuditEventLog
+{
+    private final IObjectStore<ContractSigned, ContractNumber, DomainEventSchema> objectStore;
+    private final JDBCObjectStoreTable<ContractSigned, ContractNumber, DomainEventSchema> jdbcTable;
+    private final ReplicaRouter replicaRouter;
+    private final JDBCObjectStoreTable<ContractSigned, ContractNumber, DomainEventSchema> replicaTable;
+
+    ObjectStoreAuditEventLog(Properties properties)
+    {
+        this.objectStore = createObjectStore(ContractSigned.class, ContractSigned::contractNumber, DomainEventSchema.class, properties);
+        this.jdbcTable = JDBCConnections.isJDBC(properties)
+                ? new JDBCObjectStoreTable<>(ContractSigned.class, ContractSigned::contractNumber, DomainEventSchema.class, properties)
+                : null;
+
+        if (ReplicaRouter.isEnabled(properties))
+        {
+            this.replicaRouter = ReplicaRouter.of(properties);
+            this.replicaTable = new JDBCObjectStoreTable<>(ContractSigned.class, ContractSigned::contractNumber, DomainEventSchema.class,
+                    replicaRouter.getReplicaProperties());
+        }
+        else
+        {
+            this.replicaRouter = null;
+            this.replicaTable = null;
+        }
+    }
+
+    @Override
+    public void add(ContractSigned domainEvent)
+    {
+        addAll(List.of(domainEvent));
+    }
+
+    @Override
+    public void addAll(List<ContractSigned> domainEvents)
+    {
+        if (jdbcTable != null)
+        {
+            jdbcTable.addAll(domainEvents);
+        }
+        else
+        {
+            domainEvents.forEach(objectStore::add);
+        }
+        recordWrite();
+    }
+
+    /**
+     * Adds all given domain events that are not stored yet, so that the same domain events can be added again, e.g.,
+     * when a journal is replayed
+     */
+    @Override
+    public void addAllIfAbsent(List<ContractSigned> domainEvents)
+    {
+        if (jdbcTable != null)
+        {
+            jdbcTable.addAllIfAbsent(domainEvents);
+        }
+        else
+        {
+            domainEvents.stream()
+                    .filter(domainEvent -> objectStore.get(domainEvent.contractNumber()).isEmpty())
+                    .forEach(objectStore::add);
+        }
+        recordWrite();
+    }
+
+    /**
+     * Removes given domain events within a single transaction
+     */
+    void removeAll(List<ContractSigned> domainEvents)
+    {
+        var contractNumbers = domainEvents.stream().map(ContractSigned::contractNumber).toList();
+        if (jdbcTable != null)
+        {
+            jdbcTable.removeAll(contractNumbers);
+        }
+        else
+        {
+            contractNumbers.forEach(objectStore::remove);
+        }
+        recordWrite();
+    }
+
+    @Override
+    public List<ContractSigned> get(Instant startTime, Instant endTime)
+    {
+        if (jdbcTable != null)
+        {
+            try (var domainEvents = queryTable().streamRangeClosed(DomainEventSchema.SIGNATURE_DATE, startTime, endTime))
+            {
+                return domainEvents.toList();
+            }
+        }
+        return objectStore
+                .getNumericQuery(DomainEventSchema.SIGNATURE_DATE, Instant.class)
+                .getRangeClosed(startTime, endTime);
+    }
+
+    @Override
+    public List<ContractSigned> get()
+    {
+        if (jdbcTable != null)
+        {
+            return queryTable().getEqualTo(Map.of());
+        }
+        return objectStore.get();
+    }
+
+    @Override
+    public Stream<ContractSigned> stream(Instant startTime, Instant endTime)
+    {
+        if (jdbcTable != null)
+        {
+            return queryTable().streamRangeClosed(DomainEventSchema.SIGNATURE_DATE, startTime, endTime);
+        }
+        return get(startTime, endTime).stream();
+    }
+
+    @Override
+    public Stream<ContractSigned> stream()
+    {
+        if (jdbcTable != null)
+        {
+            return queryTable().stream();
+        }
+        return get().stream();
+    }
+
+    private void recordWrite()
+    {
+        if (replicaRouter != null)
+        {
+            replicaRouter.recordWrite();
+        }
+    }
+
+    private JDBCObjectStoreTable<ContractSigned, ContractNumber, DomainEventSchema> queryTable()
+    {
+        return replicaRouter != null && replicaRouter.useReplica() ? replicaTable : jdbcTable;
+    }
+}
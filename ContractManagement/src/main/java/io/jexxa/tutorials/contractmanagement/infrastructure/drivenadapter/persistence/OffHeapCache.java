@@ -0,0 +1,268 @@
+package io.jexxa.tutorials.contractmanagement.infrastructure.drivenadapter.persistence;
+
+import io.jexxa.tutorials.contractmanagement.domain.monitoring.CacheMetric;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cache of serialized values with {@code int} keys that are stored outside the Java heap, so that neither keys nor
+ * values cause garbage collection work.
+ * <p>
+ * <b>Layout:</b> Values are stored in a direct buffer of {@code capacity} fixed-size slots. Each slot consists of a
+ * header {@code [int key][short length][byte flags]} and up to {@code maxValueSize} bytes of the value. Values larger
+ * than that are not cached. A second direct buffer is an open-addressing hash table with linear probing that maps a
+ * key to its slot. It has at least twice as many entries as slots, so that probe sequences stay short. Removed
+ * entries are deleted by shifting subsequent entries of the probe sequence backward, so that no tombstones are needed.
+ * <p>
+ * <b>Eviction:</b> If all slots are used, a slot is freed with the clock algorithm: A hand moves over the slots and
+ * evicts the first slot whose referenced flag is not set. The flag is set by each read and cleared as the hand passes.
+ * <p>
+ * <b>Invalidation:</b> A value that is loaded while the same key is written may be outdated. Therefore, a caller
+ * takes a {@link #stamp()} before loading a value and passes it to {@link #put(int, byte[], long)}. The value is only
+ * cached if no key was invalidated since then.
+ * <p>
+ * All methods are synchronized.
+ */
+final class OffHeapCache
+{
+    private static final int HEADER_SIZE = Integer.BYTES + Short.BYTES + 1;
+    private static final int FLAGS_OFFSET = Integer.BYTES + Short.BYTES;
+    private static final byte USED = 1;
+    private static final byte REFERENCED = 2;
+    private static final int EMPTY = 0;
+
+    private final String name;
+    private final int capacity;
+    private final int maxValueSize;
+    private final int slotSize;
+    private final ByteBuffer slots;
+    private final ByteBuffer table;
+    private final int tableMask;
+
+    private int size;
+    private int nextUnusedSlot;
+    private int clockHand;
+    private long invalidations;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder rejectedValues = new LongAdder();
+
+    OffHeapCache(String name, int capacity, int maxValueSize)
+    {
+        if (capacity <= 0 || maxValueSize <= 0 || maxValueSize > Short.MAX_VALUE)
+        {
+            throw new IllegalArgumentException("Invalid size of cache " + name + ": " + capacity + " values of " + maxValueSize + " bytes");
+        }
+
+        this.name = name;
+        this.capacity = capacity;
+        this.maxValueSize = maxValueSize;
+        this.slotSize = HEADER_SIZE + maxValueSize;
+        this.slots = ByteBuffer.allocateDirect(Math.multiplyExact(capacity, slotSize));
+
+        var tableSize = Integer.highestOneBit(Math.max(2, capacity) * 2 - 1) << 1;
+        this.table = ByteBuffer.allocateDirect(Math.multiplyExact(tableSize, Integer.BYTES));
+        this.tableMask = tableSize - 1;
+    }
+
+    /**
+     * @return the cached value of given key or {@code null} if it is not cached
+     */
+    synchronized byte[] get(int key)
+    {
+        var position = find(key);
+        if (position < 0)
+        {
+            misses.increment();
+            return null;
+        }
+
+        var slot = slotAt(position);
+        var offset = slot * slotSize;
+        slots.put(offset + FLAGS_OFFSET, (byte) (USED | REFERENCED));
+        var value = new byte[slots.getShort(offset + Integer.BYTES)];
+        slots.get(offset + HEADER_SIZE, value);
+        hits.increment();
+        return value;
+    }
+
+    /**
+     * @return a stamp that must be passed to {@link #put(int, byte[], long)} for a value loaded afterward
+     */
+    synchronized long stamp()
+    {
+        return invalidations;
+    }
+
+    /**
+     * Caches given value unless a key was invalidated since given stamp was taken or the value is too large
+     */
+    synchronized void put(int key, byte[] value, long stamp)
+    {
+        if (stamp != invalidations)
+        {
+            return;
+        }
+        if (value.length > maxValueSize)
+        {
+            rejectedValues.increment();
+            return;
+        }
+
+        var position = find(key);
+        int slot;
+        if (position >= 0)
+        {
+            slot = slotAt(position);
+        }
+        else
+        {
+            slot = allocateSlot();
+            insert(key, slot);
+            ++size;
+        }
+
+        var offset = slot * slotSize;
+        slots.putInt(offset, key);
+        slots.putShort(offset + Integer.BYTES, (short) value.length);
+        slots.put(offset + FLAGS_OFFSET, USED);
+        slots.put(offset + HEADER_SIZE, value);
+    }
+
+    synchronized void invalidate(int key)
+    {
+        ++invalidations;
+        var position = find(key);
+        if (position >= 0)
+        {
+            var slot = slotAt(position);
+            slots.put(slot * slotSize + FLAGS_OFFSET, (byte) 0);
+            delete(position);
+            --size;
+        }
+    }
+
+    synchronized CacheMetric getMetric()
+    {
+        var hitCount = hits.sum();
+        var requests = hitCount + misses.sum();
+        return new CacheMetric(
+                name,
+                size,
+                capacity,
+                hitCount,
+                misses.sum(),
+                requests == 0 ? 0 : (double) hitCount / requests,
+                evictions.sum(),
+                rejectedValues.sum(),
+                (long) slots.capacity() + table.capacity());
+    }
+
+    /**
+     * @return a free slot. If all slots are used, the slot chosen by the clock algorithm is evicted
+     */
+    private int allocateSlot()
+    {
+        if (nextUnusedSlot < capacity)
+        {
+            return nextUnusedSlot++;
+        }
+
+        while (true)
+        {
+            var slot = clockHand;
+            clockHand = (clockHand + 1) % capacity;
+
+            var flagsOffset = slot * slotSize + FLAGS_OFFSET;
+            var flags = slots.get(flagsOffset);
+            if ((flags & USED) == 0)
+            {
+                return slot; // Freed by invalidate
+            }
+            if ((flags & REFERENCED) != 0)
+            {
+                slots.put(flagsOffset, USED); // Second chance
+                continue;
+            }
+
+            delete(find(slots.getInt(slot * slotSize)));
+            --size;
+            evictions.increment();
+            return slot;
+        }
+    }
+
+    /**
+     * @return the position of given key in the hash table or -1 if it is not cached
+     */
+    private int find(int key)
+    {
+        for (var position = hash(key) & tableMask; ; position = (position + 1) & tableMask)
+        {
+            var entry = table.getInt(position * Integer.BYTES);
+            if (entry == EMPTY)
+            {
+                return -1;
+            }
+            if (slots.getInt((entry - 1) * slotSize) == key)
+            {
+                return position;
+            }
+        }
+    }
+
+    private void insert(int key, int slot)
+    {
+        var position = hash(key) & tableMask;
+        while (table.getInt(position * Integer.BYTES) != EMPTY)
+        {
+            position = (position + 1) & tableMask;
+        }
+        table.putInt(position * Integer.BYTES, slot + 1);
+    }
+
+    /**
+     * Removes the entry at given position and moves subsequent entries of its probe sequence backward
+     */
+    private void delete(int position)
+    {
+        var hole = position;
+        for (var next = (hole + 1) & tableMask; ; next = (next + 1) & tableMask)
+        {
+            var entry = table.getInt(next * Integer.BYTES);
+            if (entry == EMPTY)
+            {
+                break;
+            }
+
+            // An entry may fill the hole if its home position is not within (hole, next]
+            var home = hash(slots.getInt((entry - 1) * slotSize)) & tableMask;
+            if (((next - home) & tableMask) >= ((next - hole) & tableMask))
+            {
+                table.putInt(hole * Integer.BYTES, entry);
+                hole = next;
+            }
+        }
+        table.putInt(hole * Integer.BYTES, EMPTY);
+    }
+
+    private int slotAt(int position)
+    {
+        return table.getInt(position * Integer.BYTES) - 1;
+    }
+
+    private static int hash(int key)
+    {
+        // Finalizer of MurmurHash3, so that consecutive contract numbers are spread over the table
+        var hash = key;
+        hash ^= hash >>> 16;
+        hash *= 0x85EBCA6B;
+        hash ^= hash >>> 13;
+        hash *= 0xC2B2AE35;
+        hash ^= hash >>> 16;
+        return hash;
+    }
+}
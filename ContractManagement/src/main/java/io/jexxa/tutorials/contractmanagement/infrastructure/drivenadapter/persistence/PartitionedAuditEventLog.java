@@ -0,0 +1,401 @@
+package io.jexxa.tutorials.contractmanagement.infrastructure.drivenadapter.persistence;
+
+import io.jexxa.common.facade.logger.SLF4jLogger;
+import io.jexxa.tutorials.contractmanagement.domain.contract.ContractNumber;
+import io.jexxa.tutorials.contractmanagement.domain.contract.ContractSigned;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Stores the domain events in a Postgres table that is partitioned by month of the signature date.
+ * <p>
+ * <b>Partitions:</b> Table {@value #TABLE_NAME} is declared with {@code PARTITION BY RANGE (SIGNATURE_DATE)}. The
+ * partition of a month is created before the first domain event of this month is stored. Since each partition only
+ * contains a single month, Postgres skips all partitions outside the requested range of a query (partition pruning).
+ * <p>
+ * <b>Retention:</b> If {@value #RETENTION_MONTHS} is set, partitions older than this number of months are detached
+ * once a day. Detaching only changes the catalog, so that no rows are deleted or moved. The detached tables keep their
+ * name and can be archived or dropped afterward. Domain events signed in the month of a detached partition are rejected,
+ * because {@code CREATE TABLE IF NOT EXISTS} would silently keep the detached table outside of {@value #TABLE_NAME}.
+ * <p>
+ * Each instance of the application caches the partitions it created or checked. If another instance detaches one of
+ * them, an insert fails because no partition contains its rows. In this case, the partitions of the inserted domain
+ * events are checked in {@code pg_inherits} again and the insert is retried once. Each run of the retention also
+ * drops all partitions from the cache that are no longer attached.
+ * <p>
+ * The domain events are stored in columns instead of JSON. Signature dates are stored with microsecond precision.
+ */
+final class PartitionedAuditEventLog implements AuditEventLog
+{
+    static final String RETENTION_MONTHS = "contractmanagement.eventstore.partition.retention.months";
+
+    private static final String TABLE_NAME = "ContractSignedPartitioned";
+    private static final String DUPLICATE_TABLE = "42P07";
+    private static final String UNIQUE_VIOLATION = "23505";
+    private static final String NO_PARTITION_FOR_ROW = "23514";
+    private static final Map<String, PartitionedAuditEventLog> OPEN_LOGS = new ConcurrentHashMap<>();
+
+    private final Properties properties;
+    private final int fetchSize;
+    private final Set<YearMonth> createdPartitions = ConcurrentHashMap.newKeySet();
+
+    static PartitionedAuditEventLog open(Properties properties)
+    {
+        if (!JDBCConnections.isJDBC(properties))
+        {
+            throw new IllegalArgumentException("Partitioned event store requires a JDBC connection");
+        }
+        return OPEN_LOGS.computeIfAbsent(properties.getProperty(JDBCConnections.JDBC_URL), element -> new PartitionedAuditEventLog(properties));
+    }
+
+    private PartitionedAuditEventLog(Properties properties)
+    {
+        this.properties = properties;
+        this.fetchSize = Integer.parseInt(properties.getProperty(JDBCObjectStoreTable.FETCH_SIZE, "1000"));
+        createTable();
+
+        var retentionMonths = Integer.parseInt(properties.getProperty(RETENTION_MONTHS, "0"));
+        if (retentionMonths > 0)
+        {
+            var executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                var thread = new Thread(runnable, "PartitionedAuditEventLog-retention");
+                thread.setDaemon(true);
+                return thread;
+            });
+            executor.scheduleWithFixedDelay(() -> detachPartitions(retentionMonths), 0, 1, TimeUnit.DAYS);
+        }
+    }
+
+    @Override
+    public void add(ContractSigned domainEvent)
+    {
+        addAll(List.of(domainEvent));
+    }
+
+    @Override
+    public void addAll(List<ContractSigned> domainEvents)
+    {
+        insert(domainEvents, "");
+    }
+
+    /**
+     * Skips domain events whose contract number and signature date are already stored
+     */
+    @Override
+    public void addAllIfAbsent(List<ContractSigned> domainEvents)
+    {
+        insert(domainEvents, " ON CONFLICT (CONTRACT_NUMBER, SIGNATURE_DATE) DO NOTHING");
+    }
+
+    private void insert(List<ContractSigned> domainEvents, String conflictClause)
+    {
+        if (domainEvents.isEmpty())
+        {
+            return;
+        }
+
+        var months = domainEvents.stream()
+                .map(domainEvent -> YearMonth.from(domainEvent.signatureDate().atZone(ZoneOffset.UTC)))
+                .distinct()
+                .toList();
+        months.stream()
+                .filter(yearMonth -> !createdPartitions.contains(yearMonth))
+                .forEach(this::createPartition);
+
+        try
+        {
+            insertBatch(domainEvents, conflictClause);
+        }
+        catch (SQLException e)
+        {
+            if (!NO_PARTITION_FOR_ROW.equals(e.getSQLState()))
+            {
+                throw new IllegalStateException("Could not insert into " + TABLE_NAME, e);
+            }
+
+            // Another instance of the application detached a cached partition, so that pg_inherits is checked again
+            months.forEach(createdPartitions::remove);
+            months.forEach(this::createPartition);
+            try
+            {
+                insertBatch(domainEvents, conflictClause);
+            }
+            catch (SQLException retryException)
+            {
+                throw new IllegalStateException("Could not insert into " + TABLE_NAME, retryException);
+            }
+        }
+    }
+
+    private void insertBatch(List<ContractSigned> domainEvents, String conflictClause) throws SQLException
+    {
+        try (var connection = JDBCConnections.getConnection(properties, TABLE_NAME))
+        {
+            connection.setAutoCommit(false);
+            try (var statement = connection.prepareStatement("INSERT INTO " + TABLE_NAME + " (CONTRACT_NUMBER, SIGNATURE_DATE, ADVISOR) VALUES (?, ?, ?)" + conflictClause))
+            {
+                for (var domainEvent : domainEvents)
+                {
+                    statement.setInt(1, domainEvent.contractNumber().value());
+                    statement.setTimestamp(2, Timestamp.from(domainEvent.signatureDate()));
+                    statement.setString(3, domainEvent.advisor());
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+                connection.commit();
+            }
+            catch (SQLException | RuntimeException e)
+            {
+                connection.rollback();
+                throw e;
+            }
+        }
+    }
+
+    @Override
+    public List<ContractSigned> get(Instant startTime, Instant endTime)
+    {
+        try (var domainEvents = stream(startTime, endTime))
+        {
+            return domainEvents.toList();
+        }
+    }
+
+    @Override
+    public List<ContractSigned> get()
+    {
+        try (var domainEvents = stream())
+        {
+            return domainEvents.toList();
+        }
+    }
+
+    @Override
+    public Stream<ContractSigned> stream(Instant startTime, Instant endTime)
+    {
+        return query(" WHERE SIGNATURE_DATE BETWEEN ? AND ?", Timestamp.from(startTime), Timestamp.from(endTime));
+    }
+
+    @Override
+    public Stream<ContractSigned> stream()
+    {
+        return query("");
+    }
+
+    /**
+     * Detaches all partitions of months before the given number of months. Partitions detached by other instances of
+     * the application are dropped from the cache of created partitions as well.
+     */
+    void detachPartitions(int retentionMonths)
+    {
+        var oldestRetainedMonth = YearMonth.now(ZoneOffset.UTC).minusMonths(retentionMonths);
+
+        try (var connection = JDBCConnections.getConnection(properties, TABLE_NAME);
+             var statement = connection.createStatement())
+        {
+            var partitions = new ArrayList<String>();
+            try (var resultSet = statement.executeQuery("SELECT child.relname FROM pg_inherits"
+                    + " JOIN pg_class parent ON parent.oid = pg_inherits.inhparent"
+                    + " JOIN pg_class child ON child.oid = pg_inherits.inhrelid"
+                    + " WHERE parent.relname = '" + TABLE_NAME.toLowerCase() + "' AND NOT pg_inherits.inhdetachpending"))
+            {
+                while (resultSet.next())
+                {
+                    partitions.add(resultSet.getString(1));
+                }
+            }
+
+            var attachedPartitions = new HashSet<YearMonth>();
+            for (var partition : partitions)
+            {
+                var yearMonth = yearMonthOf(partition);
+                if (yearMonth.isBefore(oldestRetainedMonth))
+                {
+                    // CONCURRENTLY avoids blocking queries on the partitioned table while the partition is detached
+                    statement.execute("ALTER TABLE " + TABLE_NAME + " DETACH PARTITION " + partition + " CONCURRENTLY");
+                    SLF4jLogger.getLogger(PartitionedAuditEventLog.class).info("Detached partition {} from {}", partition, TABLE_NAME);
+                }
+                else
+                {
+                    attachedPartitions.add(yearMonth);
+                }
+            }
+            // A partition created after the query above is checked again on its next insert
+            createdPartitions.retainAll(attachedPartitions);
+        }
+        catch (SQLException | RuntimeException e)
+        {
+            SLF4jLogger.getLogger(PartitionedAuditEventLog.class).error("Could not detach partitions of {}: {}", TABLE_NAME, e.getMessage());
+        }
+    }
+
+    private Stream<ContractSigned> query(String condition, Object... parameters)
+    {
+        var connection = JDBCConnections.getConnection(properties, TABLE_NAME);
+        try
+        {
+            // PostgreSQL only uses a cursor if auto commit is disabled
+            connection.setAutoCommit(false);
+            var statement = connection.prepareStatement("SELECT CONTRACT_NUMBER, SIGNATURE_DATE, ADVISOR FROM " + TABLE_NAME + condition);
+            statement.setFetchSize(fetchSize);
+            for (var i = 0; i < parameters.length; ++i)
+            {
+                statement.setObject(i + 1, parameters[i]);
+            }
+            var resultSet = statement.executeQuery();
+
+            return StreamSupport
+                    .stream(new Spliterators.AbstractSpliterator<ContractSigned>(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL)
+                    {
+                        @Override
+                        public boolean tryAdvance(Consumer<? super ContractSigned> action)
+                        {
+                            return read(resultSet, action);
+                        }
+                    }, false)
+                    .onClose(() -> close(connection));
+        }
+        catch (SQLException | RuntimeException e)
+        {
+            close(connection);
+            throw new IllegalStateException("Could not query " + TABLE_NAME, e);
+        }
+    }
+
+    private static boolean read(ResultSet resultSet, Consumer<? super ContractSigned> action)
+    {
+        try
+        {
+            if (!resultSet.next())
+            {
+                return false;
+            }
+            action.accept(new ContractSigned(
+                    new ContractNumber(resultSet.getInt(1)),
+                    resultSet.getTimestamp(2).toInstant(),
+                    resultSet.getString(3)));
+            return true;
+        }
+        catch (SQLException e)
+        {
+            throw new IllegalStateException("Could not read from " + TABLE_NAME, e);
+        }
+    }
+
+    private void createTable()
+    {
+        try (var connection = JDBCConnections.getConnection(properties, TABLE_NAME);
+             var statement = connection.createStatement())
+        {
+            // The primary key of a partitioned table must include the partition key
+            statement.execute("CREATE TABLE IF NOT EXISTS " + TABLE_NAME + " ("
+                    + "CONTRACT_NUMBER INTEGER NOT NULL, "
+                    + "SIGNATURE_DATE TIMESTAMPTZ NOT NULL, "
+                    + "ADVISOR TEXT, "
+                    + "PRIMARY KEY (CONTRACT_NUMBER, SIGNATURE_DATE)) "
+                    + "PARTITION BY RANGE (SIGNATURE_DATE)");
+        }
+        catch (SQLException e)
+        {
+            throw new IllegalStateException("Could not create table " + TABLE_NAME, e);
+        }
+    }
+
+    private void createPartition(YearMonth yearMonth)
+    {
+        var start = yearMonth.atDay(1).atStartOfDay().toInstant(ZoneOffset.UTC);
+        var end = yearMonth.plusMonths(1).atDay(1).atStartOfDay().toInstant(ZoneOffset.UTC);
+
+        try (var connection = JDBCConnections.getConnection(properties, TABLE_NAME);
+             var statement = connection.createStatement())
+        {
+            statement.execute("CREATE TABLE IF NOT EXISTS " + partitionName(yearMonth)
+                    + " PARTITION OF " + TABLE_NAME
+                    + " FOR VALUES FROM ('" + start + "') TO ('" + end + "')");
+        }
+        catch (SQLException e)
+        {
+            // Another instance of the application might have created the partition concurrently. Depending on timing,
+            // this fails on the table itself or with a unique violation on the row type of the table in pg_type.
+            if (!DUPLICATE_TABLE.equals(e.getSQLState()) && !UNIQUE_VIOLATION.equals(e.getSQLState()))
+            {
+                throw new IllegalStateException("Could not create partition " + partitionName(yearMonth), e);
+            }
+        }
+
+        if (!isAttached(partitionName(yearMonth)))
+        {
+            throw new IllegalStateException("Partition " + partitionName(yearMonth) + " is detached from " + TABLE_NAME
+                    + ", so that domain events signed in " + yearMonth + " cannot be stored. Attach or drop the partition to store them.");
+        }
+        createdPartitions.add(yearMonth);
+    }
+
+    /**
+     * @return true if the table of given name is a partition of {@value #TABLE_NAME} that is not being detached
+     */
+    private boolean isAttached(String partition)
+    {
+        try (var connection = JDBCConnections.getConnection(properties, TABLE_NAME);
+             var statement = connection.prepareStatement("SELECT NOT pg_inherits.inhdetachpending FROM pg_inherits"
+                     + " JOIN pg_class parent ON parent.oid = pg_inherits.inhparent"
+                     + " JOIN pg_class child ON child.oid = pg_inherits.inhrelid"
+                     + " WHERE parent.relname = ? AND child.relname = ?"))
+        {
+            statement.setString(1, TABLE_NAME.toLowerCase());
+            statement.setString(2, partition.toLowerCase());
+            try (var resultSet = statement.executeQuery())
+            {
+                return resultSet.next() && resultSet.getBoolean(1);
+            }
+        }
+        catch (SQLException e)
+        {
+            throw new IllegalStateException("Could not query partitions of " + TABLE_NAME, e);
+        }
+    }
+
+    private static String partitionName(YearMonth yearMonth)
+    {
+        return String.format("%s_%04d%02d", TABLE_NAME, yearMonth.getYear(), yearMonth.getMonthValue());
+    }
+
+    private static YearMonth yearMonthOf(String partitionName)
+    {
+        var suffix = partitionName.substring(partitionName.lastIndexOf('_') + 1);
+        return YearMonth.of(Integer.parseInt(suffix.substring(0, 4)), Integer.parseInt(suffix.substring(4, 6)));
+    }
+
+    private static void close(Connection connection)
+    {
+        try
+        {
+            connection.rollback(); // Only reads were executed, so rollback just ends the transaction of the cursor
+            connection.close();
+        }
+        catch (SQLException e)
+        {
+            throw new IllegalStateException("Could not close connection", e);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package io.jexxa.tutorials.contractmanagement.infrastructure.drivenadapter.persistence;
+
+import io.jexxa.tutorials.contractmanagement.domain.monitoring.CacheMetric;
+import io.jexxa.tutorials.contractmanagement.domain.monitoring.ConnectionPoolMetric;
+import io.jexxa.tutorials.contractmanagement.domain.monitoring.WriteBehindMetric;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects metrics of the driven adapters in this package. Since Jexxa creates the driven adapters, this class is
+ * provided as singleton so that all instances report to the same place. The metrics are read by
+ * {@link PersistenceMonitorImpl}.
+ */
+final class PersistenceMetrics
+{
+    private static final PersistenceMetrics PERSISTENCE_METRICS = new PersistenceMetrics();
+
+    private final LongAdder journaledEvents = new LongAdder();
+    private final LongAdder journalAppends = new LongAdder();
+    private final LongAdder journalAppendNanos = new LongAdder();
+    private final AtomicLong maxJournalAppendNanos = new AtomicLong();
+
+    private final AtomicLong pendingEvents = new AtomicLong();
+    private final LongAdder flushedEvents = new LongAdder();
+    private final LongAdder flushedBatches = new LongAdder();
+    private final AtomicLong maxBatchSize = new AtomicLong();
+    private final LongAdder flushNanos = new LongAdder();
+    private final AtomicLong maxFlushNanos = new AtomicLong();
+    private final LongAdder failedFlushes = new LongAdder();
+
+    private final Map<String, JDBCConnectionPool> connectionPools = new ConcurrentSkipListMap<>();
+    private final Map<String, OffHeapCache> caches = new ConcurrentSkipListMap<>();
+
+    static PersistenceMetrics instance()
+    {
+        return PERSISTENCE_METRICS;
+    }
+
+    WriteBehindMetric getWriteBehindMetrics()
+    {
+        var appends = journalAppends.sum();
+        var batches = flushedBatches.sum();
+        var flushed = flushedEvents.sum();
+
+        return new WriteBehindMetric(
+                pendingEvents.get(),
+                journaledEvents.sum(),
+                flushed,
+                batches,
+                batches == 0 ? 0 : (double) flushed / batches,
+                maxBatchSize.get(),
+                appends == 0 ? 0 : toMillis(journalAppendNanos.sum()) / appends,
+                toMillis(maxJournalAppendNanos.get()),
+                batches == 0 ? 0 : toMillis(flushNanos.sum()) / batches,
+                toMillis(maxFlushNanos.get()),
+                failedFlushes.sum());
+    }
+
+    List<ConnectionPoolMetric> getConnectionPoolMetrics()
+    {
+        return connectionPools.values().stream()
+                .map(JDBCConnectionPool::getMetric)
+                .toList();
+    }
+
+    List<CacheMetric> getCacheMetrics()
+    {
+        return caches.values().stream()
+                .map(OffHeapCache::getMetric)
+                .toList();
+    }
+
+    void registerConnectionPool(String name, JDBCConnectionPool connectionPool)
+    {
+        connectionPools.put(name, connectionPool);
+    }
+
+    void registerCache(String name, OffHeapCache cache)
+    {
+        caches.put(name, cache);
+    }
+
+    void recordRecoveredEvents(long events)
+    {
+        pendingEvents.addAndGet(events);
+    }
+
+    void recordJournalAppend(int events, long nanos)
+    {
+        journaledEvents.add(events);
+        journalAppends.increment();
+        journalAppendNanos.add(nanos);
+        maxJournalAppendNanos.accumulateAndGet(nanos, Math::max);
+        pendingEvents.addAndGet(events);
+    }
+
+    void recordFlush(int batchSize, long nanos)
+    {
+        flushedEvents.add(batchSize);
+        flushedBatches.increment();
+        maxBatchSize.accumulateAndGet(batchSize, Math::max);
+        flushNanos.add(nanos);
+        maxFlushNanos.accumulateAndGet(nanos, Math::max);
+        pendingEvents.addAndGet(-batchSize);
+    }
+
+    void recordFailedFlush()
+    {
+        failedFlushes.increment();
+    }
+
+    private static double toMillis(long nanos)
+    {
+        return (double) nanos / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    private PersistenceMetrics()
+    {
+        //Private constructor
+    }
+}
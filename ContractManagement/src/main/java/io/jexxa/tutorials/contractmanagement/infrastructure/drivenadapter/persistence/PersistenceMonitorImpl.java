@@ -0,0 +1,35 @@
+package io.jexxa.tutorials.contractmanagement.infrastructure.drivenadapter.persistence;
+
+import io.jexxa.addend.infrastructure.DrivenAdapter;
+import io.jexxa.tutorials.contractmanagement.domain.monitoring.CacheMetric;
+import io.jexxa.tutorials.contractmanagement.domain.monitoring.ConnectionPoolMetric;
+import io.jexxa.tutorials.contractmanagement.domain.monitoring.WriteBehindMetric;
+import io.jexxa.tutorials.contractmanagement.domainservice.PersistenceMonitor;
+
+import java.util.List;
+
+/**
+ * Reads the metrics that the driven adapters of this package report to {@link PersistenceMetrics}
+ */
+@SuppressWarnings("unused")
+@DrivenAdapter
+public class PersistenceMonitorImpl implements PersistenceMonitor
+{
+    @Override
+    public WriteBehindMetric getWriteBehindMetrics()
+    {
+        return PersistenceMetrics.instance().getWriteBehindMetrics();
+    }
+
+    @Override
+    public List<ConnectionPoolMetric> getConnectionPoolMetrics()
+    {
+        return PersistenceMetrics.instance().getConnectionPoolMetrics();
+    }
+
+    @Override
+    public List<CacheMetric> getCacheMetrics()
+    {
+        return PersistenceMetrics.instance().getCacheMetrics();
+    }
+}
@@ -0,0 +1,198 @@
+package io.jexxa.tutorials.contractmanagement.infrastructure.drivenadapter.persistence;
+
+import io.jexxa.common.facade.logger.SLF4jLogger;
+
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Decides whether a query may be answered by the read-only replica configured via {@value #REPLICA_URL}.
+ * <p>
+ * <b>Staleness policy:</b> A query is routed to the primary database if
+ * <ul>
+ *     <li>this instance of the application wrote to the primary within the last {@value #READ_AFTER_WRITE} ms, so
+ *     that a client reads its own writes, or</li>
+ *     <li>the replication lag of the replica exceeds {@value #MAX_LAG} ms or the replica is not reachable.</li>
+ * </ul>
+ * The replication lag is measured once per second. A replica that does not stream from the primary, e.g., because the
+ * connection to the primary was lost, counts as not reachable, since it would report no lag while falling behind.
+ * Writes of other instances of the application are only covered by the maximum lag.
+ * <p>
+ * All driven adapters of the same primary database share one instance of this class, so that a write via
+ * {@code ContractRepository} also affects queries of the {@code DomainEventStore} and the {@code ContractReadModel}.
+ */
+final class ReplicaRouter
+{
+    static final String REPLICA_URL = "contractmanagement.jdbc.replica.url";
+    static final String READ_AFTER_WRITE = "contractmanagement.jdbc.replica.read.after.write.millis";
+    static final String MAX_LAG = "contractmanagement.jdbc.replica.max.lag.millis";
+
+    private static final String AUTOCREATE_DATABASE = "io.jexxa.jdbc.autocreate.database";
+    private static final String AUTOCREATE_TABLE = "io.jexxa.jdbc.autocreate.table";
+    private static final String POOL_NAME = "ReplicaLag";
+    private static final long WARNING_INTERVAL_NANOS = TimeUnit.MINUTES.toNanos(1);
+    private static final Map<String, ReplicaRouter> ROUTERS = new ConcurrentHashMap<>();
+
+    private final Properties replicaProperties;
+    private final long readAfterWriteNanos;
+    private final long maxLagMillis;
+    private final LongSupplier nanoTime;
+    private final LagProbe lagProbe;
+    private final AtomicLong lastWrite;
+    private volatile long lagMillis = Long.MAX_VALUE; // Queries use the primary until the first measurement
+
+    // Only accessed by the thread measuring the lag
+    private long lastWarning;
+    private long suppressedWarnings;
+
+    /**
+     * @return true if a JDBC strategy is used and a replica is configured
+     */
+    static boolean isEnabled(Properties properties)
+    {
+        return JDBCConnections.isJDBC(properties) && !properties.getProperty(REPLICA_URL, "").isBlank();
+    }
+
+    static ReplicaRouter of(Properties properties)
+    {
+        return ROUTERS.computeIfAbsent(properties.getProperty(JDBCConnections.JDBC_URL),
+                element -> new ReplicaRouter(properties, System::nanoTime, ReplicaRouter::queryLag).startMeasuring());
+    }
+
+    /**
+     * Creates a router that does not measure the lag by itself, so that tests can call {@link #measureLag()}
+     *
+     * @param nanoTime source of {@link System#nanoTime()}
+     * @param lagProbe measures the replication lag using the replica properties
+     */
+    ReplicaRouter(Properties properties, LongSupplier nanoTime, LagProbe lagProbe)
+    {
+        this.replicaProperties = new Properties();
+        replicaProperties.putAll(properties);
+        replicaProperties.setProperty(JDBCConnections.JDBC_URL, properties.getProperty(REPLICA_URL));
+        // Jexxa must not try to create the database or tables on a read-only replica
+        replicaProperties.setProperty(AUTOCREATE_DATABASE, "false");
+        replicaProperties.setProperty(AUTOCREATE_TABLE, "false");
+
+        this.readAfterWriteNanos = TimeUnit.MILLISECONDS.toNanos(Long.parseLong(properties.getProperty(READ_AFTER_WRITE, "1000")));
+        this.maxLagMillis = Long.parseLong(properties.getProperty(MAX_LAG, "5000"));
+        this.nanoTime = nanoTime;
+        this.lagProbe = lagProbe;
+        this.lastWrite = new AtomicLong(nanoTime.getAsLong());
+        this.lastWarning = nanoTime.getAsLong() - WARNING_INTERVAL_NANOS;
+    }
+
+    private ReplicaRouter startMeasuring()
+    {
+        var executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            var thread = new Thread(runnable, "ReplicaRouter-lag");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::measureLag, 0, 1, TimeUnit.SECONDS);
+        return this;
+    }
+
+    /**
+     * @return a copy of the application properties that connects to the replica
+     */
+    Properties getReplicaProperties()
+    {
+        return replicaProperties;
+    }
+
+    void recordWrite()
+    {
+        lastWrite.set(nanoTime.getAsLong());
+    }
+
+    boolean useReplica()
+    {
+        return nanoTime.getAsLong() - lastWrite.get() > readAfterWriteNanos
+                && lagMillis <= maxLagMillis;
+    }
+
+    /**
+     * @return the properties of the replica if the staleness policy allows it, otherwise given properties of the
+     * primary
+     */
+    Properties select(Properties primaryProperties)
+    {
+        return useReplica() ? replicaProperties : primaryProperties;
+    }
+
+    void measureLag()
+    {
+        try
+        {
+            var lag = lagProbe.measure(replicaProperties);
+            if (lag == null)
+            {
+                lagMillis = Long.MAX_VALUE;
+                warn("Replica {} does not stream from the primary", replicaProperties.getProperty(JDBCConnections.JDBC_URL));
+            }
+            else
+            {
+                lagMillis = lag;
+            }
+        }
+        catch (SQLException | RuntimeException e)
+        {
+            lagMillis = Long.MAX_VALUE;
+            warn("Could not measure lag of replica {}: {}", replicaProperties.getProperty(JDBCConnections.JDBC_URL), e.getMessage());
+        }
+    }
+
+    /**
+     * @return the replication lag in ms, or null if the replica does not stream from the primary
+     */
+    private static Long queryLag(Properties replicaProperties) throws SQLException
+    {
+        try (var connection = JDBCConnections.getConnection(replicaProperties, POOL_NAME);
+             var statement = connection.createStatement();
+             // If the replica streams from the primary and replayed everything it received, the age of the last
+             // replayed transaction is no lag. NULL means that the replica does not stream from the primary.
+             var resultSet = statement.executeQuery("SELECT CASE"
+                     + " WHEN NOT pg_is_in_recovery() THEN 0"
+                     + " WHEN NOT EXISTS (SELECT 1 FROM pg_stat_wal_receiver WHERE status = 'streaming') THEN NULL"
+                     + " WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0"
+                     + " ELSE COALESCE(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) * 1000, 0) END"))
+        {
+            resultSet.next(); // The query always returns a single row
+            var lag = resultSet.getLong(1);
+            return resultSet.wasNull() ? null : lag;
+        }
+    }
+
+    /**
+     * Logs at most one warning per minute, so that an unavailable replica does not flood the log every second
+     */
+    private void warn(String message, Object... arguments)
+    {
+        if (nanoTime.getAsLong() - lastWarning < WARNING_INTERVAL_NANOS)
+        {
+            ++suppressedWarnings;
+            return;
+        }
+
+        if (suppressedWarnings > 0)
+        {
+            message += " (" + suppressedWarnings + " similar warnings suppressed)";
+        }
+        SLF4jLogger.getLogger(ReplicaRouter.class).warn(message, arguments);
+        lastWarning = nanoTime.getAsLong();
+        suppressedWarnings = 0;
+    }
+
+    @FunctionalInterface
+    interface LagProbe
+    {
+        Long measure(Properties replicaProperties) throws SQLException;
+    }
+}
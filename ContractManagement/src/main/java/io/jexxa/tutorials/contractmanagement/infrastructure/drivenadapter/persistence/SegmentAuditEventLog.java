@@ -0,0 +1,680 @@
+package io.jexxa.tutorials.contractmanagement.infrastructure.drivenadapter.persistence;
+
+import io.jexxa.common.facade.logger.SLF4jLogger;
+import io.jexxa.tutorials.contractmanagement.domain.contract.ContractNumber;
+import io.jexxa.tutorials.contractmanagement.domain.contract.ContractSigned;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Appends domain events to memory-mapped segment files in the directory given by {@value #DIRECTORY}.
+ * <p>
+ * <b>Format:</b> Each segment file has the fixed size configured by {@value #SEGMENT_SIZE} and contains a sequence of records
+ * {@code [int payload length][int CRC32C of payload][payload]}. The payload consists of
+ * {@code [int contract number][long epoch seconds][int nanos][short length of advisor or -1][advisor as UTF-8]}.
+ * A length of 0 marks the end of the written records. If a segment is full, a new one is created.
+ * <p>
+ * <b>Index:</b> The log keeps a sparse index in memory with one entry for each block of
+ * {@value #RECORDS_PER_INDEX_BLOCK} records, containing the position and the earliest and latest signature date of the
+ * block. A range query only decodes the blocks that overlap the requested range. The index is rebuilt on startup
+ * by scanning all segments sequentially, which also truncates a partially written record at the end of the log. In
+ * addition, a {@link CompressedBitmap} of the contract numbers of all stored domain events rules out most duplicates
+ * without reading the log.
+ * <p>
+ * <b>Group commit:</b> Writers append their records to the mapped buffer and then wait until a background thread has
+ * forced the written range to disk. All records appended in the meantime are made durable with a single fsync.
+ * The interval configured by {@value #GROUP_COMMIT_INTERVAL} lets the background thread wait for further writers before syncing.
+ * <p>
+ * <b>Failures:</b> If an fsync fails, the writers waiting for it fail, but their records remain in the log. The
+ * background thread retries with an exponential back-off of up to {@value #MAX_RETRY_DELAY_MILLIS} ms. Once a retry
+ * succeeds, later writers succeed again.
+ * <p>
+ * Only one instance of this class exists per directory, so that a single writer owns the segment files. The directory
+ * must not be shared between several instances of the application.
+ */
+final class SegmentAuditEventLog implements AuditEventLog
+{
+    static final String DIRECTORY = "contractmanagement.eventstore.directory";
+    static final String SEGMENT_SIZE = "contractmanagement.eventstore.segment.size.bytes";
+    static final String GROUP_COMMIT_INTERVAL = "contractmanagement.eventstore.group.commit.micros";
+
+    private static final int RECORDS_PER_INDEX_BLOCK = 128;
+    private static final long MIN_RETRY_DELAY_MILLIS = 10;
+    private static final long MAX_RETRY_DELAY_MILLIS = 1000;
+    static final int RECORD_HEADER_SIZE = 2 * Integer.BYTES;
+    static final int MAX_PAYLOAD_SIZE = Integer.BYTES + Long.BYTES + Integer.BYTES + Short.BYTES + Short.MAX_VALUE;
+    private static final Map<Path, SegmentAuditEventLog> OPEN_LOGS = new ConcurrentHashMap<>();
+
+    private final Path directory;
+    private final int segmentSize;
+    private final long groupCommitNanos;
+
+    // State of the writer, guarded by writeLock
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final List<Segment> segments = new ArrayList<>();
+    private Segment currentSegment;
+    private int writePosition;
+    private long appendedRecords;
+    private BlockIndexEntry currentBlock;
+    private final CompressedBitmap storedContracts = new CompressedBitmap();
+
+    // Sparse index. Entries are only added by the writer. Readers access the first indexSize entries
+    private volatile BlockIndexEntry[] index = new BlockIndexEntry[1024];
+    private volatile int indexSize;
+
+    // State of group commit, guarded by flushLock
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final Condition flushRequested = flushLock.newCondition();
+    private final Condition flushCompleted = flushLock.newCondition();
+    private long requestedRecords;
+    private long durableRecords;
+    private long failedFlushes;
+    private RuntimeException flushFailure;
+
+    // Position up to which the segments are forced to disk. Only accessed by the flush thread
+    private int forcedSegment;
+    private int forcedPosition;
+
+    static SegmentAuditEventLog open(Properties properties)
+    {
+        var directory = Path.of(properties.getProperty(DIRECTORY, "./eventstore")).toAbsolutePath().normalize();
+        var segmentSize = Integer.parseInt(properties.getProperty(SEGMENT_SIZE, String.valueOf(64 * 1024 * 1024)));
+        var groupCommitInterval = TimeUnit.MICROSECONDS.toNanos(Long.parseLong(properties.getProperty(GROUP_COMMIT_INTERVAL, "200")));
+
+        if (segmentSize < RECORD_HEADER_SIZE + MAX_PAYLOAD_SIZE)
+        {
+            throw new IllegalArgumentException(SEGMENT_SIZE + " must be at least " + (RECORD_HEADER_SIZE + MAX_PAYLOAD_SIZE));
+        }
+
+        return OPEN_LOGS.computeIfAbsent(directory, element -> new SegmentAuditEventLog(element, segmentSize, groupCommitInterval));
+    }
+
+    private SegmentAuditEventLog(Path directory, int segmentSize, long groupCommitNanos)
+    {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.groupCommitNanos = groupCommitNanos;
+
+        try
+        {
+            Files.createDirectories(directory);
+            recover();
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException("Could not open event store in " + directory, e);
+        }
+
+        var flushThread = new Thread(this::flushLoop, "SegmentAuditEventLog-flush");
+        flushThread.setDaemon(true);
+        flushThread.start();
+    }
+
+    @Override
+    public void add(ContractSigned domainEvent)
+    {
+        addAll(List.of(domainEvent));
+    }
+
+    @Override
+    public void addAll(List<ContractSigned> domainEvents)
+    {
+        if (domainEvents.isEmpty())
+        {
+            return;
+        }
+
+        long lastRecord;
+        writeLock.lock();
+        try
+        {
+            domainEvents.forEach(this::append);
+            lastRecord = appendedRecords;
+        }
+        finally
+        {
+            writeLock.unlock();
+        }
+
+        awaitDurable(lastRecord);
+    }
+
+    /**
+     * Since the log has no key, a domain event is skipped if an equal one is stored. Only domain events of contracts
+     * with stored domain events are looked up in the log, see {@link #findStored(List)}.
+     */
+    @Override
+    public void addAllIfAbsent(List<ContractSigned> domainEvents)
+    {
+        if (domainEvents.isEmpty())
+        {
+            return;
+        }
+
+        long lastRecord;
+        writeLock.lock();
+        try
+        {
+            var candidates = domainEvents.stream()
+                    .filter(domainEvent -> storedContracts.contains(domainEvent.contractNumber().value()))
+                    .toList();
+            var storedEvents = new HashSet<>(findStored(candidates));
+            domainEvents.stream()
+                    .filter(storedEvents::add)
+                    .forEach(this::append);
+            lastRecord = appendedRecords;
+        }
+        finally
+        {
+            writeLock.unlock();
+        }
+
+        awaitDurable(lastRecord);
+    }
+
+    @Override
+    public List<ContractSigned> get(Instant startTime, Instant endTime)
+    {
+        var start = epochNanos(startTime);
+        var end = epochNanos(endTime);
+
+        return scan(start, end);
+    }
+
+    @Override
+    public List<ContractSigned> get()
+    {
+        return scan(Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    @Override
+    public Stream<ContractSigned> stream(Instant startTime, Instant endTime)
+    {
+        return stream(epochNanos(startTime), epochNanos(endTime));
+    }
+
+    @Override
+    public Stream<ContractSigned> stream()
+    {
+        return stream(Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    /**
+     * Must be called while holding the write lock, so that the index does not change.
+     *
+     * @return the stored domain events that are equal to one of given domain events. Only the blocks whose range of
+     * signature dates contains the signature date of one of given domain events are decoded.
+     */
+    private List<ContractSigned> findStored(List<ContractSigned> domainEvents)
+    {
+        if (domainEvents.isEmpty())
+        {
+            return List.of();
+        }
+
+        var signatureDates = domainEvents.stream()
+                .mapToLong(domainEvent -> epochNanos(domainEvent.signatureDate()))
+                .sorted()
+                .toArray();
+        var requestedEvents = new HashSet<>(domainEvents);
+
+        var result = new ArrayList<ContractSigned>();
+        for (var i = 0; i < indexSize; ++i)
+        {
+            var block = index[i];
+            if (containsAny(signatureDates, block.minNanos, block.maxNanos))
+            {
+                decodeBlock(block, Long.MIN_VALUE, Long.MAX_VALUE).stream()
+                        .filter(requestedEvents::contains)
+                        .forEach(result::add);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return true if given sorted values contain a value within [min, max]
+     */
+    private static boolean containsAny(long[] sortedValues, long min, long max)
+    {
+        var position = Arrays.binarySearch(sortedValues, min);
+        if (position >= 0)
+        {
+            return true;
+        }
+        var next = -position - 1;
+        return next < sortedValues.length && sortedValues[next] <= max;
+    }
+
+    private List<ContractSigned> scan(long start, long end)
+    {
+        try (var domainEvents = stream(start, end))
+        {
+            return domainEvents.toList();
+        }
+    }
+
+    /**
+     * Decodes the blocks overlapping the given range one after another, so that at most one block is held in memory
+     */
+    private Stream<ContractSigned> stream(long start, long end)
+    {
+        var currentIndexSize = indexSize;
+        var currentIndex = index;
+
+        return Arrays.stream(currentIndex, 0, currentIndexSize)
+                .flatMap(block -> decodeBlock(block, start, end).stream());
+    }
+
+    private static List<ContractSigned> decodeBlock(BlockIndexEntry block, long start, long end)
+    {
+        var recordCount = block.recordCount; // Read first, so that min and max include all counted records
+        if (recordCount == 0 || block.maxNanos < start || block.minNanos > end)
+        {
+            return List.of();
+        }
+
+        var result = new ArrayList<ContractSigned>(recordCount);
+        var buffer = block.segment.buffer.duplicate();
+        buffer.position(block.offset);
+        for (var record = 0; record < recordCount; ++record)
+        {
+            var length = buffer.getInt();
+            buffer.getInt(); // CRC is only validated during recovery
+            var domainEvent = decode(buffer, length);
+            var signatureDate = epochNanos(domainEvent.signatureDate());
+            if (signatureDate >= start && signatureDate <= end)
+            {
+                result.add(domainEvent);
+            }
+        }
+        return result;
+    }
+
+    private void append(ContractSigned domainEvent)
+    {
+        var payload = encode(domainEvent);
+        var recordSize = RECORD_HEADER_SIZE + payload.remaining();
+
+        if (writePosition + recordSize > currentSegment.buffer.capacity())
+        {
+            rollSegment();
+        }
+
+        var crc = new CRC32C();
+        crc.update(payload.duplicate());
+
+        var buffer = currentSegment.buffer;
+        buffer.putInt(writePosition + Integer.BYTES, (int) crc.getValue());
+        buffer.put(writePosition + RECORD_HEADER_SIZE, payload, 0, payload.remaining());
+        buffer.putInt(writePosition, payload.remaining()); // The length is written last, so a record becomes valid at once
+
+        indexRecord(writePosition, epochNanos(domainEvent.signatureDate()));
+        storedContracts.add(domainEvent.contractNumber().value());
+        writePosition += recordSize;
+        ++appendedRecords;
+    }
+
+    private void indexRecord(int offset, long signatureDate)
+    {
+        if (currentBlock == null || currentBlock.recordCount == RECORDS_PER_INDEX_BLOCK || currentBlock.segment != currentSegment)
+        {
+            currentBlock = new BlockIndexEntry(currentSegment, offset);
+            addIndexEntry(currentBlock);
+        }
+
+        currentBlock.minNanos = Math.min(currentBlock.minNanos, signatureDate);
+        currentBlock.maxNanos = Math.max(currentBlock.maxNanos, signatureDate);
+        ++currentBlock.recordCount;
+    }
+
+    private void addIndexEntry(BlockIndexEntry entry)
+    {
+        if (indexSize == index.length)
+        {
+            index = Arrays.copyOf(index, index.length * 2);
+        }
+        index[indexSize] = entry;
+        ++indexSize; // Publishes the entry to readers
+    }
+
+    private void rollSegment()
+    {
+        try
+        {
+            currentSegment = mapSegment(segments.size(), segmentSize);
+            segments.add(currentSegment);
+            writePosition = 0;
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException("Could not create new segment in " + directory, e);
+        }
+    }
+
+    private void awaitDurable(long record)
+    {
+        flushLock.lock();
+        try
+        {
+            requestedRecords = Math.max(requestedRecords, record);
+            flushRequested.signal();
+
+            // Only a flush that fails after this writer arrived can cover its records
+            var failuresBefore = failedFlushes;
+            while (durableRecords < record)
+            {
+                if (failedFlushes != failuresBefore)
+                {
+                    throw flushFailure;
+                }
+                flushCompleted.awaitUninterruptibly();
+            }
+        }
+        finally
+        {
+            flushLock.unlock();
+        }
+    }
+
+    private void flushLoop()
+    {
+        var retryDelayMillis = MIN_RETRY_DELAY_MILLIS;
+        while (!Thread.currentThread().isInterrupted())
+        {
+            flushLock.lock();
+            try
+            {
+                while (requestedRecords <= durableRecords)
+                {
+                    flushRequested.awaitUninterruptibly();
+                }
+            }
+            finally
+            {
+                flushLock.unlock();
+            }
+
+            // Give concurrent writers the chance to append their records, so that they are forced together
+            if (groupCommitNanos > 0)
+            {
+                LockSupport.parkNanos(groupCommitNanos);
+            }
+
+            if (flush())
+            {
+                retryDelayMillis = MIN_RETRY_DELAY_MILLIS;
+            }
+            else
+            {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(retryDelayMillis));
+                retryDelayMillis = Math.min(retryDelayMillis * 2, MAX_RETRY_DELAY_MILLIS);
+            }
+        }
+    }
+
+    /**
+     * @return true if all records appended so far are forced to disk
+     */
+    private boolean flush()
+    {
+        long targetRecords;
+        int targetSegment;
+        int targetPosition;
+
+        writeLock.lock();
+        try
+        {
+            targetRecords = appendedRecords;
+            targetSegment = segments.size() - 1;
+            targetPosition = writePosition;
+        }
+        finally
+        {
+            writeLock.unlock();
+        }
+
+        RuntimeException failure = null;
+        try
+        {
+            for (var i = forcedSegment; i <= targetSegment; ++i)
+            {
+                var buffer = segmentAt(i).buffer;
+                var end = i == targetSegment ? targetPosition : buffer.capacity();
+                if (end > forcedPosition)
+                {
+                    buffer.force(forcedPosition, end - forcedPosition);
+                }
+
+                // Progress is recorded per segment, so that a retry continues where a failed flush stopped
+                if (i < targetSegment)
+                {
+                    forcedSegment = i + 1;
+                    forcedPosition = 0;
+                }
+                else
+                {
+                    forcedPosition = targetPosition;
+                }
+            }
+        }
+        catch (RuntimeException e)
+        {
+            SLF4jLogger.getLogger(SegmentAuditEventLog.class).error("Could not force segments in {} to disk: {}", directory, e.getMessage());
+            failure = e;
+        }
+
+        flushLock.lock();
+        try
+        {
+            if (failure != null)
+            {
+                flushFailure = new IllegalStateException("Could not force domain events to disk", failure);
+                ++failedFlushes;
+            }
+            else
+            {
+                flushFailure = null;
+                durableRecords = targetRecords;
+            }
+            flushCompleted.signalAll();
+        }
+        finally
+        {
+            flushLock.unlock();
+        }
+        return failure == null;
+    }
+
+    private Segment segmentAt(int i)
+    {
+        writeLock.lock();
+        try
+        {
+            return segments.get(i);
+        }
+        finally
+        {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Maps all existing segments and rebuilds the index. The write position is set behind the last valid record.
+     */
+    private void recover() throws IOException
+    {
+        List<Path> segmentFiles;
+        try (var files = Files.list(directory))
+        {
+            segmentFiles = files
+                    .filter(file -> file.getFileName().toString().matches("segment-\\d{10}\\.log"))
+                    .sorted()
+                    .toList();
+        }
+
+        for (var i = 0; i < segmentFiles.size(); ++i)
+        {
+            currentSegment = mapSegment(i, (int) Math.max(segmentSize, Files.size(segmentFiles.get(i))));
+            segments.add(currentSegment);
+            writePosition = recoverSegment(currentSegment);
+        }
+
+        if (segments.isEmpty())
+        {
+            rollSegment();
+        }
+
+        forcedSegment = segments.size() - 1;
+        forcedPosition = writePosition;
+        SLF4jLogger.getLogger(SegmentAuditEventLog.class).info("Recovered {} domain events from {} segments in {}", appendedRecords, segments.size(), directory);
+    }
+
+    private int recoverSegment(Segment segment)
+    {
+        var buffer = segment.buffer.duplicate();
+        var position = 0;
+
+        while (position + RECORD_HEADER_SIZE <= buffer.capacity())
+        {
+            var length = buffer.getInt(position);
+            if (length <= 0 || length > MAX_PAYLOAD_SIZE || position + RECORD_HEADER_SIZE + length > buffer.capacity())
+            {
+                break;
+            }
+
+            var payload = buffer.slice(position + RECORD_HEADER_SIZE, length);
+            var crc = new CRC32C();
+            crc.update(payload.duplicate());
+            if ((int) crc.getValue() != buffer.getInt(position + Integer.BYTES))
+            {
+                SLF4jLogger.getLogger(SegmentAuditEventLog.class).warn("Truncate segment {} at invalid record at position {}", segment.path, position);
+                break;
+            }
+
+            var domainEvent = decode(payload, length);
+            indexRecord(position, epochNanos(domainEvent.signatureDate()));
+            storedContracts.add(domainEvent.contractNumber().value());
+            position += RECORD_HEADER_SIZE + length;
+            ++appendedRecords;
+        }
+
+        // Remove the rest of a partially written record, so that it cannot be mistaken as valid record later on
+        if (position + Integer.BYTES <= buffer.capacity())
+        {
+            buffer.putInt(position, 0);
+        }
+        return position;
+    }
+
+    private Segment mapSegment(int segmentNumber, int size) throws IOException
+    {
+        var path = directory.resolve(String.format("segment-%010d.log", segmentNumber));
+        try (var channel = FileChannel.open(path, CREATE, READ, WRITE))
+        {
+            // The mapping remains valid after the channel is closed
+            return new Segment(path, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+        }
+    }
+
+    static ByteBuffer encode(ContractSigned domainEvent)
+    {
+        var advisor = domainEvent.advisor() == null ? null : domainEvent.advisor().getBytes(StandardCharsets.UTF_8);
+        if (advisor != null && advisor.length > Short.MAX_VALUE)
+        {
+            throw new IllegalArgumentException("Advisor of contract " + domainEvent.contractNumber().value() + " is too long");
+        }
+
+        var buffer = ByteBuffer.allocate(Integer.BYTES + Long.BYTES + Integer.BYTES + Short.BYTES + (advisor == null ? 0 : advisor.length));
+        buffer.putInt(domainEvent.contractNumber().value());
+        buffer.putLong(domainEvent.signatureDate().getEpochSecond());
+        buffer.putInt(domainEvent.signatureDate().getNano());
+        buffer.putShort(advisor == null ? -1 : (short) advisor.length);
+        if (advisor != null)
+        {
+            buffer.put(advisor);
+        }
+        return buffer.flip();
+    }
+
+    /**
+     * Decodes the payload at the current position of given buffer and advances the position behind the payload
+     */
+    static ContractSigned decode(ByteBuffer buffer, int length)
+    {
+        var start = buffer.position();
+        var contractNumber = buffer.getInt();
+        var signatureDate = Instant.ofEpochSecond(buffer.getLong(), buffer.getInt());
+        var advisorLength = buffer.getShort();
+        String advisor = null;
+        if (advisorLength >= 0)
+        {
+            var advisorBytes = new byte[advisorLength];
+            buffer.get(advisorBytes);
+            advisor = new String(advisorBytes, StandardCharsets.UTF_8);
+        }
+        buffer.position(start + length);
+
+        return new ContractSigned(new ContractNumber(contractNumber), signatureDate, advisor);
+    }
+
+    private static long epochNanos(Instant instant)
+    {
+        try
+        {
+            return Math.addExact(Math.multiplyExact(instant.getEpochSecond(), 1_000_000_000L), instant.getNano());
+        }
+        catch (ArithmeticException e)
+        {
+            // Range queries may use Instant.MIN or Instant.MAX as open bounds
+            return instant.getEpochSecond() < 0 ? Long.MIN_VALUE : Long.MAX_VALUE;
+        }
+    }
+
+    private record Segment(Path path, MappedByteBuffer buffer)
+    {
+    }
+
+    /**
+     * Index entry for a block of consecutive records within a single segment. Fields are only modified by the writer.
+     */
+    private static final class BlockIndexEntry
+    {
+        private final Segment segment;
+        private final int offset;
+        private volatile long minNanos = Long.MAX_VALUE;
+        private volatile long maxNanos = Long.MIN_VALUE;
+        private volatile int recordCount;
+
+        BlockIndexEntry(Segment segment, int offset)
+        {
+            this.segment = segment;
+            this.offset = offset;
+        }
+    }
+}
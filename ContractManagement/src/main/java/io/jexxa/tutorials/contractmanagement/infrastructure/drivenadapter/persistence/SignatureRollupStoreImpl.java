@@ -0,0 +1,272 @@
+package io.jexxa.tutorials.contractmanagement.infrastructure.drivenadapter.persistence;
+
+import io.jexxa.addend.infrastructure.DrivenAdapter;
+import io.jexxa.tutorials.contractmanagement.domain.contract.ContractSigned;
+import io.jexxa.tutorials.contractmanagement.domain.contract.SignatureCount;
+import io.jexxa.tutorials.contractmanagement.domainservice.SignatureRollupStore;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Stores the number of signed contracts per month and advisor in table {@code SignatureRollup}. Each row is identified
+ * by its month and advisor, so that all queries are primary key lookups. Counts are incremented via upsert, which is
+ * safe if several instances of this application sign contracts concurrently. The total of a month is stored with an
+ * empty advisor.
+ * <p>
+ * Increments are applied by an {@link AsyncProjector}, so that signing a contract does not wait for the upsert. Its
+ * queue holds at most {@value ContractReadModelImpl#QUEUE_CAPACITY} changes like the one of the read model.
+ * <p>
+ * If no JDBC strategy is used, the counts are kept in memory.
+ */
+@SuppressWarnings("unused")
+@DrivenAdapter
+public class SignatureRollupStoreImpl implements SignatureRollupStore
+{
+    private static final String TABLE_NAME = "SignatureRollup";
+    private static final String TOTAL = "";
+
+    // All instances of this adapter with the same database share the background thread that applies increments
+    private static final Map<String, AsyncProjector> PROJECTORS = new ConcurrentHashMap<>();
+
+    // Without a database, all instances of this adapter must use the same counts
+    private static final Map<RollupKey, LongAdder> IN_MEMORY_ROLLUPS = new ConcurrentHashMap<>();
+
+    private final Properties properties;
+    private final boolean isJDBC;
+    private final AsyncProjector projector;
+
+    public SignatureRollupStoreImpl(Properties properties)
+    {
+        this.properties = properties;
+        this.isJDBC = JDBCConnections.isJDBC(properties);
+
+        if (isJDBC)
+        {
+            createTable();
+        }
+
+        var capacity = Integer.parseInt(properties.getProperty(ContractReadModelImpl.QUEUE_CAPACITY, "10000"));
+        var database = isJDBC ? properties.getProperty(JDBCConnections.JDBC_URL) : "";
+        this.projector = PROJECTORS.computeIfAbsent(database, element -> new AsyncProjector(TABLE_NAME, capacity));
+    }
+
+    @Override
+    public void add(List<ContractSigned> domainEvents)
+    {
+        projector.enqueue(domainEvents.size(), () -> increment(domainEvents));
+    }
+
+    @Override
+    public void replace(int year, int month, List<SignatureCount> signatureCounts)
+    {
+        var yearMonth = yearMonth(year, month);
+
+        if (!isJDBC)
+        {
+            synchronized (IN_MEMORY_ROLLUPS)
+            {
+                IN_MEMORY_ROLLUPS.keySet().removeIf(key -> key.yearMonth() == yearMonth);
+                signatureCounts.forEach(count -> IN_MEMORY_ROLLUPS
+                        .computeIfAbsent(new RollupKey(yearMonth, advisorKey(count.advisor())), key -> new LongAdder())
+                        .add(count.signedContracts()));
+            }
+            return;
+        }
+
+        inTransaction(connection -> {
+            try (var delete = connection.prepareStatement("DELETE FROM " + TABLE_NAME + " WHERE YEAR_MONTH = ?");
+                 var insert = connection.prepareStatement("INSERT INTO " + TABLE_NAME + " (YEAR_MONTH, ADVISOR, SIGNED_CONTRACTS) VALUES (?, ?, ?)"))
+            {
+                delete.setInt(1, yearMonth);
+                delete.executeUpdate();
+
+                for (var count : signatureCounts)
+                {
+                    insert.setInt(1, yearMonth);
+                    insert.setString(2, advisorKey(count.advisor()));
+                    insert.setLong(3, count.signedContracts());
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+            }
+        });
+    }
+
+    @Override
+    public SignatureCount get(int year, int month)
+    {
+        return new SignatureCount(year, month, null, count(yearMonth(year, month), TOTAL));
+    }
+
+    @Override
+    public SignatureCount get(int year, int month, String advisor)
+    {
+        return new SignatureCount(year, month, advisor, count(yearMonth(year, month), advisor));
+    }
+
+    @Override
+    public List<SignatureCount> getPerAdvisor(int year, int month)
+    {
+        var yearMonth = yearMonth(year, month);
+
+        if (!isJDBC)
+        {
+            return IN_MEMORY_ROLLUPS.entrySet().stream()
+                    .filter(entry -> entry.getKey().yearMonth() == yearMonth && !entry.getKey().advisor().equals(TOTAL))
+                    .map(entry -> new SignatureCount(year, month, entry.getKey().advisor(), entry.getValue().sum()))
+                    .sorted(Comparator.comparing(SignatureCount::advisor))
+                    .toList();
+        }
+
+        try (var connection = JDBCConnections.getConnection(properties, TABLE_NAME);
+             var statement = connection.prepareStatement("SELECT ADVISOR, SIGNED_CONTRACTS FROM " + TABLE_NAME
+                     + " WHERE YEAR_MONTH = ? AND ADVISOR <> ? ORDER BY ADVISOR"))
+        {
+            statement.setInt(1, yearMonth);
+            statement.setString(2, TOTAL);
+            var result = new ArrayList<SignatureCount>();
+            try (var resultSet = statement.executeQuery())
+            {
+                while (resultSet.next())
+                {
+                    result.add(new SignatureCount(year, month, resultSet.getString(1), resultSet.getLong(2)));
+                }
+            }
+            return result;
+        }
+        catch (SQLException e)
+        {
+            throw new IllegalStateException("Could not query " + TABLE_NAME, e);
+        }
+    }
+
+    private void increment(List<ContractSigned> domainEvents)
+    {
+        // Sorted keys ensure that concurrent transactions lock the rows in the same order
+        var increments = new TreeMap<RollupKey, Long>(Comparator.comparing(RollupKey::yearMonth).thenComparing(RollupKey::advisor));
+        for (var domainEvent : domainEvents)
+        {
+            var signatureDate = domainEvent.signatureDate().atZone(ZoneOffset.UTC);
+            var yearMonth = yearMonth(signatureDate.getYear(), signatureDate.getMonthValue());
+            increments.merge(new RollupKey(yearMonth, TOTAL), 1L, Long::sum);
+            if (domainEvent.advisor() != null)
+            {
+                increments.merge(new RollupKey(yearMonth, domainEvent.advisor()), 1L, Long::sum);
+            }
+        }
+
+        if (!isJDBC)
+        {
+            increments.forEach((key, increment) -> IN_MEMORY_ROLLUPS.computeIfAbsent(key, element -> new LongAdder()).add(increment));
+            return;
+        }
+
+        inTransaction(connection -> {
+            try (var statement = connection.prepareStatement("INSERT INTO " + TABLE_NAME + " (YEAR_MONTH, ADVISOR, SIGNED_CONTRACTS) VALUES (?, ?, ?)"
+                    + " ON CONFLICT (YEAR_MONTH, ADVISOR) DO UPDATE SET SIGNED_CONTRACTS = " + TABLE_NAME + ".SIGNED_CONTRACTS + EXCLUDED.SIGNED_CONTRACTS"))
+            {
+                for (var increment : increments.entrySet())
+                {
+                    statement.setInt(1, increment.getKey().yearMonth());
+                    statement.setString(2, increment.getKey().advisor());
+                    statement.setLong(3, increment.getValue());
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+            }
+        });
+    }
+
+    private long count(int yearMonth, String advisor)
+    {
+        if (!isJDBC)
+        {
+            var count = IN_MEMORY_ROLLUPS.get(new RollupKey(yearMonth, advisor));
+            return count == null ? 0 : count.sum();
+        }
+
+        try (var connection = JDBCConnections.getConnection(properties, TABLE_NAME);
+             var statement = connection.prepareStatement("SELECT SIGNED_CONTRACTS FROM " + TABLE_NAME + " WHERE YEAR_MONTH = ? AND ADVISOR = ?"))
+        {
+            statement.setInt(1, yearMonth);
+            statement.setString(2, advisor);
+            try (var resultSet = statement.executeQuery())
+            {
+                return resultSet.next() ? resultSet.getLong(1) : 0;
+            }
+        }
+        catch (SQLException e)
+        {
+            throw new IllegalStateException("Could not query " + TABLE_NAME, e);
+        }
+    }
+
+    private void createTable()
+    {
+        try (var connection = JDBCConnections.getConnection(properties, TABLE_NAME);
+             var statement = connection.createStatement())
+        {
+            statement.execute("CREATE TABLE IF NOT EXISTS " + TABLE_NAME + " ("
+                    + "YEAR_MONTH INTEGER NOT NULL, "
+                    + "ADVISOR TEXT NOT NULL, "
+                    + "SIGNED_CONTRACTS BIGINT NOT NULL, "
+                    + "PRIMARY KEY (YEAR_MONTH, ADVISOR))");
+        }
+        catch (SQLException e)
+        {
+            throw new IllegalStateException("Could not create table " + TABLE_NAME, e);
+        }
+    }
+
+    private void inTransaction(SQLConsumer<Connection> operation)
+    {
+        try (var connection = JDBCConnections.getConnection(properties, TABLE_NAME))
+        {
+            connection.setAutoCommit(false);
+            try
+            {
+                operation.accept(connection);
+                connection.commit();
+            }
+            catch (SQLException | RuntimeException e)
+            {
+                connection.rollback();
+                throw e;
+            }
+        }
+        catch (SQLException e)
+        {
+            throw new IllegalStateException("Could not update " + TABLE_NAME, e);
+        }
+    }
+
+    private static int yearMonth(int year, int month)
+    {
+        return year * 100 + month;
+    }
+
+    private static String advisorKey(String advisor)
+    {
+        return advisor == null ? TOTAL : advisor;
+    }
+
+    private record RollupKey(int yearMonth, String advisor)
+    {
+    }
+
+    @FunctionalInterface
+    private interface SQLConsumer<T>
+    {
+        void accept(T value) throws SQLException;
+    }
+}
@@ -0,0 +1,169 @@
+package io.jexxa.tutorials.contractmanagement.infrastructure.drivenadapter.persistence;
+
+import io.jexxa.tutorials.contractmanagement.domain.contract.AdvisorRanking;
+import io.jexxa.tutorials.contractmanagement.domain.contract.ContractSigned;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Supplier;
+
+/**
+ * Counts signed contracts per advisor within sliding windows of days.
+ * <p>
+ * <b>Buckets:</b> Domain events are counted per advisor in one bucket per day (UTC). Only the buckets of the longest
+ * window are kept. Each window additionally holds the total per advisor and a set of all advisors ordered by their
+ * total. When the day changes, the buckets that fall out of a window are subtracted from its totals.
+ * <p>
+ * <b>Complexity:</b> Adding a domain event updates the ordered set of each window in O(log K) for K advisors. Since
+ * the set is already ordered, the top N advisors are read in O(N + log K).
+ * <p>
+ * Domain events without an advisor are ignored. All methods are synchronized.
+ */
+final class SlidingWindowLeaderboard
+{
+    private static final Comparator<AdvisorRanking> BY_SIGNED_CONTRACTS = Comparator
+            .comparingLong(AdvisorRanking::signedContracts).reversed()
+            .thenComparing(AdvisorRanking::advisor);
+
+    private final Supplier<Instant> clock;
+    private final Map<Integer, Window> windows = new TreeMap<>();
+    private final int longestWindow;
+    private final NavigableMap<Long, Map<String, Long>> buckets = new TreeMap<>();
+    private long currentDay;
+
+    /**
+     * @param windowDays number of days of each supported window
+     * @param clock returns the current time, which determines the current day
+     */
+    SlidingWindowLeaderboard(List<Integer> windowDays, Supplier<Instant> clock)
+    {
+        if (windowDays.isEmpty() || windowDays.stream().anyMatch(days -> days <= 0))
+        {
+            throw new IllegalArgumentException("Windows must be a non-empty list of positive number of days: " + windowDays);
+        }
+
+        this.clock = clock;
+        windowDays.forEach(days -> windows.put(days, new Window(days)));
+        this.longestWindow = windowDays.stream().mapToInt(Integer::intValue).max().orElseThrow();
+        this.currentDay = epochDay(clock.get());
+    }
+
+    synchronized void add(ContractSigned domainEvent)
+    {
+        advance();
+        if (domainEvent.advisor() == null)
+        {
+            return;
+        }
+
+        // Domain events from the future are counted today, so that they are not counted for more than the window length
+        var day = Math.min(epochDay(domainEvent.signatureDate()), currentDay);
+        if (day <= currentDay - longestWindow)
+        {
+            return;
+        }
+
+        buckets.computeIfAbsent(day, element -> new HashMap<>()).merge(domainEvent.advisor(), 1L, Long::sum);
+        windows.values().stream()
+                .filter(window -> day > currentDay - window.days)
+                .forEach(window -> window.increment(domainEvent.advisor(), 1));
+    }
+
+    synchronized void clear()
+    {
+        buckets.clear();
+        windows.values().forEach(Window::clear);
+        currentDay = epochDay(clock.get());
+    }
+
+    int getLongestWindow()
+    {
+        return longestWindow;
+    }
+
+    synchronized List<AdvisorRanking> getTopAdvisors(int days, int limit)
+    {
+        var window = windows.get(days);
+        if (window == null)
+        {
+            throw new IllegalArgumentException("Unsupported window of " + days + " days. Supported windows: " + windows.keySet());
+        }
+
+        advance();
+        return window.ranking.stream()
+                .limit(limit)
+                .toList();
+    }
+
+    /**
+     * Subtracts all buckets that fell out of a window since the last call and drops buckets outside the longest window
+     */
+    private void advance()
+    {
+        var today = epochDay(clock.get());
+        if (today <= currentDay)
+        {
+            return;
+        }
+
+        for (var window : windows.values())
+        {
+            // Days in (currentDay - days, today - days] were part of the window and are not anymore
+            buckets.subMap(currentDay - window.days, false, today - window.days, true)
+                    .values()
+                    .forEach(bucket -> bucket.forEach((advisor, count) -> window.increment(advisor, -count)));
+        }
+        buckets.headMap(today - longestWindow, true).clear();
+        currentDay = today;
+    }
+
+    private static long epochDay(Instant instant)
+    {
+        return instant.atZone(ZoneOffset.UTC).toLocalDate().toEpochDay();
+    }
+
+    private static final class Window
+    {
+        private final int days;
+        private final Map<String, Long> counts = new HashMap<>();
+        private final TreeSet<AdvisorRanking> ranking = new TreeSet<>(BY_SIGNED_CONTRACTS);
+
+        Window(int days)
+        {
+            this.days = days;
+        }
+
+        void increment(String advisor, long delta)
+        {
+            var count = counts.getOrDefault(advisor, 0L);
+            if (count > 0)
+            {
+                ranking.remove(new AdvisorRanking(advisor, count));
+            }
+
+            count += delta;
+            if (count > 0)
+            {
+                counts.put(advisor, count);
+                ranking.add(new AdvisorRanking(advisor, count));
+            }
+            else
+            {
+                counts.remove(advisor);
+            }
+        }
+
+        void clear()
+        {
+            counts.clear();
+            ranking.clear();
+        }
+    }
+}
@@ -0,0 +1,560 @@
+package io.jexxa.tutorials.contractmanagement.infrastructure.drivenadapter.persistence;
+
+import io.jexxa.common.facade.logger.SLF4jLogger;
+import io.jexxa.tutorials.contractmanagement.domain.contract.ContractSigned;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+import static io.jexxa.tutorials.contractmanagement.infrastructure.drivenadapter.persistence.SegmentAuditEventLog.MAX_PAYLOAD_SIZE;
+import static io.jexxa.tutorials.contractmanagement.infrastructure.drivenadapter.persistence.SegmentAuditEventLog.RECORD_HEADER_SIZE;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Stores domain events in a local journal first and writes them to an {@link ObjectStoreAuditEventLog} in the
+ * background. So, a writer only waits until its domain events are durable in the journal.
+ * <p>
+ * <b>Journal:</b> The journal is a single file using the record format of {@link SegmentAuditEventLog}. Concurrent
+ * writers append their records and then force the journal to disk. The first writer that gets the sync lock forces all
+ * records appended so far, so that the writers waiting behind it only have to check that their records are included
+ * (group commit).
+ * <p>
+ * <b>Flush:</b> A background thread reads the journal from the checkpoint onward and stores up to
+ * {@value #BATCH_SIZE} domain events within a single transaction. Afterward, the checkpoint is advanced and forced to
+ * disk. If the application crashes between both steps, the batch is stored again on restart, which is why the event
+ * store skips domain events that already exist. Once all domain events are stored, the journal is truncated.
+ * <p>
+ * Queries first wait until all acknowledged domain events are stored, so that a writer can read its own domain events.
+ * If they are not stored within {@value #READ_TIMEOUT}, e.g., because the database is not available, the query fails
+ * instead of blocking its caller.
+ * <p>
+ * Only one instance of this class exists per directory. The directory must not be shared between several instances
+ * of the application.
+ */
+final class WriteBehindAuditEventLog implements AuditEventLog
+{
+    static final String WRITE_BEHIND = "contractmanagement.eventstore.writebehind.enabled";
+    static final String DIRECTORY = "contractmanagement.eventstore.writebehind.directory";
+    static final String BATCH_SIZE = "contractmanagement.eventstore.writebehind.batch.size";
+    static final String FLUSH_INTERVAL = "contractmanagement.eventstore.writebehind.interval.millis";
+    static final String READ_TIMEOUT = "contractmanagement.eventstore.writebehind.read.timeout.millis";
+
+    private static final String JOURNAL_FILE = "journal.log";
+    private static final String CHECKPOINT_FILE = "journal.checkpoint";
+    private static final long TRUNCATE_THRESHOLD = 16L * 1024 * 1024;
+    private static final int READ_BUFFER_SIZE = 1024 * 1024;
+    private static final Map<Path, WriteBehindAuditEventLog> OPEN_JOURNALS = new ConcurrentHashMap<>();
+
+    private final ObjectStoreAuditEventLog eventStore;
+    private final Path directory;
+    private final FileChannel journal;
+    private final FileChannel checkpointFile;
+    private final int batchSize;
+    private final long flushIntervalMillis;
+    private final long readTimeoutMillis;
+
+    // End of the journal, guarded by appendLock
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private long appendPosition;
+
+    // Position up to which the journal is forced to disk, only changed while holding syncLock
+    private final ReentrantLock syncLock = new ReentrantLock();
+    private volatile long durablePosition;
+
+    // Position up to which the domain events are stored in the event store, guarded by flushLock
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final Condition flushRequested = flushLock.newCondition();
+    private final Condition flushCompleted = flushLock.newCondition();
+    private long checkpoint;
+    private boolean flushPending;
+
+    static WriteBehindAuditEventLog open(Properties properties, ObjectStoreAuditEventLog eventStore)
+    {
+        var directory = Path.of(properties.getProperty(DIRECTORY, "./journal")).toAbsolutePath().normalize();
+        var batchSize = Integer.parseInt(properties.getProperty(BATCH_SIZE, "500"));
+        var flushInterval = Long.parseLong(properties.getProperty(FLUSH_INTERVAL, "50"));
+        var readTimeout = Long.parseLong(properties.getProperty(READ_TIMEOUT, "10000"));
+
+        return OPEN_JOURNALS.computeIfAbsent(directory, element -> new WriteBehindAuditEventLog(eventStore, element, batchSize, flushInterval, readTimeout));
+    }
+
+    private WriteBehindAuditEventLog(ObjectStoreAuditEventLog eventStore, Path directory, int batchSize, long flushIntervalMillis, long readTimeoutMillis)
+    {
+        this.eventStore = eventStore;
+        this.directory = directory;
+        this.batchSize = batchSize;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.readTimeoutMillis = readTimeoutMillis;
+
+        try
+        {
+            Files.createDirectories(directory);
+            this.journal = FileChannel.open(directory.resolve(JOURNAL_FILE), CREATE, READ, WRITE);
+            this.checkpointFile = FileChannel.open(directory.resolve(CHECKPOINT_FILE), CREATE, READ, WRITE);
+            recover();
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException("Could not open journal in " + directory, e);
+        }
+
+        var flushThread = new Thread(this::flushLoop, "WriteBehindAuditEventLog-flush");
+        flushThread.setDaemon(true);
+        flushThread.start();
+    }
+
+    @Override
+    public void add(ContractSigned domainEvent)
+    {
+        addAll(List.of(domainEvent));
+    }
+
+    @Override
+    public void addAll(List<ContractSigned> domainEvents)
+    {
+        if (domainEvents.isEmpty())
+        {
+            return;
+        }
+
+        var startTime = System.nanoTime();
+        var records = encode(domainEvents);
+        long end;
+
+        appendLock.lock();
+        try
+        {
+            while (records.hasRemaining())
+            {
+                appendPosition += journal.write(records, appendPosition);
+            }
+            end = appendPosition;
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException("Could not append domain events to journal in " + directory, e);
+        }
+        finally
+        {
+            appendLock.unlock();
+        }
+
+        awaitDurable(end);
+        PersistenceMetrics.instance().recordJournalAppend(domainEvents.size(), System.nanoTime() - startTime);
+        requestFlush();
+    }
+
+    /**
+     * The journal is stored in the event store via {@link ObjectStoreAuditEventLog#addAllIfAbsent}, so that domain
+     * events that are already stored are skipped anyway
+     */
+    @Override
+    public void addAllIfAbsent(List<ContractSigned> domainEvents)
+    {
+        addAll(domainEvents);
+    }
+
+    @Override
+    public List<ContractSigned> get(Instant startTime, Instant endTime)
+    {
+        awaitFlushed();
+        return eventStore.get(startTime, endTime);
+    }
+
+    @Override
+    public List<ContractSigned> get()
+    {
+        awaitFlushed();
+        return eventStore.get();
+    }
+
+    @Override
+    public Stream<ContractSigned> stream(Instant startTime, Instant endTime)
+    {
+        awaitFlushed();
+        return eventStore.stream(startTime, endTime);
+    }
+
+    @Override
+    public Stream<ContractSigned> stream()
+    {
+        awaitFlushed();
+        return eventStore.stream();
+    }
+
+    private void awaitDurable(long position)
+    {
+        if (durablePosition >= position)
+        {
+            return;
+        }
+
+        syncLock.lock();
+        try
+        {
+            // Another writer might have forced our records while we waited for the lock
+            if (durablePosition >= position)
+            {
+                return;
+            }
+
+            long target;
+            appendLock.lock();
+            try
+            {
+                target = appendPosition;
+            }
+            finally
+            {
+                appendLock.unlock();
+            }
+
+            journal.force(false);
+            durablePosition = target;
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException("Could not force journal in " + directory + " to disk", e);
+        }
+        finally
+        {
+            syncLock.unlock();
+        }
+    }
+
+    private void requestFlush()
+    {
+        flushLock.lock();
+        try
+        {
+            flushPending = true;
+            flushRequested.signal();
+        }
+        finally
+        {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Waits until all domain events that are durable in the journal are stored in the event store
+     *
+     * @throws IllegalStateException if they are not stored within the read timeout
+     */
+    private void awaitFlushed()
+    {
+        var target = durablePosition;
+        var deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(readTimeoutMillis);
+
+        flushLock.lock();
+        try
+        {
+            while (checkpoint < target && durablePosition >= target)
+            {
+                var remainingNanos = deadline - System.nanoTime();
+                if (remainingNanos <= 0)
+                {
+                    throw new IllegalStateException("Journaled domain events in " + directory + " were not stored within "
+                            + readTimeoutMillis + " ms");
+                }
+
+                flushPending = true;
+                flushRequested.signal();
+                flushCompleted.awaitNanos(remainingNanos);
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for journaled domain events in " + directory, e);
+        }
+        finally
+        {
+            flushLock.unlock();
+        }
+    }
+
+    private void flushLoop()
+    {
+        while (!Thread.currentThread().isInterrupted())
+        {
+            flushLock.lock();
+            try
+            {
+                if (!flushPending)
+                {
+                    // Wait for further domain events, so that they are stored within a single batch
+                    flushRequested.await(flushIntervalMillis, TimeUnit.MILLISECONDS);
+                }
+                flushPending = false;
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            finally
+            {
+                flushLock.unlock();
+            }
+
+            try
+            {
+                while (flushBatch())
+                {
+                    // Flush until the journal is empty
+                }
+                truncateIfFlushed();
+            }
+            catch (RuntimeException | IOException e)
+            {
+                // The domain events remain in the journal, so that they are stored with the next attempt
+                SLF4jLogger.getLogger(WriteBehindAuditEventLog.class).error("Could not store domain events from journal {}: {}", directory, e.getMessage());
+                PersistenceMetrics.instance().recordFailedFlush();
+                sleep();
+            }
+        }
+    }
+
+    /**
+     * Stores the next batch of domain events from the journal in the event store
+     *
+     * @return true if a batch was stored, false if all durable domain events are already stored
+     */
+    private boolean flushBatch() throws IOException
+    {
+        var end = durablePosition;
+        var start = currentCheckpoint();
+        if (start >= end)
+        {
+            return false;
+        }
+
+        var batch = readBatch(start, end);
+        var startTime = System.nanoTime();
+        eventStore.addAllIfAbsent(batch.domainEvents());
+        writeCheckpoint(batch.end());
+        PersistenceMetrics.instance().recordFlush(batch.domainEvents().size(), System.nanoTime() - startTime);
+
+        flushLock.lock();
+        try
+        {
+            checkpoint = batch.end();
+            flushCompleted.signalAll();
+        }
+        finally
+        {
+            flushLock.unlock();
+        }
+        return true;
+    }
+
+    private Batch readBatch(long start, long end) throws IOException
+    {
+        var domainEvents = new ArrayList<ContractSigned>();
+        var buffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+        var position = start;
+
+        while (position < end && domainEvents.size() < batchSize)
+        {
+            buffer.clear().limit((int) Math.min(buffer.capacity(), end - position));
+            while (buffer.hasRemaining())
+            {
+                if (journal.read(buffer, position + buffer.position()) < 0)
+                {
+                    throw new IOException("Unexpected end of journal at position " + (position + buffer.position()));
+                }
+            }
+            buffer.flip();
+
+            // The buffer is larger than a record, so at least one complete record is contained
+            while (buffer.remaining() >= RECORD_HEADER_SIZE && domainEvents.size() < batchSize)
+            {
+                var length = buffer.getInt(buffer.position());
+                if (buffer.remaining() < RECORD_HEADER_SIZE + length)
+                {
+                    break;
+                }
+                buffer.position(buffer.position() + RECORD_HEADER_SIZE); // CRC is only validated during recovery
+                domainEvents.add(SegmentAuditEventLog.decode(buffer, length));
+            }
+            position += buffer.position();
+        }
+        return new Batch(domainEvents, position);
+    }
+
+    /**
+     * Truncates the journal if all domain events are stored and it exceeds {@value #TRUNCATE_THRESHOLD} bytes.
+     * The locks are acquired in the same order as by writers.
+     */
+    private void truncateIfFlushed() throws IOException
+    {
+        if (durablePosition < TRUNCATE_THRESHOLD)
+        {
+            return;
+        }
+
+        syncLock.lock();
+        appendLock.lock();
+        try
+        {
+            if (appendPosition != durablePosition || currentCheckpoint() != appendPosition)
+            {
+                return;
+            }
+
+            journal.truncate(0);
+            journal.force(true);
+            // A crash before the checkpoint is reset is detected on recovery, since the checkpoint exceeds the journal
+            writeCheckpoint(0);
+
+            flushLock.lock();
+            try
+            {
+                checkpoint = 0;
+            }
+            finally
+            {
+                flushLock.unlock();
+            }
+            appendPosition = 0;
+            durablePosition = 0;
+        }
+        finally
+        {
+            appendLock.unlock();
+            syncLock.unlock();
+        }
+    }
+
+    /**
+     * Reads the checkpoint and validates all records behind it. The journal is truncated behind the last valid record,
+     * which removes a partially written record. The flush thread then stores all remaining domain events.
+     */
+    private void recover() throws IOException
+    {
+        var journalSize = journal.size();
+        var position = readCheckpoint();
+        if (position > journalSize)
+        {
+            position = 0;
+        }
+        checkpoint = position;
+
+        var header = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+        var recoveredEvents = 0L;
+        while (position + RECORD_HEADER_SIZE <= journalSize)
+        {
+            header.clear();
+            journal.read(header, position);
+            var length = header.getInt(0);
+            if (length <= 0 || length > MAX_PAYLOAD_SIZE || position + RECORD_HEADER_SIZE + length > journalSize)
+            {
+                break;
+            }
+
+            var payload = ByteBuffer.allocate(length);
+            journal.read(payload, position + RECORD_HEADER_SIZE);
+            var crc = new CRC32C();
+            crc.update(payload.flip());
+            if ((int) crc.getValue() != header.getInt(Integer.BYTES))
+            {
+                SLF4jLogger.getLogger(WriteBehindAuditEventLog.class).warn("Truncate journal {} at invalid record at position {}", directory, position);
+                break;
+            }
+
+            position += RECORD_HEADER_SIZE + length;
+            ++recoveredEvents;
+        }
+
+        journal.truncate(position);
+        journal.force(true);
+        appendPosition = position;
+        durablePosition = position;
+
+        PersistenceMetrics.instance().recordRecoveredEvents(recoveredEvents);
+        SLF4jLogger.getLogger(WriteBehindAuditEventLog.class).info("Recovered {} domain events to be stored from journal {}", recoveredEvents, directory);
+    }
+
+    private long currentCheckpoint()
+    {
+        flushLock.lock();
+        try
+        {
+            return checkpoint;
+        }
+        finally
+        {
+            flushLock.unlock();
+        }
+    }
+
+    private long readCheckpoint() throws IOException
+    {
+        var buffer = ByteBuffer.allocate(Long.BYTES);
+        if (checkpointFile.read(buffer, 0) < Long.BYTES)
+        {
+            return 0;
+        }
+        return buffer.getLong(0);
+    }
+
+    private void writeCheckpoint(long position) throws IOException
+    {
+        // A single long does not span a disk sector, so it is either written completely or not at all
+        var buffer = ByteBuffer.allocate(Long.BYTES).putLong(position).flip();
+        while (buffer.hasRemaining())
+        {
+            checkpointFile.write(buffer, buffer.position());
+        }
+        checkpointFile.force(false);
+    }
+
+    private void sleep()
+    {
+        try
+        {
+            Thread.sleep(flushIntervalMillis);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static ByteBuffer encode(List<ContractSigned> domainEvents)
+    {
+        var payloads = domainEvents.stream().map(SegmentAuditEventLog::encode).toList();
+        var records = ByteBuffer.allocate(payloads.stream().mapToInt(payload -> RECORD_HEADER_SIZE + payload.remaining()).sum());
+        for (var payload : payloads)
+        {
+            var crc = new CRC32C();
+            crc.update(payload.duplicate());
+            records.putInt(payload.remaining());
+            records.putInt((int) crc.getValue());
+            records.put(payload);
+        }
+        return records.flip();
+    }
+
+    private record Batch(List<ContractSigned> domainEvents, long end)
+    {
+    }
+}
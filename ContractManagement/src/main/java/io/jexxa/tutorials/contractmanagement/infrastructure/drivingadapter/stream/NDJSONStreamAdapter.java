@@ -0,0 +1,184 @@
+package io.jexxa.tutorials.contractmanagement.infrastructure.drivingadapter.stream;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.jexxa.addend.infrastructure.DrivingAdapter;
+import io.jexxa.adapterapi.drivingadapter.IDrivingAdapter;
+import io.jexxa.common.facade.logger.SLF4jLogger;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
+
+import static io.jexxa.common.facade.json.JSONManager.getJSONConverter;
+
+/**
+ * Exposes all public methods of a port that return a {@link Stream} as newline delimited JSON (NDJSON).
+ * <p>
+ * The RESTfulRPCAdapter serializes the complete result into a single JSON document. This adapter uses the same URL
+ * schema and parameter encoding ({@code POST /<Port>/<method>}), but writes each element of the returned stream as a
+ * separate line of a chunked response. So, the memory required for a response does not depend on its size.
+ */
+@SuppressWarnings("unused")
+@DrivingAdapter
+public class NDJSONStreamAdapter implements IDrivingAdapter
+{
+    public static final String STREAM_PORT = "contractmanagement.stream.port";
+
+    private static final String CONTENT_TYPE = "application/x-ndjson";
+
+    private final HttpServer httpServer;
+
+    public NDJSONStreamAdapter(Properties properties)
+    {
+        try
+        {
+            var port = Integer.parseInt(properties.getProperty(STREAM_PORT, "7508"));
+            this.httpServer = HttpServer.create(new InetSocketAddress(port), 0);
+            this.httpServer.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void register(Object port)
+    {
+        Arrays.stream(port.getClass().getMethods())
+                .filter(method -> Stream.class.isAssignableFrom(method.getReturnType()))
+                .filter(method -> !Modifier.isStatic(method.getModifiers()))
+                .forEach(method -> httpServer.createContext(
+                        "/" + port.getClass().getSimpleName() + "/" + method.getName(),
+                        exchange -> handle(exchange, port, method)));
+    }
+
+    @Override
+    public void start()
+    {
+        httpServer.start();
+    }
+
+    @Override
+    public void stop()
+    {
+        httpServer.stop(0);
+    }
+
+    private static void handle(HttpExchange exchange, Object port, Method method) throws IOException
+    {
+        try (exchange)
+        {
+            Object[] parameters;
+            try
+            {
+                parameters = parameters(exchange, method);
+            }
+            catch (RuntimeException e)
+            {
+                sendError(exchange, 400, e); // The request body is not valid JSON or does not match the parameters
+                return;
+            }
+
+            Stream<?> result;
+            try
+            {
+                result = (Stream<?>) method.invoke(port, parameters);
+            }
+            catch (InvocationTargetException e)
+            {
+                sendError(exchange, statusCodeOf(e.getCause()), e.getCause());
+                return;
+            }
+            catch (IllegalAccessException | RuntimeException e)
+            {
+                sendError(exchange, statusCodeOf(e), e);
+                return;
+            }
+
+            exchange.getResponseHeaders().add("Content-Type", CONTENT_TYPE);
+            exchange.sendResponseHeaders(200, 0); // Length 0 enables chunked transfer encoding
+
+            try (result;
+                 var writer = new BufferedWriter(new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8)))
+            {
+                var iterator = result.iterator();
+                while (iterator.hasNext())
+                {
+                    writer.write(getJSONConverter().toJson(iterator.next()));
+                    writer.write('\n');
+                }
+            }
+            catch (RuntimeException e)
+            {
+                // Status code is already sent, so that the client can only detect the error by the aborted response
+                SLF4jLogger.getLogger(NDJSONStreamAdapter.class).error("Could not stream {}: {}", method.getName(), e.getMessage());
+                throw e;
+            }
+        }
+    }
+
+    private static Object[] parameters(HttpExchange exchange, Method method) throws IOException
+    {
+        var parameterTypes = method.getParameterTypes();
+        if (parameterTypes.length == 0)
+        {
+            return new Object[0];
+        }
+
+        var body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+        if (parameterTypes.length == 1)
+        {
+            return new Object[]{getJSONConverter().fromJson(body, parameterTypes[0])};
+        }
+
+        // Same as the RESTfulRPCAdapter: multiple parameters are passed as JSON array
+        var jsonArray = getJSONConverter().fromJson(body, Object[].class);
+        if (jsonArray == null || jsonArray.length != parameterTypes.length)
+        {
+            throw new IllegalArgumentException("Expected " + parameterTypes.length + " parameters but got "
+                    + (jsonArray == null ? 0 : jsonArray.length));
+        }
+
+        var result = new Object[parameterTypes.length];
+        for (var i = 0; i < parameterTypes.length; ++i)
+        {
+            result[i] = getJSONConverter().fromJson(getJSONConverter().toJson(jsonArray[i]), parameterTypes[i]);
+        }
+        return result;
+    }
+
+    /**
+     * @return 400 if the port rejected its arguments, otherwise 500
+     */
+    private static int statusCodeOf(Throwable throwable)
+    {
+        if (throwable instanceof IllegalArgumentException)
+        {
+            return 400;
+        }
+
+        SLF4jLogger.getLogger(NDJSONStreamAdapter.class).error("Could not process request", throwable);
+        return 500;
+    }
+
+    private static void sendError(HttpExchange exchange, int statusCode, Throwable throwable) throws IOException
+    {
+        var message = getJSONConverter().toJson(throwable.getClass().getSimpleName() + ": " + throwable.getMessage())
+                .getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(statusCode, message.length);
+        exchange.getResponseBody().write(message);
+    }
+}
@@ -14,6 +14,8 @@ class ArchitectureTest {
     {
         portsAndAdapters(ContractManagement.class)
                 .addDrivenAdapterPackage("persistence")
+                .addDrivenAdapterPackage("file")
+                .addDrivingAdapterPackage("stream")
                 .validate();
     }
 
@@ -0,0 +1,119 @@
+package io.jexxa.tutorials.contractmanagement.infrastructure.drivenadapter.file;
+
+import io.jexxa.tutorials.contractmanagement.domain.contract.Contract;
+import io.jexxa.tutorials.contractmanagement.domain.contract.ContractNumber;
+import io.jexxa.tutorials.contractmanagement.domain.contract.ContractSigned;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.stream.Stream;
+
+import static io.jexxa.tutorials.contractmanagement.domain.contract.Contract.restoreContract;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CSVContractFileStoreTest
+{
+    @TempDir
+    Path directory;
+
+    private CSVContractFileStore objectUnderTest;
+
+    @BeforeEach
+    void initTest()
+    {
+        var properties = new Properties();
+        properties.put(CSVContractFileStore.DIRECTORY, directory.toString());
+        properties.put(CSVContractFileStore.CHUNK_SIZE, "2");
+        objectUnderTest = new CSVContractFileStore(properties);
+    }
+
+    @Test
+    void readWrittenContracts()
+    {
+        // Arrange - advisors require quoting, and the records span several chunks
+        var signatureDate = Instant.parse("2024-03-15T08:30:00.123456789Z");
+        var contracts = List.of(
+                restoreContract(new ContractNumber(1), "Alice", true, signatureDate),
+                restoreContract(new ContractNumber(2), "Müller, Bob", false, null),
+                restoreContract(new ContractNumber(3), "Carol \"The Closer\"", false, null),
+                restoreContract(new ContractNumber(4), "Dave\r\nJr.", true, signatureDate),
+                restoreContract(new ContractNumber(5), "", false, null));
+        var result = new ArrayList<Contract>();
+
+        // Act
+        var writeReport = objectUnderTest.writeContracts("contracts.csv.gz", contracts.stream());
+        var readReport = objectUnderTest.readContracts("contracts.csv.gz", 4, result::addAll);
+
+        // Assert
+        assertEquals(5, writeReport.records());
+        assertEquals(5, readReport.records());
+        assertEquals(contracts.size(), result.size());
+        for (var i = 0; i < contracts.size(); ++i)
+        {
+            assertEquals(contracts.get(i).getContractNumber(), result.get(i).getContractNumber());
+            assertEquals(contracts.get(i).getAdvisor(), result.get(i).getAdvisor());
+            assertEquals(contracts.get(i).isSigned(), result.get(i).isSigned());
+            assertEquals(contracts.get(i).getSignatureDate(), result.get(i).getSignatureDate());
+        }
+        assertEquals("", result.get(4).getAdvisor());
+    }
+
+    @Test
+    void readWrittenDomainEventsInBatches()
+    {
+        // Arrange - an advisor without value is stored as empty unquoted field
+        var domainEvents = List.of(
+                new ContractSigned(new ContractNumber(1), Instant.parse("2024-03-01T00:00:00Z"), "Alice"),
+                new ContractSigned(new ContractNumber(2), Instant.parse("2024-03-02T00:00:00.5Z"), null),
+                new ContractSigned(new ContractNumber(3), Instant.parse("2024-03-03T00:00:00Z"), "Bob, Jr."));
+        var batches = new ArrayList<List<ContractSigned>>();
+
+        // Act
+        objectUnderTest.writeSignedContracts("signed.csv.gz", domainEvents.stream());
+        objectUnderTest.readSignedContracts("signed.csv.gz", 2, batches::add);
+
+        // Assert
+        assertEquals(List.of(domainEvents.subList(0, 2), domainEvents.subList(2, 3)), batches);
+    }
+
+    @Test
+    void readEmptyFile()
+    {
+        // Arrange
+        var result = new ArrayList<Contract>();
+        objectUnderTest.writeContracts("empty.csv.gz", Stream.empty());
+
+        // Act
+        var report = objectUnderTest.readContracts("empty.csv.gz", 4, result::addAll);
+
+        // Assert
+        assertEquals(0, report.records());
+        assertTrue(result.isEmpty());
+    }
+
+    @Test
+    void rejectFileWithOtherHeader()
+    {
+        // Arrange
+        objectUnderTest.writeSignedContracts("signed.csv.gz", Stream.of(
+                new ContractSigned(new ContractNumber(1), Instant.parse("2024-03-01T00:00:00Z"), "Alice")));
+
+        // Act / Assert
+        assertThrows(IllegalArgumentException.class, () -> objectUnderTest.readContracts("signed.csv.gz", 4, contracts -> { }));
+    }
+
+    @Test
+    void rejectFileOutsideDirectory()
+    {
+        // Act / Assert
+        assertThrows(IllegalArgumentException.class, () -> objectUnderTest.writeContracts("../contracts.csv.gz", Stream.empty()));
+    }
+}
@@ -0,0 +1,94 @@
+package io.jexxa.tutorials.contractmanagement.infrastructure.drivenadapter.persistence;
+
+import io.jexxa.tutorials.contractmanagement.domain.contract.ContractNumber;
+import io.jexxa.tutorials.contractmanagement.domain.contract.ContractSigned;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AuditEventArchiveFileTest
+{
+    @TempDir
+    Path directory;
+
+    @Test
+    void readWrittenDomainEvents() throws IOException
+    {
+        // Arrange - domain events are not sorted, and contract numbers decrease in between
+        var file = directory.resolve("2024-03.archive");
+        var domainEvents = List.of(
+                signed(1_000_000, "2024-03-31T23:59:59.999999999Z", "Alice"),
+                signed(17, "2024-03-01T00:00:00Z", "Bob"),
+                signed(5, "2024-03-15T08:30:00.000001Z", null),
+                signed(3, "2024-03-15T08:30:00.000001Z", "Zoë, Müller"),
+                signed(17, "2024-03-02T10:00:00Z", "Alice"));
+
+        // Act
+        AuditEventArchiveFile.write(file, domainEvents);
+        var result = AuditEventArchiveFile.read(file);
+
+        // Assert - domain events are returned in the order of signature date and contract number
+        assertEquals(List.of(
+                signed(17, "2024-03-01T00:00:00Z", "Bob"),
+                signed(17, "2024-03-02T10:00:00Z", "Alice"),
+                signed(3, "2024-03-15T08:30:00.000001Z", "Zoë, Müller"),
+                signed(5, "2024-03-15T08:30:00.000001Z", null),
+                signed(1_000_000, "2024-03-31T23:59:59.999999999Z", "Alice")), result);
+    }
+
+    @Test
+    void readFooterOnly() throws IOException
+    {
+        // Arrange
+        var file = directory.resolve("2024-03.archive");
+        var minDate = Instant.parse("2024-03-01T00:00:00Z");
+        var maxDate = Instant.parse("2024-03-31T12:00:00Z");
+        AuditEventArchiveFile.write(file, List.of(
+                signed(2, maxDate.toString(), "Alice"),
+                signed(1, minDate.toString(), "Bob")));
+
+        // Act
+        var result = AuditEventArchiveFile.readFooter(file);
+
+        // Assert
+        assertEquals(new AuditEventArchiveFile.Footer(
+                AuditEventArchiveFile.epochNanos(minDate),
+                AuditEventArchiveFile.epochNanos(maxDate),
+                2), result);
+        assertTrue(result.overlaps(AuditEventArchiveFile.epochNanos(maxDate), AuditEventArchiveFile.epochNanos(Instant.MAX)));
+        assertFalse(result.overlaps(AuditEventArchiveFile.epochNanos(Instant.MIN), AuditEventArchiveFile.epochNanos(minDate) - 1));
+    }
+
+    @Test
+    void replaceExistingFile() throws IOException
+    {
+        // Arrange
+        var file = directory.resolve("2024-03.archive");
+        AuditEventArchiveFile.write(file, List.of(signed(1, "2024-03-01T00:00:00Z", "Alice")));
+
+        // Act
+        AuditEventArchiveFile.write(file, List.of());
+
+        // Assert
+        assertTrue(AuditEventArchiveFile.read(file).isEmpty());
+        assertFalse(AuditEventArchiveFile.readFooter(file).overlaps(Long.MIN_VALUE, Long.MAX_VALUE));
+        try (var files = Files.list(directory))
+        {
+            assertEquals(List.of(file), files.toList());
+        }
+    }
+
+    private static ContractSigned signed(int contractNumber, String signatureDate, String advisor)
+    {
+        return new ContractSigned(new ContractNumber(contractNumber), Instant.parse(signatureDate), advisor);
+    }
+}
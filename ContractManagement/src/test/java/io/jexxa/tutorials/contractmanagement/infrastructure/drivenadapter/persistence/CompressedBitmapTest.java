@@ -0,0 +1,145 @@
+package io.jexxa.tutorials.contractmanagement.infrastructure.drivenadapter.persistence;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.Random;
+import java.util.function.BiConsumer;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CompressedBitmapTest
+{
+    @Test
+    void addValuesOfSeveralPartitions()
+    {
+        // Arrange
+        var objectUnderTest = new CompressedBitmap();
+
+        // Act - values are added in descending order and across partition boundaries
+        objectUnderTest.add(Integer.MAX_VALUE);
+        objectUnderTest.add(65_536);
+        objectUnderTest.add(65_535);
+        objectUnderTest.add(0);
+        objectUnderTest.add(65_536);
+
+        // Assert
+        assertArrayEquals(new int[]{0, 65_535, 65_536, Integer.MAX_VALUE}, objectUnderTest.toArray());
+        assertEquals(4, objectUnderTest.cardinality());
+        assertTrue(objectUnderTest.contains(65_535));
+        assertFalse(objectUnderTest.contains(1));
+    }
+
+    @Test
+    void convertBetweenArrayAndBitmapContainer()
+    {
+        // Arrange - 5000 values exceed the limit of an array container
+        var objectUnderTest = new CompressedBitmap();
+        for (var i = 0; i < 5000; ++i)
+        {
+            objectUnderTest.add(i * 2);
+        }
+
+        // Act - removing values shrinks the bitmap container back to an array container
+        for (var i = 0; i < 4500; ++i)
+        {
+            objectUnderTest.remove(i * 2);
+        }
+
+        // Assert
+        assertEquals(500, objectUnderTest.cardinality());
+        assertTrue(objectUnderTest.contains(9000));
+        assertFalse(objectUnderTest.contains(8998));
+        assertEquals(9000, objectUnderTest.toArray()[0]);
+    }
+
+    @Test
+    void removeLastValueOfPartition()
+    {
+        // Arrange
+        var objectUnderTest = new CompressedBitmap();
+        objectUnderTest.add(1);
+        objectUnderTest.add(70_000);
+
+        // Act
+        objectUnderTest.remove(70_000);
+        objectUnderTest.remove(70_001);
+        objectUnderTest.remove(1);
+
+        // Assert
+        assertTrue(objectUnderTest.isEmpty());
+        assertEquals(0, objectUnderTest.toArray().length);
+    }
+
+    @Test
+    void combineLikeBitSet()
+    {
+        // Arrange - mixes sparse and dense partitions so that all container combinations are used
+        var random = new Random(42);
+        var first = new CompressedBitmap();
+        var second = new CompressedBitmap();
+        var firstExpected = new BitSet();
+        var secondExpected = new BitSet();
+        fill(random, first, firstExpected, 0, 20_000);
+        fill(random, first, firstExpected, 3 * 65_536, 100);
+        fill(random, second, secondExpected, 0, 300);
+        fill(random, second, secondExpected, 65_536, 20_000);
+        fill(random, second, secondExpected, 3 * 65_536, 10_000);
+
+        // Act
+        var and = first.and(second);
+        var andNot = first.andNot(second);
+        var or = first.or(second);
+
+        // Assert
+        assertEquals(toBitSet(and), combine(firstExpected, secondExpected, BitSet::and));
+        assertEquals(toBitSet(andNot), combine(firstExpected, secondExpected, BitSet::andNot));
+        assertEquals(toBitSet(or), combine(firstExpected, secondExpected, BitSet::or));
+        assertEquals(firstExpected, toBitSet(first));
+        assertEquals(secondExpected, toBitSet(second));
+    }
+
+    @Test
+    void copyIsIndependent()
+    {
+        // Arrange
+        var objectUnderTest = new CompressedBitmap();
+        objectUnderTest.add(7);
+
+        // Act
+        var result = objectUnderTest.copy();
+        result.add(8);
+        objectUnderTest.remove(7);
+
+        // Assert
+        assertArrayEquals(new int[]{7, 8}, result.toArray());
+        assertTrue(objectUnderTest.isEmpty());
+    }
+
+    private static void fill(Random random, CompressedBitmap bitmap, BitSet expected, int offset, int count)
+    {
+        for (var i = 0; i < count; ++i)
+        {
+            var value = offset + random.nextInt(65_536);
+            bitmap.add(value);
+            expected.set(value);
+        }
+    }
+
+    private static BitSet toBitSet(CompressedBitmap bitmap)
+    {
+        var result = new BitSet();
+        bitmap.forEach(result::set);
+        return result;
+    }
+
+    private static BitSet combine(BitSet first, BitSet second, BiConsumer<BitSet, BitSet> operation)
+    {
+        var result = (BitSet) first.clone();
+        operation.accept(result, second);
+        return result;
+    }
+}
@@ -0,0 +1,92 @@
+package io.jexxa.tutorials.contractmanagement.infrastructure.drivenadapter.persistence;
+
+import io.jexxa.tutorials.contractmanagement.domain.contract.Contract;
+import io.jexxa.tutorials.contractmanagement.domain.contract.ContractNumber;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static io.jexxa.tutorials.contractmanagement.domain.contract.Contract.newContract;
+import static io.jexxa.tutorials.contractmanagement.domain.contract.Contract.restoreContract;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ContractBitmapIndexTest
+{
+    private static final Instant SIGNATURE_DATE = Instant.parse("2024-03-10T12:00:00Z");
+
+    @Test
+    void queryBySignedStateAndAdvisor()
+    {
+        // Arrange
+        var contracts = List.of(
+                newContract(new ContractNumber(1), "Alice"),
+                signed(2, "Alice"),
+                newContract(new ContractNumber(3), "Bob"),
+                signed(100_000, "Bob"));
+
+        // Act
+        var objectUnderTest = ContractBitmapIndex.of(contracts::stream);
+
+        // Assert
+        assertArrayEquals(new int[]{2, 100_000}, objectUnderTest.getSignedContracts().toArray());
+        assertArrayEquals(new int[]{1, 3}, objectUnderTest.getUnsignedContracts().toArray());
+        assertArrayEquals(new int[]{1, 2}, objectUnderTest.getByAdvisor("Alice").toArray());
+        assertArrayEquals(new int[]{3}, objectUnderTest.getByAdvisor("Bob", false).toArray());
+        assertArrayEquals(new int[]{100_000}, objectUnderTest.getByAdvisor("Bob", true).toArray());
+        assertTrue(objectUnderTest.getByAdvisor("Carol").isEmpty());
+    }
+
+    @Test
+    void replaceEntryOnUpdate()
+    {
+        // Arrange
+        var objectUnderTest = ContractBitmapIndex.of(() -> Stream.of(newContract(new ContractNumber(1), "Alice")));
+
+        // Act - the contract is signed and moved to another advisor
+        objectUnderTest.add(signed(1, "Bob"));
+
+        // Assert
+        assertTrue(objectUnderTest.getUnsignedContracts().isEmpty());
+        assertTrue(objectUnderTest.getByAdvisor("Alice").isEmpty());
+        assertArrayEquals(new int[]{1}, objectUnderTest.getByAdvisor("Bob", true).toArray());
+    }
+
+    @Test
+    void removeEntry()
+    {
+        // Arrange
+        var objectUnderTest = ContractBitmapIndex.of(Stream::empty);
+        objectUnderTest.addAll(List.of(signed(1, "Alice"), newContract(new ContractNumber(5000), "Alice")));
+
+        // Act
+        objectUnderTest.remove(new ContractNumber(1));
+        objectUnderTest.remove(new ContractNumber(2));
+
+        // Assert
+        assertTrue(objectUnderTest.getSignedContracts().isEmpty());
+        assertArrayEquals(new int[]{5000}, objectUnderTest.getByAdvisor("Alice").toArray());
+    }
+
+    @Test
+    void returnCopies()
+    {
+        // Arrange
+        var objectUnderTest = ContractBitmapIndex.of(() -> Stream.of(signed(1, "Alice")));
+
+        // Act
+        objectUnderTest.getSignedContracts().remove(1);
+        objectUnderTest.getByAdvisor("Alice").add(2);
+
+        // Assert
+        assertArrayEquals(new int[]{1}, objectUnderTest.getSignedContracts().toArray());
+        assertArrayEquals(new int[]{1}, objectUnderTest.getByAdvisor("Alice").toArray());
+    }
+
+    private static Contract signed(int contractNumber, String advisor)
+    {
+        return restoreContract(new ContractNumber(contractNumber), advisor, true, SIGNATURE_DATE);
+    }
+}
@@ -0,0 +1,166 @@
+package io.jexxa.tutorials.contractmanagement.infrastructure.drivenadapter.persistence;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class OffHeapCacheTest
+{
+    @Test
+    void getCachedValue()
+    {
+        // Arrange
+        var objectUnderTest = new OffHeapCache("Contract", 16, 64);
+
+        // Act
+        objectUnderTest.put(42, value(42), objectUnderTest.stamp());
+        objectUnderTest.put(42, value(43), objectUnderTest.stamp());
+
+        // Assert
+        assertArrayEquals(value(43), objectUnderTest.get(42));
+        assertNull(objectUnderTest.get(7));
+        assertEquals(1, objectUnderTest.getMetric().entries());
+        assertEquals(1, objectUnderTest.getMetric().hits());
+        assertEquals(1, objectUnderTest.getMetric().misses());
+    }
+
+    @Test
+    void keepProbeSequencesAfterInvalidate()
+    {
+        // Arrange - the hash table has 2048 entries, so that many of the keys share a probe sequence
+        var objectUnderTest = new OffHeapCache("Contract", 1000, 64);
+        for (var key = 0; key < 1000; ++key)
+        {
+            objectUnderTest.put(key, value(key), objectUnderTest.stamp());
+        }
+
+        // Act - each removal shifts the subsequent entries of its probe sequence backward
+        for (var key = 0; key < 1000; key += 2)
+        {
+            objectUnderTest.invalidate(key);
+        }
+
+        // Assert
+        for (var key = 0; key < 1000; ++key)
+        {
+            if (key % 2 == 0)
+            {
+                assertNull(objectUnderTest.get(key));
+            }
+            else
+            {
+                assertArrayEquals(value(key), objectUnderTest.get(key));
+            }
+        }
+        assertEquals(500, objectUnderTest.getMetric().entries());
+    }
+
+    @Test
+    void reuseSlotsAfterInvalidate()
+    {
+        // Arrange
+        var objectUnderTest = new OffHeapCache("Contract", 4, 64);
+        for (var key = 0; key < 4; ++key)
+        {
+            objectUnderTest.put(key, value(key), objectUnderTest.stamp());
+        }
+
+        // Act - the oldest key is replaced by a new one in each round
+        for (var round = 1; round <= 100; ++round)
+        {
+            objectUnderTest.invalidate(round - 1);
+            objectUnderTest.put(round + 3, value(round + 3), objectUnderTest.stamp());
+        }
+
+        // Assert - each new value takes the freed slot, so that no value is evicted
+        assertEquals(0, objectUnderTest.getMetric().evictions());
+        assertEquals(4, objectUnderTest.getMetric().entries());
+        assertNull(objectUnderTest.get(99));
+        for (var key = 100; key <= 103; ++key)
+        {
+            assertArrayEquals(value(key), objectUnderTest.get(key));
+        }
+    }
+
+    @Test
+    void evictUnreferencedValue()
+    {
+        // Arrange
+        var objectUnderTest = new OffHeapCache("Contract", 3, 64);
+        objectUnderTest.put(1, value(1), objectUnderTest.stamp());
+        objectUnderTest.put(2, value(2), objectUnderTest.stamp());
+        objectUnderTest.put(3, value(3), objectUnderTest.stamp());
+        objectUnderTest.get(1);
+        objectUnderTest.get(2);
+
+        // Act - the clock hand gives 1 and 2 a second chance and evicts 3
+        objectUnderTest.put(4, value(4), objectUnderTest.stamp());
+
+        // Assert
+        assertNull(objectUnderTest.get(3));
+        assertArrayEquals(value(1), objectUnderTest.get(1));
+        assertArrayEquals(value(2), objectUnderTest.get(2));
+        assertArrayEquals(value(4), objectUnderTest.get(4));
+        assertEquals(1, objectUnderTest.getMetric().evictions());
+        assertEquals(3, objectUnderTest.getMetric().entries());
+    }
+
+    @Test
+    void evictAfterSecondChance()
+    {
+        // Arrange
+        var objectUnderTest = new OffHeapCache("Contract", 3, 64);
+        objectUnderTest.put(1, value(1), objectUnderTest.stamp());
+        objectUnderTest.put(2, value(2), objectUnderTest.stamp());
+        objectUnderTest.put(3, value(3), objectUnderTest.stamp());
+        objectUnderTest.get(1);
+        objectUnderTest.get(2);
+        objectUnderTest.get(3);
+
+        // Act - all values are referenced, so that the hand clears all flags and evicts the first value
+        objectUnderTest.put(4, value(4), objectUnderTest.stamp());
+
+        // Assert
+        assertNull(objectUnderTest.get(1));
+        assertArrayEquals(value(4), objectUnderTest.get(4));
+        assertEquals(1, objectUnderTest.getMetric().evictions());
+    }
+
+    @Test
+    void skipValueLoadedBeforeInvalidate()
+    {
+        // Arrange
+        var objectUnderTest = new OffHeapCache("Contract", 16, 64);
+        var stamp = objectUnderTest.stamp();
+
+        // Act - another key is written while the value is loaded
+        objectUnderTest.invalidate(7);
+        objectUnderTest.put(42, value(42), stamp);
+
+        // Assert
+        assertNull(objectUnderTest.get(42));
+    }
+
+    @Test
+    void rejectLargeValue()
+    {
+        // Arrange
+        var objectUnderTest = new OffHeapCache("Contract", 16, 4);
+
+        // Act
+        objectUnderTest.put(42, new byte[5], objectUnderTest.stamp());
+
+        // Assert
+        assertNull(objectUnderTest.get(42));
+        assertEquals(1, objectUnderTest.getMetric().rejectedValues());
+    }
+
+    private static byte[] value(int key)
+    {
+        return ("{\"contractNumber\":" + key + "}").getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,267 @@
+package io.jexxa.tutorials.contractmanagement.infrastructure.drivenadapter.persistence;
+
+import io.jexxa.tutorials.contractmanagement.domain.contract.ContractNumber;
+import io.jexxa.tutorials.contractmanagement.domain.contract.ContractSigned;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PartitionedAuditEventLogTest
+{
+    private static final StandInDatabase DATABASE = new StandInDatabase();
+    private static final AtomicInteger DATABASE_NAMES = new AtomicInteger();
+    private static final YearMonth EXPIRED_MONTH = YearMonth.now(ZoneOffset.UTC).minusMonths(24);
+
+    private PartitionedAuditEventLog firstInstance;
+    private PartitionedAuditEventLog secondInstance;
+
+    @BeforeAll
+    static void registerDatabase() throws SQLException
+    {
+        DriverManager.registerDriver(DATABASE);
+    }
+
+    @BeforeEach
+    void initTest()
+    {
+        // Each log is opened once per URL, so that each test uses new URLs, which all refer to the stand-in database
+        DATABASE.clear();
+        var databaseName = DATABASE_NAMES.incrementAndGet();
+        firstInstance = PartitionedAuditEventLog.open(properties(databaseName + "-first"));
+        secondInstance = PartitionedAuditEventLog.open(properties(databaseName + "-second"));
+    }
+
+    @Test
+    void rejectPartitionDetachedByOtherInstance()
+    {
+        // Arrange
+        firstInstance.add(signedIn(EXPIRED_MONTH, 1));
+
+        // Act
+        secondInstance.detachPartitions(12);
+        var result = assertThrows(IllegalStateException.class, () -> firstInstance.add(signedIn(EXPIRED_MONTH, 2)));
+
+        // Assert
+        assertTrue(result.getMessage().contains("is detached"), result.getMessage());
+        assertEquals(1, DATABASE.rows.size());
+    }
+
+    @Test
+    void recreatePartitionDroppedByOtherInstance()
+    {
+        // Arrange
+        firstInstance.add(signedIn(EXPIRED_MONTH, 1));
+        secondInstance.detachPartitions(12);
+
+        // Act - the detached partition is archived and dropped
+        DATABASE.partitions.remove(partitionName(EXPIRED_MONTH));
+        firstInstance.add(signedIn(EXPIRED_MONTH, 2));
+
+        // Assert
+        assertTrue(DATABASE.partitions.get(partitionName(EXPIRED_MONTH)));
+        assertEquals(2, DATABASE.rows.size());
+    }
+
+    private static Properties properties(String databaseName)
+    {
+        var properties = new Properties();
+        properties.setProperty(JDBCConnections.JDBC_DRIVER, StandInDatabase.class.getName());
+        properties.setProperty(JDBCConnections.JDBC_URL, StandInDatabase.URL_PREFIX + databaseName);
+        return properties;
+    }
+
+    private static ContractSigned signedIn(YearMonth yearMonth, int contractNumber)
+    {
+        return new ContractSigned(new ContractNumber(contractNumber), yearMonth.atDay(10).atStartOfDay().toInstant(ZoneOffset.UTC), "Alice");
+    }
+
+    private static String partitionName(YearMonth yearMonth)
+    {
+        return String.format("contractsignedpartitioned_%04d%02d", yearMonth.getYear(), yearMonth.getMonthValue());
+    }
+
+    /**
+     * Stand-in for the catalog and the table of PostgreSQL that only understands the statements of
+     * {@link PartitionedAuditEventLog}. Partitions are stored by name with a flag whether they are attached.
+     */
+    private static final class StandInDatabase implements Driver
+    {
+        static final String URL_PREFIX = "jdbc:standin:";
+
+        final Map<String, Boolean> partitions = new ConcurrentHashMap<>();
+        final List<Object[]> rows = new ArrayList<>();
+
+        synchronized void clear()
+        {
+            partitions.clear();
+            rows.clear();
+        }
+
+        @Override
+        public Connection connect(String url, Properties info)
+        {
+            return acceptsURL(url) ? proxy(Connection.class, (method, args) -> switch (method)
+            {
+                case "createStatement" -> statement(null);
+                case "prepareStatement" -> statement((String) args[0]);
+                case "setAutoCommit", "commit", "rollback", "close" -> null;
+                default -> throw new UnsupportedOperationException(method);
+            }) : null;
+        }
+
+        private Object statement(String preparedSql)
+        {
+            var parameters = new HashMap<Integer, Object>();
+            var batch = new ArrayList<Object[]>();
+            Class<? extends Statement> type = preparedSql == null ? Statement.class : PreparedStatement.class;
+            return proxy(type, (method, args) -> switch (method)
+            {
+                case "execute" -> execute((String) args[0]);
+                case "executeQuery" -> executeQuery(preparedSql != null ? preparedSql : (String) args[0], parameters);
+                case "setInt", "setString", "setTimestamp" -> parameters.put((Integer) args[0], args[1]);
+                case "addBatch" -> batch.add(new Object[]{parameters.get(1), parameters.get(2), parameters.get(3)});
+                case "executeBatch" -> insert(batch);
+                case "setFetchSize", "close" -> null;
+                default -> throw new UnsupportedOperationException(method);
+            });
+        }
+
+        private boolean execute(String sql)
+        {
+            var words = sql.split(" ");
+            if (sql.contains(" PARTITION OF "))
+            {
+                partitions.putIfAbsent(words[5].toLowerCase(), true);
+            }
+            else if (sql.contains(" DETACH PARTITION "))
+            {
+                partitions.replace(words[5].toLowerCase(), false);
+            }
+            return false;
+        }
+
+        private ResultSet executeQuery(String sql, Map<Integer, Object> parameters)
+        {
+            var result = new ArrayList<Object[]>();
+            if (sql.startsWith("SELECT NOT pg_inherits.inhdetachpending"))
+            {
+                if (partitions.containsKey((String) parameters.get(2)))
+                {
+                    result.add(new Object[]{partitions.get((String) parameters.get(2))});
+                }
+            }
+            else if (sql.startsWith("SELECT child.relname"))
+            {
+                partitions.forEach((name, attached) -> {
+                    if (attached)
+                    {
+                        result.add(new Object[]{name});
+                    }
+                });
+            }
+            else
+            {
+                throw new UnsupportedOperationException(sql);
+            }
+
+            var position = new AtomicInteger(-1);
+            return proxy(ResultSet.class, (method, args) -> switch (method)
+            {
+                case "next" -> position.incrementAndGet() < result.size();
+                case "getString", "getBoolean" -> result.get(position.get())[(Integer) args[0] - 1];
+                case "close" -> null;
+                default -> throw new UnsupportedOperationException(method);
+            });
+        }
+
+        private synchronized int[] insert(List<Object[]> batch) throws SQLException
+        {
+            for (var row : batch)
+            {
+                var yearMonth = YearMonth.from(((Timestamp) row[1]).toInstant().atZone(ZoneOffset.UTC));
+                if (!partitions.getOrDefault(partitionName(yearMonth), false))
+                {
+                    throw new SQLException("no partition of relation \"contractsignedpartitioned\" found for row", "23514");
+                }
+            }
+            rows.addAll(batch);
+            return new int[batch.size()];
+        }
+
+        @Override
+        public boolean acceptsURL(String url)
+        {
+            return url.startsWith(URL_PREFIX);
+        }
+
+        @Override
+        public DriverPropertyInfo[] getPropertyInfo(String url, Properties info)
+        {
+            return new DriverPropertyInfo[0];
+        }
+
+        @Override
+        public int getMajorVersion()
+        {
+            return 1;
+        }
+
+        @Override
+        public int getMinorVersion()
+        {
+            return 0;
+        }
+
+        @Override
+        public boolean jdbcCompliant()
+        {
+            return false;
+        }
+
+        @Override
+        public Logger getParentLogger() throws SQLFeatureNotSupportedException
+        {
+            throw new SQLFeatureNotSupportedException();
+        }
+
+        private static <T> T proxy(Class<T> type, JDBCMethod handler)
+        {
+            return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type},
+                    (proxy, method, args) -> method.getDeclaringClass() == Object.class
+                            ? method.invoke(handler, args)
+                            : handler.invoke(method.getName(), args)));
+        }
+    }
+
+    @FunctionalInterface
+    private interface JDBCMethod
+    {
+        Object invoke(String method, Object[] args) throws SQLException;
+    }
+}
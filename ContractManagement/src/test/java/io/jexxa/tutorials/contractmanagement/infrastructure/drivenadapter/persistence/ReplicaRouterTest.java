@@ -0,0 +1,147 @@
+package io.jexxa.tutorials.contractmanagement.infrastructure.drivenadapter.persistence;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReplicaRouterTest
+{
+    private static final String PRIMARY_URL = "jdbc:postgresql://primary:5432/contractmanagement";
+    private static final String REPLICA_URL = "jdbc:postgresql://replica:5432/contractmanagement";
+
+    private final Properties properties = new Properties();
+    private long nanoTime;
+    private Long replicationLag; // null means that the replica does not stream from the primary
+    private boolean replicaReachable;
+    private ReplicaRouter objectUnderTest;
+
+    @BeforeEach
+    void initTest()
+    {
+        properties.setProperty(JDBCConnections.JDBC_URL, PRIMARY_URL);
+        properties.setProperty(ReplicaRouter.REPLICA_URL, REPLICA_URL);
+        properties.setProperty(ReplicaRouter.READ_AFTER_WRITE, "1000");
+        properties.setProperty(ReplicaRouter.MAX_LAG, "5000");
+
+        replicationLag = 0L;
+        replicaReachable = true;
+        objectUnderTest = new ReplicaRouter(properties, () -> nanoTime, replicaProperties -> {
+            assertEquals(REPLICA_URL, replicaProperties.getProperty(JDBCConnections.JDBC_URL));
+            if (!replicaReachable)
+            {
+                throw new SQLException("Connection refused");
+            }
+            return replicationLag;
+        });
+        elapse(2000);
+    }
+
+    @Test
+    void usePrimaryUntilFirstMeasurement()
+    {
+        // Act
+        var result = objectUnderTest.select(properties);
+
+        // Assert
+        assertEquals(PRIMARY_URL, result.getProperty(JDBCConnections.JDBC_URL));
+    }
+
+    @Test
+    void useReplicaWithinMaxLag()
+    {
+        // Arrange
+        replicationLag = 5000L;
+
+        // Act
+        objectUnderTest.measureLag();
+        var result = objectUnderTest.select(properties);
+
+        // Assert
+        assertTrue(objectUnderTest.useReplica());
+        assertEquals(REPLICA_URL, result.getProperty(JDBCConnections.JDBC_URL));
+        assertEquals("false", result.getProperty("io.jexxa.jdbc.autocreate.table"));
+    }
+
+    @Test
+    void usePrimaryAfterWrite()
+    {
+        // Arrange
+        objectUnderTest.measureLag();
+
+        // Act
+        objectUnderTest.recordWrite();
+        elapse(1000);
+        var withinReadAfterWrite = objectUnderTest.useReplica();
+        elapse(1);
+        var afterReadAfterWrite = objectUnderTest.useReplica();
+
+        // Assert
+        assertFalse(withinReadAfterWrite);
+        assertTrue(afterReadAfterWrite);
+    }
+
+    @Test
+    void usePrimaryIfReplicaIsStale()
+    {
+        // Arrange
+        objectUnderTest.measureLag();
+
+        // Act
+        replicationLag = 5001L;
+        objectUnderTest.measureLag();
+        var stale = objectUnderTest.useReplica();
+        replicationLag = 10L;
+        objectUnderTest.measureLag();
+        var caughtUp = objectUnderTest.useReplica();
+
+        // Assert
+        assertFalse(stale);
+        assertTrue(caughtUp);
+    }
+
+    @Test
+    void usePrimaryIfReplicaDoesNotStream()
+    {
+        // Arrange
+        objectUnderTest.measureLag();
+
+        // Act
+        replicationLag = null;
+        objectUnderTest.measureLag();
+
+        // Assert
+        assertFalse(objectUnderTest.useReplica());
+        assertEquals(PRIMARY_URL, objectUnderTest.select(properties).getProperty(JDBCConnections.JDBC_URL));
+    }
+
+    @Test
+    void fallBackToPrimaryWhileReplicaIsUnreachable()
+    {
+        // Arrange
+        objectUnderTest.measureLag();
+
+        // Act
+        replicaReachable = false;
+        objectUnderTest.measureLag();
+        var unreachable = objectUnderTest.useReplica();
+        replicaReachable = true;
+        objectUnderTest.measureLag();
+        var reachable = objectUnderTest.useReplica();
+
+        // Assert
+        assertFalse(unreachable);
+        assertTrue(reachable);
+    }
+
+    private void elapse(long millis)
+    {
+        nanoTime += TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+}
@@ -0,0 +1,78 @@
+package io.jexxa.tutorials.contractmanagement.infrastructure.drivenadapter.persistence;
+
+import io.jexxa.tutorials.contractmanagement.domain.contract.ContractNumber;
+import io.jexxa.tutorials.contractmanagement.domain.contract.ContractSigned;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.Properties;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SegmentAuditEventLogTest
+{
+    private static final Instant SIGNATURE_DATE = Instant.parse("2024-03-10T12:00:00Z");
+
+    @TempDir
+    Path directory;
+
+    private SegmentAuditEventLog objectUnderTest;
+
+    @BeforeEach
+    void initTest()
+    {
+        var properties = new Properties();
+        properties.setProperty(SegmentAuditEventLog.DIRECTORY, directory.toString());
+        properties.setProperty(SegmentAuditEventLog.SEGMENT_SIZE, String.valueOf(64 * 1024));
+        properties.setProperty(SegmentAuditEventLog.GROUP_COMMIT_INTERVAL, "0");
+        objectUnderTest = SegmentAuditEventLog.open(properties);
+    }
+
+    @Test
+    void skipStoredDomainEvents()
+    {
+        // Arrange
+        objectUnderTest.addAll(List.of(signed(1, 0, "Alice"), signed(2, 60, "Bob")));
+
+        // Act - contract 1 is signed again at another date, contract 3 is new and contained twice
+        objectUnderTest.addAllIfAbsent(List.of(
+                signed(2, 60, "Bob"),
+                signed(1, 0, "Alice"),
+                signed(1, 30, "Alice"),
+                signed(3, 0, "Carol"),
+                signed(3, 0, "Carol")));
+
+        // Assert
+        assertEquals(List.of(signed(1, 0, "Alice"), signed(2, 60, "Bob"), signed(1, 30, "Alice"), signed(3, 0, "Carol")),
+                objectUnderTest.get());
+    }
+
+    @Test
+    void skipStoredDomainEventsAcrossBlocksAndSegments()
+    {
+        // Arrange - enough domain events for several index blocks and segments, with overlapping ranges of dates
+        var domainEvents = IntStream.range(0, 5000)
+                .mapToObj(i -> signed(i, i % 1000, "Advisor " + i))
+                .toList();
+        objectUnderTest.addAll(domainEvents.subList(0, 3000));
+
+        // Act
+        objectUnderTest.addAllIfAbsent(domainEvents);
+
+        // Assert
+        assertEquals(domainEvents, objectUnderTest.get());
+        assertEquals(List.of(signed(999, 999, "Advisor 999"), signed(1999, 999, "Advisor 1999"), signed(2999, 999, "Advisor 2999"),
+                        signed(3999, 999, "Advisor 3999"), signed(4999, 999, "Advisor 4999")),
+                objectUnderTest.get(SIGNATURE_DATE.plusSeconds(999), SIGNATURE_DATE.plusSeconds(999)));
+    }
+
+    private static ContractSigned signed(int contractNumber, long seconds, String advisor)
+    {
+        return new ContractSigned(new ContractNumber(contractNumber), SIGNATURE_DATE.plusSeconds(seconds), advisor);
+    }
+}
@@ -0,0 +1,135 @@
+package io.jexxa.tutorials.contractmanagement.infrastructure.drivenadapter.persistence;
+
+import io.jexxa.tutorials.contractmanagement.domain.contract.AdvisorRanking;
+import io.jexxa.tutorials.contractmanagement.domain.contract.ContractNumber;
+import io.jexxa.tutorials.contractmanagement.domain.contract.ContractSigned;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SlidingWindowLeaderboardTest
+{
+    private static final Instant NOW = Instant.parse("2024-03-10T12:00:00Z");
+
+    private final AtomicReference<Instant> clock = new AtomicReference<>(NOW);
+
+    @Test
+    void rankAdvisorsPerWindow()
+    {
+        // Arrange
+        var objectUnderTest = new SlidingWindowLeaderboard(List.of(1, 7), clock::get);
+
+        // Act
+        objectUnderTest.add(signed(1, NOW, "Alice"));
+        objectUnderTest.add(signed(2, NOW, "Alice"));
+        objectUnderTest.add(signed(3, NOW.minus(Duration.ofDays(3)), "Bob"));
+        objectUnderTest.add(signed(4, NOW.minus(Duration.ofDays(3)), "Bob"));
+        objectUnderTest.add(signed(5, NOW.minus(Duration.ofDays(3)), "Bob"));
+        objectUnderTest.add(signed(6, NOW, null));
+
+        // Assert
+        assertEquals(List.of(new AdvisorRanking("Bob", 3), new AdvisorRanking("Alice", 2)), objectUnderTest.getTopAdvisors(7, 10));
+        assertEquals(List.of(new AdvisorRanking("Bob", 3)), objectUnderTest.getTopAdvisors(7, 1));
+        assertEquals(List.of(new AdvisorRanking("Alice", 2)), objectUnderTest.getTopAdvisors(1, 10));
+    }
+
+    @Test
+    void expireDaysWhenDayChanges()
+    {
+        // Arrange
+        var objectUnderTest = new SlidingWindowLeaderboard(List.of(1, 7), clock::get);
+        objectUnderTest.add(signed(1, NOW, "Alice"));
+        objectUnderTest.add(signed(2, NOW, "Alice"));
+        objectUnderTest.add(signed(3, NOW.minus(Duration.ofDays(3)), "Bob"));
+        objectUnderTest.add(signed(4, NOW.minus(Duration.ofDays(3)), "Bob"));
+        objectUnderTest.add(signed(5, NOW.minus(Duration.ofDays(3)), "Bob"));
+
+        // Act / Assert - the day of Alice leaves the window of one day at midnight (UTC)
+        clock.set(Instant.parse("2024-03-10T23:59:59Z"));
+        assertEquals(List.of(new AdvisorRanking("Alice", 2)), objectUnderTest.getTopAdvisors(1, 10));
+
+        clock.set(Instant.parse("2024-03-11T00:00:00Z"));
+        assertTrue(objectUnderTest.getTopAdvisors(1, 10).isEmpty());
+        assertEquals(List.of(new AdvisorRanking("Bob", 3), new AdvisorRanking("Alice", 2)), objectUnderTest.getTopAdvisors(7, 10));
+
+        // Act / Assert - the day of Bob (March 7th) leaves the window of seven days on March 14th
+        clock.set(Instant.parse("2024-03-14T00:00:00Z"));
+        assertEquals(List.of(new AdvisorRanking("Alice", 2)), objectUnderTest.getTopAdvisors(7, 10));
+
+        // Act / Assert - several days are skipped at once
+        clock.set(Instant.parse("2024-03-30T00:00:00Z"));
+        assertTrue(objectUnderTest.getTopAdvisors(7, 10).isEmpty());
+    }
+
+    @Test
+    void countDaysOfWindowAfterDayChanged()
+    {
+        // Arrange
+        var objectUnderTest = new SlidingWindowLeaderboard(List.of(7), clock::get);
+        objectUnderTest.add(signed(1, NOW, "Alice"));
+
+        // Act - the clock advances before further domain events are added
+        clock.set(NOW.plus(Duration.ofDays(2)));
+        objectUnderTest.add(signed(2, NOW.plus(Duration.ofDays(2)), "Bob"));
+        objectUnderTest.add(signed(3, NOW.plus(Duration.ofDays(2)), "Bob"));
+
+        // Assert
+        assertEquals(List.of(new AdvisorRanking("Bob", 2), new AdvisorRanking("Alice", 1)), objectUnderTest.getTopAdvisors(7, 10));
+
+        clock.set(NOW.plus(Duration.ofDays(7)));
+        assertEquals(List.of(new AdvisorRanking("Bob", 2)), objectUnderTest.getTopAdvisors(7, 10));
+    }
+
+    @Test
+    void ignoreDomainEventsOutsideLongestWindow()
+    {
+        // Arrange
+        var objectUnderTest = new SlidingWindowLeaderboard(List.of(1, 7), clock::get);
+
+        // Act
+        objectUnderTest.add(signed(1, NOW.minus(Duration.ofDays(7)), "Alice"));
+        objectUnderTest.add(signed(2, NOW.minus(Duration.ofDays(6)), "Bob"));
+
+        // Assert
+        assertEquals(List.of(new AdvisorRanking("Bob", 1)), objectUnderTest.getTopAdvisors(7, 10));
+    }
+
+    @Test
+    void countFutureDomainEventsToday()
+    {
+        // Arrange
+        var objectUnderTest = new SlidingWindowLeaderboard(List.of(1), clock::get);
+
+        // Act
+        objectUnderTest.add(signed(1, NOW.plus(Duration.ofDays(3)), "Alice"));
+
+        // Assert
+        assertEquals(List.of(new AdvisorRanking("Alice", 1)), objectUnderTest.getTopAdvisors(1, 10));
+
+        clock.set(NOW.plus(Duration.ofDays(1)));
+        assertTrue(objectUnderTest.getTopAdvisors(1, 10).isEmpty());
+    }
+
+    @Test
+    void rejectUnsupportedWindow()
+    {
+        // Arrange
+        var objectUnderTest = new SlidingWindowLeaderboard(List.of(1, 7), clock::get);
+
+        // Act / Assert
+        assertThrows(IllegalArgumentException.class, () -> objectUnderTest.getTopAdvisors(30, 10));
+        assertThrows(IllegalArgumentException.class, () -> new SlidingWindowLeaderboard(List.of(0), clock::get));
+    }
+
+    private static ContractSigned signed(int contractNumber, Instant signatureDate, String advisor)
+    {
+        return new ContractSigned(new ContractNumber(contractNumber), signatureDate, advisor);
+    }
+}